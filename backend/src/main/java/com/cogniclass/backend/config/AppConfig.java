@@ -1,14 +1,37 @@
 package com.cogniclass.backend.config;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class AppConfig {
     
+    /**
+     * Shared client behind {@code LlmClient}; one instance so connections are pooled
+     * and reused. Idle HTTP/1.1 connections are closed after {@code keepAlive},
+     * well before typical load-balancer idle cutoffs. The JDK reads that setting
+     * once, when its connection pool class is first loaded.
+     * <p>
+     * With {@code spring.threads.virtual.enabled} (the same switch that moves
+     * Tomcat's request handling onto virtual threads) response handling and
+     * streamed-body callbacks run on virtual threads too.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public HttpClient llmHttpClient(@Value("${cogniclass.llm.connect-timeout:5s}") Duration connectTimeout,
+                                    @Value("${cogniclass.llm.keep-alive:30s}") Duration keepAlive,
+                                    @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        System.getProperties().putIfAbsent("jdk.httpclient.keepalive.timeout", String.valueOf(keepAlive.toSeconds()));
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout);
+        if (virtualThreads) {
+            builder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        return builder.build();
     }
-}
\ No newline at end of file
+}
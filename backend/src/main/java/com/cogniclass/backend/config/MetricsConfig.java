@@ -0,0 +1,37 @@
+package com.cogniclass.backend.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.cogniclass.backend.metrics.HikariMetricsTrackerFactory;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.zaxxer.hikari.HikariDataSource;
+
+@Configuration
+public class MetricsConfig {
+
+    // Static so the post-processor exists before the DataSource is created
+    @Bean
+    public static BeanPostProcessor hikariMetricsPostProcessor(ObjectProvider<MetricsRegistry> metrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource && dataSource.getMetricsTrackerFactory() == null) {
+                    dataSource.setMetricsTrackerFactory(new HikariMetricsTrackerFactory(metrics.getObject()));
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Costs a few atomic increments per statement; anything set under spring.jpa.properties wins
+    @Bean
+    public HibernatePropertiesCustomizer statisticsHibernatePropertiesCustomizer(
+            @Value("${cogniclass.metrics.hibernate.enabled:true}") boolean enabled) {
+        return properties -> properties.putIfAbsent("hibernate.generate_statistics", enabled);
+    }
+}
@@ -0,0 +1,51 @@
+package com.cogniclass.backend.config;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.ServletContextAware;
+
+import com.cogniclass.backend.service.JwtService;
+import com.cogniclass.backend.service.MembershipService;
+import com.cogniclass.backend.websocket.GroupChatBroadcaster;
+import com.cogniclass.backend.websocket.GroupChatEndpoint;
+
+import jakarta.servlet.ServletContext;
+import jakarta.websocket.DeploymentException;
+import jakarta.websocket.server.ServerContainer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Registers the group chat endpoint with the servlet container's JSR-356
+ * WebSocket support (Tomcat's WsSci is installed by Spring Boot).
+ */
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class WebSocketConfig implements ServletContextAware, SmartInitializingSingleton {
+
+    private final GroupChatBroadcaster groupChatBroadcaster;
+    private final JwtService jwtService;
+    private final MembershipService membershipService;
+    private ServletContext servletContext;
+
+    @Override
+    public void setServletContext(ServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        ServerContainer container = servletContext == null ? null
+                : (ServerContainer) servletContext.getAttribute(ServerContainer.class.getName());
+        if (container == null) {
+            log.warn("No WebSocket container available, group chat push is disabled");
+            return;
+        }
+        try {
+            container.addEndpoint(GroupChatEndpoint.config(groupChatBroadcaster, jwtService, membershipService));
+        } catch (DeploymentException e) {
+            throw new IllegalStateException("Failed to register " + GroupChatEndpoint.PATH, e);
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package com.cogniclass.backend.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,11 +19,20 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.cogniclass.backend.entity.AIConversation;
 import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.ratelimit.TutorRateLimiter;
 import com.cogniclass.backend.repository.AIConversationRepository;
+import com.cogniclass.backend.repository.StudyGroupRepository;
 import com.cogniclass.backend.service.AITutorService;
+import com.cogniclass.backend.service.ConversationContextAssembler;
+import com.cogniclass.backend.service.ConversationWriter;
+import com.cogniclass.backend.service.MembershipService;
+import com.cogniclass.backend.service.TutorStreamListener;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -28,23 +45,52 @@ public class AITutorController {
     
     private final AITutorService aiTutorService;
     private final AIConversationRepository aiConversationRepository;
+    private final StudyGroupRepository studyGroupRepository;
+    private final ConversationWriter conversationWriter;
+    private final TutorRateLimiter rateLimiter;
+    private final ConversationContextAssembler contextAssembler;
+    private final MembershipService membershipService;
+    
+    @Value("${cogniclass.ai.stream.timeout:60s}")
+    private Duration streamTimeout;
     
     @PostMapping("/tutor")
-    public ResponseEntity<?> getAIResponse(@RequestBody TutorRequest request) {
+    public ResponseEntity<?> getAIResponse(@RequestBody TutorRequest request, Authentication authentication,
+                                           HttpServletRequest httpRequest) {
+        if (!mayUseGroup(request, authentication)) {
+            return notAMember();
+        }
+        TutorRateLimiter.Decision decision = checkRateLimit(request, authentication, httpRequest);
+        if (!decision.allowed()) {
+            return tooManyRequests(decision);
+        }
         try {
-            log.info("Received AI tutor request: {}", request.getMessage());
+            log.debug("AI tutor request for group {} ({} chars)", request.getGroupId(),
+                    request.getMessage() == null ? 0 : request.getMessage().length());
             
-            String aiResponse = aiTutorService.getAIResponse(request.getMessage(), request.getContext());
+            Long userId = userId(authentication);
+            List<Map<String, String>> history = contextAssembler.history(userId, request.getGroupId());
+            AITutorService.TutorReply reply = aiTutorService.getAIResponse(request.getMessage(),
+                    request.getContext(), request.isNoCache(), history);
+            String aiResponse = reply.content();
             String responseType = aiTutorService.determineResponseType(aiResponse);
-            
-            log.info("AI response generated successfully, type: {}", responseType);
+            if (reply.answered()) {
+                saveConversation(authentication, request, aiResponse, responseType);
+                contextAssembler.append(userId, request.getGroupId(), request.getMessage(), aiResponse);
+            }
             
             Map<String, Object> response = new HashMap<>();
             response.put("response", aiResponse);
             response.put("type", responseType);
             response.put("timestamp", LocalDateTime.now());
+            if (!reply.answered()) {
+                response.put("error", true);
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).headers(rateLimitHeaders(decision))
+                        .body(response);
+            }
             
-            return ResponseEntity.ok(response);
+            log.debug("AI response generated successfully, type: {}", responseType);
+            return ResponseEntity.ok().headers(rateLimitHeaders(decision)).body(response);
             
         } catch (Exception e) {
             log.error("Error in AI tutor endpoint: {}", e.getMessage(), e);
@@ -58,6 +104,105 @@ public class AITutorController {
         }
     }
     
+    @PostMapping(value = "/tutor/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamAIResponse(@RequestBody TutorRequest request, Authentication authentication,
+                                              HttpServletRequest httpRequest) {
+        if (!mayUseGroup(request, authentication)) {
+            return notAMember();
+        }
+        TutorRateLimiter.Decision decision = checkRateLimit(request, authentication, httpRequest);
+        if (!decision.allowed()) {
+            return tooManyRequests(decision);
+        }
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        Long userId = userId(authentication);
+        List<Map<String, String>> history = contextAssembler.history(userId, request.getGroupId());
+        
+        aiTutorService.streamAIResponse(request.getMessage(), request.getContext(), history, new TutorStreamListener() {
+            @Override
+            public void onToken(String token) {
+                try {
+                    emitter.send(SseEmitter.event().name("token").data(Map.of("content", token)));
+                } catch (IOException e) {
+                    // Browser went away; failing here cancels the upstream stream
+                    throw new UncheckedIOException(e);
+                }
+            }
+            
+            @Override
+            public void onComplete(String fullResponse) {
+                String responseType = aiTutorService.determineResponseType(fullResponse);
+                // Errors go to onError; a stream that ended without any content is no answer either
+                if (!fullResponse.isBlank()) {
+                    saveConversation(authentication, request, fullResponse, responseType);
+                    contextAssembler.append(userId, request.getGroupId(), request.getMessage(), fullResponse);
+                }
+                try {
+                    Map<String, Object> done = new HashMap<>();
+                    done.put("type", responseType);
+                    done.put("timestamp", LocalDateTime.now());
+                    emitter.send(SseEmitter.event().name("done").data(done));
+                    emitter.complete();
+                } catch (IOException e) {
+                    emitter.completeWithError(e);
+                }
+            }
+            
+            @Override
+            public void onError(Throwable error) {
+                log.error("Error in AI tutor stream: {}", error.getMessage());
+                try {
+                    emitter.send(SseEmitter.event().name("error")
+                            .data(Map.of("response", "I'm having technical difficulties. Please try again.", "error", true)));
+                    emitter.complete();
+                } catch (IOException | IllegalStateException e) {
+                    emitter.completeWithError(error);
+                }
+            }
+        });
+        
+        return ResponseEntity.ok().headers(rateLimitHeaders(decision)).body(emitter);
+    }
+    
+    private TutorRateLimiter.Decision checkRateLimit(TutorRequest request, Authentication authentication,
+                                                     HttpServletRequest httpRequest) {
+        return rateLimiter.check(userId(authentication), request.getGroupId(), httpRequest.getRemoteAddr(),
+                AITutorService.estimateTokens(request.getMessage(), request.getContext()));
+    }
+    
+    private static Long userId(Authentication authentication) {
+        return authentication != null && authentication.getPrincipal() instanceof User user ? user.getId() : null;
+    }
+    
+    // Group context is only for members; checked before the rate limiter so refusals cost no quota
+    private boolean mayUseGroup(TutorRequest request, Authentication authentication) {
+        return request.getGroupId() == null || membershipService.isMember(request.getGroupId(), userId(authentication));
+    }
+    
+    private static ResponseEntity<?> notAMember() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", "Not a member of this group"));
+    }
+    
+    // The JSON content type is set explicitly so the stream endpoint can answer with it too
+    private ResponseEntity<?> tooManyRequests(TutorRateLimiter.Decision decision) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .headers(rateLimitHeaders(decision))
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", "Too many AI tutor requests for this " + decision.scope() + ". Please wait a moment."));
+    }
+    
+    private static HttpHeaders rateLimitHeaders(TutorRateLimiter.Decision decision) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("RateLimit-Limit", String.valueOf(decision.limit()));
+        headers.set("RateLimit-Remaining", String.valueOf(decision.remaining()));
+        headers.set("RateLimit-Reset", String.valueOf(decision.resetSeconds()));
+        headers.set("RateLimit-Policy", decision.limit() + ";w=" + decision.windowSeconds());
+        return headers;
+    }
+    
     @GetMapping("/conversations")
     public ResponseEntity<?> getUserConversations(Authentication authentication) {
         User user = (User) authentication.getPrincipal();
@@ -65,10 +210,28 @@ public class AITutorController {
         return ResponseEntity.ok(conversations);
     }
     
+    // Cached and fresh answers are both recorded so the history stays complete; failures are not answers
+    private void saveConversation(Authentication authentication, TutorRequest request, String aiResponse, String responseType) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof User user)) {
+            return;
+        }
+        AIConversation conversation = new AIConversation();
+        conversation.setUser(user);
+        if (request.getGroupId() != null) {
+            conversation.setStudyGroup(studyGroupRepository.getReferenceById(request.getGroupId()));
+        }
+        conversation.setUserMessage(request.getMessage());
+        conversation.setAiResponse(aiResponse);
+        conversation.setResponseType(responseType);
+        conversation.setCreatedAt(LocalDateTime.now());
+        conversationWriter.submit(conversation);
+    }
+    
     @Data
     static class TutorRequest {
         private String message;
         private String context = "general learning";
         private Long groupId;
+        private boolean noCache; // skip the response cache and ask the model again
     }
 }
\ No newline at end of file
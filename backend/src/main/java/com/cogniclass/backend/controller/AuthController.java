@@ -2,13 +2,12 @@ package com.cogniclass.backend.controller;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -16,6 +15,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.service.JwtService;
+import com.cogniclass.backend.service.PasswordHashingExecutor;
+import com.cogniclass.backend.service.PasswordHashingExecutor.HashingCapacityExceededException;
 import com.cogniclass.backend.service.UserService;
 
 import lombok.Data;
@@ -28,11 +30,14 @@ public class AuthController {
     
     private final UserService userService;
     private final AuthenticationManager authenticationManager;
+    private final JwtService jwtService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
     
     @PostMapping("/register")
     public ResponseEntity<?> register(@RequestBody RegisterRequest request) {
         try {
-            User user = userService.registerUser(request.getEmail(), request.getPassword(), request.getName());
+            User user = passwordHashingExecutor.run(
+                    () -> userService.registerUser(request.getEmail(), request.getPassword(), request.getName()));
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", "User registered successfully");
@@ -43,6 +48,8 @@ public class AuthController {
             ));
             
             return ResponseEntity.ok(response);
+        } catch (HashingCapacityExceededException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -51,14 +58,13 @@ public class AuthController {
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest request) {
         try {
-            Authentication authentication = authenticationManager.authenticate(
+            Authentication authentication = passwordHashingExecutor.run(() -> authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
-            );
+            ));
             
-            SecurityContextHolder.getContext().setAuthentication(authentication);
             User user = (User) authentication.getPrincipal();
             
-            Map<String, Object> response = new HashMap<>();
+            Map<String, Object> response = tokenResponse(jwtService.issueTokens(user));
             response.put("message", "Login successful");
             response.put("user", Map.of(
                 "id", user.getId(),
@@ -68,32 +74,66 @@ public class AuthController {
             ));
             
             return ResponseEntity.ok(response);
+        } catch (HashingCapacityExceededException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", "Invalid credentials"));
         }
     }
     
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshRequest request) {
+        try {
+            JwtService.RefreshGrant grant = jwtService.rotateRefreshToken(request.getRefreshToken());
+            // Reload so that role changes and disabled accounts take effect at the next refresh
+            User user = userService.getUserById(grant.userId())
+                    .filter(User::isEnabled)
+                    .orElseThrow(() -> new BadCredentialsException("User no longer active"));
+            return ResponseEntity.ok(tokenResponse(jwtService.issueTokens(user, grant.family())));
+        } catch (BadCredentialsException e) {
+            return ResponseEntity.status(401).body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestBody RefreshRequest request) {
+        jwtService.revokeRefreshToken(request.getRefreshToken());
+        return ResponseEntity.ok(Map.of("message", "Logged out"));
+    }
+    
+    private static ResponseEntity<?> tooManyRequests(HashingCapacityExceededException e) {
+        return ResponseEntity.status(429)
+                .header("Retry-After", "1")
+                .body(Map.of("error", e.getMessage()));
+    }
+    
+    private static Map<String, Object> tokenResponse(JwtService.TokenPair tokens) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("accessToken", tokens.accessToken());
+        response.put("refreshToken", tokens.refreshToken());
+        response.put("tokenType", "Bearer");
+        response.put("expiresIn", tokens.expiresInSeconds());
+        return response;
+    }
+    
     @GetMapping("/me")
     public ResponseEntity<?> getCurrentUser(Authentication authentication) {
         if (authentication == null || !authentication.isAuthenticated()) {
             return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
         }
         
-        User user = (User) authentication.getPrincipal();
-        Optional<User> fullUser = userService.getUserById(user.getId());
-        
-        if (fullUser.isPresent()) {
-            User currentUser = fullUser.get();
-            Map<String, Object> userResponse = Map.of(
-                "id", currentUser.getId(),
-                "email", currentUser.getEmail(),
-                "name", currentUser.getName(),
-                "role", currentUser.getRole()
-            );
-            return ResponseEntity.ok(userResponse);
+        if (!(authentication.getPrincipal() instanceof User currentUser)) {
+            return ResponseEntity.status(404).body(Map.of("error", "User not found"));
         }
         
-        return ResponseEntity.status(404).body(Map.of("error", "User not found"));
+        // JwtAuthenticationFilter built the principal from the access token claims; no database lookup
+        Map<String, Object> userResponse = Map.of(
+            "id", currentUser.getId(),
+            "email", currentUser.getEmail(),
+            "name", currentUser.getName(),
+            "role", currentUser.getRole()
+        );
+        return ResponseEntity.ok(userResponse);
     }
     
     @Data
@@ -108,4 +148,9 @@ public class AuthController {
         private String email;
         private String password;
     }
+    
+    @Data
+    static class RefreshRequest {
+        private String refreshToken;
+    }
 }
@@ -1,9 +1,8 @@
 package com.cogniclass.backend.controller;
 
-import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,13 +10,15 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.cogniclass.backend.entity.ChatMessage;
-import com.cogniclass.backend.entity.StudyGroup;
+import com.cogniclass.backend.dto.ChatMessageView;
 import com.cogniclass.backend.entity.User;
-import com.cogniclass.backend.repository.ChatMessageRepository;
-import com.cogniclass.backend.repository.StudyGroupRepository;
+import com.cogniclass.backend.service.ChatIngestService;
+import com.cogniclass.backend.service.ChatService;
+import com.cogniclass.backend.service.GroupActivityService;
+import com.cogniclass.backend.service.MembershipService;
 
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -27,13 +28,26 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class ChatController {
     
-    private final ChatMessageRepository chatMessageRepository;
-    private final StudyGroupRepository studyGroupRepository;
+    private final ChatService chatService;
+    private final ChatIngestService chatIngestService;
+    private final GroupActivityService groupActivityService;
+    private final MembershipService membershipService;
     
     @GetMapping("/{groupId}/messages")
-    public ResponseEntity<List<ChatMessage>> getGroupMessages(@PathVariable Long groupId) {
-        List<ChatMessage> messages = chatMessageRepository.findByStudyGroupIdOrderBySentAtAsc(groupId);
-        return ResponseEntity.ok(messages);
+    public ResponseEntity<?> getGroupMessages(
+            @PathVariable Long groupId,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            Authentication authentication) {
+        if (!isMember(groupId, authentication)) {
+            return notAMember();
+        }
+        try {
+            return ResponseEntity.ok(chatService.getHistory(groupId, before, after, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
     @PostMapping("/{groupId}/messages")
@@ -43,21 +57,36 @@ public class ChatController {
             Authentication authentication) {
         
         User user = (User) authentication.getPrincipal();
-        Optional<StudyGroup> groupOpt = studyGroupRepository.findById(groupId);
-        
-        if (groupOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
+        if (!membershipService.isMember(groupId, user.getId())) {
+            return notAMember();
         }
         
-        ChatMessage message = new ChatMessage();
-        message.setContent(request.getContent());
-        message.setSender(user);
-        message.setStudyGroup(groupOpt.get());
-        message.setSentAt(LocalDateTime.now());
-        message.setMessageType("TEXT");
-        
-        ChatMessage savedMessage = chatMessageRepository.save(message);
-        return ResponseEntity.ok(savedMessage);
+        // Accepted once sequenced and journaled; new_message is broadcast after the row commits
+        try {
+            ChatMessageView accepted = chatIngestService.submit(groupId, user, request.getContent());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(accepted);
+        } catch (ChatIngestService.IngestUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/{groupId}/read")
+    public ResponseEntity<?> markRead(@PathVariable Long groupId, Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        if (!membershipService.isMember(groupId, user.getId())) {
+            return notAMember();
+        }
+        groupActivityService.markRead(user.getId(), groupId);
+        return ResponseEntity.noContent().build();
+    }
+    
+    private boolean isMember(Long groupId, Authentication authentication) {
+        return authentication != null && authentication.getPrincipal() instanceof User user
+                && membershipService.isMember(groupId, user.getId());
+    }
+    
+    private static ResponseEntity<?> notAMember() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Not a member of this group"));
     }
     
     @Data
@@ -15,6 +15,7 @@ import com.cogniclass.backend.repository.AIConversationRepository;
 import com.cogniclass.backend.repository.ChatMessageRepository;
 import com.cogniclass.backend.repository.StudyGroupRepository;
 import com.cogniclass.backend.repository.UserRepository;
+import com.cogniclass.backend.service.DataResetService;
 
 import lombok.RequiredArgsConstructor;
 
@@ -27,14 +28,12 @@ public class DemoDataController {
     private final StudyGroupRepository studyGroupRepository;
     private final ChatMessageRepository chatMessageRepository;
     private final AIConversationRepository aiConversationRepository;
+    private final DataResetService dataResetService;
     
     @PostMapping("/setup")
     public String setupDemoData() {
         // Clear existing data
-        chatMessageRepository.deleteAll();
-        aiConversationRepository.deleteAll();
-        studyGroupRepository.deleteAll();
-        userRepository.deleteAll();
+        dataResetService.truncateAll();
         
         // Create demo users
         User teacher = new User();
@@ -122,6 +121,7 @@ public class DemoDataController {
             msg.setStudyGroup(group);
             msg.setSentAt(LocalDateTime.now().minusHours(messages.length - i));
             msg.setMessageType("TEXT");
+            msg.setSeq(i + 1L); // the demo groups are new
             chatMessageRepository.save(msg);
         }
     }
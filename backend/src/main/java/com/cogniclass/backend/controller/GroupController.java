@@ -1,9 +1,9 @@
 package com.cogniclass.backend.controller;
 
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,11 +11,16 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.cogniclass.backend.dto.GroupSummary;
 import com.cogniclass.backend.entity.StudyGroup;
 import com.cogniclass.backend.entity.User;
 import com.cogniclass.backend.repository.StudyGroupRepository;
+import com.cogniclass.backend.service.GroupActivityService;
+import com.cogniclass.backend.service.GroupService;
+import com.cogniclass.backend.service.MembershipService;
 
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -26,11 +31,21 @@ import lombok.RequiredArgsConstructor;
 public class GroupController {
     
     private final StudyGroupRepository studyGroupRepository;
+    private final GroupService groupService;
+    private final GroupActivityService groupActivityService;
+    private final MembershipService membershipService;
     
     @GetMapping
-    public ResponseEntity<List<StudyGroup>> getAllGroups() {
-        List<StudyGroup> groups = studyGroupRepository.findByIsPublicTrue();
-        return ResponseEntity.ok(groups);
+    public ResponseEntity<?> getAllGroups(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction) {
+        try {
+            return ResponseEntity.ok(groupService.getPublicGroups(page, size, sort, direction));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
     @PostMapping
@@ -45,12 +60,13 @@ public class GroupController {
         group.getMembers().add(user); // Creator is automatically a member
         
         StudyGroup savedGroup = studyGroupRepository.save(group);
-        return ResponseEntity.ok(savedGroup);
+        membershipService.join(savedGroup.getId(), user.getId()); // row exists already; sets up marker and index
+        return ResponseEntity.ok(GroupSummary.from(savedGroup));
     }
     
     @GetMapping("/{groupId}")
     public ResponseEntity<?> getGroup(@PathVariable Long groupId) {
-        Optional<StudyGroup> group = studyGroupRepository.findById(groupId);
+        Optional<GroupSummary> group = studyGroupRepository.findSummaryById(groupId);
         if (group.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
@@ -60,26 +76,48 @@ public class GroupController {
     @PostMapping("/{groupId}/join")
     public ResponseEntity<?> joinGroup(@PathVariable Long groupId, Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        Optional<StudyGroup> groupOpt = studyGroupRepository.findById(groupId);
-        
-        if (groupOpt.isEmpty()) {
+        if (!studyGroupRepository.existsById(groupId)) {
             return ResponseEntity.notFound().build();
         }
         
-        StudyGroup group = groupOpt.get();
-        if (!group.getMembers().contains(user)) {
-            group.getMembers().add(user);
-            studyGroupRepository.save(group);
+        try {
+            membershipService.join(groupId, user.getId());
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent join for the same user won the unique constraint; they are a member either way
         }
         
         return ResponseEntity.ok(Map.of("message", "Joined group successfully"));
     }
     
+    @PostMapping("/{groupId}/leave")
+    public ResponseEntity<?> leaveGroup(@PathVariable Long groupId, Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        if (!membershipService.leave(groupId, user.getId())) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("message", "Left group successfully"));
+    }
+    
     @GetMapping("/my-groups")
-    public ResponseEntity<List<StudyGroup>> getMyGroups(Authentication authentication) {
+    public ResponseEntity<?> getMyGroups(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        try {
+            return ResponseEntity.ok(groupService.getMemberGroups(user.getId(), page, size, sort, direction));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /** Unread count and latest message for every group the caller belongs to, in one query. */
+    @GetMapping("/activity")
+    public ResponseEntity<?> getMyGroupActivity(Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        List<StudyGroup> groups = studyGroupRepository.findByMembersId(user.getId());
-        return ResponseEntity.ok(groups);
+        return ResponseEntity.ok(groupActivityService.getActivity(user.getId()));
     }
     
     @Data
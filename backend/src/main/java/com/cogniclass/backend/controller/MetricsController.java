@@ -0,0 +1,65 @@
+package com.cogniclass.backend.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+
+    static final MediaType PROMETHEUS_TEXT = MediaType.parseMediaType("text/plain;version=0.0.4;charset=utf-8");
+
+    private final MetricsRegistry metricsRegistry;
+
+    @Value("${cogniclass.metrics.scrape-token:}")
+    private String scrapeToken;
+
+    @GetMapping
+    public ResponseEntity<?> getMetrics() {
+        return ResponseEntity.ok(metricsRegistry.snapshot());
+    }
+
+    /**
+     * Prometheus scrape endpoint. Open to a logged-in user, or to a scraper
+     * presenting {@code Authorization: Bearer <cogniclass.metrics.scrape-token>},
+     * since a scraper cannot log in for a short-lived access token.
+     */
+    @GetMapping("/prometheus")
+    public ResponseEntity<?> scrape(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                    Authentication authentication) {
+        if (!loggedIn(authentication) && !hasScrapeToken(authorization)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok().contentType(PROMETHEUS_TEXT).body(metricsRegistry.scrape());
+    }
+
+    private static boolean loggedIn(Authentication authentication) {
+        return authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken);
+    }
+
+    private boolean hasScrapeToken(String authorization) {
+        if (scrapeToken.isBlank() || authorization == null || !authorization.startsWith("Bearer ")) {
+            return false;
+        }
+        return MessageDigest.isEqual(scrapeToken.getBytes(StandardCharsets.UTF_8),
+                authorization.substring("Bearer ".length()).getBytes(StandardCharsets.UTF_8));
+    }
+}
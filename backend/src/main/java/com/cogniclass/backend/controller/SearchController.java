@@ -0,0 +1,55 @@
+package com.cogniclass.backend.controller;
+
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.service.SearchService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+public class SearchController {
+    
+    private final SearchService searchService;
+    
+    // Messages from the caller's groups only
+    @GetMapping("/messages")
+    public ResponseEntity<?> searchMessages(
+            @RequestParam String q,
+            @RequestParam(required = false) Long groupId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        try {
+            return ResponseEntity.ok(searchService.searchMessages(user.getId(), q, groupId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // The caller's own AI tutor exchanges
+    @GetMapping("/conversations")
+    public ResponseEntity<?> searchConversations(
+            @RequestParam String q,
+            @RequestParam(required = false) Long groupId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        try {
+            return ResponseEntity.ok(searchService.searchConversations(user.getId(), q, groupId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
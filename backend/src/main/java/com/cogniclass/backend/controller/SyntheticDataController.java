@@ -0,0 +1,43 @@
+package com.cogniclass.backend.controller;
+
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cogniclass.backend.service.SyntheticDataGenerator;
+
+import lombok.RequiredArgsConstructor;
+
+// Admin-only (see SecurityConfig) and off unless cogniclass.synthetic-data.enabled=true
+@RestController
+@RequestMapping("/api/admin/synthetic-data")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "cogniclass.synthetic-data.enabled", havingValue = "true")
+public class SyntheticDataController {
+
+    private final SyntheticDataGenerator syntheticDataGenerator;
+
+    // Replaces all data with a synthetic benchmarking dataset
+    @PostMapping("/generate")
+    public ResponseEntity<?> generateSyntheticData(
+            @RequestParam(defaultValue = "1000") int users,
+            @RequestParam(defaultValue = "100") int groups,
+            @RequestParam(defaultValue = "1000") int messagesPerGroup,
+            @RequestParam(defaultValue = "5") int conversationsPerUser,
+            @RequestParam(defaultValue = "1.1") double skew,
+            @RequestParam(defaultValue = "90") int days,
+            @RequestParam(defaultValue = "42") long seed) {
+        try {
+            SyntheticDataGenerator.Spec spec = new SyntheticDataGenerator.Spec(
+                    users, groups, messagesPerGroup, conversationsPerUser, skew, days, seed);
+            return ResponseEntity.ok(syntheticDataGenerator.generate(spec));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
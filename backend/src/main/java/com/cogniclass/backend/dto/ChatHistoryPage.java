@@ -0,0 +1,15 @@
+package com.cogniclass.backend.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ChatHistoryPage {
+    private List<ChatMessageView> messages; // always oldest first
+    private String beforeCursor; // pass as ?before= to page further back
+    private String afterCursor;  // pass as ?after= to pull only newer messages
+    private boolean hasMore;     // more messages exist in the direction of travel
+}
@@ -0,0 +1,54 @@
+package com.cogniclass.backend.dto;
+
+import java.time.LocalDateTime;
+
+import com.cogniclass.backend.entity.ChatMessage;
+import com.cogniclass.backend.entity.User;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Read model for chat history: only the fields the chat UI renders, without
+ * the sender's credentials or the group's member graph.
+ */
+@Data
+@NoArgsConstructor
+public class ChatMessageView {
+    private Long id;
+    private Long seq;
+    private String content;
+    private Sender sender;
+    private LocalDateTime sentAt;
+    private String messageType;
+
+    // Used by the JPQL constructor expressions in ChatMessageRepository
+    public ChatMessageView(Long id, Long seq, String content, LocalDateTime sentAt, String messageType,
+                           Long senderId, String senderName, String senderRole) {
+        this.id = id;
+        this.seq = seq;
+        this.content = content;
+        this.sentAt = sentAt;
+        this.messageType = messageType;
+        this.sender = senderId == null ? null : new Sender(senderId, senderName, senderRole);
+    }
+
+    public static ChatMessageView from(ChatMessage message) {
+        User sender = message.getSender();
+        return new ChatMessageView(message.getId(), message.getSeq(), message.getContent(), message.getSentAt(),
+                message.getMessageType(),
+                sender == null ? null : sender.getId(),
+                sender == null ? null : sender.getName(),
+                sender == null ? null : sender.getRole());
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Sender {
+        private Long id;
+        private String name;
+        private String role;
+    }
+}
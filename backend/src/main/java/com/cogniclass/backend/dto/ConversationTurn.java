@@ -0,0 +1,15 @@
+package com.cogniclass.backend.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/** One earlier tutor exchange, as replayed into the prompt; built by AIConversationRepository. */
+@Data
+@AllArgsConstructor
+public class ConversationTurn {
+    private String userMessage;
+    private String aiResponse;
+    private LocalDateTime createdAt;
+}
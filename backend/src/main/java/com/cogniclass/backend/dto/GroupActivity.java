@@ -0,0 +1,17 @@
+package com.cogniclass.backend.dto;
+
+import java.time.LocalDateTime;
+
+/** Sidebar entry for one of the caller's groups: unread count and the latest message. */
+public record GroupActivity(Long groupId, String name, long unreadCount, LastMessage lastMessage) {
+
+    public record LastMessage(Long id, String preview, String senderName, LocalDateTime sentAt) {
+    }
+
+    // Constructor expression target for StudyGroupRepository.findActivityByMembersId
+    public GroupActivity(Long groupId, String name, long messageCount, Long readCount,
+                         Long lastMessageId, String preview, String senderName, LocalDateTime sentAt) {
+        this(groupId, name, Math.max(0, messageCount - (readCount == null ? 0 : readCount)),
+                lastMessageId == null ? null : new LastMessage(lastMessageId, preview, senderName, sentAt));
+    }
+}
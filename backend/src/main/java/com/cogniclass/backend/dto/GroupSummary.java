@@ -0,0 +1,57 @@
+package com.cogniclass.backend.dto;
+
+import java.time.LocalDateTime;
+
+import com.cogniclass.backend.entity.StudyGroup;
+import com.cogniclass.backend.entity.User;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Read model for group listings: the member count instead of the member
+ * graph, and only the creator's id and name.
+ */
+@Data
+@NoArgsConstructor
+public class GroupSummary {
+    private Long id;
+    private String name;
+    private String description;
+    private String subject;
+    private boolean isPublic;
+    private LocalDateTime createdAt;
+    private Creator createdBy;
+    private int memberCount;
+
+    // Used by the JPQL constructor expressions in StudyGroupRepository
+    public GroupSummary(Long id, String name, String description, String subject, boolean isPublic,
+                        LocalDateTime createdAt, Long creatorId, String creatorName, int memberCount) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.subject = subject;
+        this.isPublic = isPublic;
+        this.createdAt = createdAt;
+        this.createdBy = creatorId == null ? null : new Creator(creatorId, creatorName);
+        this.memberCount = memberCount;
+    }
+
+    public static GroupSummary from(StudyGroup group) {
+        User creator = group.getCreatedBy();
+        return new GroupSummary(group.getId(), group.getName(), group.getDescription(), group.getSubject(),
+                group.isPublic(), group.getCreatedAt(),
+                creator == null ? null : creator.getId(),
+                creator == null ? null : creator.getName(),
+                group.getMembers().size());
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Creator {
+        private Long id;
+        private String name;
+    }
+}
@@ -0,0 +1,16 @@
+package com.cogniclass.backend.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class GroupSummaryPage {
+    private List<GroupSummary> groups;
+    private int page;            // zero-based
+    private int size;
+    private long totalElements;
+    private boolean hasMore;     // another page follows this one
+}
@@ -0,0 +1,21 @@
+package com.cogniclass.backend.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** One search result: a chat message, or one of the caller's own AI tutor exchanges. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchHit {
+    private Long id;
+    private Long groupId;       // null for tutor exchanges outside any group
+    private Long senderId;      // chat messages only
+    private String senderName;  // chat messages only
+    private String snippet;     // matching fragments, terms wrapped in <b></b> on PostgreSQL
+    private LocalDateTime createdAt;
+    private float rank;
+}
@@ -0,0 +1,14 @@
+package com.cogniclass.backend.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SearchResultPage {
+    private List<SearchHit> hits;  // best match first
+    private String nextCursor;     // pass as ?cursor= for the next page; null on the last page
+    private boolean hasMore;
+}
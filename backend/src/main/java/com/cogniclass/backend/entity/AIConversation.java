@@ -6,10 +6,15 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "ai_conversations")
+@Table(name = "ai_conversations", indexes = {
+    // Recent-turn lookups for the tutor's context window, see ConversationContextAssembler
+    @Index(name = "idx_ai_conversations_user_group_created_at", columnList = "user_id, group_id, created_at")
+})
 public class AIConversation {
+    // Sequence ids (pre-allocated in blocks) let Hibernate batch inserts; IDENTITY disables batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ai_conversations_seq")
+    @SequenceGenerator(name = "ai_conversations_seq", sequenceName = "ai_conversations_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne
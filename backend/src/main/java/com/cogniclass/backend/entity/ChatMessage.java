@@ -6,10 +6,19 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+    // Keyset pagination over (sent_at, id) within a group, see ChatService
+    @Index(name = "idx_chat_messages_group_sent_at_id", columnList = "group_id, sent_at, id"),
+    // ChatSequencer's max(seq) lookup. Not unique: a partitioned table can only enforce uniqueness together
+    // with sent_at, and ChatSequencer already hands out each (group_id, seq) once
+    @Index(name = "idx_chat_messages_group_seq", columnList = "group_id, seq")
+})
 public class ChatMessage {
+    // A plain sequence, as on the partitioned table (see ChatPartitionManager); bulk inserts rely on the default
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_messages_id_seq")
+    @SequenceGenerator(name = "chat_messages_id_seq", sequenceName = "chat_messages_id_seq", allocationSize = 1)
+    @Column(columnDefinition = "bigint default nextval('chat_messages_id_seq')")
     private Long id;
     
     @Column(columnDefinition = "TEXT")
@@ -27,4 +36,7 @@ public class ChatMessage {
     private LocalDateTime sentAt = LocalDateTime.now();
     
     private String messageType = "TEXT"; // TEXT, FILE, SYSTEM
+    
+    // 1, 2, 3... within the group, in the order messages were accepted
+    private Long seq;
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.cogniclass.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * How far a member has read in a group, as a position in the group's message count.
+ * Unread messages are {@code StudyGroup.messageCount - readCount}.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "group_read_markers")
+public class GroupReadMarker {
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "read_count", nullable = false)
+    private long readCount;
+
+    @Column(name = "last_read_at")
+    private LocalDateTime lastReadAt;
+
+    public GroupReadMarker(Long userId, Long groupId, long readCount) {
+        this.id = new Key(userId, groupId);
+        this.readCount = readCount;
+        this.lastReadAt = LocalDateTime.now();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Embeddable
+    public static class Key implements Serializable {
+        @Column(name = "user_id")
+        private Long userId;
+
+        @Column(name = "group_id")
+        private Long groupId;
+    }
+}
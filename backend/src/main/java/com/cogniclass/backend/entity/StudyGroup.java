@@ -30,10 +30,30 @@ public class StudyGroup {
     @JoinTable(
         name = "group_members",
         joinColumns = @JoinColumn(name = "group_id"),
-        inverseJoinColumns = @JoinColumn(name = "user_id")
+        inverseJoinColumns = @JoinColumn(name = "user_id"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_group_members_group_user", columnNames = {"group_id", "user_id"})
     )
     private List<User> members = new ArrayList<>();
     
     private String subject;
     private boolean isPublic = true;
+
+    // Activity summary, written only by GroupActivityService's bulk updates so a stale
+    // entity saved elsewhere (e.g. on join) can never roll the counter back.
+
+    @Column(name = "message_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bigint default 0 not null")
+    private long messageCount;
+
+    @Column(name = "last_message_id", insertable = false, updatable = false)
+    private Long lastMessageId;
+
+    @Column(name = "last_message_preview", length = 200, insertable = false, updatable = false)
+    private String lastMessagePreview;
+
+    @Column(name = "last_message_sender", insertable = false, updatable = false)
+    private String lastMessageSenderName;
+
+    @Column(name = "last_message_at", insertable = false, updatable = false)
+    private LocalDateTime lastMessageAt;
 }
\ No newline at end of file
@@ -0,0 +1,213 @@
+package com.cogniclass.backend.llm;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.cogniclass.backend.metrics.Counter;
+import com.cogniclass.backend.metrics.Histogram;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+/**
+ * The one way out to LLM providers. Wraps the shared {@code llmHttpClient}
+ * (pooled keep-alive connections, HTTP/2 when the server offers it) with:
+ * <ul>
+ *   <li>a per-route limit on in-flight exchanges, which also caps the number of
+ *       HTTP/1.1 connections the client opens to that route; a request that
+ *       finds every slot taken fails at once instead of blocking its caller</li>
+ *   <li>a response deadline (until the status line and headers arrive) and a
+ *       total deadline for the whole exchange, after which it is aborted</li>
+ *   <li>per-route histograms for time to first byte and total time, and a
+ *       counter per outcome</li>
+ * </ul>
+ * The JDK client does not report DNS or connect timings separately; they are
+ * part of time to first byte.
+ */
+@Component
+public class LlmClient {
+
+    private final HttpClient httpClient;
+    private final MetricsRegistry metrics;
+    private final int maxConcurrentPerRoute;
+    private final Duration responseTimeout;
+    private final Duration totalTimeout;
+    private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<>();
+
+    public LlmClient(HttpClient llmHttpClient,
+                     MetricsRegistry metrics,
+                     @Value("${cogniclass.llm.max-concurrent-per-route:32}") int maxConcurrentPerRoute,
+                     @Value("${cogniclass.llm.response-timeout:20s}") Duration responseTimeout,
+                     @Value("${cogniclass.llm.total-timeout:60s}") Duration totalTimeout) {
+        this.httpClient = llmHttpClient;
+        this.metrics = metrics;
+        this.maxConcurrentPerRoute = maxConcurrentPerRoute;
+        this.responseTimeout = responseTimeout;
+        this.totalTimeout = totalTimeout;
+    }
+
+    /** Blocking call with the default total deadline. */
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+        CompletableFuture<HttpResponse<T>> future = sendAsync(request, handler, totalTimeout);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new LlmClientException(LlmClientException.Kind.IO, "Interrupted while waiting for " + request.uri(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LlmClientException failure) {
+                throw failure;
+            }
+            throw new LlmClientException(LlmClientException.Kind.IO, e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Sends the request if a slot for its route is free, and otherwise returns a
+     * future already failed with {@link LlmClientException.Kind#SATURATED}; it
+     * never waits, so callers on any thread can use it. The returned future
+     * completes when the body handler has consumed the whole body (for streamed
+     * responses, at the end of the stream) and fails with {@link LlmClientException}.
+     * The request's own timeout, if set, replaces the response deadline.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> handler,
+                                                            Duration deadline) {
+        Route route = routes.computeIfAbsent(routeKey(request.uri()), Route::new);
+        // Fail fast like the ResilientUpstream bulkhead: the router can try another provider right away
+        if (!route.slots.tryAcquire()) {
+            route.saturated.increment();
+            return CompletableFuture.failedFuture(new LlmClientException(LlmClientException.Kind.SATURATED,
+                    "All " + maxConcurrentPerRoute + " connections to " + route.key + " are busy", null));
+        }
+        long start = System.nanoTime();
+
+        HttpRequest timed = request.timeout().isPresent() ? request
+                : HttpRequest.newBuilder(request, (name, value) -> true).timeout(responseTimeout).build();
+        HttpResponse.BodyHandler<T> timing = responseInfo -> {
+            route.timeToFirstByte.recordNanos(System.nanoTime() - start);
+            return handler.apply(responseInfo);
+        };
+
+        CompletableFuture<HttpResponse<T>> inFlight;
+        try {
+            inFlight = httpClient.sendAsync(timed, timing);
+        } catch (RuntimeException e) {
+            route.slots.release();
+            throw e;
+        }
+        // Cancelling the client's future aborts the exchange and frees its connection
+        AtomicBoolean expired = new AtomicBoolean();
+        CompletableFuture.delayedExecutor(deadline.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (!inFlight.isDone() && expired.compareAndSet(false, true)) {
+                inFlight.cancel(true);
+            }
+        });
+
+        CompletableFuture<HttpResponse<T>> result = inFlight.handle((response, error) -> {
+            route.slots.release();
+            route.total.recordNanos(System.nanoTime() - start);
+            if (error == null) {
+                (response.statusCode() < 400 ? route.ok : route.httpError).increment();
+                return response;
+            }
+            LlmClientException failure = translate(unwrap(error), expired.get(), deadline, request.uri());
+            route.counter(failure.getKind()).increment();
+            throw new CompletionException(failure);
+        });
+        // Cancelling the returned future (a losing hedge, an interrupted caller) aborts the exchange too
+        result.whenComplete((response, error) -> {
+            if (error instanceof CancellationException) {
+                inFlight.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static LlmClientException translate(Throwable error, boolean expired, Duration deadline, URI uri) {
+        if (expired || error instanceof CancellationException) {
+            return new LlmClientException(LlmClientException.Kind.TIMEOUT,
+                    "Exchange with " + uri + " exceeded " + deadline, error);
+        }
+        if (error instanceof HttpConnectTimeoutException || error instanceof ConnectException) {
+            return new LlmClientException(LlmClientException.Kind.CONNECT, "Could not connect to " + uri, error);
+        }
+        if (error instanceof HttpTimeoutException) {
+            return new LlmClientException(LlmClientException.Kind.TIMEOUT, "No response from " + uri + " in time", error);
+        }
+        if (error instanceof LlmClientException failure) {
+            return failure;
+        }
+        String message = error instanceof IOException ? "I/O error talking to " + uri : error.getMessage();
+        return new LlmClientException(LlmClientException.Kind.IO, message, error);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static String routeKey(URI uri) {
+        int port = uri.getPort() != -1 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        return uri.getHost() + ":" + port;
+    }
+
+    public int availableSlots(URI uri) {
+        Route route = routes.get(routeKey(uri));
+        return route == null ? maxConcurrentPerRoute : route.slots.availablePermits();
+    }
+
+    private final class Route {
+        final String key;
+        final Semaphore slots = new Semaphore(maxConcurrentPerRoute);
+        final Histogram timeToFirstByte;
+        final Histogram total;
+        final Counter ok;
+        final Counter httpError;
+        final Counter saturated;
+        final Counter connectError;
+        final Counter timeout;
+        final Counter ioError;
+
+        Route(String key) {
+            this.key = key;
+            this.timeToFirstByte = metrics.histogram("llm_client_time_to_first_byte_seconds", "route", key);
+            this.total = metrics.histogram("llm_client_request_seconds", "route", key);
+            this.ok = metrics.counter("llm_client_requests_total", "route", key, "outcome", "ok");
+            this.httpError = metrics.counter("llm_client_requests_total", "route", key, "outcome", "http_error");
+            this.saturated = metrics.counter("llm_client_requests_total", "route", key, "outcome", "saturated");
+            this.connectError = metrics.counter("llm_client_requests_total", "route", key, "outcome", "connect_error");
+            this.timeout = metrics.counter("llm_client_requests_total", "route", key, "outcome", "timeout");
+            this.ioError = metrics.counter("llm_client_requests_total", "route", key, "outcome", "io_error");
+            metrics.gauge("llm_client_in_flight", () -> maxConcurrentPerRoute - slots.availablePermits(), "route", key);
+        }
+
+        Counter counter(LlmClientException.Kind kind) {
+            return switch (kind) {
+                case SATURATED -> saturated;
+                case CONNECT -> connectError;
+                case TIMEOUT -> timeout;
+                case IO -> ioError;
+            };
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.cogniclass.backend.llm;
+
+import lombok.Getter;
+
+/**
+ * Failure of an upstream LLM call that never produced an HTTP response.
+ * Error statuses are not exceptions; callers inspect the response.
+ */
+@Getter
+public class LlmClientException extends RuntimeException {
+
+    public enum Kind {
+        SATURATED,  // no connection slot for the route within the acquire timeout
+        CONNECT,    // could not connect, or connecting timed out
+        TIMEOUT,    // no response headers in time, or the whole exchange exceeded its deadline
+        IO          // connection failed mid-exchange
+    }
+
+    private final Kind kind;
+
+    public LlmClientException(Kind kind, String message, Throwable cause) {
+        super(message, cause);
+        this.kind = kind;
+    }
+}
@@ -0,0 +1,68 @@
+package com.cogniclass.backend.llm;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.cogniclass.backend.metrics.Counter;
+import com.cogniclass.backend.metrics.Histogram;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.resilience.UpstreamUnavailableException;
+
+/**
+ * Upstream LLM latency by provider, model, mode ({@code complete} or
+ * {@code stream}) and outcome, plus token usage as reported in the
+ * completion's {@code usage} block.
+ */
+public class LlmMetrics {
+
+    public static final String COMPLETE = "complete";
+    public static final String STREAM = "stream";
+
+    private final MetricsRegistry metrics;
+    private final ConcurrentMap<String, Histogram> latency = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> tokens = new ConcurrentHashMap<>();
+
+    public LlmMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    public void recordRequest(LlmProvider provider, String mode, String outcome, long nanos) {
+        latency.computeIfAbsent(provider.name() + '|' + mode + '|' + outcome,
+                        k -> metrics.histogram("llm_request_seconds", "provider", provider.name(),
+                                "model", provider.model(), "mode", mode, "outcome", outcome))
+                .recordNanos(nanos);
+    }
+
+    public void recordUsage(LlmProvider provider, long promptTokens, long completionTokens) {
+        tokens(provider, "prompt").increment(Math.max(promptTokens, 0));
+        tokens(provider, "completion").increment(Math.max(completionTokens, 0));
+    }
+
+    /** 2xx is {@code ok}; 429, other 4xx and 5xx are told apart because they mean different things upstream. */
+    public static String outcome(int status) {
+        if (status >= 200 && status < 300) {
+            return "ok";
+        }
+        if (status == 429) {
+            return "rate_limited";
+        }
+        return status >= 500 ? "server_error" : status >= 400 ? "client_error" : "error";
+    }
+
+    /** Failures that never produced a response, by kind; a short-circuited call is {@code rejected}. */
+    public static String outcome(Throwable error) {
+        if (error instanceof UpstreamUnavailableException) {
+            return "rejected";
+        }
+        if (error instanceof LlmClientException clientError) {
+            return clientError.getKind().name().toLowerCase();
+        }
+        return "error";
+    }
+
+    private Counter tokens(LlmProvider provider, String type) {
+        return tokens.computeIfAbsent(provider.name() + '|' + type,
+                k -> metrics.counter("llm_tokens_total", "provider", provider.name(), "model", provider.model(),
+                        "type", type));
+    }
+}
@@ -0,0 +1,139 @@
+package com.cogniclass.backend.llm;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.cogniclass.backend.metrics.Histogram;
+import com.cogniclass.backend.resilience.ResilientUpstream;
+
+/**
+ * One OpenAI-compatible chat completions endpoint, with the health figures the
+ * router balances on: an exponentially weighted moving average of latency and
+ * of the error rate, the number of calls in flight, and a latency histogram
+ * for the hedging delay.
+ */
+public class LlmProvider {
+
+    // Weight of the newest sample in both moving averages
+    private static final double DECAY = 0.2;
+
+    private final String name;
+    private final URI url;
+    private final String apiKey;
+    private final String model;
+    private final ResilientUpstream upstream;
+    private final TokenBudget tokenBudget;
+    private final Histogram latency;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private double latencyEwmaNanos;
+    private double errorRateEwma;
+    private boolean observed;
+
+    /** {@code tokenBudget} may be null for providers without a rate limit of their own. */
+    public LlmProvider(String name, URI url, String apiKey, String model, ResilientUpstream upstream,
+                       TokenBudget tokenBudget, Histogram latency) {
+        this.name = name;
+        this.url = url;
+        this.apiKey = apiKey;
+        this.model = model;
+        this.upstream = upstream;
+        this.tokenBudget = tokenBudget;
+        this.latency = latency;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String model() {
+        return model;
+    }
+
+    public ResilientUpstream upstream() {
+        return upstream;
+    }
+
+    public HttpRequest.Builder newRequest() {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(url).header("Content-Type", "application/json");
+        if (apiKey != null && !apiKey.isBlank()) {
+            builder.header("Authorization", "Bearer " + apiKey);
+        }
+        return builder;
+    }
+
+    /** Whether the breaker and bulkhead would take a call and the token budget covers the estimate. */
+    boolean isAvailable(long estimatedTokens) {
+        return upstream.acceptingCalls() && (tokenBudget == null || tokenBudget.available() >= estimatedTokens);
+    }
+
+    public boolean tryReserveTokens(long estimate) {
+        return tokenBudget == null || tokenBudget.tryReserve(estimate);
+    }
+
+    public void settleTokens(long reserved, long used) {
+        if (tokenBudget != null) {
+            tokenBudget.settle(reserved, used);
+        }
+    }
+
+    /**
+     * Expected cost of sending one more call here: smoothed latency, scaled by
+     * the queue it would join and inflated by the recent error rate. A provider
+     * with no samples yet looks cheap so that it gets explored.
+     */
+    double cost() {
+        lock.lock();
+        try {
+            double expectedLatency = observed ? latencyEwmaNanos : 0;
+            double successRate = Math.max(0.05, 1 - errorRateEwma);
+            return (expectedLatency + 1_000_000) * (inFlight.get() + 1) / successRate;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onStart() {
+        inFlight.incrementAndGet();
+    }
+
+    /** Ends a call that was abandoned by the caller, leaving the averages alone. */
+    public void onCancelled() {
+        inFlight.decrementAndGet();
+    }
+
+    /** {@code latencyNanos} is ignored when negative (the call produced no usable timing). */
+    public void onComplete(long latencyNanos, boolean healthy) {
+        inFlight.decrementAndGet();
+        lock.lock();
+        try {
+            if (latencyNanos >= 0) {
+                latencyEwmaNanos = observed ? latencyEwmaNanos + DECAY * (latencyNanos - latencyEwmaNanos) : latencyNanos;
+                observed = true;
+                latency.recordNanos(latencyNanos);
+            }
+            errorRateEwma += DECAY * ((healthy ? 0 : 1) - errorRateEwma);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Observed 95th percentile latency, or {@code floor} if that is larger. */
+    Duration p95(Duration floor) {
+        long p95 = (long) (latency.quantile(0.95) * 1e9);
+        return p95 > floor.toNanos() ? Duration.ofNanos(p95) : floor;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + model + " at " + url + ")";
+    }
+}
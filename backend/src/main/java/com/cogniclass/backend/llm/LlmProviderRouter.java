@@ -0,0 +1,294 @@
+package com.cogniclass.backend.llm;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.resilience.UpstreamResilience;
+import com.cogniclass.backend.resilience.UpstreamUnavailableException;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Spreads completions over every configured OpenAI-compatible provider.
+ * <p>
+ * Each call picks two random providers that are healthy and within their token
+ * budget, and uses the one with the lower {@link LlmProvider#cost() cost}
+ * (power of two choices). If no answer has arrived once that provider's p95
+ * latency has passed, the same request is hedged to a second provider and the
+ * first answer wins; the loser is cancelled. A provider that fails outright is
+ * replaced by the next pick.
+ * <p>
+ * Each attempt reserves the estimated tokens from its provider's budget. An
+ * attempt that ends without a 200 (an error status, an exception, or a
+ * cancelled hedge) gives the reservation back; the caller settles a 200
+ * against the usage it reports.
+ * <p>
+ * Groq is configured through the {@code groq.*} properties as before. Further
+ * providers, such as a self-hosted model, are listed in
+ * {@code cogniclass.llm.extra-providers} and described by
+ * {@code cogniclass.llm.provider.<name>.url|api-key|model|tokens-per-minute}.
+ */
+@Slf4j
+@Component
+public class LlmProviderRouter {
+
+    public record Completion(LlmProvider provider, HttpResponse<String> response) {
+    }
+
+    private record Outcome(LlmProvider provider, HttpResponse<String> response, RuntimeException error) {
+    }
+
+    // started is claimed either by the task or by a cancel that beat it, so the tokens are refunded once
+    private record Attempt(Future<?> future, AtomicBoolean started, LlmProvider provider, long estimatedTokens) {
+    }
+
+    private final List<LlmProvider> providers;
+    private final LlmClient llmClient;
+    private final MetricsRegistry metrics;
+    private final LlmMetrics llmMetrics;
+    private final boolean hedgingEnabled;
+    private final Duration minHedgeDelay;
+    private final ExecutorService attempts = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("llm-attempt-", 0).factory());
+
+    public LlmProviderRouter(List<LlmProvider> providers, LlmClient llmClient, MetricsRegistry metrics,
+                             boolean hedgingEnabled, Duration minHedgeDelay) {
+        this.providers = List.copyOf(providers);
+        this.llmClient = llmClient;
+        this.metrics = metrics;
+        this.llmMetrics = new LlmMetrics(metrics);
+        this.hedgingEnabled = hedgingEnabled;
+        this.minHedgeDelay = minHedgeDelay;
+        for (LlmProvider provider : this.providers) {
+            metrics.gauge("llm_provider_in_flight", provider::inFlight, "provider", provider.name());
+        }
+    }
+
+    @Autowired
+    public LlmProviderRouter(Environment environment, LlmClient llmClient, UpstreamResilience resilience,
+                             MetricsRegistry metrics,
+                             @Value("${groq.api.key}") String groqApiKey,
+                             @Value("${groq.api.url:https://api.groq.com/openai/v1/chat/completions}") String groqApiUrl,
+                             @Value("${groq.model:llama-3.1-8b-instant}") String groqModel,
+                             @Value("${cogniclass.llm.provider.groq.tokens-per-minute:0}") long groqTokensPerMinute,
+                             @Value("${cogniclass.llm.extra-providers:}") List<String> extraProviders,
+                             @Value("${cogniclass.llm.hedging.enabled:true}") boolean hedgingEnabled,
+                             @Value("${cogniclass.llm.hedging.min-delay:500ms}") Duration minHedgeDelay) {
+        this(configuredProviders(environment, resilience, metrics, groqApiKey, groqApiUrl, groqModel,
+                groqTokensPerMinute, extraProviders), llmClient, metrics, hedgingEnabled, minHedgeDelay);
+        log.info("LLM providers: {}", providers);
+    }
+
+    private static List<LlmProvider> configuredProviders(Environment environment, UpstreamResilience resilience,
+                                                         MetricsRegistry metrics, String groqApiKey, String groqApiUrl,
+                                                         String groqModel, long groqTokensPerMinute,
+                                                         List<String> extraProviders) {
+        List<LlmProvider> providers = new ArrayList<>();
+        if (groqApiKey != null && !groqApiKey.isBlank() && !groqApiKey.contains("your_groq_api_key")) {
+            providers.add(provider("groq", groqApiUrl, groqApiKey, groqModel, groqTokensPerMinute, resilience, metrics));
+        } else {
+            log.error("Groq API key not configured properly; Groq is left out of routing");
+        }
+        for (String name : extraProviders) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            String prefix = "cogniclass.llm.provider." + trimmed + ".";
+            providers.add(provider(trimmed,
+                    environment.getRequiredProperty(prefix + "url"),
+                    environment.getProperty(prefix + "api-key", ""),
+                    environment.getRequiredProperty(prefix + "model"),
+                    environment.getProperty(prefix + "tokens-per-minute", Long.class, 0L),
+                    resilience, metrics));
+        }
+        return providers;
+    }
+
+    private static LlmProvider provider(String name, String url, String apiKey, String model, long tokensPerMinute,
+                                        UpstreamResilience resilience, MetricsRegistry metrics) {
+        return new LlmProvider(name, URI.create(url), apiKey, model, resilience.upstream(name),
+                tokensPerMinute > 0 ? new TokenBudget(tokensPerMinute, System::nanoTime) : null,
+                metrics.histogram("llm_provider_latency_seconds", "provider", name));
+    }
+
+    public boolean hasProviders() {
+        return !providers.isEmpty();
+    }
+
+    public List<LlmProvider> providers() {
+        return providers;
+    }
+
+    public LlmMetrics llmMetrics() {
+        return llmMetrics;
+    }
+
+    /** Power of two choices among available providers not in {@code exclude}; null if there is none. */
+    public LlmProvider pick(long estimatedTokens, Set<LlmProvider> exclude) {
+        List<LlmProvider> candidates = new ArrayList<>(providers.size());
+        for (LlmProvider provider : providers) {
+            if (!exclude.contains(provider) && provider.isAvailable(estimatedTokens)) {
+                candidates.add(provider);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        LlmProvider a = candidates.get(first);
+        LlmProvider b = candidates.get(second);
+        return a.cost() <= b.cost() ? a : b;
+    }
+
+    /**
+     * Sends the request built by {@code requestFor} for the chosen provider and
+     * returns the first successful response. When every provider fails, the
+     * last failure is returned (an error status) or thrown.
+     */
+    public Completion complete(long estimatedTokens, Function<LlmProvider, HttpRequest> requestFor) {
+        LinkedBlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<>();
+        List<Attempt> running = new ArrayList<>(2);
+        Set<LlmProvider> tried = new HashSet<>();
+        try {
+            LlmProvider first = start(estimatedTokens, requestFor, tried, outcomes, running);
+            if (first == null) {
+                throw new UpstreamUnavailableException("llm", UpstreamUnavailableException.Reason.NO_HEALTHY_PROVIDER);
+            }
+            long hedgeAt = hedgingEnabled ? System.nanoTime() + first.p95(minHedgeDelay).toNanos() : Long.MAX_VALUE;
+            int pending = 1;
+            Outcome last = null;
+            while (pending > 0) {
+                long wait = hedgeAt == Long.MAX_VALUE ? Long.MAX_VALUE : hedgeAt - System.nanoTime();
+                Outcome outcome = wait == Long.MAX_VALUE ? outcomes.take() : outcomes.poll(wait, TimeUnit.NANOSECONDS);
+                if (outcome == null) {
+                    hedgeAt = Long.MAX_VALUE;
+                    if (start(estimatedTokens, requestFor, tried, outcomes, running) != null) {
+                        metrics.counter("llm_router_hedges_total").increment();
+                        pending++;
+                    }
+                    continue;
+                }
+                pending--;
+                if (outcome.response() != null && !worthAnotherProvider(outcome.response().statusCode())) {
+                    if (tried.size() > 1) {
+                        metrics.counter("llm_router_wins_total", "provider", outcome.provider().name()).increment();
+                    }
+                    return new Completion(outcome.provider(), outcome.response());
+                }
+                last = outcome;
+                if (pending == 0 && start(estimatedTokens, requestFor, tried, outcomes, running) != null) {
+                    metrics.counter("llm_router_failovers_total").increment();
+                    hedgeAt = Long.MAX_VALUE;
+                    pending++;
+                }
+            }
+            if (last.error() != null) {
+                throw last.error();
+            }
+            return new Completion(last.provider(), last.response());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmClientException(LlmClientException.Kind.IO, "Interrupted while waiting for a completion", e);
+        } finally {
+            for (Attempt attempt : running) {
+                if (attempt.future().cancel(true) && !attempt.started().getAndSet(true)) {
+                    attempt.provider().settleTokens(attempt.estimatedTokens(), 0);
+                }
+            }
+        }
+    }
+
+    private LlmProvider start(long estimatedTokens, Function<LlmProvider, HttpRequest> requestFor,
+                              Set<LlmProvider> tried, LinkedBlockingQueue<Outcome> outcomes, List<Attempt> running) {
+        LlmProvider provider;
+        while ((provider = pick(estimatedTokens, tried)) != null) {
+            tried.add(provider);
+            if (provider.tryReserveTokens(estimatedTokens)) {
+                break;
+            }
+        }
+        if (provider == null) {
+            return null;
+        }
+        metrics.counter("llm_router_selections_total", "provider", provider.name()).increment();
+        LlmProvider chosen = provider;
+        HttpRequest request;
+        try {
+            request = requestFor.apply(chosen);
+        } catch (RuntimeException e) {
+            chosen.settleTokens(estimatedTokens, 0);
+            throw e;
+        }
+        AtomicBoolean started = new AtomicBoolean();
+        Future<?> future = attempts.submit(() -> {
+            if (started.getAndSet(true)) {
+                return; // cancelled before it ran, tokens already refunded
+            }
+            chosen.onStart();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<String> response = chosen.upstream().execute(
+                        () -> llmClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)));
+                int status = response.statusCode();
+                if (status != 200) {
+                    chosen.settleTokens(estimatedTokens, 0);
+                }
+                chosen.onComplete(System.nanoTime() - start, status < 500 && status != 429);
+                llmMetrics.recordRequest(chosen, LlmMetrics.COMPLETE, LlmMetrics.outcome(status), System.nanoTime() - start);
+                outcomes.add(new Outcome(chosen, response, null));
+            } catch (RuntimeException e) {
+                chosen.settleTokens(estimatedTokens, 0);
+                if (Thread.currentThread().isInterrupted()) {
+                    chosen.onCancelled(); // a losing hedge says nothing about the provider
+                    llmMetrics.recordRequest(chosen, LlmMetrics.COMPLETE, "cancelled", System.nanoTime() - start);
+                } else {
+                    chosen.onComplete(-1, false);
+                    llmMetrics.recordRequest(chosen, LlmMetrics.COMPLETE, LlmMetrics.outcome(e), System.nanoTime() - start);
+                }
+                outcomes.add(new Outcome(chosen, null, e));
+            }
+        });
+        running.add(new Attempt(future, started, chosen, estimatedTokens));
+        return chosen;
+    }
+
+    private static boolean worthAnotherProvider(int status) {
+        return status == 401 || status == 403 || status == 429 || status >= 500;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        attempts.shutdownNow();
+    }
+}
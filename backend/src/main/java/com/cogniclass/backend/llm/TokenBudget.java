@@ -0,0 +1,67 @@
+package com.cogniclass.backend.llm;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Tokens-per-minute allowance for one provider, refilled continuously. Calls
+ * reserve an estimate up front and settle against the reported usage once the
+ * response is in, so a provider is skipped before its own rate limiter starts
+ * answering 429.
+ */
+public class TokenBudget {
+
+    private final long tokensPerMinute;
+    private final LongSupplier clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBudget(long tokensPerMinute, LongSupplier clock) {
+        this.tokensPerMinute = tokensPerMinute;
+        this.clock = clock;
+        this.tokens = tokensPerMinute;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    public boolean tryReserve(long estimate) {
+        lock.lock();
+        try {
+            refill();
+            if (tokens < Math.min(estimate, tokensPerMinute)) {
+                return false;
+            }
+            tokens -= estimate;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Corrects an earlier reservation; the balance may go negative when a call used more than estimated. */
+    public void settle(long reserved, long used) {
+        lock.lock();
+        try {
+            refill();
+            tokens = Math.min(tokensPerMinute, tokens + reserved - used);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double available() {
+        lock.lock();
+        try {
+            refill();
+            return tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill() {
+        long now = clock.getAsLong();
+        tokens = Math.min(tokensPerMinute, tokens + (now - lastRefill) / 60e9 * tokensPerMinute);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,47 @@
+package com.cogniclass.backend.metrics;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Exposes Hibernate's session-factory statistics: statements, queries, entity
+ * and collection traffic, flushes and second-level cache hits. Statistics are
+ * switched on by {@code cogniclass.metrics.hibernate.enabled} (see MetricsConfig);
+ * when they are off nothing is registered.
+ */
+@Slf4j
+@Component
+public class HibernateMetrics {
+
+    public HibernateMetrics(EntityManagerFactory entityManagerFactory, MetricsRegistry metrics) {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!stats.isStatisticsEnabled()) {
+            log.debug("Hibernate statistics are disabled; no Hibernate metrics");
+            return;
+        }
+        metrics.functionCounter("hibernate_sessions_opened_total", stats::getSessionOpenCount);
+        metrics.functionCounter("hibernate_transactions_total", stats::getTransactionCount);
+        metrics.functionCounter("hibernate_statements_prepared_total", stats::getPrepareStatementCount);
+        metrics.functionCounter("hibernate_flushes_total", stats::getFlushCount);
+        metrics.functionCounter("hibernate_queries_executed_total", stats::getQueryExecutionCount);
+        metrics.gauge("hibernate_query_execution_max_seconds", () -> stats.getQueryExecutionMaxTime() / 1e3);
+        metrics.functionCounter("hibernate_optimistic_failures_total", stats::getOptimisticFailureCount);
+
+        metrics.functionCounter("hibernate_entities_total", stats::getEntityLoadCount, "op", "load");
+        metrics.functionCounter("hibernate_entities_total", stats::getEntityFetchCount, "op", "fetch");
+        metrics.functionCounter("hibernate_entities_total", stats::getEntityInsertCount, "op", "insert");
+        metrics.functionCounter("hibernate_entities_total", stats::getEntityUpdateCount, "op", "update");
+        metrics.functionCounter("hibernate_entities_total", stats::getEntityDeleteCount, "op", "delete");
+        metrics.functionCounter("hibernate_collections_total", stats::getCollectionLoadCount, "op", "load");
+        metrics.functionCounter("hibernate_collections_total", stats::getCollectionFetchCount, "op", "fetch");
+
+        metrics.functionCounter("hibernate_second_level_cache_requests_total", stats::getSecondLevelCacheHitCount,
+                "result", "hit");
+        metrics.functionCounter("hibernate_second_level_cache_requests_total", stats::getSecondLevelCacheMissCount,
+                "result", "miss");
+    }
+}
@@ -0,0 +1,57 @@
+package com.cogniclass.backend.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * Feeds Hikari's own pool instrumentation into the registry: pool occupancy
+ * as gauges, and how long callers waited for a connection and then held it as
+ * histograms. Waiting time is the figure to watch; it grows well before
+ * requests start timing out on {@code connectionTimeout}.
+ */
+public class HikariMetricsTrackerFactory implements MetricsTrackerFactory {
+
+    private final MetricsRegistry metrics;
+
+    public HikariMetricsTrackerFactory(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats stats) {
+        metrics.gauge("hikaricp_connections_active", stats::getActiveConnections, "pool", poolName);
+        metrics.gauge("hikaricp_connections_idle", stats::getIdleConnections, "pool", poolName);
+        metrics.gauge("hikaricp_connections", stats::getTotalConnections, "pool", poolName);
+        metrics.gauge("hikaricp_connections_pending", stats::getPendingThreads, "pool", poolName);
+        metrics.gauge("hikaricp_connections_max", stats::getMaxConnections, "pool", poolName);
+
+        Histogram acquire = metrics.histogram("hikaricp_connection_acquire_seconds", "pool", poolName);
+        Histogram usage = metrics.histogram("hikaricp_connection_usage_seconds", "pool", poolName);
+        Histogram creation = metrics.histogram("hikaricp_connection_creation_seconds", "pool", poolName);
+        Counter timeouts = metrics.counter("hikaricp_connection_timeouts_total", "pool", poolName);
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquire.recordNanos(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.recordNanos(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                creation.recordNanos(TimeUnit.MILLISECONDS.toNanos(connectionCreatedMillis));
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+}
@@ -0,0 +1,96 @@
+package com.cogniclass.backend.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed, Prometheus-style cumulative bucket boundaries.
+ * Recording is a bucket search plus two adds; quantiles are estimated from the
+ * buckets, which is plenty for dashboards and routing decisions.
+ */
+public class Histogram {
+
+    // Upper bounds in seconds; the final implicit bucket is +Inf
+    static final double[] BUCKETS = {
+        0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60
+    };
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public Histogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(Duration duration) {
+        recordNanos(duration.toNanos());
+    }
+
+    public void recordNanos(long nanos) {
+        double seconds = nanos / 1e9;
+        int bucket = 0;
+        while (bucket < BUCKETS.length && seconds > BUCKETS[bucket]) {
+            bucket++;
+        }
+        counts[bucket].increment();
+        sumNanos.add(nanos);
+    }
+
+    public long count() {
+        long total = 0;
+        for (LongAdder count : counts) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    public double sumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+
+    /**
+     * Estimates the given quantile in seconds by linear interpolation inside
+     * the bucket that contains it. Returns 0 when nothing has been recorded.
+     */
+    public double quantile(double quantile) {
+        long[] snapshot = new long[counts.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            snapshot[i] = counts[i].sum();
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double rank = quantile * total;
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            if (seen + snapshot[i] >= rank && snapshot[i] > 0) {
+                if (i == BUCKETS.length) {
+                    return BUCKETS[BUCKETS.length - 1];
+                }
+                double lower = i == 0 ? 0 : BUCKETS[i - 1];
+                double fraction = (rank - seen) / snapshot[i];
+                return lower + (BUCKETS[i] - lower) * fraction;
+            }
+            seen += snapshot[i];
+        }
+        return BUCKETS[BUCKETS.length - 1];
+    }
+
+    /**
+     * Cumulative count of observations less than or equal to each bucket bound,
+     * in the order of {@link #BUCKETS}, followed by the +Inf total.
+     */
+    public long[] cumulativeCounts() {
+        long[] cumulative = new long[counts.length];
+        long running = 0;
+        for (int i = 0; i < counts.length; i++) {
+            running += counts[i].sum();
+            cumulative[i] = running;
+        }
+        return cumulative;
+    }
+}
@@ -0,0 +1,88 @@
+package com.cogniclass.backend.metrics;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Times every HTTP request into {@code http_server_requests_seconds}, tagged by
+ * method, the matched route pattern (e.g. {@code /api/chat/{groupId}/messages},
+ * never the raw path, so ids cannot blow up the series count) and status.
+ * Runs ahead of Spring Security so rejected requests are counted too. Async
+ * requests such as SSE streams are timed until the response completes.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class HttpServerMetricsFilter extends OncePerRequestFilter {
+
+    static final String UNMATCHED = "UNMATCHED";
+    private static final Set<String> METHODS = Set.of("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE");
+
+    private final MetricsRegistry metrics;
+    private final ConcurrentMap<Route, Histogram> timers = new ConcurrentHashMap<>();
+
+    public HttpServerMetricsFilter(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, response.getStatus(), start);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                // An exception escaping the chain becomes a 500 further out
+                record(request, failed ? 500 : response.getStatus(), start);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, int status, long start) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String method = METHODS.contains(request.getMethod()) ? request.getMethod() : "OTHER";
+        Route route = new Route(method, pattern == null ? UNMATCHED : pattern.toString(), status);
+        timers.computeIfAbsent(route, r -> metrics.histogram("http_server_requests_seconds",
+                "method", r.method(), "route", r.pattern(), "status", Integer.toString(r.status())))
+                .recordNanos(System.nanoTime() - start);
+    }
+
+    private record Route(String method, String pattern, int status) {
+    }
+}
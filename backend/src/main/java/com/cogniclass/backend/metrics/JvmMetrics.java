@@ -0,0 +1,71 @@
+package com.cogniclass.backend.metrics;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.RuntimeMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * JVM memory, GC, allocation, thread and CPU figures, read from the platform
+ * MXBeans at scrape time so nothing runs between scrapes. GC time is the total
+ * each collector reports, which for concurrent collectors includes work done
+ * alongside the application rather than only pauses.
+ */
+@Component
+public class JvmMetrics {
+
+    public JvmMetrics(MetricsRegistry metrics) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        memory(metrics, "heap", memory::getHeapMemoryUsage);
+        memory(metrics, "nonheap", memory::getNonHeapMemoryUsage);
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            metrics.gauge("jvm_memory_pool_used_bytes", () -> pool.getUsage().getUsed(), "pool", pool.getName());
+        }
+
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            metrics.functionCounter("jvm_gc_collections_total", gc::getCollectionCount, "gc", gc.getName());
+            metrics.functionCounter("jvm_gc_collection_seconds_total", () -> gc.getCollectionTime() / 1e3,
+                    "gc", gc.getName());
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean hotspot && hotspot.isThreadAllocatedMemorySupported()) {
+            // Includes threads that have since terminated; -1 while allocation tracking is switched off
+            metrics.functionCounter("jvm_allocated_bytes_total", () -> {
+                long allocated = hotspot.getTotalThreadAllocatedBytes();
+                return allocated < 0 ? null : allocated;
+            });
+        }
+        metrics.gauge("jvm_threads_live", threads::getThreadCount);
+        metrics.gauge("jvm_threads_daemon", threads::getDaemonThreadCount);
+        metrics.gauge("jvm_threads_peak", threads::getPeakThreadCount);
+
+        ClassLoadingMXBean classes = ManagementFactory.getClassLoadingMXBean();
+        metrics.gauge("jvm_classes_loaded", classes::getLoadedClassCount);
+
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            metrics.functionCounter("process_cpu_seconds_total", () -> os.getProcessCpuTime() / 1e9);
+        }
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        metrics.gauge("process_uptime_seconds", () -> runtime.getUptime() / 1e3);
+    }
+
+    private static void memory(MetricsRegistry metrics, String area, Supplier<MemoryUsage> usage) {
+        gauge(metrics, "jvm_memory_used_bytes", area, usage, MemoryUsage::getUsed);
+        gauge(metrics, "jvm_memory_committed_bytes", area, usage, MemoryUsage::getCommitted);
+        gauge(metrics, "jvm_memory_max_bytes", area, usage, MemoryUsage::getMax);
+    }
+
+    private static void gauge(MetricsRegistry metrics, String name, String area,
+                              Supplier<MemoryUsage> usage, Function<MemoryUsage, Long> value) {
+        metrics.gauge(name, () -> value.apply(usage.get()), "area", area);
+    }
+}
@@ -0,0 +1,155 @@
+package com.cogniclass.backend.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process registry for the handful of counters and gauges the backend exposes.
+ * Meters are identified by name plus tags, rendered Prometheus-style:
+ * {@code chat_ws_frames_dropped_total{reason="slow_consumer"}}.
+ * {@link #scrape()} renders everything in the Prometheus text format.
+ */
+@Component
+public class MetricsRegistry {
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Supplier<? extends Number>> functionCounters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the counter for the given name and tags, creating it on first use.
+     * Callers on hot paths should look the counter up once and keep the reference.
+     */
+    public Counter counter(String name, String... tags) {
+        return counters.computeIfAbsent(key(name, tags), k -> new Counter());
+    }
+
+    public Histogram histogram(String name, String... tags) {
+        return histograms.computeIfAbsent(key(name, tags), k -> new Histogram());
+    }
+
+    public void gauge(String name, Supplier<? extends Number> value, String... tags) {
+        gauges.put(key(name, tags), value);
+    }
+
+    /** A counter whose running total is kept elsewhere, such as a JMX bean; read at scrape time. */
+    public void functionCounter(String name, Supplier<? extends Number> total, String... tags) {
+        functionCounters.put(key(name, tags), total);
+    }
+
+    public Map<String, Number> snapshot() {
+        Map<String, Number> snapshot = new TreeMap<>();
+        counters.forEach((key, counter) -> snapshot.put(key, counter.count()));
+        gauges.forEach((key, gauge) -> snapshot.put(key, gauge.get()));
+        functionCounters.forEach((key, counter) -> snapshot.put(key, counter.get()));
+        histograms.forEach((key, histogram) -> {
+            snapshot.put(withSuffix(key, "_count"), histogram.count());
+            snapshot.put(withSuffix(key, "_sum"), histogram.sumSeconds());
+            snapshot.put(withSuffix(key, "_p50"), histogram.quantile(0.50));
+            snapshot.put(withSuffix(key, "_p95"), histogram.quantile(0.95));
+            snapshot.put(withSuffix(key, "_p99"), histogram.quantile(0.99));
+        });
+        return snapshot;
+    }
+
+    /**
+     * Every meter in the Prometheus text exposition format (version 0.0.4),
+     * grouped by name with one {@code # TYPE} line each. Histograms carry their
+     * cumulative {@code _bucket} series plus {@code _sum} and {@code _count}.
+     * Gauges that yield null are left out.
+     */
+    public String scrape() {
+        Map<String, Map<String, List<String>>> lines = new TreeMap<>(); // name -> meter key -> samples
+        Map<String, String> types = new TreeMap<>();
+        counters.forEach((key, counter) -> add(lines, types, key, "counter", key + ' ' + counter.count()));
+        functionCounters.forEach((key, counter) -> sample(lines, types, key, "counter", counter.get()));
+        gauges.forEach((key, gauge) -> sample(lines, types, key, "gauge", gauge.get()));
+        histograms.forEach((key, histogram) -> {
+            long[] cumulative = histogram.cumulativeCounts();
+            for (int i = 0; i < cumulative.length; i++) {
+                String le = i < Histogram.BUCKETS.length ? format(Histogram.BUCKETS[i]) : "+Inf";
+                add(lines, types, key, "histogram", withTag(withSuffix(key, "_bucket"), "le", le) + ' ' + cumulative[i]);
+            }
+            add(lines, types, key, "histogram", withSuffix(key, "_sum") + ' ' + format(histogram.sumSeconds()));
+            add(lines, types, key, "histogram", withSuffix(key, "_count") + ' ' + cumulative[cumulative.length - 1]);
+        });
+
+        StringBuilder text = new StringBuilder(lines.size() * 96);
+        lines.forEach((name, samples) -> {
+            text.append("# TYPE ").append(name).append(' ').append(types.get(name)).append('\n');
+            samples.values().forEach(meter -> meter.forEach(sample -> text.append(sample).append('\n')));
+        });
+        return text.toString();
+    }
+
+    private static void sample(Map<String, Map<String, List<String>>> lines, Map<String, String> types, String key, String type,
+                               Number value) {
+        if (value != null) {
+            add(lines, types, key, type, key + ' ' + format(value.doubleValue()));
+        }
+    }
+
+    private static void add(Map<String, Map<String, List<String>>> lines, Map<String, String> types, String key, String type,
+                            String sample) {
+        String name = name(key);
+        types.putIfAbsent(name, type);
+        lines.computeIfAbsent(name, n -> new TreeMap<>()).computeIfAbsent(key, k -> new ArrayList<>(1)).add(sample);
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    private static String name(String key) {
+        int tags = key.indexOf('{');
+        return tags < 0 ? key : key.substring(0, tags);
+    }
+
+    private static String withTag(String key, String tag, String value) {
+        String pair = tag + "=\"" + value + '"';
+        return key.endsWith("}") ? key.substring(0, key.length() - 1) + ',' + pair + '}' : key + '{' + pair + '}';
+    }
+
+    private static String withSuffix(String key, String suffix) {
+        int tags = key.indexOf('{');
+        return tags < 0 ? key + suffix : key.substring(0, tags) + suffix + key.substring(tags);
+    }
+
+    static String key(String name, String... tags) {
+        if (tags.length == 0) {
+            return name;
+        }
+        if (tags.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags must be key/value pairs: " + name);
+        }
+        StringBuilder key = new StringBuilder(name).append('{');
+        for (int i = 0; i < tags.length; i += 2) {
+            if (i > 0) {
+                key.append(',');
+            }
+            key.append(tags[i]).append("=\"").append(escape(tags[i + 1])).append('"');
+        }
+        return key.append('}').toString();
+    }
+
+    private static String escape(String value) {
+        if (value.indexOf('\\') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
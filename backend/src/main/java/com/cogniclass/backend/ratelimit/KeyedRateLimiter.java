@@ -0,0 +1,108 @@
+package com.cogniclass.backend.ratelimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets keyed by caller, implemented as GCRA (generic cell rate
+ * algorithm): each bucket is a single {@link AtomicLong} holding the
+ * theoretical arrival time, the instant at which it would be full again. A
+ * check is one read and one compare-and-set, with no locks and no allocation
+ * once the key is known.
+ * <p>
+ * A bucket whose arrival time has passed is full, which is exactly the state
+ * of a bucket that does not exist, so idle buckets are dropped whenever the
+ * map grows past {@code maxKeys}. A caller racing with that sweep may have its
+ * units charged to the dropped bucket, which at worst lets one extra call through.
+ */
+public class KeyedRateLimiter<K> {
+
+    private final long capacity;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+    private final ConcurrentHashMap<K, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    /** Allows {@code capacity} units per {@code periodNanos}, all of which may be spent at once. */
+    public KeyedRateLimiter(long capacity, long periodNanos, int maxKeys) {
+        this.capacity = capacity;
+        this.intervalNanos = Math.max(1, periodNanos / capacity);
+        this.burstNanos = intervalNanos * capacity;
+        this.maxKeys = maxKeys;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public long periodSeconds() {
+        return (burstNanos + 999_999_999) / 1_000_000_000;
+    }
+
+    /**
+     * Takes {@code cost} units for {@code key}. Returns 0 when they were
+     * granted, otherwise the nanoseconds until they would be. A cost above the
+     * capacity is charged as the full capacity.
+     */
+    public long tryAcquire(K key, long cost, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                sweep(now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        long increment = Math.min(cost, capacity) * intervalNanos;
+        while (true) {
+            long tat = bucket.get();
+            long newTat = Math.max(tat, now) + increment;
+            long wait = newTat - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(tat, newTat)) {
+                return 0;
+            }
+        }
+    }
+
+    /** Gives back units taken by {@link #tryAcquire} when a later check denied the call. */
+    public void refund(K key, long cost) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            bucket.addAndGet(-Math.min(cost, capacity) * intervalNanos);
+        }
+    }
+
+    public long remaining(K key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            return capacity;
+        }
+        long used = Math.max(0, bucket.get() - now);
+        return Math.max(0, (burstNanos - used) / intervalNanos);
+    }
+
+    /** Seconds until the bucket for {@code key} is full again. */
+    public long resetSeconds(K key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        long used = bucket == null ? 0 : Math.max(0, bucket.get() - now);
+        return (used + 999_999_999) / 1_000_000_000;
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private void sweep(long now) {
+        if (sweeping.compareAndSet(false, true)) {
+            try {
+                buckets.values().removeIf(bucket -> bucket.get() <= now);
+            } finally {
+                sweeping.set(false);
+            }
+        }
+    }
+}
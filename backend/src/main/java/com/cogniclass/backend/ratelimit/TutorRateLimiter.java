@@ -0,0 +1,126 @@
+package com.cogniclass.backend.ratelimit;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.cogniclass.backend.metrics.Counter;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+/**
+ * Request and estimated-token quotas for AI tutor calls, per user, per study
+ * group and, for anonymous callers, per client IP. A call must fit every quota
+ * that applies to it; units already taken from the others are given back when
+ * one of them refuses.
+ */
+@Component
+public class TutorRateLimiter {
+
+    /**
+     * Outcome of one check, describing the tightest request quota involved (or
+     * the one that refused), in the shape of the {@code RateLimit-*} headers.
+     */
+    public record Decision(boolean allowed, String scope, long limit, long remaining, long resetSeconds,
+                           long windowSeconds, long retryAfterSeconds) {
+    }
+
+    private final Quota user;
+    private final Quota group;
+    private final Quota ip;
+
+    public TutorRateLimiter(MetricsRegistry metrics,
+                            @Value("${cogniclass.ai.rate-limit.user.requests-per-minute:20}") long userRequests,
+                            @Value("${cogniclass.ai.rate-limit.user.tokens-per-minute:30000}") long userTokens,
+                            @Value("${cogniclass.ai.rate-limit.group.requests-per-minute:60}") long groupRequests,
+                            @Value("${cogniclass.ai.rate-limit.group.tokens-per-minute:100000}") long groupTokens,
+                            @Value("${cogniclass.ai.rate-limit.ip.requests-per-minute:10}") long ipRequests,
+                            @Value("${cogniclass.ai.rate-limit.ip.tokens-per-minute:15000}") long ipTokens,
+                            @Value("${cogniclass.ai.rate-limit.max-keys:100000}") int maxKeys) {
+        long minute = Duration.ofMinutes(1).toNanos();
+        this.user = new Quota("user", userRequests, userTokens, minute, maxKeys, metrics);
+        this.group = new Quota("group", groupRequests, groupTokens, minute, maxKeys, metrics);
+        this.ip = new Quota("ip", ipRequests, ipTokens, minute, maxKeys, metrics);
+    }
+
+    /** {@code userId} and {@code groupId} may be null; the IP quota applies only when there is no user. */
+    public Decision check(Long userId, Long groupId, String clientIp, long estimatedTokens) {
+        return check(userId, groupId, clientIp, estimatedTokens, System.nanoTime());
+    }
+
+    Decision check(Long userId, Long groupId, String clientIp, long estimatedTokens, long now) {
+        Quota first = userId != null ? user : ip;
+        Object firstKey = userId != null ? userId : clientIp;
+        Decision denied = first.tryAcquire(firstKey, estimatedTokens, now);
+        if (denied != null) {
+            return denied;
+        }
+        if (groupId != null) {
+            denied = group.tryAcquire(groupId, estimatedTokens, now);
+            if (denied != null) {
+                first.refund(firstKey, estimatedTokens);
+                return denied;
+            }
+            first.allowed.increment();
+            group.allowed.increment();
+            long firstRemaining = first.requests.remaining(firstKey, now);
+            long groupRemaining = group.requests.remaining(groupId, now);
+            // Report whichever quota has the smaller share left
+            return firstRemaining * group.requests.capacity() <= groupRemaining * first.requests.capacity()
+                    ? first.allowedDecision(firstKey, now) : group.allowedDecision(groupId, now);
+        }
+        first.allowed.increment();
+        return first.allowedDecision(firstKey, now);
+    }
+
+    private static final class Quota {
+        final String scope;
+        final KeyedRateLimiter<Object> requests;
+        final KeyedRateLimiter<Object> tokens;
+        final Counter allowed;
+        final Counter deniedRequests;
+        final Counter deniedTokens;
+
+        Quota(String scope, long requestsPerPeriod, long tokensPerPeriod, long periodNanos, int maxKeys,
+              MetricsRegistry metrics) {
+            this.scope = scope;
+            this.requests = new KeyedRateLimiter<>(requestsPerPeriod, periodNanos, maxKeys);
+            this.tokens = new KeyedRateLimiter<>(tokensPerPeriod, periodNanos, maxKeys);
+            this.allowed = metrics.counter("ai_rate_limit_decisions_total", "scope", scope, "result", "allowed");
+            this.deniedRequests = metrics.counter("ai_rate_limit_decisions_total", "scope", scope, "result", "denied_requests");
+            this.deniedTokens = metrics.counter("ai_rate_limit_decisions_total", "scope", scope, "result", "denied_tokens");
+        }
+
+        // Null when both units were granted
+        Decision tryAcquire(Object key, long estimatedTokens, long now) {
+            long wait = requests.tryAcquire(key, 1, now);
+            if (wait > 0) {
+                deniedRequests.increment();
+                return deniedDecision(key, wait, now);
+            }
+            wait = tokens.tryAcquire(key, estimatedTokens, now);
+            if (wait > 0) {
+                requests.refund(key, 1);
+                deniedTokens.increment();
+                return deniedDecision(key, wait, now);
+            }
+            return null;
+        }
+
+        void refund(Object key, long estimatedTokens) {
+            requests.refund(key, 1);
+            tokens.refund(key, estimatedTokens);
+        }
+
+        Decision allowedDecision(Object key, long now) {
+            return new Decision(true, scope, requests.capacity(), requests.remaining(key, now),
+                    requests.resetSeconds(key, now), requests.periodSeconds(), 0);
+        }
+
+        Decision deniedDecision(Object key, long waitNanos, long now) {
+            return new Decision(false, scope, requests.capacity(), requests.remaining(key, now),
+                    requests.resetSeconds(key, now), requests.periodSeconds(),
+                    Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000));
+        }
+    }
+}
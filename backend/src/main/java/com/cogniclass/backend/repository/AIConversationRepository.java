@@ -2,11 +2,30 @@ package com.cogniclass.backend.repository;
 
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.cogniclass.backend.dto.ConversationTurn;
 import com.cogniclass.backend.entity.AIConversation;
 
 public interface AIConversationRepository extends JpaRepository<AIConversation, Long> {
     List<AIConversation> findByUserIdOrderByCreatedAtDesc(Long userId);
     List<AIConversation> findByStudyGroupIdOrderByCreatedAtDesc(Long groupId);
-}
\ No newline at end of file
+
+    // Newest first, limited by the Pageable; only the text columns, no user or group rows
+
+    @Query("select new com.cogniclass.backend.dto.ConversationTurn(c.userMessage, c.aiResponse, c.createdAt) " +
+           "from AIConversation c " +
+           "where c.user.id = :userId and c.studyGroup is null " +
+           "order by c.createdAt desc, c.id desc")
+    List<ConversationTurn> findRecentTurns(@Param("userId") Long userId, Pageable limit);
+
+    @Query("select new com.cogniclass.backend.dto.ConversationTurn(c.userMessage, c.aiResponse, c.createdAt) " +
+           "from AIConversation c " +
+           "where c.user.id = :userId and c.studyGroup.id = :groupId " +
+           "order by c.createdAt desc, c.id desc")
+    List<ConversationTurn> findRecentTurnsInGroup(@Param("userId") Long userId, @Param("groupId") Long groupId,
+                                                  Pageable limit);
+}
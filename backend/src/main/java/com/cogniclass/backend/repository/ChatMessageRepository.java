@@ -1,11 +1,60 @@
 package com.cogniclass.backend.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.cogniclass.backend.dto.ChatMessageView;
 import com.cogniclass.backend.entity.ChatMessage;
 
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
-    List<ChatMessage> findByStudyGroupIdOrderBySentAtAsc(Long groupId);
-}
\ No newline at end of file
+    // Keyset queries over (sent_at, id), served by idx_chat_messages_group_sent_at_id.
+    // The redundant sentAt bound lets the planner turn the OR into an index range scan.
+    // :since is where hot history starts (ChatArchive.hotSince()); on a partitioned
+    // table it also prunes the scan to the partitions from that month on.
+
+    @Query("select new com.cogniclass.backend.dto.ChatMessageView(m.id, m.seq, m.content, m.sentAt, m.messageType, s.id, s.name, s.role) " +
+           "from ChatMessage m left join m.sender s " +
+           "where m.studyGroup.id = :groupId and m.sentAt >= :since " +
+           "order by m.sentAt desc, m.id desc")
+    List<ChatMessageView> findLatestViews(@Param("groupId") Long groupId,
+                                          @Param("since") LocalDateTime since,
+                                          Pageable pageable);
+
+    @Query("select new com.cogniclass.backend.dto.ChatMessageView(m.id, m.seq, m.content, m.sentAt, m.messageType, s.id, s.name, s.role) " +
+           "from ChatMessage m left join m.sender s " +
+           "where m.studyGroup.id = :groupId and m.sentAt >= :since " +
+           "and m.sentAt <= :sentAt and (m.sentAt < :sentAt or m.id < :id) " +
+           "order by m.sentAt desc, m.id desc")
+    List<ChatMessageView> findViewsBefore(@Param("groupId") Long groupId,
+                                          @Param("since") LocalDateTime since,
+                                          @Param("sentAt") LocalDateTime sentAt,
+                                          @Param("id") Long id,
+                                          Pageable pageable);
+
+    @Query("select new com.cogniclass.backend.dto.ChatMessageView(m.id, m.seq, m.content, m.sentAt, m.messageType, s.id, s.name, s.role) " +
+           "from ChatMessage m left join m.sender s " +
+           "where m.studyGroup.id = :groupId and m.sentAt >= :since " +
+           "and m.sentAt >= :sentAt and (m.sentAt > :sentAt or m.id > :id) " +
+           "order by m.sentAt asc, m.id asc")
+    List<ChatMessageView> findViewsAfter(@Param("groupId") Long groupId,
+                                         @Param("since") LocalDateTime since,
+                                         @Param("sentAt") LocalDateTime sentAt,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+
+    // Sequence heads for ChatSequencer, served by idx_chat_messages_group_seq and the keyset index
+
+    @Query("select max(m.seq) from ChatMessage m where m.studyGroup.id = :groupId")
+    Optional<Long> findMaxSeq(@Param("groupId") Long groupId);
+
+    @Query("select max(m.sentAt) from ChatMessage m where m.studyGroup.id = :groupId")
+    Optional<LocalDateTime> findMaxSentAt(@Param("groupId") Long groupId);
+
+    boolean existsByStudyGroupIdAndSeqIsNull(Long groupId);
+}
@@ -0,0 +1,20 @@
+package com.cogniclass.backend.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.cogniclass.backend.entity.GroupReadMarker;
+
+public interface GroupReadMarkerRepository extends JpaRepository<GroupReadMarker, GroupReadMarker.Key> {
+
+    // Only ever moves forward, so a late "mark read" from a stale tab cannot resurrect unread messages
+    @Modifying
+    @Query("update GroupReadMarker r set r.readCount = :readCount, r.lastReadAt = :now " +
+           "where r.id.userId = :userId and r.id.groupId = :groupId and r.readCount < :readCount")
+    int advance(@Param("userId") Long userId, @Param("groupId") Long groupId,
+                @Param("readCount") long readCount, @Param("now") LocalDateTime now);
+}
@@ -1,13 +1,84 @@
 package com.cogniclass.backend.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.cogniclass.backend.dto.GroupActivity;
+import com.cogniclass.backend.dto.GroupSummary;
 import com.cogniclass.backend.entity.StudyGroup;
 
 public interface StudyGroupRepository extends JpaRepository<StudyGroup, Long> {
     List<StudyGroup> findByIsPublicTrue();
     List<StudyGroup> findByCreatedById(Long userId);
     List<StudyGroup> findByMembersId(Long userId);
-}
\ No newline at end of file
+
+    // Summary queries: size() becomes a correlated count over group_members, so each
+    // page costs one select (plus one count) however many groups and members there are.
+
+    @Query(value = "select new com.cogniclass.backend.dto.GroupSummary(g.id, g.name, g.description, g.subject, g.isPublic, " +
+                   "g.createdAt, c.id, c.name, size(g.members)) " +
+                   "from StudyGroup g left join g.createdBy c " +
+                   "where g.isPublic = true",
+           countQuery = "select count(g) from StudyGroup g where g.isPublic = true")
+    Page<GroupSummary> findPublicSummaries(Pageable pageable);
+
+    @Query(value = "select new com.cogniclass.backend.dto.GroupSummary(g.id, g.name, g.description, g.subject, g.isPublic, " +
+                   "g.createdAt, c.id, c.name, size(g.members)) " +
+                   "from StudyGroup g join g.members m left join g.createdBy c " +
+                   "where m.id = :userId",
+           countQuery = "select count(g) from StudyGroup g join g.members m where m.id = :userId")
+    Page<GroupSummary> findMemberSummaries(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("select new com.cogniclass.backend.dto.GroupSummary(g.id, g.name, g.description, g.subject, g.isPublic, " +
+           "g.createdAt, c.id, c.name, size(g.members)) " +
+           "from StudyGroup g left join g.createdBy c " +
+           "where g.id = :groupId")
+    Optional<GroupSummary> findSummaryById(@Param("groupId") Long groupId);
+
+    // Activity: the counter and last-message columns are maintained per message by
+    // GroupActivityService, so the sidebar is one join and never counts chat_messages.
+
+    @Query("select new com.cogniclass.backend.dto.GroupActivity(g.id, g.name, g.messageCount, r.readCount, " +
+           "g.lastMessageId, g.lastMessagePreview, g.lastMessageSenderName, g.lastMessageAt) " +
+           "from StudyGroup g join g.members m " +
+           "left join GroupReadMarker r on r.id.groupId = g.id and r.id.userId = :userId " +
+           "where m.id = :userId " +
+           "order by g.lastMessageAt desc nulls last, g.id")
+    List<GroupActivity> findActivityByMembersId(@Param("userId") Long userId);
+
+    @Modifying
+    // Native: in JPQL the :count bind is cast to message_count's column definition, which is not a type
+    @Query(value = "update study_groups set message_count = message_count + :count, last_message_id = :messageId, " +
+                   "last_message_preview = :preview, last_message_sender = :senderName, last_message_at = :sentAt " +
+                   "where id = :groupId",
+           nativeQuery = true)
+    int recordMessages(@Param("groupId") Long groupId, @Param("count") long count, @Param("messageId") Long messageId,
+                       @Param("preview") String preview, @Param("senderName") String senderName,
+                       @Param("sentAt") LocalDateTime sentAt);
+
+    @Query("select g.messageCount from StudyGroup g where g.id = :groupId")
+    Optional<Long> findMessageCount(@Param("groupId") Long groupId);
+
+    // Membership rows, written directly instead of loading and rewriting StudyGroup.members
+
+    @Query(value = "select gm.user_id from group_members gm where gm.group_id = :groupId", nativeQuery = true)
+    List<Long> findMemberIds(@Param("groupId") Long groupId);
+
+    @Modifying
+    @Query(value = "insert into group_members (group_id, user_id) select :groupId, :userId " +
+                   "where not exists (select 1 from group_members gm where gm.group_id = :groupId and gm.user_id = :userId)",
+           nativeQuery = true)
+    int insertMember(@Param("groupId") Long groupId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "delete from group_members where group_id = :groupId and user_id = :userId", nativeQuery = true)
+    int deleteMember(@Param("groupId") Long groupId, @Param("userId") Long userId);
+}
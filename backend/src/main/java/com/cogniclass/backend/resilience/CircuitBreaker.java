@@ -0,0 +1,176 @@
+package com.cogniclass.backend.resilience;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+/**
+ * Count-based circuit breaker. While closed it tracks the outcome of the last
+ * {@code window} calls and opens once at least {@code minCalls} of them were
+ * recorded and the failure rate reaches {@code failureRateThreshold}. While open
+ * every call is refused. After {@code openNanos} it lets {@code halfOpenCalls}
+ * probe calls through: if they all succeed it closes, and the first failure
+ * opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String upstream;
+    private final int window;
+    private final int minCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+    private final MetricsRegistry metrics;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] outcomes; // true = failure, ring buffer over the last `window` calls
+    private int recorded;
+    private int next;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesLeft;
+    private int probeSuccesses;
+
+    public CircuitBreaker(String upstream, int window, int minCalls, double failureRateThreshold,
+                          long openNanos, int halfOpenCalls, LongSupplier clock, MetricsRegistry metrics) {
+        this.upstream = upstream;
+        this.window = window;
+        this.minCalls = Math.min(minCalls, window);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openNanos;
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+        this.metrics = metrics;
+        this.outcomes = new boolean[window];
+        metrics.gauge("llm_circuit_state", () -> state().ordinal(), "upstream", upstream);
+    }
+
+    /** Reserves the right to make one call; false means fail fast. */
+    public boolean tryAcquirePermission() {
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (clock.getAsLong() - openedAt < openNanos) {
+                    return false;
+                }
+                transition(State.HALF_OPEN);
+                probesLeft = halfOpenCalls;
+                probeSuccesses = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesLeft == 0) {
+                    return false;
+                }
+                probesLeft--;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                if (++probeSuccesses >= halfOpenCalls) {
+                    transition(State.CLOSED);
+                    reset();
+                }
+            } else if (state == State.CLOSED) {
+                record(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onFailure() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                open();
+            } else if (state == State.CLOSED) {
+                record(true);
+                if (recorded >= minCalls && (double) failures / recorded >= failureRateThreshold) {
+                    open();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Gives back a permission whose call ended without saying anything about the upstream. */
+    public void onIgnored() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && probesLeft < halfOpenCalls - probeSuccesses) {
+                probesLeft++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Whether {@link #tryAcquirePermission()} would currently succeed, without reserving anything. */
+    public boolean isCallPermitted() {
+        lock.lock();
+        try {
+            return switch (state) {
+                case CLOSED -> true;
+                case OPEN -> clock.getAsLong() - openedAt >= openNanos;
+                case HALF_OPEN -> probesLeft > 0;
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State state() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window && outcomes[next]) {
+            failures--;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window;
+        recorded = Math.min(recorded + 1, window);
+    }
+
+    private void open() {
+        transition(State.OPEN);
+        openedAt = clock.getAsLong();
+        reset();
+    }
+
+    private void reset() {
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+
+    private void transition(State to) {
+        if (state != to) {
+            state = to;
+            metrics.counter("llm_circuit_transitions_total", "upstream", upstream, "to", to.name().toLowerCase()).increment();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.cogniclass.backend.resilience;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import com.cogniclass.backend.llm.LlmClientException;
+import com.cogniclass.backend.metrics.Counter;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+/**
+ * Bulkhead, circuit breaker and budgeted retries for one upstream.
+ * <p>
+ * A call first takes a bulkhead slot (no waiting: a full bulkhead fails fast),
+ * then asks the breaker before every attempt. Connection failures, timeouts,
+ * 429 and 5xx count against the breaker. Of those, 429, 502, 503, 504 and
+ * connect/timeout/IO errors are retried with full-jitter exponential backoff,
+ * honouring {@code Retry-After}, as long as the retry budget allows. Other
+ * statuses are returned to the caller untouched.
+ */
+public class ResilientUpstream {
+
+    public record Settings(int maxConcurrent,
+                           int breakerWindow, int breakerMinCalls, double breakerFailureRate,
+                           Duration breakerOpenDuration, int breakerHalfOpenCalls,
+                           int maxAttempts, Duration baseBackoff, Duration maxBackoff, Duration maxRetryAfter,
+                           double retryBudgetRatio, double retryBudgetMinPerSecond) {
+
+        public static Settings defaults() {
+            return new Settings(64, 20, 10, 0.5, Duration.ofSeconds(30), 3,
+                    3, Duration.ofMillis(200), Duration.ofSeconds(2), Duration.ofSeconds(5), 0.2, 1);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Sleeper {
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker breaker;
+    private final RetryBudget retryBudget;
+    private final Sleeper sleeper;
+
+    private final Counter retries;
+    private final Counter circuitOpenRejections;
+    private final Counter bulkheadRejections;
+    private final Counter budgetExhausted;
+
+    public ResilientUpstream(String name, Settings settings, MetricsRegistry metrics) {
+        this(name, settings, metrics, System::nanoTime, TimeUnit.NANOSECONDS::sleep);
+    }
+
+    ResilientUpstream(String name, Settings settings, MetricsRegistry metrics, LongSupplier clock, Sleeper sleeper) {
+        this.name = name;
+        this.settings = settings;
+        this.bulkhead = new Semaphore(settings.maxConcurrent());
+        this.breaker = new CircuitBreaker(name, settings.breakerWindow(), settings.breakerMinCalls(),
+                settings.breakerFailureRate(), settings.breakerOpenDuration().toNanos(), settings.breakerHalfOpenCalls(),
+                clock, metrics);
+        this.retryBudget = new RetryBudget(settings.retryBudgetRatio(), settings.retryBudgetMinPerSecond(), clock);
+        this.sleeper = sleeper;
+        this.retries = metrics.counter("llm_retries_total", "upstream", name);
+        this.circuitOpenRejections = metrics.counter("llm_resilience_rejections_total", "upstream", name, "reason", "circuit_open");
+        this.bulkheadRejections = metrics.counter("llm_resilience_rejections_total", "upstream", name, "reason", "bulkhead_full");
+        this.budgetExhausted = metrics.counter("llm_resilience_rejections_total", "upstream", name, "reason", "retry_budget");
+        metrics.gauge("llm_bulkhead_in_use", () -> settings.maxConcurrent() - bulkhead.availablePermits(), "upstream", name);
+        metrics.gauge("llm_retry_budget_tokens", retryBudget::available, "upstream", name);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /** False while the breaker would refuse a call or the bulkhead is full. */
+    public boolean acceptingCalls() {
+        return bulkhead.availablePermits() > 0 && breaker.isCallPermitted();
+    }
+
+    public CircuitBreaker.State circuitState() {
+        return breaker.state();
+    }
+
+    /** Runs a blocking call with retries. */
+    public <T> HttpResponse<T> execute(Supplier<HttpResponse<T>> call) {
+        if (!bulkhead.tryAcquire()) {
+            bulkheadRejections.increment();
+            throw new UpstreamUnavailableException(name, UpstreamUnavailableException.Reason.BULKHEAD_FULL);
+        }
+        try {
+            retryBudget.recordRequest();
+            for (int attempt = 1; ; attempt++) {
+                if (!breaker.tryAcquirePermission()) {
+                    circuitOpenRejections.increment();
+                    throw new UpstreamUnavailableException(name, UpstreamUnavailableException.Reason.CIRCUIT_OPEN);
+                }
+                boolean lastAttempt = attempt >= settings.maxAttempts();
+                HttpResponse<T> response;
+                try {
+                    response = call.get();
+                } catch (LlmClientException e) {
+                    if (e.getKind() == LlmClientException.Kind.SATURATED || Thread.currentThread().isInterrupted()) {
+                        // our own connection limit or a caller that gave up, not the upstream's health
+                        breaker.onIgnored();
+                        throw e;
+                    }
+                    breaker.onFailure();
+                    if (lastAttempt || !mayRetry()) {
+                        throw e;
+                    }
+                    backoff(attempt, null);
+                    continue;
+                } catch (RuntimeException | Error e) {
+                    breaker.onIgnored();
+                    throw e;
+                }
+
+                int status = response.statusCode();
+                if (!isUpstreamFailure(status)) {
+                    breaker.onSuccess();
+                    return response;
+                }
+                breaker.onFailure();
+                Long retryAfter = retryAfterNanos(response);
+                boolean retryAfterTooLong = retryAfter != null && retryAfter > settings.maxRetryAfter().toNanos();
+                if (!isRetryable(status) || lastAttempt || retryAfterTooLong || !mayRetry()) {
+                    return response;
+                }
+                backoff(attempt, retryAfter);
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Admits one streamed call. No retries: once tokens have reached the client
+     * the call cannot be replayed. The caller must report exactly one outcome.
+     */
+    public StreamPermit acquireStream() {
+        if (!bulkhead.tryAcquire()) {
+            bulkheadRejections.increment();
+            throw new UpstreamUnavailableException(name, UpstreamUnavailableException.Reason.BULKHEAD_FULL);
+        }
+        if (!breaker.tryAcquirePermission()) {
+            bulkhead.release();
+            circuitOpenRejections.increment();
+            throw new UpstreamUnavailableException(name, UpstreamUnavailableException.Reason.CIRCUIT_OPEN);
+        }
+        return new StreamPermit();
+    }
+
+    public final class StreamPermit {
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        public void onSuccess() {
+            if (done.compareAndSet(false, true)) {
+                breaker.onSuccess();
+                bulkhead.release();
+            }
+        }
+
+        /** Gives the permit back when the call was never sent. */
+        public void onAbandoned() {
+            if (done.compareAndSet(false, true)) {
+                breaker.onIgnored();
+                bulkhead.release();
+            }
+        }
+
+        /**
+         * {@code status} is the upstream's HTTP status, or 0 if there was no response.
+         * A client error means the upstream is healthy; a 200 that broke off midway does not.
+         */
+        public void onFailure(int status) {
+            if (done.compareAndSet(false, true)) {
+                if (status >= 400 && !isUpstreamFailure(status)) {
+                    breaker.onSuccess();
+                } else {
+                    breaker.onFailure();
+                }
+                bulkhead.release();
+            }
+        }
+    }
+
+    private boolean mayRetry() {
+        if (retryBudget.tryWithdraw()) {
+            retries.increment();
+            return true;
+        }
+        budgetExhausted.increment();
+        return false;
+    }
+
+    private void backoff(int attempt, Long retryAfterNanos) {
+        long cap = Math.min(settings.maxBackoff().toNanos(), settings.baseBackoff().toNanos() << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(cap + 1); // full jitter
+        if (retryAfterNanos != null) {
+            delay = Math.max(delay, retryAfterNanos);
+        }
+        try {
+            sleeper.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmClientException(LlmClientException.Kind.IO, "Interrupted during retry backoff", e);
+        }
+    }
+
+    static boolean isUpstreamFailure(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    static boolean isRetryable(int status) {
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    // Only the delta-seconds form; HTTP-date values are ignored
+    private static Long retryAfterNanos(HttpResponse<?> response) {
+        return response.headers().firstValue("Retry-After")
+                .map(String::trim)
+                .filter(value -> !value.isEmpty() && value.chars().allMatch(Character::isDigit))
+                .map(value -> TimeUnit.SECONDS.toNanos(Long.parseLong(value)))
+                .orElse(null);
+    }
+}
@@ -0,0 +1,66 @@
+package com.cogniclass.backend.resilience;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Caps retries at a fraction of the request rate so that retrying cannot
+ * multiply load on an upstream that is already failing. Every request deposits
+ * {@code ratio} tokens and every retry withdraws one; a trickle of
+ * {@code minPerSecond} tokens keeps low-traffic callers able to retry at all.
+ * The balance is capped, so quiet periods do not bank an unbounded burst.
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final double minPerSecond;
+    private final double maxTokens;
+    private final LongSupplier clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private double tokens;
+    private long lastRefill;
+
+    public RetryBudget(double ratio, double minPerSecond, LongSupplier clock) {
+        this.ratio = ratio;
+        this.minPerSecond = minPerSecond;
+        this.maxTokens = Math.max(10, minPerSecond * 10);
+        this.clock = clock;
+        this.tokens = maxTokens;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    public void recordRequest() {
+        lock.lock();
+        try {
+            tokens = Math.min(maxTokens, tokens + ratio);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean tryWithdraw() {
+        lock.lock();
+        try {
+            long now = clock.getAsLong();
+            tokens = Math.min(maxTokens, tokens + (now - lastRefill) / 1e9 * minPerSecond);
+            lastRefill = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double available() {
+        lock.lock();
+        try {
+            return tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.cogniclass.backend.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+/** One {@link ResilientUpstream} per upstream name, all sharing the configured settings. */
+@Component
+public class UpstreamResilience {
+
+    private final MetricsRegistry metrics;
+    private final ResilientUpstream.Settings settings;
+    private final ConcurrentMap<String, ResilientUpstream> upstreams = new ConcurrentHashMap<>();
+
+    public UpstreamResilience(MetricsRegistry metrics,
+                              @Value("${cogniclass.llm.resilience.bulkhead.max-concurrent:64}") int maxConcurrent,
+                              @Value("${cogniclass.llm.resilience.breaker.window:20}") int breakerWindow,
+                              @Value("${cogniclass.llm.resilience.breaker.min-calls:10}") int breakerMinCalls,
+                              @Value("${cogniclass.llm.resilience.breaker.failure-rate:0.5}") double breakerFailureRate,
+                              @Value("${cogniclass.llm.resilience.breaker.open-duration:30s}") Duration breakerOpenDuration,
+                              @Value("${cogniclass.llm.resilience.breaker.half-open-calls:3}") int breakerHalfOpenCalls,
+                              @Value("${cogniclass.llm.resilience.retry.max-attempts:3}") int maxAttempts,
+                              @Value("${cogniclass.llm.resilience.retry.base-backoff:200ms}") Duration baseBackoff,
+                              @Value("${cogniclass.llm.resilience.retry.max-backoff:2s}") Duration maxBackoff,
+                              @Value("${cogniclass.llm.resilience.retry.max-retry-after:5s}") Duration maxRetryAfter,
+                              @Value("${cogniclass.llm.resilience.retry.budget-ratio:0.2}") double budgetRatio,
+                              @Value("${cogniclass.llm.resilience.retry.budget-min-per-second:1}") double budgetMinPerSecond) {
+        this.metrics = metrics;
+        this.settings = new ResilientUpstream.Settings(maxConcurrent,
+                breakerWindow, breakerMinCalls, breakerFailureRate, breakerOpenDuration, breakerHalfOpenCalls,
+                maxAttempts, baseBackoff, maxBackoff, maxRetryAfter, budgetRatio, budgetMinPerSecond);
+    }
+
+    public ResilientUpstream upstream(String name) {
+        return upstreams.computeIfAbsent(name, key -> new ResilientUpstream(key, settings, metrics));
+    }
+}
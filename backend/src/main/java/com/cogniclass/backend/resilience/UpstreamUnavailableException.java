@@ -0,0 +1,21 @@
+package com.cogniclass.backend.resilience;
+
+import lombok.Getter;
+
+/** Thrown instead of calling an upstream that is known to be unhealthy or saturated. */
+@Getter
+public class UpstreamUnavailableException extends RuntimeException {
+
+    public enum Reason {
+        CIRCUIT_OPEN, BULKHEAD_FULL, NO_HEALTHY_PROVIDER
+    }
+
+    private final String upstream;
+    private final Reason reason;
+
+    public UpstreamUnavailableException(String upstream, Reason reason) {
+        super(upstream + " is unavailable: " + reason.name().toLowerCase().replace('_', ' '));
+        this.upstream = upstream;
+        this.reason = reason;
+    }
+}
@@ -3,95 +3,347 @@ package com.cogniclass.backend.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import com.cogniclass.backend.llm.LlmClient;
+import com.cogniclass.backend.llm.LlmMetrics;
+import com.cogniclass.backend.llm.LlmProvider;
+import com.cogniclass.backend.llm.LlmProviderRouter;
+import com.cogniclass.backend.metrics.Histogram;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.resilience.ResilientUpstream;
+import com.cogniclass.backend.resilience.UpstreamUnavailableException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class AITutorService {
     
-    private final RestTemplate restTemplate;
+    private final LlmClient llmClient;
+    private final ObjectMapper objectMapper;
+    private final MetricsRegistry metricsRegistry;
+    private final TutorResponseCache responseCache;
+    private final TutorRequestCoalescer requestCoalescer;
+    private final LlmProviderRouter providerRouter;
+    private final ResponseTypeClassifier responseTypeClassifier;
+    
+    private static final int MAX_TOKENS = 1024;
+    
+    @Value("${cogniclass.ai.stream.timeout:60s}")
+    private Duration streamTimeout;
     
-    @Value("${groq.api.key}")
-    private String groqApiKey;
+    /**
+     * What the tutor produced: the model's answer, or, when there is none, a
+     * message to show the user instead. Only answers belong in the user's
+     * conversation history.
+     */
+    public record TutorReply(String content, boolean answered) {
+        static TutorReply answer(String content) {
+            return new TutorReply(content, true);
+        }
+
+        static TutorReply failure(String message) {
+            return new TutorReply(message, false);
+        }
+    }
+    
+    public TutorReply getAIResponse(String userMessage, String context) {
+        return getAIResponse(userMessage, context, false);
+    }
+    
+    public TutorReply getAIResponse(String userMessage, String context, boolean bypassCache) {
+        return getAIResponse(userMessage, context, bypassCache, List.of());
+    }
     
-    public String getAIResponse(String userMessage, String context) {
+    /**
+     * {@code history} holds earlier exchanges as chat messages, see
+     * {@link ConversationContextAssembler}. An answer that depends on history is
+     * neither served from nor stored in the response cache, and is not coalesced.
+     */
+    public TutorReply getAIResponse(String userMessage, String context, boolean bypassCache,
+                                    List<Map<String, String>> history) {
+        boolean standalone = history.isEmpty();
+        if (standalone) {
+            String cached = responseCache.get(context, userMessage, bypassCache);
+            if (cached != null) {
+                log.debug("Serving AI response from cache");
+                return TutorReply.answer(cached);
+            }
+        }
+        
+        log.debug("Getting AI response for a {}-char message", userMessage == null ? 0 : userMessage.length());
+        
+        if (!providerRouter.hasProviders()) {
+            return TutorReply.failure("AI service configuration error. Please check API key.");
+        }
+        
         try {
-            log.info("Getting AI response for message: {}", userMessage);
-            
-            // Check API key
-            if (groqApiKey == null || groqApiKey.contains("your_groq_api_key")) {
-                log.error("Groq API key not configured properly");
-                return "AI service configuration error. Please check API key.";
+            // Identical prompts in flight at the same time share one upstream call
+            String content = standalone
+                    ? requestCoalescer.execute(context, userMessage, bypassCache,
+                            () -> requestCompletion(userMessage, context, history))
+                    : requestCompletion(userMessage, context, history);
+            if (content == null) {
+                return TutorReply.failure("I received an unexpected response from the AI service.");
             }
-            
-            String url = "https://api.groq.com/openai/v1/chat/completions";
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("Authorization", "Bearer " + groqApiKey);
-            
-            // Build request
-            Map<String, Object> requestBody = new HashMap<>();
-            
-            Map<String, String> systemMessage = new HashMap<>();
-            systemMessage.put("role", "system");
-            systemMessage.put("content", "You are an AI tutor specializing in " + context + ". Be helpful and educational.");
-            
-            Map<String, String> userMessageObj = new HashMap<>();
-            userMessageObj.put("role", "user");
-            userMessageObj.put("content", userMessage);
-            
-            requestBody.put("messages", new Map[]{systemMessage, userMessageObj});
-            requestBody.put("model", "llama-3.1-8b-instant"); // UPDATED MODEL
-            requestBody.put("temperature", 0.7);
-            requestBody.put("max_tokens", 1024);
-            
-            log.info("Sending request to Groq API...");
-            
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-            ResponseEntity<Map> response = restTemplate.exchange(url, HttpMethod.POST, entity, Map.class);
-            
-            log.info("Received response from Groq API: {}", response.getStatusCode());
-            
+            return TutorReply.answer(content);
+        } catch (UpstreamUnavailableException e) {
+            log.warn("Skipping LLM call: {}", e.getMessage());
+            return TutorReply.failure("The AI tutor is temporarily unavailable. Please try again in a moment.");
+        } catch (Exception e) {
+            // The exception text stays in the log; it can name hosts, keys or upstream payloads
+            log.error("Error calling LLM provider: {}", e.getMessage(), e);
+            return TutorReply.failure("I'm experiencing technical difficulties. Please try again later.");
+        }
+    }
+    
+    // Returns null when the upstream answers in an unexpected format
+    private String requestCompletion(String userMessage, String context, List<Map<String, String>> history) {
+        long estimatedTokens = estimateTokens(userMessage, context) + historyTokens(history);
+        LlmProviderRouter.Completion completion = providerRouter.complete(estimatedTokens, provider -> {
+            try {
+                byte[] requestBody = objectMapper.writeValueAsBytes(buildRequestBody(userMessage, context, history, provider.model(), false));
+                return provider.newRequest()
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(requestBody))
+                        .build();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        LlmProvider provider = completion.provider();
+        HttpResponse<String> response = completion.response();
+        
+        log.debug("Received response from {}: {}", provider.name(), response.statusCode());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(provider.name() + " returned " + response.statusCode());
+        }
+        
+        try {
             // Parse response
-            Map<String, Object> responseBody = response.getBody();
+            Map<String, Object> responseBody = objectMapper.readValue(response.body(), Map.class);
+            if (responseBody != null && responseBody.get("usage") instanceof Map<?, ?> usage) {
+                if (usage.get("total_tokens") instanceof Number used) {
+                    provider.settleTokens(estimatedTokens, used.longValue());
+                }
+                providerRouter.llmMetrics().recordUsage(provider, tokens(usage.get("prompt_tokens")),
+                        tokens(usage.get("completion_tokens")));
+            }
             if (responseBody != null && responseBody.containsKey("choices")) {
-                java.util.List<Map<String, Object>> choices = (java.util.List<Map<String, Object>>) responseBody.get("choices");
+                List<Map<String, Object>> choices = (List<Map<String, Object>>) responseBody.get("choices");
                 if (!choices.isEmpty()) {
                     Map<String, Object> firstChoice = choices.get(0);
                     Map<String, Object> message = (Map<String, Object>) firstChoice.get("message");
                     String content = (String) message.get("content");
-                    log.info("AI response generated successfully");
+                    log.debug("AI response generated successfully");
+                    if (history.isEmpty()) {
+                        responseCache.put(context, userMessage, content);
+                    }
                     return content;
                 }
             }
             
-            log.warn("Unexpected response format from Groq API");
-            return "I received an unexpected response from the AI service.";
-            
+            log.warn("Unexpected response format from {}", provider.name());
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /** Prompt at roughly four characters per token plus the completion allowance. */
+    public static long estimateTokens(String userMessage, String context) {
+        int promptChars = (userMessage == null ? 0 : userMessage.length()) + (context == null ? 0 : context.length()) + 80;
+        return promptChars / 4 + MAX_TOKENS;
+    }
+    
+    private static long tokens(Object count) {
+        return count instanceof Number number ? number.longValue() : 0;
+    }
+    
+    private static long historyTokens(List<Map<String, String>> history) {
+        long chars = 0;
+        for (Map<String, String> message : history) {
+            chars += message.get("content").length();
+        }
+        return chars / 4;
+    }
+    
+    /**
+     * Streams the completion token by token using the upstream's {@code stream: true}
+     * mode. Returns immediately; the listener is driven from the HTTP client's
+     * threads, so no request thread is held while the model is generating.
+     * {@code streamTimeout} bounds the whole stream. Streams go to a single
+     * provider chosen by the router; they are neither hedged nor retried.
+     */
+    public void streamAIResponse(String userMessage, String context, TutorStreamListener listener) {
+        streamAIResponse(userMessage, context, List.of(), listener);
+    }
+    
+    public void streamAIResponse(String userMessage, String context, List<Map<String, String>> history,
+                                 TutorStreamListener listener) {
+        if (!providerRouter.hasProviders()) {
+            listener.onError(new IllegalStateException("AI service configuration error. Please check API key."));
+            return;
+        }
+        
+        long estimatedTokens = estimateTokens(userMessage, context) + historyTokens(history);
+        LlmProvider provider = providerRouter.pick(estimatedTokens, Set.of());
+        ResilientUpstream.StreamPermit permit;
+        try {
+            if (provider == null) {
+                throw new UpstreamUnavailableException("llm", UpstreamUnavailableException.Reason.NO_HEALTHY_PROVIDER);
+            }
+            // Take the permit first: a refused permit then leaves no reservation behind
+            permit = provider.upstream().acquireStream();
+            if (!provider.tryReserveTokens(estimatedTokens)) {
+                permit.onAbandoned();
+                throw new UpstreamUnavailableException("llm", UpstreamUnavailableException.Reason.NO_HEALTHY_PROVIDER);
+            }
+        } catch (UpstreamUnavailableException e) {
+            log.warn("Skipping LLM stream: {}", e.getMessage());
+            listener.onError(e);
+            return;
+        }
+        
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(buildRequestBody(userMessage, context, history, provider.model(), true));
         } catch (Exception e) {
-            log.error("Error calling Groq API: {}", e.getMessage(), e);
-            return "I'm experiencing technical difficulties. Please try again later. Error: " + e.getMessage();
+            permit.onAbandoned();
+            provider.settleTokens(estimatedTokens, 0);
+            listener.onError(e);
+            return;
         }
+        
+        HttpRequest request = provider.newRequest()
+                .header("Accept", "text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        
+        Histogram timeToFirstToken = metricsRegistry.histogram("ai_tutor_time_to_first_token_seconds");
+        Histogram streamDuration = metricsRegistry.histogram("ai_tutor_stream_duration_seconds");
+        LlmMetrics llmMetrics = providerRouter.llmMetrics();
+        long start = System.nanoTime();
+        
+        AtomicBoolean finished = new AtomicBoolean();
+        AtomicInteger upstreamStatus = new AtomicInteger();
+        AtomicLong firstTokenNanos = new AtomicLong(-1);
+        AtomicBoolean usageSettled = new AtomicBoolean();
+        provider.onStart();
+        
+        TutorStreamListener timed = new TutorStreamListener() {
+            @Override
+            public void onToken(String token) {
+                listener.onToken(token);
+            }
+            
+            @Override
+            public void onComplete(String fullResponse) {
+                if (finished.compareAndSet(false, true)) {
+                    permit.onSuccess();
+                    provider.onComplete(firstTokenNanos.get(), true);
+                    streamDuration.recordNanos(System.nanoTime() - start);
+                    llmMetrics.recordRequest(provider, LlmMetrics.STREAM, "ok", System.nanoTime() - start);
+                    metricsRegistry.counter("ai_tutor_streams_total", "outcome", "success").increment();
+                    listener.onComplete(fullResponse);
+                }
+            }
+            
+            @Override
+            public void onError(Throwable error) {
+                // A failed body surfaces both here and on the sendAsync future
+                if (finished.compareAndSet(false, true)) {
+                    int status = upstreamStatus.get();
+                    permit.onFailure(status);
+                    if (!usageSettled.get()) {
+                        provider.settleTokens(estimatedTokens, 0);
+                    }
+                    provider.onComplete(firstTokenNanos.get(), status != 0 && status < 500 && status != 429);
+                    llmMetrics.recordRequest(provider, LlmMetrics.STREAM,
+                            status == 0 ? LlmMetrics.outcome(error) : LlmMetrics.outcome(status), System.nanoTime() - start);
+                    metricsRegistry.counter("ai_tutor_streams_total", "outcome", "error").increment();
+                    listener.onError(error);
+                }
+            }
+        };
+        
+        HttpResponse.BodyHandler<Void> handler = responseInfo -> {
+            upstreamStatus.set(responseInfo.statusCode());
+            if (responseInfo.statusCode() != 200) {
+                return HttpResponse.BodySubscribers.mapping(
+                        HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8),
+                        errorBody -> {
+                            timed.onError(new IllegalStateException(
+                                    provider.name() + " returned " + responseInfo.statusCode() + ": " + errorBody));
+                            return null;
+                        });
+            }
+            return HttpResponse.BodySubscribers.fromLineSubscriber(
+                    new ChatCompletionStreamSubscriber(objectMapper, timed,
+                            () -> {
+                                long elapsed = System.nanoTime() - start;
+                                firstTokenNanos.set(elapsed);
+                                timeToFirstToken.recordNanos(elapsed);
+                            },
+                            (promptTokens, completionTokens, totalTokens) -> {
+                                if (totalTokens > 0 && usageSettled.compareAndSet(false, true)) {
+                                    provider.settleTokens(estimatedTokens, totalTokens);
+                                }
+                                llmMetrics.recordUsage(provider, promptTokens, completionTokens);
+                            }),
+                    subscriber -> null, StandardCharsets.UTF_8, null);
+        };
+        
+        llmClient.sendAsync(request, handler, streamTimeout).whenComplete((response, error) -> {
+            if (error != null) {
+                timed.onError(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+        });
     }
     
-    public String determineResponseType(String content) {
-        if (content == null) return "EXPLANATION";
-        
-        String lowerContent = content.toLowerCase();
-        if (lowerContent.contains("example") || lowerContent.contains("for instance")) {
-            return "EXAMPLE";
-        } else if (lowerContent.contains("hint") || lowerContent.contains("try thinking")) {
-            return "HINT";
-        } else if (lowerContent.contains("?") && content.split("\\?").length > 2) {
-            return "QUESTION";
+    private Map<String, Object> buildRequestBody(String userMessage, String context, List<Map<String, String>> history,
+                                                 String model, boolean stream) {
+        Map<String, Object> requestBody = new HashMap<>();
+        
+        Map<String, String> systemMessage = new HashMap<>();
+        systemMessage.put("role", "system");
+        systemMessage.put("content", "You are an AI tutor specializing in " + context + ". Be helpful and educational.");
+        
+        Map<String, String> userMessageObj = new HashMap<>();
+        userMessageObj.put("role", "user");
+        userMessageObj.put("content", userMessage);
+        
+        List<Map<String, String>> messages = new ArrayList<>(history.size() + 2);
+        messages.add(systemMessage);
+        messages.addAll(history);
+        messages.add(userMessageObj);
+        requestBody.put("messages", messages);
+        requestBody.put("model", model);
+        requestBody.put("temperature", 0.7);
+        requestBody.put("max_tokens", MAX_TOKENS);
+        if (stream) {
+            requestBody.put("stream", true);
         }
-        return "EXPLANATION";
+        return requestBody;
+    }
+    
+    public String determineResponseType(String content) {
+        return responseTypeClassifier.classify(content).name();
     }
 }
\ No newline at end of file
@@ -0,0 +1,402 @@
+package com.cogniclass.backend.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.cogniclass.backend.dto.ChatMessageView;
+import com.cogniclass.backend.metrics.Counter;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cold tier of chat history: whole months moved out of chat_messages into
+ * compressed files on local disk, one {@link ChatArchiveFile} per month.
+ * <p>
+ * Everything before the {@link #watermark()} (the end of the newest archived
+ * month) is served from here. Later messages are served from the database, so
+ * hot queries carry a {@code sent_at >= watermark} bound and only touch recent
+ * partitions. The files live on the disk of the node that wrote them; several
+ * backend nodes need a shared directory.
+ */
+@Slf4j
+@Component
+public class ChatArchive {
+
+    /** Lower bound for hot queries when nothing is archived; older than any chat message. */
+    static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    static final String SUFFIX = ".chat";
+
+    private record Month(YearMonth month, Path path, Map<Long, ChatArchiveFile.IndexEntry> index) {
+    }
+
+    private record BlockKey(YearMonth month, long groupId) {
+    }
+
+    private final Path directory;
+    private final int cacheBlocks;
+    // Readers take the current snapshot; writers replace it under monthsLock (clear() deletes files meanwhile)
+    private final ReentrantLock monthsLock = new ReentrantLock();
+    private volatile NavigableMap<YearMonth, Month> months = Collections.emptyNavigableMap();
+
+    private final ReentrantLock cacheLock = new ReentrantLock();
+    private final LinkedHashMap<BlockKey, ChatArchiveFile.Block> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public ChatArchive(MetricsRegistry metrics,
+                       @Value("${cogniclass.chat.archive.dir:data/chat-archive}") Path directory,
+                       @Value("${cogniclass.chat.archive.cache-blocks:256}") int cacheBlocks) {
+        this.directory = directory;
+        this.cacheBlocks = cacheBlocks;
+        this.hits = metrics.counter("chat_archive_block_cache_requests_total", "result", "hit");
+        this.misses = metrics.counter("chat_archive_block_cache_requests_total", "result", "miss");
+        metrics.gauge("chat_archive_months", () -> months.size());
+        load();
+    }
+
+    /** End of the newest archived month, or {@code null} when nothing is archived. */
+    public LocalDateTime watermark() {
+        NavigableMap<YearMonth, Month> current = months;
+        return current.isEmpty() ? null : current.lastKey().plusMonths(1).atDay(1).atStartOfDay();
+    }
+
+    /** Where hot history starts: the watermark, or {@link #EPOCH}. */
+    public LocalDateTime hotSince() {
+        LocalDateTime watermark = watermark();
+        return watermark == null ? EPOCH : watermark;
+    }
+
+    /** Whether a message sent at {@code sentAt} would be in the archive rather than the database. */
+    public boolean covers(LocalDateTime sentAt) {
+        LocalDateTime watermark = watermark();
+        return watermark != null && sentAt.isBefore(watermark);
+    }
+
+    public boolean contains(YearMonth month) {
+        return months.containsKey(month);
+    }
+
+    /** Highest archived seq of the group, 0 if none. */
+    public long maxSeq(long groupId) {
+        long max = 0;
+        for (Month month : months.values()) {
+            ChatArchiveFile.IndexEntry entry = month.index().get(groupId);
+            if (entry != null) {
+                max = Math.max(max, entry.maxSeq());
+            }
+        }
+        return max;
+    }
+
+    /** sent_at of the group's newest archived message, or {@code null}. */
+    public LocalDateTime lastSentAt(long groupId) {
+        for (Month month : months.descendingMap().values()) {
+            ChatArchiveFile.IndexEntry entry = month.index().get(groupId);
+            if (entry != null) {
+                return entry.lastSentAt();
+            }
+        }
+        return null;
+    }
+
+    /** Up to {@code limit} archived messages ordered before {@code cursor} (all, if null), newest first. */
+    public List<ChatMessageView> before(long groupId, ChatCursor cursor, int limit) {
+        NavigableMap<YearMonth, Month> current = months;
+        NavigableMap<YearMonth, Month> candidates = cursor == null
+                ? current.descendingMap()
+                : current.headMap(YearMonth.from(cursor.sentAt()), true).descendingMap();
+        List<ChatMessageView> out = new ArrayList<>(Math.min(limit, 256));
+        for (Month month : candidates.values()) {
+            ChatArchiveFile.Block block = block(month, groupId);
+            if (block == null) {
+                continue;
+            }
+            int end = cursor == null ? block.size() : block.firstNotBefore(cursor.sentAt(), cursor.id());
+            for (int i = end - 1; i >= 0 && out.size() < limit; i--) {
+                out.add(block.view(i));
+            }
+            if (out.size() >= limit) {
+                break;
+            }
+        }
+        return out;
+    }
+
+    /** Up to {@code limit} archived messages ordered after {@code cursor}, oldest first. */
+    public List<ChatMessageView> after(long groupId, ChatCursor cursor, int limit) {
+        List<ChatMessageView> out = new ArrayList<>(Math.min(limit, 256));
+        for (Month month : months.tailMap(YearMonth.from(cursor.sentAt()), true).values()) {
+            ChatArchiveFile.Block block = block(month, groupId);
+            if (block == null) {
+                continue;
+            }
+            for (int i = block.firstAfter(cursor.sentAt(), cursor.id()); i < block.size() && out.size() < limit; i++) {
+                out.add(block.view(i));
+            }
+            if (out.size() >= limit) {
+                break;
+            }
+        }
+        return out;
+    }
+
+    /** Every archived message of the month, ordered by group, then (sent_at, id). Loads the whole month. */
+    List<ChatArchiveFile.Row> read(YearMonth month) throws IOException {
+        List<ChatArchiveFile.Row> rows = new ArrayList<>();
+        try (MonthReader reader = stream(month)) {
+            for (ChatArchiveFile.Row row = reader.next(); row != null; row = reader.next()) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Reads the archived messages of a month in the same order as {@link #read},
+     * holding only one group's block in memory at a time.
+     */
+    MonthReader stream(YearMonth month) throws IOException {
+        return new MonthReader(months.get(month));
+    }
+
+    static final class MonthReader implements AutoCloseable {
+        private final FileChannel channel;
+        private final Iterator<ChatArchiveFile.IndexEntry> entries;
+        private Iterator<ChatArchiveFile.Row> block = Collections.emptyIterator();
+        private ChatArchiveFile.Row head;
+        private long rows;
+
+        private MonthReader(Month archived) throws IOException {
+            if (archived == null) {
+                channel = null;
+                entries = Collections.emptyIterator();
+                return;
+            }
+            List<ChatArchiveFile.IndexEntry> sorted = new ArrayList<>(archived.index().values());
+            sorted.sort((a, b) -> Long.compare(a.groupId(), b.groupId()));
+            // An open channel keeps reading the old file even if a commit replaces the month meanwhile
+            channel = FileChannel.open(archived.path(), StandardOpenOption.READ);
+            entries = sorted.iterator();
+        }
+
+        /** The next row without consuming it, or null at the end of the month. */
+        ChatArchiveFile.Row peek() throws IOException {
+            while (head == null) {
+                if (block.hasNext()) {
+                    head = block.next();
+                } else if (entries.hasNext()) {
+                    block = ChatArchiveFile.rows(ChatArchiveFile.readBlock(channel, entries.next())).iterator();
+                } else {
+                    return null;
+                }
+            }
+            return head;
+        }
+
+        /** Consumes the next row; null at the end of the month. */
+        ChatArchiveFile.Row next() throws IOException {
+            ChatArchiveFile.Row row = peek();
+            if (row != null) {
+                head = null;
+                rows++;
+            }
+            return row;
+        }
+
+        /** Rows consumed so far. */
+        long rows() {
+            return rows;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Starts (re)writing a month. The rows are written to a temporary file and
+     * only replace the month once {@link MonthWriter#commit()} has synced it.
+     */
+    MonthWriter write(YearMonth month) throws IOException {
+        Files.createDirectories(directory);
+        return new MonthWriter(month);
+    }
+
+    final class MonthWriter implements AutoCloseable {
+        private final YearMonth month;
+        private final Path temp;
+        private final ChatArchiveFile.Writer writer;
+        private boolean committed;
+
+        private MonthWriter(YearMonth month) throws IOException {
+            this.month = month;
+            this.temp = directory.resolve(month + SUFFIX + ".tmp");
+            Files.deleteIfExists(temp);
+            this.writer = new ChatArchiveFile.Writer(temp);
+        }
+
+        void add(ChatArchiveFile.Row row) throws IOException {
+            writer.add(row);
+        }
+
+        long rows() {
+            return writer.rows();
+        }
+
+        void commit() throws IOException {
+            writer.finish();
+            writer.close();
+            Path target = directory.resolve(month + SUFFIX);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            publish(open(month, target));
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                writer.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /** Deletes the whole archive; used when the database is wiped too. */
+    public void clear() {
+        monthsLock.lock();
+        try {
+            for (Month month : months.values()) {
+                try {
+                    Files.deleteIfExists(month.path());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            months = Collections.emptyNavigableMap();
+        } finally {
+            monthsLock.unlock();
+        }
+        cacheLock.lock();
+        try {
+            cache.clear();
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    private void publish(Month month) {
+        monthsLock.lock();
+        try {
+            NavigableMap<YearMonth, Month> next = new TreeMap<>(months);
+            next.put(month.month(), month);
+            months = Collections.unmodifiableNavigableMap(next);
+        } finally {
+            monthsLock.unlock();
+        }
+        cacheLock.lock();
+        try {
+            cache.keySet().removeIf(key -> key.month().equals(month.month()));
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    private ChatArchiveFile.Block block(Month month, long groupId) {
+        ChatArchiveFile.IndexEntry entry = month.index().get(groupId);
+        if (entry == null) {
+            return null;
+        }
+        BlockKey key = new BlockKey(month.month(), groupId);
+        cacheLock.lock();
+        try {
+            ChatArchiveFile.Block cached = cache.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        } finally {
+            cacheLock.unlock();
+        }
+        misses.increment();
+        ChatArchiveFile.Block block;
+        try (FileChannel channel = FileChannel.open(month.path(), StandardOpenOption.READ)) {
+            block = ChatArchiveFile.readBlock(channel, entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archived chat history for " + month.month(), e);
+        }
+        cacheLock.lock();
+        try {
+            // A rewrite of the month may have been published meanwhile; only cache what is still current
+            if (months.get(month.month()) == month) {
+                cache.put(key, block);
+                while (cache.size() > cacheBlocks) {
+                    cache.remove(cache.keySet().iterator().next());
+                }
+            }
+        } finally {
+            cacheLock.unlock();
+        }
+        return block;
+    }
+
+    private void load() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        NavigableMap<YearMonth, Month> found = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                String name = path.getFileName().toString();
+                if (!name.endsWith(SUFFIX)) {
+                    continue;
+                }
+                try {
+                    YearMonth month = YearMonth.parse(name.substring(0, name.length() - SUFFIX.length()));
+                    found.put(month, open(month, path));
+                } catch (DateTimeParseException | IOException e) {
+                    log.warn("Ignoring unreadable chat archive file {}: {}", name, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list chat archive directory " + directory, e);
+        }
+        months = Collections.unmodifiableNavigableMap(found);
+        if (!found.isEmpty()) {
+            log.info("Chat archive holds {} months, {} to {}", found.size(), found.firstKey(), found.lastKey());
+        }
+    }
+
+    private static Month open(YearMonth month, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Month(month, path, ChatArchiveFile.readIndex(channel));
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package com.cogniclass.backend.service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.cogniclass.backend.dto.ChatMessageView;
+
+/**
+ * One month of archived chat history. Each group's messages form one block,
+ * laid out column by column (ids, seqs, timestamps, senders, types, contents)
+ * with delta-encoded numbers and per-block sender and type dictionaries, then
+ * deflated. Similar values sit next to each other, which is what makes the
+ * columns compress well.
+ * <p>
+ * Layout: {@code blocks..., index, footer}. The index lists each group's block
+ * offset and length, so reading a group's month is one seek and one inflate.
+ * The footer holds the index offset followed by {@link #MAGIC}.
+ */
+final class ChatArchiveFile {
+
+    static final int MAGIC = 0x43434131; // "CCA1"
+    private static final int FOOTER_BYTES = Long.BYTES + Integer.BYTES;
+
+    /** A message as archived; sender name and role are as of archiving. */
+    record Row(long id, long groupId, Long seq, Long senderId, String senderName, String senderRole,
+               LocalDateTime sentAt, String messageType, String content) {
+    }
+
+    record IndexEntry(long groupId, long offset, int length, int rows, long maxSeq, LocalDateTime lastSentAt) {
+    }
+
+    /** A group's decoded month, ordered by (sent_at, id). */
+    static final class Block {
+        private final long groupId;
+        private final long[] ids;
+        private final long[] seqs; // 0 = none
+        private final long[] sentAtMicros;
+        private final int[] senders; // index into the dictionary, -1 = none
+        private final long[] senderIds;
+        private final String[] senderNames;
+        private final String[] senderRoles;
+        private final int[] types;
+        private final String[] typeNames;
+        private final String[] contents;
+
+        private Block(long groupId, int rows, int senderCount, int typeCount) {
+            this.groupId = groupId;
+            this.ids = new long[rows];
+            this.seqs = new long[rows];
+            this.sentAtMicros = new long[rows];
+            this.senders = new int[rows];
+            this.senderIds = new long[senderCount];
+            this.senderNames = new String[senderCount];
+            this.senderRoles = new String[senderCount];
+            this.types = new int[rows];
+            this.typeNames = new String[typeCount];
+            this.contents = new String[rows];
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        /** Index of the first message ordered after (sentAt, id), or {@link #size()}. */
+        int firstAfter(LocalDateTime sentAt, long id) {
+            long micros = micros(sentAt);
+            int low = 0;
+            int high = ids.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sentAtMicros[mid] < micros || (sentAtMicros[mid] == micros && ids[mid] <= id)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /** Index of the first message not ordered before (sentAt, id), or {@link #size()}. */
+        int firstNotBefore(LocalDateTime sentAt, long id) {
+            return firstAfter(sentAt, id - 1);
+        }
+
+        ChatMessageView view(int i) {
+            int sender = senders[i];
+            return new ChatMessageView(ids[i], seqs[i] == 0 ? null : seqs[i], contents[i], time(sentAtMicros[i]),
+                    typeNames[types[i]],
+                    sender < 0 ? null : senderIds[sender],
+                    sender < 0 ? null : senderNames[sender],
+                    sender < 0 ? null : senderRoles[sender]);
+        }
+
+        Row row(int i) {
+            int sender = senders[i];
+            return new Row(ids[i], groupId, seqs[i] == 0 ? null : seqs[i],
+                    sender < 0 ? null : senderIds[sender],
+                    sender < 0 ? null : senderNames[sender],
+                    sender < 0 ? null : senderRoles[sender],
+                    time(sentAtMicros[i]), typeNames[types[i]], contents[i]);
+        }
+    }
+
+    private ChatArchiveFile() {
+    }
+
+    /** Writes rows ordered by group, then (sent_at, id). Nothing is visible until {@link #finish()}. */
+    static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final OutputStream out;
+        private final List<IndexEntry> index = new ArrayList<>();
+        private final List<Row> group = new ArrayList<>();
+        private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        private long position;
+        private long rows;
+
+        Writer(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+        }
+
+        void add(Row row) throws IOException {
+            if (!group.isEmpty() && group.get(0).groupId() != row.groupId()) {
+                flushGroup();
+            }
+            group.add(row);
+            rows++;
+        }
+
+        long rows() {
+            return rows;
+        }
+
+        void finish() throws IOException {
+            flushGroup();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream indexOut = new DataOutputStream(bytes);
+            indexOut.writeInt(index.size());
+            for (IndexEntry entry : index) {
+                indexOut.writeLong(entry.groupId());
+                indexOut.writeLong(entry.offset());
+                indexOut.writeInt(entry.length());
+                indexOut.writeInt(entry.rows());
+                indexOut.writeLong(entry.maxSeq());
+                indexOut.writeLong(micros(entry.lastSentAt()));
+            }
+            indexOut.writeLong(position);
+            indexOut.writeInt(MAGIC);
+            out.write(bytes.toByteArray());
+            out.flush();
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            out.close();
+        }
+
+        private void flushGroup() throws IOException {
+            if (group.isEmpty()) {
+                return;
+            }
+            byte[] block = encode(group, deflater);
+            out.write(block);
+            Row last = group.get(group.size() - 1);
+            long maxSeq = 0;
+            for (Row row : group) {
+                maxSeq = Math.max(maxSeq, row.seq() == null ? 0 : row.seq());
+            }
+            index.add(new IndexEntry(last.groupId(), position, block.length, group.size(), maxSeq, last.sentAt()));
+            position += block.length;
+            group.clear();
+        }
+    }
+
+    static Map<Long, IndexEntry> readIndex(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < FOOTER_BYTES) {
+            throw new IOException("too short to be a chat archive");
+        }
+        ByteBuffer footer = readFully(channel, size - FOOTER_BYTES, FOOTER_BYTES);
+        long indexOffset = footer.getLong();
+        if (footer.getInt() != MAGIC || indexOffset < 0 || indexOffset > size - FOOTER_BYTES) {
+            throw new IOException("not a chat archive");
+        }
+        ByteBuffer buffer = readFully(channel, indexOffset, (int) (size - FOOTER_BYTES - indexOffset));
+        int groups = buffer.getInt();
+        Map<Long, IndexEntry> index = new HashMap<>(groups * 2);
+        for (int i = 0; i < groups; i++) {
+            IndexEntry entry = new IndexEntry(buffer.getLong(), buffer.getLong(), buffer.getInt(), buffer.getInt(),
+                    buffer.getLong(), time(buffer.getLong()));
+            index.put(entry.groupId(), entry);
+        }
+        return index;
+    }
+
+    static Block readBlock(FileChannel channel, IndexEntry entry) throws IOException {
+        ByteBuffer compressed = readFully(channel, entry.offset(), entry.length());
+        try (InputStream inflated = new InflaterInputStream(
+                new ByteArrayInputStream(compressed.array(), 0, entry.length()))) {
+            return decode(entry.groupId(), new DataInputStream(inflated));
+        }
+    }
+
+    private static byte[] encode(List<Row> rows, Deflater deflater) throws IOException {
+        Map<Long, Integer> senders = new LinkedHashMap<>();
+        List<Row> senderRows = new ArrayList<>();
+        Map<String, Integer> types = new LinkedHashMap<>();
+        for (Row row : rows) {
+            if (row.senderId() != null && senders.putIfAbsent(row.senderId(), senders.size()) == null) {
+                senderRows.add(row);
+            }
+            types.putIfAbsent(row.messageType(), types.size());
+        }
+
+        deflater.reset();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater, 1 << 14))) {
+            writeVarLong(out, rows.size());
+            writeVarLong(out, senderRows.size());
+            for (Row sender : senderRows) {
+                writeVarLong(out, sender.senderId());
+                writeString(out, sender.senderName());
+                writeString(out, sender.senderRole());
+            }
+            writeVarLong(out, types.size());
+            for (String type : types.keySet()) {
+                writeString(out, type);
+            }
+            long previous = 0;
+            for (Row row : rows) {
+                writeVarLong(out, zigZag(row.id() - previous));
+                previous = row.id();
+            }
+            previous = 0;
+            for (Row row : rows) {
+                long seq = row.seq() == null ? 0 : row.seq();
+                writeVarLong(out, zigZag(seq - previous));
+                previous = seq;
+            }
+            previous = 0;
+            for (Row row : rows) {
+                long micros = micros(row.sentAt());
+                writeVarLong(out, zigZag(micros - previous));
+                previous = micros;
+            }
+            for (Row row : rows) {
+                writeVarLong(out, row.senderId() == null ? 0 : senders.get(row.senderId()) + 1);
+            }
+            for (Row row : rows) {
+                writeVarLong(out, types.get(row.messageType()));
+            }
+            // Lengths first, then all the text: the text column compresses as one run
+            List<byte[]> contents = new ArrayList<>(rows.size());
+            for (Row row : rows) {
+                byte[] utf8 = row.content() == null ? null : row.content().getBytes(StandardCharsets.UTF_8);
+                contents.add(utf8);
+                writeVarLong(out, utf8 == null ? 0 : utf8.length + 1L);
+            }
+            for (byte[] utf8 : contents) {
+                if (utf8 != null) {
+                    out.write(utf8);
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Block decode(long groupId, DataInputStream in) throws IOException {
+        int rows = (int) readVarLong(in);
+        int senderCount = (int) readVarLong(in);
+        long[] senderIds = new long[senderCount];
+        String[] names = new String[senderCount];
+        String[] roles = new String[senderCount];
+        for (int i = 0; i < senderCount; i++) {
+            senderIds[i] = readVarLong(in);
+            names[i] = readString(in);
+            roles[i] = readString(in);
+        }
+        int typeCount = (int) readVarLong(in);
+        Block block = new Block(groupId, rows, senderCount, typeCount);
+        System.arraycopy(senderIds, 0, block.senderIds, 0, senderCount);
+        System.arraycopy(names, 0, block.senderNames, 0, senderCount);
+        System.arraycopy(roles, 0, block.senderRoles, 0, senderCount);
+        for (int i = 0; i < typeCount; i++) {
+            block.typeNames[i] = readString(in);
+        }
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            previous += unZigZag(readVarLong(in));
+            block.ids[i] = previous;
+        }
+        previous = 0;
+        for (int i = 0; i < rows; i++) {
+            previous += unZigZag(readVarLong(in));
+            block.seqs[i] = previous;
+        }
+        previous = 0;
+        for (int i = 0; i < rows; i++) {
+            previous += unZigZag(readVarLong(in));
+            block.sentAtMicros[i] = previous;
+        }
+        for (int i = 0; i < rows; i++) {
+            block.senders[i] = (int) readVarLong(in) - 1;
+        }
+        for (int i = 0; i < rows; i++) {
+            block.types[i] = (int) readVarLong(in);
+        }
+        int[] lengths = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            lengths[i] = (int) readVarLong(in) - 1;
+        }
+        for (int i = 0; i < rows; i++) {
+            block.contents[i] = lengths[i] < 0 ? null : new String(in.readNBytes(lengths[i]), StandardCharsets.UTF_8);
+        }
+        return block;
+    }
+
+    static long micros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    static LocalDateTime time(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("unexpected end of chat archive");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint in chat archive");
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, utf8.length + 1L);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = (int) readVarLong(in) - 1;
+        return length < 0 ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    static List<Row> rows(Block block) {
+        List<Row> rows = new ArrayList<>(block.size());
+        for (int i = 0; i < block.size(); i++) {
+            rows.add(block.row(i));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,111 @@
+package com.cogniclass.backend.service;
+
+import java.util.concurrent.Flow;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Parses an OpenAI-compatible {@code stream: true} response, one SSE line at a
+ * time, and forwards each content delta to a {@link TutorStreamListener}.
+ * Token usage is passed on when a chunk carries it, either as {@code usage}
+ * (OpenAI with {@code include_usage}) or as {@code x_groq.usage} (Groq).
+ */
+@Slf4j
+class ChatCompletionStreamSubscriber implements Flow.Subscriber<String> {
+
+    private static final String DATA_PREFIX = "data:";
+    private static final String DONE = "[DONE]";
+
+    interface UsageListener {
+        void onUsage(long promptTokens, long completionTokens, long totalTokens);
+    }
+
+    private final ObjectMapper objectMapper;
+    private final TutorStreamListener listener;
+    private final Runnable onFirstToken;
+    private final UsageListener onUsage;
+    private final StringBuilder fullResponse = new StringBuilder();
+    private Flow.Subscription subscription;
+    private boolean firstTokenSeen;
+    private boolean finished;
+
+    ChatCompletionStreamSubscriber(ObjectMapper objectMapper, TutorStreamListener listener, Runnable onFirstToken) {
+        this(objectMapper, listener, onFirstToken, (prompt, completion, total) -> { });
+    }
+
+    ChatCompletionStreamSubscriber(ObjectMapper objectMapper, TutorStreamListener listener, Runnable onFirstToken,
+                                   UsageListener onUsage) {
+        this.objectMapper = objectMapper;
+        this.listener = listener;
+        this.onFirstToken = onFirstToken;
+        this.onUsage = onUsage;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(String line) {
+        if (finished || !line.startsWith(DATA_PREFIX)) {
+            return; // blank separators, comments and event names carry nothing we need
+        }
+        String data = line.substring(DATA_PREFIX.length()).trim();
+        if (DONE.equals(data)) {
+            finish();
+            return;
+        }
+        try {
+            JsonNode chunk = objectMapper.readTree(data);
+            JsonNode usage = chunk.has("usage") ? chunk.path("usage") : chunk.path("x_groq").path("usage");
+            if (usage.isObject()) {
+                onUsage.onUsage(usage.path("prompt_tokens").asLong(), usage.path("completion_tokens").asLong(),
+                        usage.path("total_tokens").asLong());
+            }
+            JsonNode delta = chunk.path("choices").path(0).path("delta").path("content");
+            if (delta.isTextual() && !delta.asText().isEmpty()) {
+                if (!firstTokenSeen) {
+                    firstTokenSeen = true;
+                    onFirstToken.run();
+                }
+                fullResponse.append(delta.asText());
+                listener.onToken(delta.asText());
+            }
+        } catch (Exception e) {
+            // Also covers the listener failing because the browser went away
+            fail(e);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        fail(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        finish();
+    }
+
+    private void finish() {
+        if (!finished) {
+            finished = true;
+            listener.onComplete(fullResponse.toString());
+        }
+    }
+
+    private void fail(Throwable error) {
+        if (!finished) {
+            finished = true;
+            if (subscription != null) {
+                subscription.cancel();
+            }
+            listener.onError(error);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.cogniclass.backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import com.cogniclass.backend.dto.ChatMessageView;
+
+/**
+ * Opaque keyset cursor over (sent_at, id). Clients only ever echo it back.
+ */
+public record ChatCursor(LocalDateTime sentAt, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public static ChatCursor of(ChatMessageView message) {
+        return new ChatCursor(message.getSentAt(), message.getId());
+    }
+
+    public String encode() {
+        String raw = sentAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ChatCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new ChatCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.cogniclass.backend.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cogniclass.backend.dto.ChatMessageView;
+import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.metrics.Counter;
+import com.cogniclass.backend.metrics.Histogram;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.websocket.GroupChatBroadcaster;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Asynchronous chat ingestion. Sending a message takes the group's next
+ * sequence number from {@link ChatSequencer}, appends the message to the
+ * {@link ChatJournal} and queues it; the caller is answered at that point. One
+ * writer thread drains the queue every {@code flushInterval} and inserts up to
+ * {@code batchSize} messages with a single multi-row INSERT, updates the groups'
+ * activity counters in the same transaction and, once committed, broadcasts
+ * {@code new_message} for each row in sequence order.
+ * <p>
+ * Ordering: allocation, journal append and enqueue happen under one lock, so
+ * queue, journal and seq agree, and with a single writer each group's rows are
+ * committed in seq order. Durability is at-least-once: messages still in the
+ * journal at startup are written again unless their seq is already persisted
+ * for that group. A database outage stalls the writer rather than dropping
+ * messages; once the queue is full, senders get {@link IngestUnavailableException}.
+ * Like {@link ChatSequencer}, this assumes one writer process per database.
+ */
+@Slf4j
+@Component
+public class ChatIngestService implements SmartLifecycle {
+
+    static final String INSERT_SQL =
+            "INSERT INTO chat_messages (group_id, seq, user_id, content, sent_at, message_type) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?)";
+    private static final int MAX_BATCH_SIZE = 1000; // 6 parameters a row, well under driver limits
+
+    private final ChatSequencer sequencer;
+    private final GroupActivityService groupActivityService;
+    private final GroupChatBroadcaster broadcaster;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ChatJournal journal;
+    private final BlockingQueue<Queued> queue;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration shutdownTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter written;
+    private final Counter replayed;
+    private final Counter dropped;
+    private final Counter retries;
+    private final Counter batches;
+    private final Histogram flushLatency;
+
+    private volatile boolean accepting;
+    private volatile Thread writer;
+
+    /** Thrown when the queue is full or the journal cannot be written; nothing was accepted. */
+    public static class IngestUnavailableException extends RuntimeException {
+        public IngestUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private record Queued(ChatJournal.Entry entry, ChatJournal.Segment segment) {
+    }
+
+    @Autowired
+    public ChatIngestService(ChatSequencer sequencer,
+                             GroupActivityService groupActivityService,
+                             GroupChatBroadcaster broadcaster,
+                             DataSource dataSource,
+                             PlatformTransactionManager transactionManager,
+                             MetricsRegistry metrics,
+                             @Value("${cogniclass.chat.ingest.journal-dir:data/chat-journal}") Path journalDir,
+                             @Value("${cogniclass.chat.ingest.journal-segment-bytes:16777216}") long segmentBytes,
+                             @Value("${cogniclass.chat.ingest.journal-fsync:false}") boolean fsync,
+                             @Value("${cogniclass.chat.ingest.queue-capacity:10000}") int queueCapacity,
+                             @Value("${cogniclass.chat.ingest.batch-size:200}") int batchSize,
+                             @Value("${cogniclass.chat.ingest.flush-interval:5ms}") Duration flushInterval,
+                             @Value("${cogniclass.chat.ingest.shutdown-timeout:30s}") Duration shutdownTimeout) {
+        this.sequencer = sequencer;
+        this.groupActivityService = groupActivityService;
+        this.broadcaster = broadcaster;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.journal = new ChatJournal(journalDir, segmentBytes, fsync);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.min(batchSize, MAX_BATCH_SIZE);
+        this.flushInterval = flushInterval;
+        this.shutdownTimeout = shutdownTimeout;
+        this.accepted = metrics.counter("chat_ingest_messages_total", "outcome", "accepted");
+        this.rejected = metrics.counter("chat_ingest_messages_total", "outcome", "rejected");
+        this.written = metrics.counter("chat_ingest_messages_total", "outcome", "written");
+        this.replayed = metrics.counter("chat_ingest_messages_total", "outcome", "replayed");
+        this.dropped = metrics.counter("chat_ingest_messages_total", "outcome", "dropped");
+        this.retries = metrics.counter("chat_ingest_batch_retries_total");
+        this.batches = metrics.counter("chat_ingest_batches_total");
+        this.flushLatency = metrics.histogram("chat_ingest_flush_seconds");
+        metrics.gauge("chat_ingest_queue_depth", queue::size);
+    }
+
+    /**
+     * Accepts a message for the group. The returned view has its seq and
+     * sent_at but no id yet; the id arrives with the {@code new_message} event.
+     */
+    public ChatMessageView submit(Long groupId, User sender, String content) {
+        sequencer.prime(groupId); // any database read happens before taking the lock
+        ChatJournal.Entry entry;
+        lock.lock();
+        try {
+            if (!accepting || queue.remainingCapacity() == 0) {
+                rejected.increment();
+                throw new IngestUnavailableException("Chat is busy, try again shortly", null);
+            }
+            ChatSequencer.Allocation allocation = sequencer.next(groupId, LocalDateTime.now());
+            entry = new ChatJournal.Entry(groupId, allocation.seq(), sender.getId(), sender.getName(),
+                    sender.getRole(), allocation.sentAt(), "TEXT", content);
+            ChatJournal.Segment segment;
+            try {
+                segment = journal.append(entry);
+            } catch (IOException e) {
+                // The seq is burnt; the group's sequence gets a gap, never a duplicate
+                rejected.increment();
+                log.error("Could not append to the chat journal: {}", e.getMessage());
+                throw new IngestUnavailableException("Chat is temporarily unavailable", e);
+            }
+            queue.add(new Queued(entry, segment)); // cannot fail, capacity was checked under the lock
+        } finally {
+            lock.unlock();
+        }
+        accepted.increment();
+        return view(entry, null);
+    }
+
+    private void run() {
+        List<Queued> batch = new ArrayList<>(batchSize);
+        while (accepting || !queue.isEmpty()) {
+            try {
+                Queued first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                // stop() interrupts only once the grace period is over; the journal keeps the rest
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        if (!queue.isEmpty()) {
+            log.warn("Chat writer stopped with {} queued messages; they are replayed from the journal on restart",
+                    queue.size());
+        }
+    }
+
+    private void flush(List<Queued> batch) throws InterruptedException {
+        long start = System.nanoTime();
+        List<ChatJournal.Entry> entries = new ArrayList<>(batch.size());
+        for (Queued queued : batch) {
+            entries.add(queued.entry());
+        }
+        try {
+            List<ChatMessageView> saved = writeWithRetry(entries);
+            batches.increment();
+            written.increment(saved.size());
+            publish(entries, saved);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            log.warn("Batch insert of {} chat messages failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (ChatJournal.Entry entry : entries) {
+                writeOne(entry);
+            }
+        } finally {
+            flushLatency.recordNanos(System.nanoTime() - start);
+        }
+        release(batch);
+    }
+
+    /** Retries the whole batch while the database is unreachable; other failures are thrown. */
+    private List<ChatMessageView> writeWithRetry(List<ChatJournal.Entry> entries) throws InterruptedException {
+        long backoffMillis = 10;
+        while (true) {
+            try {
+                return transactionTemplate.execute(status -> insert(entries));
+            } catch (TransientDataAccessException | RecoverableDataAccessException
+                     | DataAccessResourceFailureException | CannotCreateTransactionException e) {
+                if (!accepting) {
+                    throw new InterruptedException("shutting down with the database unavailable");
+                }
+                retries.increment();
+                log.warn("Chat batch insert failed, retrying in {} ms: {}", backoffMillis, e.getMessage());
+                Thread.sleep(backoffMillis);
+                backoffMillis = Math.min(backoffMillis * 2, 1_000);
+            }
+        }
+    }
+
+    private void writeOne(ChatJournal.Entry entry) {
+        try {
+            List<ChatJournal.Entry> single = List.of(entry);
+            List<ChatMessageView> saved = transactionTemplate.execute(status -> insert(single));
+            written.increment();
+            publish(single, saved);
+        } catch (RuntimeException e) {
+            // e.g. the group was deleted after the message was accepted
+            dropped.increment();
+            log.error("Dropping chat message {} of group {}: {}", entry.seq(), entry.groupId(), e.getMessage());
+        }
+    }
+
+    /** One multi-row INSERT, then one activity update per group. Runs inside a transaction. */
+    private List<ChatMessageView> insert(List<ChatJournal.Entry> entries) {
+        StringBuilder sql = new StringBuilder(INSERT_SQL);
+        for (int i = 0; i < entries.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(ROW);
+        }
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql.toString(),
+                    new String[] {"id", "group_id", "seq"});
+            int p = 1;
+            for (ChatJournal.Entry entry : entries) {
+                statement.setLong(p++, entry.groupId());
+                statement.setLong(p++, entry.seq());
+                if (entry.senderId() == null) {
+                    statement.setNull(p++, Types.BIGINT);
+                } else {
+                    statement.setLong(p++, entry.senderId());
+                }
+                statement.setString(p++, entry.content());
+                statement.setTimestamp(p++, Timestamp.valueOf(entry.sentAt()));
+                statement.setString(p++, entry.messageType());
+            }
+            return statement;
+        }, keys);
+
+        // Keyed by (group, seq) rather than trusting the order of RETURNING rows
+        Map<Long, Map<Long, Long>> ids = new HashMap<>();
+        for (Map<String, Object> row : keys.getKeyList()) {
+            ids.computeIfAbsent(number(row, "group_id"), group -> new HashMap<>())
+                    .put(number(row, "seq"), number(row, "id"));
+        }
+        List<ChatMessageView> saved = new ArrayList<>(entries.size());
+        Map<Long, List<ChatMessageView>> byGroup = new LinkedHashMap<>();
+        for (ChatJournal.Entry entry : entries) {
+            Long id = ids.getOrDefault(entry.groupId(), Map.of()).get(entry.seq());
+            if (id == null) {
+                throw new IllegalStateException("No generated id for message " + entry.seq()
+                        + " of group " + entry.groupId());
+            }
+            ChatMessageView view = view(entry, id);
+            saved.add(view);
+            byGroup.computeIfAbsent(entry.groupId(), group -> new ArrayList<>()).add(view);
+        }
+        byGroup.forEach(groupActivityService::recordMessages);
+        return saved;
+    }
+
+    private void publish(List<ChatJournal.Entry> entries, List<ChatMessageView> saved) {
+        for (int i = 0; i < saved.size(); i++) {
+            broadcaster.publish(entries.get(i).groupId(), "new_message", saved.get(i));
+        }
+    }
+
+    private void release(List<Queued> batch) {
+        ChatJournal.Segment segment = null;
+        int records = 0;
+        for (Queued queued : batch) {
+            if (queued.segment() != segment) {
+                if (segment != null) {
+                    journal.committed(segment, records);
+                }
+                segment = queued.segment();
+                records = 0;
+            }
+            records++;
+        }
+        if (segment != null) {
+            journal.committed(segment, records);
+        }
+    }
+
+    /**
+     * Writes journal entries a previous run accepted but may not have persisted.
+     * Within a group rows are committed in seq order, so everything at or below
+     * the persisted head is already there.
+     */
+    private void replay() throws IOException {
+        List<ChatJournal.Entry> entries = journal.open();
+        if (entries.isEmpty()) {
+            journal.deleteReplayed();
+            return;
+        }
+        Map<Long, Long> heads = new HashMap<>();
+        List<ChatJournal.Entry> missing = new ArrayList<>();
+        for (ChatJournal.Entry entry : entries) {
+            long head = heads.computeIfAbsent(entry.groupId(), sequencer::current);
+            if (entry.seq() > head) {
+                missing.add(entry);
+                heads.put(entry.groupId(), entry.seq());
+            }
+        }
+        for (int from = 0; from < missing.size(); from += batchSize) {
+            List<ChatJournal.Entry> chunk = missing.subList(from, Math.min(from + batchSize, missing.size()));
+            try {
+                transactionTemplate.execute(status -> insert(chunk));
+            } catch (RuntimeException e) {
+                log.warn("Replaying {} chat messages failed, retrying one by one: {}", chunk.size(), e.getMessage());
+                chunk.forEach(this::writeOne);
+            }
+        }
+        replayed.increment(missing.size());
+        // Heads were read before the replayed rows went in
+        sequencer.invalidateAll();
+        journal.deleteReplayed();
+        log.info("Replayed {} of {} journaled chat messages", missing.size(), entries.size());
+    }
+
+    private static ChatMessageView view(ChatJournal.Entry entry, Long id) {
+        return new ChatMessageView(id, entry.seq(), entry.content(), entry.sentAt(), entry.messageType(),
+                entry.senderId(), entry.senderName(), entry.senderRole());
+    }
+
+    private static Long number(Map<String, Object> row, String column) {
+        for (Map.Entry<String, Object> value : row.entrySet()) {
+            if (value.getKey().equalsIgnoreCase(column)) {
+                return ((Number) value.getValue()).longValue();
+            }
+        }
+        throw new IllegalStateException("Generated keys lack column " + column);
+    }
+
+    @Override
+    public void start() {
+        try {
+            replay();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replay the chat journal", e);
+        }
+        accepting = true;
+        Thread thread = new Thread(this::run, "chat-ingest-writer");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        lock.lock();
+        try {
+            accepting = false; // under the lock, so nothing is enqueued after the writer's last look
+        } finally {
+            lock.unlock();
+        }
+        Thread thread = writer;
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(shutdownTimeout.toMillis());
+            if (thread.isAlive()) {
+                thread.interrupt();
+                thread.join(1_000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+        writer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return writer != null;
+    }
+
+    // Stop after the web server (DEFAULT_PHASE - 1024/2048) so in-flight requests can still enqueue
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
@@ -0,0 +1,298 @@
+package com.cogniclass.backend.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only log of accepted chat messages, kept until they are in
+ * chat_messages. Records go into numbered segment files; a full segment is
+ * sealed and a new one started, and a sealed segment is deleted once every
+ * record in it has been committed to the database.
+ * <p>
+ * Record layout: {@code int length, int crc32, payload}. A crash can leave a
+ * torn record at the end of the last segment; reading stops there. Without
+ * {@code fsync} a record survives the process dying but not the machine.
+ */
+@Slf4j
+final class ChatJournal implements Closeable {
+
+    static final String SUFFIX = ".log";
+    private static final int MAX_RECORD_BYTES = 16 << 20;
+
+    record Entry(long groupId, long seq, Long senderId, String senderName, String senderRole,
+                 LocalDateTime sentAt, String messageType, String content) {
+    }
+
+    static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private long size;
+        private long appended;
+        private long committed;
+        private boolean sealed;
+
+        private Segment(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean fsync;
+    private final List<Path> replayed = new ArrayList<>();
+    // Not synchronized: appends do file I/O, and a virtual thread blocked in a monitor would pin its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Segment active; // guarded by lock
+    private long nextSegment;
+
+    ChatJournal(Path directory, long segmentBytes, boolean fsync) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Reads every record left by a previous run, oldest segment first. The files
+     * stay until {@link #deleteReplayed()}, i.e. until the caller has persisted
+     * them; new records go to a fresh segment.
+     */
+    List<Entry> open() throws IOException {
+        lock.lock();
+        try {
+            Files.createDirectories(directory);
+            List<Entry> entries = new ArrayList<>();
+            for (Path path : segments()) {
+                int before = entries.size();
+                read(path, entries);
+                log.info("Read {} chat messages from journal segment {}", entries.size() - before,
+                        path.getFileName());
+                replayed.add(path);
+                nextSegment = Math.max(nextSegment, segmentNumber(path) + 1);
+            }
+            return entries;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void deleteReplayed() throws IOException {
+        lock.lock();
+        try {
+            for (Path path : replayed) {
+                Files.deleteIfExists(path);
+            }
+            replayed.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Segment append(Entry entry) throws IOException {
+        lock.lock();
+        try {
+            if (active == null || active.size >= segmentBytes) {
+                roll();
+            }
+            byte[] payload = encode(entry);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            ByteBuffer record = ByteBuffer.allocate(8 + payload.length);
+            record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+            while (record.hasRemaining()) {
+                active.channel.write(record);
+            }
+            if (fsync) {
+                active.channel.force(false);
+            }
+            active.size += record.limit();
+            active.appended++;
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Called once records of {@code segment} are in the database, or given up on. */
+    void committed(Segment segment, int records) {
+        lock.lock();
+        try {
+            segment.committed += records;
+            if (segment.sealed) {
+                deleteIfDone(segment);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Seals the active segment; it is deleted now if nothing in it is still pending. */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (active != null) {
+                active.sealed = true;
+                if (!deleteIfDone(active)) {
+                    closeQuietly(active);
+                    log.warn("Chat journal closed with {} messages not yet persisted; they are replayed on restart",
+                            active.appended - active.committed);
+                }
+                active = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void roll() throws IOException {
+        if (active != null) {
+            active.sealed = true;
+            deleteIfDone(active);
+        }
+        Path path = directory.resolve(String.format("%020d%s", nextSegment++, SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        active = new Segment(path, channel);
+    }
+
+    private boolean deleteIfDone(Segment segment) {
+        if (segment.committed < segment.appended) {
+            return false;
+        }
+        closeQuietly(segment);
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("Could not delete chat journal segment {}: {}", segment.path, e.getMessage());
+        }
+        return true;
+    }
+
+    private static void closeQuietly(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            log.debug("Closing {} failed: {}", segment.path, e.getMessage());
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void read(Path path, List<Entry> entries) throws IOException {
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                try {
+                    int expected = in.readInt();
+                    if (length < 0 || length > MAX_RECORD_BYTES) {
+                        throw new IOException("bad record length " + length);
+                    }
+                    byte[] payload = in.readNBytes(length);
+                    if (payload.length < length) {
+                        throw new EOFException();
+                    }
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != expected) {
+                        throw new IOException("checksum mismatch");
+                    }
+                    entries.add(decode(payload));
+                } catch (IOException e) {
+                    // A torn write from a crash; nothing after it was acknowledged as durable
+                    log.warn("Stopped reading chat journal segment {} at a damaged record: {}", path.getFileName(),
+                            e instanceof EOFException ? "truncated" : e.getMessage());
+                    return;
+                }
+            }
+        }
+    }
+
+    static byte[] encode(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(entry.groupId());
+        out.writeLong(entry.seq());
+        out.writeLong(entry.senderId() == null ? -1 : entry.senderId());
+        out.writeLong(entry.sentAt().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(entry.sentAt().getNano());
+        writeString(out, entry.senderName());
+        writeString(out, entry.senderRole());
+        writeString(out, entry.messageType());
+        writeString(out, entry.content());
+        return bytes.toByteArray();
+    }
+
+    static Entry decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        long groupId = in.readLong();
+        long seq = in.readLong();
+        long senderId = in.readLong();
+        LocalDateTime sentAt = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        String senderName = readString(in);
+        String senderRole = readString(in);
+        String messageType = readString(in);
+        String content = readString(in);
+        return new Entry(groupId, seq, senderId < 0 ? null : senderId, senderName, senderRole, sentAt,
+                messageType, content);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,247 @@
+package com.cogniclass.backend.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps chat_messages range-partitioned by sent_at, one partition per month
+ * ({@code chat_messages_p2026_09} holds September 2026), on PostgreSQL. A
+ * query bounded to recent months then only scans their partitions, and a month
+ * leaves the database by dropping its partition instead of a large DELETE.
+ * <p>
+ * Hibernate creates chat_messages as a plain table; {@link #ensurePartitioned()}
+ * converts it once, in one transaction that locks the table for the duration of
+ * the copy. The primary key becomes (id, sent_at), since PostgreSQL requires the
+ * partition key in every unique index. Rows outside every monthly partition land
+ * in {@code chat_messages_default}.
+ * <p>
+ * The conversion is a migration, not a startup step: reads and writes of chat
+ * block until the copy commits, and the table is briefly twice its size on disk.
+ * To run it, take a backup, stop every instance but one, and start that one with
+ * {@code cogniclass.chat.partitioning.enabled=true} in a maintenance window. It
+ * converts before chat ingestion starts and logs
+ * "Partitioned chat_messages by month" when done; later starts find the table
+ * partitioned and skip it, so the flag can then be removed again. Until the
+ * migration has run, chat_messages stays a plain table and tiering deletes rows.
+ * <p>
+ * Other databases keep a plain table; {@link #removeMonth} then deletes rows.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChatPartitionManager {
+
+    static final String DEFAULT_PARTITION = "chat_messages_default";
+    private static final String OLD_TABLE = "chat_messages_unpartitioned";
+
+    private final DataSource dataSource;
+
+    static String partitionName(YearMonth month) {
+        return String.format("chat_messages_p%04d_%02d", month.getYear(), month.getMonthValue());
+    }
+
+    static boolean isPostgres(Connection connection) throws SQLException {
+        return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+    }
+
+    static boolean isPartitioned(Connection connection) throws SQLException {
+        return isPostgres(connection) && "p".equals(relkind(connection, "chat_messages"));
+    }
+
+    /** Converts a plain chat_messages table into a partitioned one; a no-op when already done. */
+    public void ensurePartitioned() {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!isPostgres(connection) || !"r".equals(relkind(connection, "chat_messages"))) {
+                return;
+            }
+            long started = System.nanoTime();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                long rows = convert(connection, statement);
+                connection.commit();
+                log.info("Partitioned chat_messages by month: moved {} rows in {} ms", rows,
+                        (System.nanoTime() - started) / 1_000_000);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to partition chat_messages", e);
+        }
+    }
+
+    /** Creates the monthly partitions from {@code from} through {@code through} that do not exist yet. */
+    public void ensurePartitions(YearMonth from, YearMonth through) {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            if (!isPartitioned(connection)) {
+                return;
+            }
+            connection.setAutoCommit(true);
+            for (YearMonth month = from; !month.isAfter(through); month = month.plusMonths(1)) {
+                if (relkind(connection, partitionName(month)) != null) {
+                    continue;
+                }
+                try {
+                    statement.execute(createPartitionSql(month));
+                    log.info("Created chat_messages partition {}", partitionName(month));
+                } catch (SQLException e) {
+                    // Usually rows for that month already sit in the default partition; they stay queryable there
+                    log.warn("Could not create chat_messages partition {}: {}", partitionName(month), e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to create chat_messages partitions", e);
+        }
+    }
+
+    /**
+     * Removes every chat message sent in {@code month} from the database:
+     * detaches and drops the month's partition, then deletes what is left in
+     * the default partition (or, unpartitioned, the month's rows).
+     */
+    public long removeMonth(YearMonth month) {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(true);
+            long removed = 0;
+            String partition = partitionName(month);
+            if (isPartitioned(connection) && relkind(connection, partition) != null) {
+                try (ResultSet rs = statement.executeQuery("SELECT count(*) FROM " + partition)) {
+                    rs.next();
+                    removed = rs.getLong(1);
+                }
+                statement.execute("ALTER TABLE chat_messages DETACH PARTITION " + partition);
+                statement.execute("DROP TABLE " + partition);
+            }
+            try (PreparedStatement delete = connection.prepareStatement(
+                    "DELETE FROM chat_messages WHERE sent_at >= ? AND sent_at < ?")) {
+                delete.setTimestamp(1, Timestamp.valueOf(month.atDay(1).atStartOfDay()));
+                delete.setTimestamp(2, Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay()));
+                removed += delete.executeUpdate();
+            }
+            return removed;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to remove chat messages of " + month, e);
+        }
+    }
+
+    private static long convert(Connection connection, Statement statement) throws SQLException {
+        statement.execute("LOCK TABLE chat_messages IN ACCESS EXCLUSIVE MODE");
+        statement.execute("ALTER TABLE chat_messages RENAME TO " + OLD_TABLE);
+        // Index and primary key names are schema-wide; free them for the new table
+        statement.execute("DROP INDEX IF EXISTS idx_chat_messages_group_sent_at_id");
+        statement.execute("DROP INDEX IF EXISTS idx_chat_messages_search");
+        statement.execute("DROP INDEX IF EXISTS idx_chat_messages_group_seq");
+        // Unique on databases created before it became a plain index
+        statement.execute("ALTER TABLE " + OLD_TABLE + " DROP CONSTRAINT IF EXISTS uk_chat_messages_group_seq");
+        String primaryKey = queryString(connection, "SELECT conname FROM pg_constraint " +
+                "WHERE conrelid = '" + OLD_TABLE + "'::regclass AND contype = 'p'");
+        if (primaryKey != null) {
+            statement.execute("ALTER TABLE " + OLD_TABLE + " RENAME CONSTRAINT " + primaryKey +
+                    " TO " + OLD_TABLE + "_pkey");
+        }
+        List<String> foreignKeys = queryStrings(connection, "SELECT 'ADD CONSTRAINT ' || quote_ident(conname) || ' ' " +
+                "|| pg_get_constraintdef(oid) FROM pg_constraint WHERE conrelid = '" + OLD_TABLE + "'::regclass " +
+                "AND contype = 'f'");
+        List<String> columns = queryStrings(connection, "SELECT column_name FROM information_schema.columns " +
+                "WHERE table_schema = current_schema() AND table_name = '" + OLD_TABLE + "' " +
+                "AND is_generated = 'NEVER' ORDER BY ordinal_position");
+        boolean searchVector = queryString(connection, "SELECT column_name FROM information_schema.columns " +
+                "WHERE table_schema = current_schema() AND table_name = '" + OLD_TABLE + "' " +
+                "AND column_name = 'search_vector'") != null;
+
+        statement.execute("CREATE TABLE chat_messages (LIKE " + OLD_TABLE +
+                " INCLUDING DEFAULTS INCLUDING GENERATED) PARTITION BY RANGE (sent_at)");
+
+        // Identity columns on partitioned tables need PostgreSQL 17; a sequence default works everywhere
+        long nextId = Long.parseLong(queryString(connection, "SELECT COALESCE(MAX(id), 0) + 1 FROM " + OLD_TABLE));
+        // An identity column on older databases, otherwise the entity's sequence behind the column default
+        String idSequence = queryString(connection, "SELECT pg_get_serial_sequence('" + OLD_TABLE + "', 'id')");
+        if (idSequence == null && relkind(connection, "chat_messages_id_seq") != null) {
+            idSequence = "chat_messages_id_seq";
+        }
+        if (idSequence != null) {
+            String last = queryString(connection, "SELECT last_value + 1 FROM " + idSequence);
+            nextId = Math.max(nextId, Long.parseLong(last));
+        }
+        statement.execute("ALTER TABLE " + OLD_TABLE + " ALTER COLUMN id DROP IDENTITY IF EXISTS");
+        statement.execute("ALTER TABLE " + OLD_TABLE + " ALTER COLUMN id DROP DEFAULT");
+        statement.execute("ALTER TABLE chat_messages ALTER COLUMN id DROP DEFAULT");
+        if (idSequence != null) {
+            statement.execute("DROP SEQUENCE IF EXISTS " + idSequence);
+        }
+        statement.execute("CREATE SEQUENCE chat_messages_id_seq START WITH " + nextId + " OWNED BY chat_messages.id");
+        statement.execute("ALTER TABLE chat_messages ALTER COLUMN id SET DEFAULT nextval('chat_messages_id_seq')");
+
+        statement.execute("ALTER TABLE chat_messages ADD CONSTRAINT chat_messages_pkey PRIMARY KEY (id, sent_at)");
+        statement.execute("CREATE INDEX idx_chat_messages_group_sent_at_id ON chat_messages (group_id, sent_at, id)");
+        statement.execute("CREATE INDEX idx_chat_messages_group_seq ON chat_messages (group_id, seq)");
+        if (searchVector) {
+            statement.execute("CREATE INDEX idx_chat_messages_search ON chat_messages USING GIN (search_vector)");
+        }
+        for (String foreignKey : foreignKeys) {
+            statement.execute("ALTER TABLE chat_messages " + foreignKey);
+        }
+
+        String first = queryString(connection, "SELECT to_char(MIN(sent_at), 'YYYY-MM') FROM " + OLD_TABLE);
+        String last = queryString(connection, "SELECT to_char(MAX(sent_at), 'YYYY-MM') FROM " + OLD_TABLE);
+        YearMonth through = YearMonth.now();
+        YearMonth month = first == null ? through : YearMonth.parse(first);
+        if (last != null && YearMonth.parse(last).isAfter(through)) {
+            through = YearMonth.parse(last);
+        }
+        for (; !month.isAfter(through); month = month.plusMonths(1)) {
+            statement.execute(createPartitionSql(month));
+        }
+        statement.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF chat_messages DEFAULT");
+
+        String columnList = String.join(", ", columns);
+        long rows = statement.executeUpdate("INSERT INTO chat_messages (" + columnList + ") SELECT " + columnList +
+                " FROM " + OLD_TABLE);
+        statement.execute("DROP TABLE " + OLD_TABLE);
+        return rows;
+    }
+
+    private static String createPartitionSql(YearMonth month) {
+        return "CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF chat_messages " +
+                "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+    }
+
+    private static String relkind(Connection connection, String table) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT c.relkind::text FROM pg_class c WHERE c.oid = to_regclass(?)")) {
+            query.setString(1, table);
+            try (ResultSet rs = query.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private static String queryString(Connection connection, String sql) throws SQLException {
+        List<String> values = queryStrings(connection, sql);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    private static List<String> queryStrings(Connection connection, String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                values.add(rs.getString(1));
+            }
+        }
+        return values;
+    }
+}
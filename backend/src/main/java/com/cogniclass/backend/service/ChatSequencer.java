@@ -0,0 +1,138 @@
+package com.cogniclass.backend.service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.cogniclass.backend.repository.ChatMessageRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hands out each group's message sequence numbers (1, 2, 3...) in the order
+ * messages are accepted, together with a sent_at that never goes backwards
+ * within the group, so history ordered by (sent_at, id) agrees with seq. A
+ * group's head is read from chat_messages (and the {@link ChatArchive}, for a
+ * group whose history has been archived) on first use; from then on
+ * allocation is in memory.
+ * <p>
+ * Assumes this process is the only writer of chat messages. Code that rewrites
+ * chat_messages behind its back calls {@link #invalidateAll()}.
+ */
+@Slf4j
+@Service
+public class ChatSequencer {
+
+    /**
+     * Numbers a group's rows written without a seq (history from before it
+     * existed) after the group's current head, in (sent_at, id) order.
+     * PostgreSQL before 15 has no MERGE; H2 has no UPDATE ... FROM.
+     */
+    static final String BACKFILL_SOURCE = "(SELECT id, ROW_NUMBER() OVER (ORDER BY sent_at, id) AS rn, " +
+            "(SELECT COALESCE(MAX(seq), 0) FROM chat_messages WHERE group_id = ?) AS base " +
+            "FROM chat_messages WHERE group_id = ? AND seq IS NULL) r";
+    static final String POSTGRES_BACKFILL_SQL =
+            "UPDATE chat_messages m SET seq = r.base + r.rn FROM " + BACKFILL_SOURCE + " WHERE m.id = r.id";
+    static final String MERGE_BACKFILL_SQL =
+            "MERGE INTO chat_messages m USING " + BACKFILL_SOURCE + " ON m.id = r.id " +
+            "WHEN MATCHED THEN UPDATE SET seq = r.base + r.rn";
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ChatArchive chatArchive;
+    private final ConcurrentMap<Long, Head> heads = new ConcurrentHashMap<>();
+    private volatile Boolean postgres;
+
+    public ChatSequencer(ChatMessageRepository chatMessageRepository, DataSource dataSource, ChatArchive chatArchive) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.chatArchive = chatArchive;
+    }
+
+    public record Allocation(long seq, LocalDateTime sentAt) {
+    }
+
+    private static final class Head {
+        // Not a monitor, which would pin a virtual thread's carrier while it waits
+        private final ReentrantLock lock = new ReentrantLock();
+        private long seq;
+        private LocalDateTime sentAt;
+    }
+
+    /** Loads the group's head if needed, so that {@link #next} does not touch the database. */
+    public void prime(Long groupId) {
+        head(groupId);
+    }
+
+    /** The last seq handed out for the group, or persisted before this process started. */
+    public long current(Long groupId) {
+        Head head = head(groupId);
+        head.lock.lock();
+        try {
+            return head.seq;
+        } finally {
+            head.lock.unlock();
+        }
+    }
+
+    public Allocation next(Long groupId, LocalDateTime now) {
+        Head head = head(groupId);
+        head.lock.lock();
+        try {
+            // Microseconds: what PostgreSQL keeps, so the value read back equals the one handed out
+            LocalDateTime sentAt = now.truncatedTo(ChronoUnit.MICROS);
+            if (head.sentAt != null && !sentAt.isAfter(head.sentAt)) {
+                sentAt = head.sentAt.plus(1, ChronoUnit.MICROS);
+            }
+            head.seq++;
+            head.sentAt = sentAt;
+            return new Allocation(head.seq, sentAt);
+        } finally {
+            head.lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        heads.clear();
+    }
+
+    private Head head(Long groupId) {
+        Head head = heads.get(groupId);
+        if (head != null) {
+            return head;
+        }
+        Head loaded = load(groupId);
+        Head raced = heads.putIfAbsent(groupId, loaded);
+        return raced != null ? raced : loaded;
+    }
+
+    private Head load(Long groupId) {
+        if (chatMessageRepository.existsByStudyGroupIdAndSeqIsNull(groupId)) {
+            String sql = isPostgres() ? POSTGRES_BACKFILL_SQL : MERGE_BACKFILL_SQL;
+            int numbered = jdbcTemplate.update(sql, groupId, groupId);
+            log.info("Assigned sequence numbers to {} earlier messages in group {}", numbered, groupId);
+        }
+        Head head = new Head();
+        head.seq = Math.max(chatMessageRepository.findMaxSeq(groupId).orElse(0L), chatArchive.maxSeq(groupId));
+        head.sentAt = chatMessageRepository.findMaxSentAt(groupId).orElse(chatArchive.lastSentAt(groupId));
+        return head;
+    }
+
+    private boolean isPostgres() {
+        Boolean known = postgres;
+        if (known == null) {
+            known = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName()));
+            postgres = known;
+        }
+        return known;
+    }
+}
@@ -0,0 +1,99 @@
+package com.cogniclass.backend.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cogniclass.backend.dto.ChatHistoryPage;
+import com.cogniclass.backend.dto.ChatMessageView;
+import com.cogniclass.backend.repository.ChatMessageRepository;
+
+import lombok.RequiredArgsConstructor;
+
+@Service
+@RequiredArgsConstructor
+public class ChatService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatArchive chatArchive;
+
+    /**
+     * Returns one page of a group's history, oldest first.
+     * <ul>
+     *   <li>no cursor: the latest {@code limit} messages</li>
+     *   <li>{@code before}: older messages, for scrolling back</li>
+     *   <li>{@code after}: only messages newer than the cursor, for catching up</li>
+     * </ul>
+     * Messages sent before the archive watermark come from {@link ChatArchive};
+     * a page that crosses the watermark is stitched from both tiers.
+     */
+    @Transactional(readOnly = true)
+    public ChatHistoryPage getHistory(Long groupId, String before, String after, Integer limit) {
+        if (before != null && after != null) {
+            throw new IllegalArgumentException("Use either 'before' or 'after', not both");
+        }
+        int pageSize = clampLimit(limit);
+        // Fetch one extra row to know whether another page exists without a COUNT(*)
+        int wanted = pageSize + 1;
+        LocalDateTime since = chatArchive.hotSince();
+
+        if (after != null) {
+            ChatCursor cursor = ChatCursor.decode(after);
+            List<ChatMessageView> rows = new ArrayList<>();
+            if (chatArchive.covers(cursor.sentAt())) {
+                rows.addAll(chatArchive.after(groupId, cursor, wanted));
+            }
+            if (rows.size() < wanted) {
+                rows.addAll(chatMessageRepository.findViewsAfter(groupId, since, cursor.sentAt(), cursor.id(),
+                        PageRequest.of(0, wanted - rows.size())));
+            }
+            boolean hasMore = rows.size() > pageSize;
+            List<ChatMessageView> messages = hasMore ? rows.subList(0, pageSize) : rows;
+            return toPage(messages, hasMore, null, after);
+        }
+
+        ChatCursor cursor = before == null ? null : ChatCursor.decode(before);
+        boolean coldCursor = cursor != null && chatArchive.covers(cursor.sentAt());
+        List<ChatMessageView> rows = new ArrayList<>();
+        if (cursor == null) {
+            rows.addAll(chatMessageRepository.findLatestViews(groupId, since, PageRequest.of(0, wanted)));
+        } else if (!coldCursor) {
+            rows.addAll(chatMessageRepository.findViewsBefore(groupId, since, cursor.sentAt(), cursor.id(),
+                    PageRequest.of(0, wanted)));
+        }
+        if (rows.size() < wanted && chatArchive.watermark() != null) {
+            // Everything archived is older than everything hot, so the rest of the page continues from the top
+            rows.addAll(chatArchive.before(groupId, coldCursor ? cursor : null, wanted - rows.size()));
+        }
+        boolean hasMore = rows.size() > pageSize;
+        List<ChatMessageView> messages = new ArrayList<>(hasMore ? rows.subList(0, pageSize) : rows);
+        Collections.reverse(messages);
+        return toPage(messages, hasMore, before, null);
+    }
+
+    private ChatHistoryPage toPage(List<ChatMessageView> messages, boolean hasMore,
+                                   String fallbackBefore, String fallbackAfter) {
+        if (messages.isEmpty()) {
+            // Keep handing back the caller's cursor so polling clients never lose their place
+            return new ChatHistoryPage(messages, fallbackBefore, fallbackAfter, false);
+        }
+        String beforeCursor = ChatCursor.of(messages.get(0)).encode();
+        String afterCursor = ChatCursor.of(messages.get(messages.size() - 1)).encode();
+        return new ChatHistoryPage(messages, beforeCursor, afterCursor, hasMore);
+    }
+
+    static int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+}
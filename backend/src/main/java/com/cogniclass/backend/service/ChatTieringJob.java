@@ -0,0 +1,268 @@
+package com.cogniclass.backend.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cogniclass.backend.metrics.Counter;
+import com.cogniclass.backend.metrics.Histogram;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves chat history between tiers. At startup, before chat ingestion begins,
+ * it creates partitions of chat_messages for the coming months (converting the
+ * table first only when {@code cogniclass.chat.partitioning.enabled} asks for
+ * that migration, see {@link ChatPartitionManager}); then, every
+ * {@code interval}, it creates partitions again and, when archiving is enabled,
+ * moves every month older than {@code hot-months} into the {@link ChatArchive},
+ * oldest first.
+ * <p>
+ * A month is written to the archive before its rows leave the database. A
+ * crash in between leaves the rows in both places; the history API does not
+ * show them twice, because hot queries start at the archive watermark, and the
+ * next run finishes the removal. Rows that arrive for an archived month are
+ * merged into its file on the next run.
+ * <p>
+ * Group counters (message count, unread) are unaffected by archiving, but
+ * {@code GroupActivityService.rebuild()} only counts messages still in the
+ * database.
+ */
+@Slf4j
+@Component
+public class ChatTieringJob implements SmartLifecycle {
+
+    static final String MONTH_SQL = "SELECT m.id, m.group_id, m.seq, m.user_id, u.name, u.role, m.sent_at, " +
+            "m.message_type, m.content FROM chat_messages m LEFT JOIN users u ON u.id = m.user_id " +
+            "WHERE m.sent_at >= ? AND m.sent_at < ? ORDER BY m.group_id, m.sent_at, m.id";
+
+    private static final Comparator<ChatArchiveFile.Row> ARCHIVE_ORDER =
+            Comparator.comparingLong(ChatArchiveFile.Row::groupId)
+                    .thenComparing(ChatArchiveFile.Row::sentAt)
+                    .thenComparingLong(ChatArchiveFile.Row::id);
+
+    private final ChatPartitionManager partitions;
+    private final ChatArchive archive;
+    private final ChatSequencer sequencer;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnly;
+    private final Clock clock;
+    private final boolean partitioningEnabled;
+    private final int premakeMonths;
+    private final boolean archiveEnabled;
+    private final int hotMonths;
+    private final Duration interval;
+
+    private final Counter archived;
+    private final Counter removed;
+    private final Histogram runLatency;
+
+    private volatile ScheduledExecutorService scheduler;
+
+    @Autowired
+    public ChatTieringJob(ChatPartitionManager partitions,
+                          ChatArchive archive,
+                          ChatSequencer sequencer,
+                          DataSource dataSource,
+                          PlatformTransactionManager transactionManager,
+                          MetricsRegistry metrics,
+                          @Value("${cogniclass.chat.partitioning.enabled:false}") boolean partitioningEnabled,
+                          @Value("${cogniclass.chat.partitioning.premake-months:3}") int premakeMonths,
+                          @Value("${cogniclass.chat.archive.enabled:false}") boolean archiveEnabled,
+                          @Value("${cogniclass.chat.archive.hot-months:6}") int hotMonths,
+                          @Value("${cogniclass.chat.tiering.interval:6h}") Duration interval) {
+        this(partitions, archive, sequencer, dataSource, transactionManager, metrics, Clock.systemDefaultZone(),
+                partitioningEnabled, premakeMonths, archiveEnabled, hotMonths, interval);
+    }
+
+    ChatTieringJob(ChatPartitionManager partitions, ChatArchive archive, ChatSequencer sequencer,
+                   DataSource dataSource, PlatformTransactionManager transactionManager, MetricsRegistry metrics,
+                   Clock clock, boolean partitioningEnabled, int premakeMonths, boolean archiveEnabled, int hotMonths,
+                   Duration interval) {
+        this.partitions = partitions;
+        this.archive = archive;
+        this.sequencer = sequencer;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(1000);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.clock = clock;
+        this.partitioningEnabled = partitioningEnabled;
+        this.premakeMonths = premakeMonths;
+        this.archiveEnabled = archiveEnabled;
+        this.hotMonths = Math.max(1, hotMonths);
+        this.interval = interval;
+        this.archived = metrics.counter("chat_tiering_messages_total", "action", "archived");
+        this.removed = metrics.counter("chat_tiering_messages_total", "action", "removed");
+        this.runLatency = metrics.histogram("chat_tiering_run_seconds");
+    }
+
+    @Override
+    public void start() {
+        if (partitioningEnabled) {
+            partitions.ensurePartitioned();
+        }
+        premake();
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-tiering");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Soon after startup too, so that frequent restarts do not keep postponing the first run
+        long firstRun = Math.min(interval.toMillis(), Duration.ofMinutes(1).toMillis());
+        executor.scheduleWithFixedDelay(this::runSafely, firstRun, interval.toMillis(), TimeUnit.MILLISECONDS);
+        scheduler = executor;
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService executor = scheduler;
+        scheduler = null;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    @Override
+    public int getPhase() {
+        // Before ChatIngestService, which must not write while the table is being converted
+        return DEFAULT_PHASE - 8192;
+    }
+
+    /** One pass: premake partitions, then archive every month that has fallen out of the hot window. */
+    public void run() {
+        long started = System.nanoTime();
+        premake();
+        if (archiveEnabled) {
+            YearMonth cutoff = YearMonth.now(clock).minusMonths(hotMonths);
+            YearMonth month = oldestHotMonth();
+            for (; month != null && month.isBefore(cutoff); month = month.plusMonths(1)) {
+                archiveMonth(month);
+            }
+        }
+        runLatency.recordNanos(System.nanoTime() - started);
+    }
+
+    private void runSafely() {
+        try {
+            run();
+        } catch (RuntimeException e) {
+            log.error("Chat tiering run failed; retrying in {}", interval, e);
+        }
+    }
+
+    /** A no-op until chat_messages is partitioned, which may have happened on another instance. */
+    private void premake() {
+        YearMonth now = YearMonth.now(clock);
+        partitions.ensurePartitions(now, now.plusMonths(premakeMonths));
+    }
+
+    private YearMonth oldestHotMonth() {
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(sent_at) FROM chat_messages", Timestamp.class);
+        return oldest == null ? null : YearMonth.from(oldest.toLocalDateTime());
+    }
+
+    void archiveMonth(YearMonth month) {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        // Number legacy rows first, so that archived history keeps the seq the group would have given it
+        for (Long groupId : jdbcTemplate.queryForList("SELECT DISTINCT group_id FROM chat_messages " +
+                "WHERE sent_at >= ? AND sent_at < ? AND seq IS NULL", Long.class, from, to)) {
+            sequencer.prime(groupId);
+        }
+
+        long rows;
+        try {
+            rows = archive.contains(month) ? merge(month, from, to) : write(month, from, to);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to archive chat messages of " + month, e);
+        }
+        long deleted = partitions.removeMonth(month);
+        archived.increment(rows);
+        removed.increment(deleted);
+        log.info("Archived {} chat messages of {}; removed {} from the database", rows, month, deleted);
+    }
+
+    private long write(YearMonth month, LocalDateTime from, LocalDateTime to) throws IOException {
+        try (ChatArchive.MonthWriter writer = archive.write(month)) {
+            readOnly.executeWithoutResult(status -> jdbcTemplate.query(MONTH_SQL, rs -> {
+                try {
+                    writer.add(row(rs));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, from, to));
+            long rows = writer.rows();
+            writer.commit();
+            return rows;
+        }
+    }
+
+    /**
+     * Rewrites an already archived month with the rows that arrived for it since.
+     * Both sides come sorted in archive order, so they are merged as they stream;
+     * a row found in both (left behind by a run that crashed before removing it)
+     * is written once.
+     */
+    private long merge(YearMonth month, LocalDateTime from, LocalDateTime to) throws IOException {
+        try (ChatArchive.MonthReader archived = archive.stream(month);
+             ChatArchive.MonthWriter writer = archive.write(month)) {
+            readOnly.executeWithoutResult(status -> jdbcTemplate.query(MONTH_SQL, rs -> {
+                ChatArchiveFile.Row late = row(rs);
+                try {
+                    while (archived.peek() != null && ARCHIVE_ORDER.compare(archived.peek(), late) < 0) {
+                        writer.add(archived.next());
+                    }
+                    if (archived.peek() != null && archived.peek().id() == late.id()) {
+                        archived.next();
+                    }
+                    writer.add(late);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, from, to));
+            for (ChatArchiveFile.Row row = archived.next(); row != null; row = archived.next()) {
+                writer.add(row);
+            }
+            long added = writer.rows() - archived.rows();
+            writer.commit();
+            return added;
+        }
+    }
+
+    private static ChatArchiveFile.Row row(ResultSet rs) throws SQLException {
+        long senderId = rs.getLong(4);
+        boolean hasSender = !rs.wasNull();
+        long seq = rs.getLong(3);
+        boolean hasSeq = !rs.wasNull();
+        return new ChatArchiveFile.Row(rs.getLong(1), rs.getLong(2), hasSeq ? seq : null,
+                hasSender ? senderId : null, rs.getString(5), rs.getString(6),
+                rs.getTimestamp(7).toLocalDateTime(), rs.getString(8), rs.getString(9));
+    }
+}
@@ -0,0 +1,271 @@
+package com.cogniclass.backend.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import com.cogniclass.backend.dto.ConversationTurn;
+import com.cogniclass.backend.metrics.Counter;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.repository.AIConversationRepository;
+
+/**
+ * Builds the conversation history sent with each tutor prompt, so the model
+ * remembers the last few exchanges of a user in a study group (or outside any
+ * group) without the prompt or the database work growing with the history.
+ * <p>
+ * Only the newest {@code maxTurns} exchanges are ever read, with a LIMIT
+ * query, and they are kept per (user, group) as a rolling window that each new
+ * answer is appended to, so a conversation in progress hits the database once.
+ * Assembly walks the window from newest to oldest within {@code tokenBudget}
+ * estimated tokens: the newest {@code verbatimTurns} exchanges go in whole,
+ * older ones are cut to {@code trimmedTurnTokens}, and whatever no longer fits
+ * is reduced to a one-line list of the questions asked.
+ */
+@Component
+public class ConversationContextAssembler {
+
+    private record WindowKey(Long userId, Long groupId) {
+    }
+
+    private static final class Window {
+        final ArrayDeque<ConversationTurn> turns; // oldest first
+        final long loadedAt;
+
+        Window(ArrayDeque<ConversationTurn> turns, long loadedAt) {
+            this.turns = turns;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    // Roughly four characters per token, plus a few tokens of chat-format overhead per message
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+    private static final int SUMMARY_QUESTION_CHARS = 60;
+
+    private final AIConversationRepository repository;
+    private final int maxTurns;
+    private final int tokenBudget;
+    private final int verbatimTurns;
+    private final int trimmedTurnTokens;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<WindowKey, Window> windows = new LinkedHashMap<>(16, 0.75f, true);
+    private long invalidations; // guarded by lock
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter turnsLoaded;
+
+    @Autowired
+    public ConversationContextAssembler(AIConversationRepository repository, MetricsRegistry metrics,
+                                        @Value("${cogniclass.ai.context.max-turns:10}") int maxTurns,
+                                        @Value("${cogniclass.ai.context.token-budget:1500}") int tokenBudget,
+                                        @Value("${cogniclass.ai.context.verbatim-turns:4}") int verbatimTurns,
+                                        @Value("${cogniclass.ai.context.trimmed-turn-tokens:120}") int trimmedTurnTokens,
+                                        @Value("${cogniclass.ai.context.cache.max-entries:10000}") int maxEntries,
+                                        @Value("${cogniclass.ai.context.cache.ttl:30m}") Duration ttl) {
+        this(repository, metrics, maxTurns, tokenBudget, verbatimTurns, trimmedTurnTokens, maxEntries, ttl,
+                System::nanoTime);
+    }
+
+    ConversationContextAssembler(AIConversationRepository repository, MetricsRegistry metrics, int maxTurns,
+                                 int tokenBudget, int verbatimTurns, int trimmedTurnTokens, int maxEntries,
+                                 Duration ttl, LongSupplier clock) {
+        this.repository = repository;
+        this.maxTurns = maxTurns;
+        this.tokenBudget = tokenBudget;
+        this.verbatimTurns = verbatimTurns;
+        this.trimmedTurnTokens = trimmedTurnTokens;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.hits = metrics.counter("ai_context_window_requests_total", "result", "hit");
+        this.misses = metrics.counter("ai_context_window_requests_total", "result", "miss");
+        this.turnsLoaded = metrics.counter("ai_context_turns_loaded_total");
+        metrics.gauge("ai_context_windows", this::size);
+    }
+
+    /**
+     * Chat messages (role and content) to place between the system prompt and
+     * the new question. Empty when there is no earlier exchange.
+     */
+    public List<Map<String, String>> history(Long userId, Long groupId) {
+        if (userId == null || maxTurns <= 0) {
+            return List.of();
+        }
+        return assemble(window(userId, groupId));
+    }
+
+    /** Adds a finished exchange to the cached window, if there is one; it is persisted separately. */
+    public void append(Long userId, Long groupId, String userMessage, String aiResponse) {
+        if (userId == null || maxTurns <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            Window window = windows.get(new WindowKey(userId, groupId));
+            if (window != null) {
+                window.turns.addLast(new ConversationTurn(userMessage, aiResponse, LocalDateTime.now()));
+                while (window.turns.size() > maxTurns) {
+                    window.turns.removeFirst();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            invalidations++;
+            windows.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return windows.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Oldest first
+    List<ConversationTurn> window(Long userId, Long groupId) {
+        WindowKey key = new WindowKey(userId, groupId);
+        long generation;
+        lock.lock();
+        try {
+            Window window = windows.get(key);
+            if (window != null && clock.getAsLong() - window.loadedAt < ttlNanos) {
+                hits.increment();
+                return new ArrayList<>(window.turns);
+            }
+            generation = invalidations;
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        List<ConversationTurn> newestFirst = groupId == null
+                ? repository.findRecentTurns(userId, Pageable.ofSize(maxTurns))
+                : repository.findRecentTurnsInGroup(userId, groupId, Pageable.ofSize(maxTurns));
+        turnsLoaded.increment(newestFirst.size());
+        ArrayDeque<ConversationTurn> turns = new ArrayDeque<>(maxTurns);
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            turns.addLast(newestFirst.get(i));
+        }
+        List<ConversationTurn> result = new ArrayList<>(turns);
+
+        lock.lock();
+        try {
+            if (generation == invalidations) {
+                windows.put(key, new Window(turns, clock.getAsLong()));
+                Iterator<Window> eldest = windows.values().iterator();
+                while (windows.size() > maxEntries && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    List<Map<String, String>> assemble(List<ConversationTurn> turns) {
+        List<Map<String, String>> newestFirst = new ArrayList<>();
+        int remaining = tokenBudget;
+        int kept = 0;
+        int next = turns.size() - 1;
+        for (; next >= 0; next--) {
+            ConversationTurn turn = turns.get(next);
+            String question = nullToEmpty(turn.getUserMessage());
+            String answer = nullToEmpty(turn.getAiResponse());
+            if (kept >= verbatimTurns) {
+                question = trim(question, trimmedTurnTokens / 2);
+                answer = trim(answer, trimmedTurnTokens);
+            }
+            int cost = estimateTokens(question) + estimateTokens(answer);
+            if (cost > remaining) {
+                break;
+            }
+            newestFirst.add(message("assistant", answer));
+            newestFirst.add(message("user", question));
+            remaining -= cost;
+            kept++;
+        }
+        if (next >= 0) {
+            String summary = summarize(turns, next, remaining);
+            if (summary != null) {
+                newestFirst.add(message("system", summary));
+            }
+        }
+        Collections.reverse(newestFirst);
+        return newestFirst;
+    }
+
+    // One line listing the questions of turns[0..last], newest first, within the budget left
+    private static String summarize(List<ConversationTurn> turns, int last, int remainingTokens) {
+        String prefix = "Earlier in this conversation the student asked about: ";
+        int maxChars = (remainingTokens - MESSAGE_OVERHEAD_TOKENS) * CHARS_PER_TOKEN;
+        StringBuilder summary = new StringBuilder(prefix);
+        for (int i = last; i >= 0; i--) {
+            String question = trimChars(nullToEmpty(turns.get(i).getUserMessage()).strip(), SUMMARY_QUESTION_CHARS);
+            if (question.isEmpty()) {
+                continue;
+            }
+            String separator = summary.length() == prefix.length() ? "" : "; ";
+            if (summary.length() + separator.length() + question.length() > maxChars) {
+                break;
+            }
+            summary.append(separator).append(question);
+        }
+        return summary.length() == prefix.length() ? null : summary.toString();
+    }
+
+    static int estimateTokens(String text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN + MESSAGE_OVERHEAD_TOKENS;
+    }
+
+    private static String trim(String text, int maxTokens) {
+        return trimChars(text, maxTokens * CHARS_PER_TOKEN);
+    }
+
+    // Cuts at the last space before the limit and marks the cut
+    private static String trimChars(String text, int maxChars) {
+        if (text.length() <= maxChars) {
+            return text;
+        }
+        int cut = text.lastIndexOf(' ', maxChars - 2);
+        return text.substring(0, cut > maxChars / 2 ? cut : maxChars - 2) + " …";
+    }
+
+    private static String nullToEmpty(String text) {
+        return text == null ? "" : text;
+    }
+
+    private static Map<String, String> message(String role, String content) {
+        return Map.of("role", role, "content", content);
+    }
+}
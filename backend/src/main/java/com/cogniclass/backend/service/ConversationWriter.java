@@ -0,0 +1,188 @@
+package com.cogniclass.backend.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cogniclass.backend.entity.AIConversation;
+import com.cogniclass.backend.metrics.Counter;
+import com.cogniclass.backend.metrics.Histogram;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.repository.AIConversationRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind persistence for AI tutor exchanges. Request threads hand finished
+ * conversations to a bounded queue; one background writer drains it and inserts
+ * up to {@code batchSize} rows per transaction as a single JDBC batch.
+ * <p>
+ * Backpressure: when the queue stays full for {@code offerTimeout} the caller
+ * saves the row itself, which slows producers down to database speed instead of
+ * dropping history. On shutdown the writer stops after the web server, drains
+ * whatever is still queued and only then lets the datasource close.
+ */
+@Slf4j
+@Component
+public class ConversationWriter implements SmartLifecycle {
+
+    private final AIConversationRepository aiConversationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<AIConversation> queue;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration offerTimeout;
+    private final Duration shutdownTimeout;
+
+    private final Counter written;
+    private final Counter batches;
+    private final Counter callerRuns;
+    private final Counter failed;
+    private final Histogram flushLatency;
+
+    private volatile boolean accepting;
+    private volatile Thread writer;
+
+    @Autowired
+    public ConversationWriter(AIConversationRepository aiConversationRepository,
+                              PlatformTransactionManager transactionManager,
+                              MetricsRegistry metrics,
+                              @Value("${cogniclass.ai.persistence.queue-capacity:10000}") int queueCapacity,
+                              @Value("${cogniclass.ai.persistence.batch-size:50}") int batchSize,
+                              @Value("${cogniclass.ai.persistence.flush-interval:200ms}") Duration flushInterval,
+                              @Value("${cogniclass.ai.persistence.offer-timeout:50ms}") Duration offerTimeout,
+                              @Value("${cogniclass.ai.persistence.shutdown-timeout:30s}") Duration shutdownTimeout) {
+        this.aiConversationRepository = aiConversationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.offerTimeout = offerTimeout;
+        this.shutdownTimeout = shutdownTimeout;
+        this.written = metrics.counter("ai_conversation_writes_total", "path", "batched");
+        this.callerRuns = metrics.counter("ai_conversation_writes_total", "path", "caller_runs");
+        this.failed = metrics.counter("ai_conversation_write_failures_total");
+        this.batches = metrics.counter("ai_conversation_write_batches_total");
+        this.flushLatency = metrics.histogram("ai_conversation_flush_seconds");
+        metrics.gauge("ai_conversation_write_queue_depth", queue::size);
+    }
+
+    /**
+     * Queues a finished exchange for persistence. Blocks for at most
+     * {@code offerTimeout}, then falls back to a synchronous save.
+     */
+    public void submit(AIConversation conversation) {
+        try {
+            if (accepting && queue.offer(conversation, offerTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        callerRuns.increment();
+        saveOne(conversation);
+    }
+
+    private void run() {
+        List<AIConversation> batch = new ArrayList<>(batchSize);
+        while (accepting || !queue.isEmpty()) {
+            try {
+                AIConversation first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                // stop() interrupts only once the grace period is over
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        List<AIConversation> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            log.warn("Conversation writer stopped with {} unsaved conversations", remaining.size());
+            failed.increment(remaining.size());
+        }
+    }
+
+    private void flush(List<AIConversation> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> aiConversationRepository.saveAll(batch));
+            written.increment(batch.size());
+            batches.increment();
+        } catch (RuntimeException e) {
+            // Isolate the bad row instead of losing the whole batch
+            log.warn("Batch insert of {} conversations failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (AIConversation conversation : batch) {
+                conversation.setId(null);
+                saveOne(conversation);
+            }
+        } finally {
+            flushLatency.recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    private void saveOne(AIConversation conversation) {
+        try {
+            aiConversationRepository.save(conversation);
+            written.increment();
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.error("Failed to save AI conversation: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        accepting = true;
+        Thread thread = new Thread(this::run, "ai-conversation-writer");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        accepting = false;
+        Thread thread = writer;
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(shutdownTimeout.toMillis());
+            if (thread.isAlive()) {
+                thread.interrupt();
+                thread.join(1_000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return writer != null;
+    }
+
+    // Stop after the web server (DEFAULT_PHASE - 1024/2048) so in-flight requests can still enqueue
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
@@ -0,0 +1,57 @@
+package com.cogniclass.backend.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Wipes all application data, for the demo setup and the synthetic data
+ * generator, and drops every in-memory cache that could still describe it.
+ */
+@Service
+@RequiredArgsConstructor
+public class DataResetService {
+
+    // FK order: children first
+    static final String[] TABLES = {
+        "chat_messages", "ai_conversations", "group_read_markers", "group_members", "study_groups", "users"
+    };
+
+    private final DataSource dataSource;
+    private final PrincipalCache principalCache;
+    private final ConversationContextAssembler contextAssembler;
+    private final MembershipService membershipService;
+    private final ChatSequencer chatSequencer;
+    private final ChatArchive chatArchive;
+
+    /**
+     * Removes all application data in one statement per table, without loading
+     * any entity. Identity sequences restart on PostgreSQL. Archived chat
+     * history is deleted as well.
+     */
+    public void truncateAll() {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            if ("PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())) {
+                statement.execute("TRUNCATE TABLE " + String.join(", ", TABLES) + " RESTART IDENTITY CASCADE");
+            } else {
+                for (String table : TABLES) {
+                    statement.execute("DELETE FROM " + table);
+                }
+            }
+            chatArchive.clear();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to truncate tables", e);
+        } finally {
+            principalCache.invalidateAll(); // rows vanished behind JPA's back
+            contextAssembler.invalidateAll();
+            membershipService.invalidateAll();
+            chatSequencer.invalidateAll();
+        }
+    }
+}
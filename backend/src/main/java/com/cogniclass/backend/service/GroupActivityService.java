@@ -0,0 +1,164 @@
+package com.cogniclass.backend.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cogniclass.backend.dto.ChatMessageView;
+import com.cogniclass.backend.dto.GroupActivity;
+import com.cogniclass.backend.entity.GroupReadMarker;
+import com.cogniclass.backend.repository.GroupReadMarkerRepository;
+import com.cogniclass.backend.repository.StudyGroupRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Unread counters and last-message summaries. Each group carries a running
+ * message count and each member a read marker holding the count they have
+ * read up to, so a new message costs one counter update and unread is a
+ * subtraction rather than a {@code COUNT(*)} over chat_messages.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GroupActivityService implements ApplicationRunner {
+
+    static final int PREVIEW_LENGTH = 140;
+
+    /**
+     * Recomputes the activity columns from chat_messages and gives every member
+     * without a marker one at the current count, i.e. existing history counts as
+     * read. For rows written behind JPA's back (bulk loads, imports, upgrades).
+     */
+    static final String[] REBUILD_SQL = {
+        "UPDATE study_groups SET message_count = " +
+            "(SELECT COUNT(*) FROM chat_messages m WHERE m.group_id = study_groups.id)",
+        "UPDATE study_groups SET last_message_id = (SELECT m.id FROM chat_messages m " +
+            "WHERE m.group_id = study_groups.id ORDER BY m.sent_at DESC, m.id DESC LIMIT 1)",
+        "UPDATE study_groups SET " +
+            "last_message_preview = (SELECT SUBSTRING(m.content, 1, " + PREVIEW_LENGTH + ") " +
+            "FROM chat_messages m WHERE m.id = study_groups.last_message_id), " +
+            "last_message_sender = (SELECT u.name FROM chat_messages m JOIN users u ON u.id = m.user_id " +
+            "WHERE m.id = study_groups.last_message_id), " +
+            "last_message_at = (SELECT m.sent_at FROM chat_messages m WHERE m.id = study_groups.last_message_id)",
+        "INSERT INTO group_read_markers (user_id, group_id, read_count, last_read_at) " +
+            "SELECT gm.user_id, gm.group_id, g.message_count, CURRENT_TIMESTAMP " +
+            "FROM group_members gm JOIN study_groups g ON g.id = gm.group_id " +
+            "WHERE NOT EXISTS (SELECT 1 FROM group_read_markers r " +
+            "WHERE r.user_id = gm.user_id AND r.group_id = gm.group_id)"
+    };
+
+    private final StudyGroupRepository studyGroupRepository;
+    private final GroupReadMarkerRepository readMarkerRepository;
+    private final DataSource dataSource;
+
+    @Value("${cogniclass.chat.rebuild-activity-on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (rebuildOnStartup) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Call inside the transaction that inserted the messages, which all belong to
+     * {@code groupId} and come oldest first. Senders have read their own messages.
+     */
+    @Transactional
+    public void recordMessages(Long groupId, List<ChatMessageView> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        ChatMessageView last = messages.get(messages.size() - 1);
+        studyGroupRepository.recordMessages(groupId, messages.size(), last.getId(), preview(last.getContent()),
+                last.getSender() == null ? null : last.getSender().getName(), last.getSentAt());
+        Set<Long> senders = new LinkedHashSet<>();
+        for (ChatMessageView message : messages) {
+            if (message.getSender() != null) {
+                senders.add(message.getSender().getId());
+            }
+        }
+        for (Long senderId : senders) {
+            markRead(senderId, groupId);
+        }
+    }
+
+    /** Moves the caller's marker to the group's current count; returns false if the group does not exist. */
+    @Transactional
+    public boolean markRead(Long userId, Long groupId) {
+        Long count = studyGroupRepository.findMessageCount(groupId).orElse(null);
+        if (count == null) {
+            return false;
+        }
+        if (readMarkerRepository.advance(userId, groupId, count, LocalDateTime.now()) == 0
+                && !readMarkerRepository.existsById(new GroupReadMarker.Key(userId, groupId))) {
+            readMarkerRepository.save(new GroupReadMarker(userId, groupId, count));
+        }
+        return true;
+    }
+
+    /** A joining member starts with nothing unread rather than the group's whole history. */
+    @Transactional
+    public void onJoin(Long userId, Long groupId) {
+        markRead(userId, groupId);
+    }
+
+    @Transactional
+    public void onLeave(Long userId, Long groupId) {
+        readMarkerRepository.deleteById(new GroupReadMarker.Key(userId, groupId));
+    }
+
+    @Transactional(readOnly = true)
+    public List<GroupActivity> getActivity(Long userId) {
+        return studyGroupRepository.findActivityByMembersId(userId);
+    }
+
+    public void rebuild() {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            rebuild(connection);
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to rebuild group activity", e);
+        }
+        log.info("Rebuilt group unread counters and last-message summaries");
+    }
+
+    static void rebuild(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : REBUILD_SQL) {
+                statement.executeUpdate(sql);
+            }
+        }
+    }
+
+    static String preview(String content) {
+        if (content == null) {
+            return null;
+        }
+        String flat = content.strip().replaceAll("\\s+", " ");
+        if (flat.length() <= PREVIEW_LENGTH) {
+            return flat;
+        }
+        int end = PREVIEW_LENGTH - 1;
+        if (Character.isHighSurrogate(flat.charAt(end - 1))) {
+            end--;
+        }
+        return flat.substring(0, end) + "…";
+    }
+}
@@ -0,0 +1,60 @@
+package com.cogniclass.backend.service;
+
+import java.util.Map;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cogniclass.backend.dto.GroupSummary;
+import com.cogniclass.backend.dto.GroupSummaryPage;
+import com.cogniclass.backend.repository.StudyGroupRepository;
+
+import lombok.RequiredArgsConstructor;
+
+@Service
+@RequiredArgsConstructor
+public class GroupService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Public sort keys -> entity attributes; anything else is rejected rather than passed into JPQL
+    private static final Map<String, String> SORTABLE = Map.of(
+            "name", "name",
+            "subject", "subject",
+            "createdAt", "createdAt");
+
+    private final StudyGroupRepository studyGroupRepository;
+
+    @Transactional(readOnly = true)
+    public GroupSummaryPage getPublicGroups(Integer page, Integer size, String sort, String direction) {
+        return toPage(studyGroupRepository.findPublicSummaries(pageRequest(page, size, sort, direction)));
+    }
+
+    @Transactional(readOnly = true)
+    public GroupSummaryPage getMemberGroups(Long userId, Integer page, Integer size, String sort, String direction) {
+        return toPage(studyGroupRepository.findMemberSummaries(userId, pageRequest(page, size, sort, direction)));
+    }
+
+    static PageRequest pageRequest(Integer page, Integer size, String sort, String direction) {
+        if (page != null && page < 0) {
+            throw new IllegalArgumentException("page must not be negative");
+        }
+        String property = SORTABLE.get(sort == null ? "createdAt" : sort);
+        if (property == null) {
+            throw new IllegalArgumentException("Cannot sort by '" + sort + "'; use one of " + SORTABLE.keySet());
+        }
+        Sort.Direction dir = direction == null ? Sort.Direction.DESC : Sort.Direction.fromString(direction);
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        // id breaks ties so that rows never move between pages
+        return PageRequest.of(page == null ? 0 : page, pageSize, Sort.by(dir, property).and(Sort.by(dir, "id")));
+    }
+
+    private static GroupSummaryPage toPage(Page<GroupSummary> page) {
+        return new GroupSummaryPage(page.getContent(), page.getNumber(), page.getSize(),
+                page.getTotalElements(), page.hasNext());
+    }
+}
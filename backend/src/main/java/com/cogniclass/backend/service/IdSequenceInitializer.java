@@ -0,0 +1,87 @@
+package com.cogniclass.backend.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves id sequences past the ids already in their table, on PostgreSQL only.
+ * ai_conversations used to take its ids from an identity column; its entity now
+ * draws them from {@code ai_conversations_seq} in blocks of 50, and Hibernate's
+ * schema update creates that sequence starting at 1. Without this step the
+ * first inserts on an existing database would reuse ids and fail.
+ * <p>
+ * Runs once all beans exist, so after Hibernate's schema update and before the
+ * web server takes requests. Sequences only ever move forward, so it is a
+ * no-op on every later start.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdSequenceInitializer implements SmartInitializingSingleton {
+
+    private record IdSequence(String table, String sequence, int allocationSize) {
+    }
+
+    // Must match the @SequenceGenerator of each entity
+    private static final IdSequence[] SEQUENCES = {
+        new IdSequence("ai_conversations", "ai_conversations_seq", 50)
+    };
+
+    private final DataSource dataSource;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        alignSequences();
+    }
+
+    public void alignSequences() {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            if (!"PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())) {
+                return;
+            }
+            connection.setAutoCommit(true);
+            for (IdSequence id : SEQUENCES) {
+                statement.execute("CREATE SEQUENCE IF NOT EXISTS " + id.sequence() +
+                        " START WITH 1 INCREMENT BY " + id.allocationSize());
+                long maxId = queryLong(connection, "SELECT COALESCE(MAX(id), 0) FROM " + id.table());
+                long next = nextValue(connection, id.sequence());
+                // Hibernate's pooled optimizer hands out the allocationSize ids up to the value nextval returns
+                long needed = maxId + id.allocationSize();
+                if (next < needed) {
+                    statement.execute("SELECT setval('" + id.sequence() + "', " + needed + ", false)");
+                    log.info("Moved {} from {} to {}, past the ids in {}", id.sequence(), next, needed, id.table());
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to align id sequences", e);
+        }
+    }
+
+    private static long nextValue(Connection connection, String sequence) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement("SELECT COALESCE(last_value + increment_by, " +
+                "start_value) FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = ?")) {
+            query.setString(1, sequence);
+            try (ResultSet rs = query.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 1;
+            }
+        }
+    }
+
+    private static long queryLong(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.cogniclass.backend.service;
+
+import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+
+import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.metrics.Counter;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Issues and verifies HS256 tokens. The signing key and the parser are built once
+ * and shared by every request; the parser is immutable and thread-safe.
+ * <p>
+ * Access tokens are short-lived and carry everything needed to rebuild the
+ * principal, so verifying one never touches the database. Refresh tokens rotate:
+ * each can be used once, and presenting a used one revokes its whole family
+ * (the chain of tokens descended from one login), which cuts off whoever stole
+ * it. Refresh state lives in memory, so a restart logs everyone out once their
+ * access token expires.
+ */
+@Slf4j
+@Service
+public class JwtService {
+
+    private static final String TYPE = "typ";
+    private static final String ACCESS = "access";
+    private static final String REFRESH = "refresh";
+    private static final String FAMILY = "fam";
+    private static final int PURGE_EVERY = 1024;
+
+    private final Key signingKey;
+    private final JwtParser parser;
+    private final String issuer;
+    private final Duration accessTokenTtl;
+    private final Duration refreshTokenTtl;
+
+    private final ConcurrentMap<String, RefreshState> activeRefreshTokens = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Instant> revokedFamilies = new ConcurrentHashMap<>();
+    private final AtomicInteger issuedSincePurge = new AtomicInteger();
+
+    private final Counter valid;
+    private final Counter expired;
+    private final Counter invalid;
+    private final Counter rotated;
+    private final Counter reused;
+
+    public JwtService(MetricsRegistry metrics,
+                      @Value("${cogniclass.jwt.secret:}") String secret,
+                      @Value("${cogniclass.jwt.issuer:cogniclass}") String issuer,
+                      @Value("${cogniclass.jwt.access-token-ttl:15m}") Duration accessTokenTtl,
+                      @Value("${cogniclass.jwt.refresh-token-ttl:14d}") Duration refreshTokenTtl) {
+        if (secret == null || secret.isBlank()) {
+            log.warn("cogniclass.jwt.secret is not set, using a random key: tokens will not survive a restart");
+            this.signingKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        } else {
+            this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        }
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .requireIssuer(issuer)
+                .setAllowedClockSkewSeconds(30)
+                .build();
+        this.issuer = issuer;
+        this.accessTokenTtl = accessTokenTtl;
+        this.refreshTokenTtl = refreshTokenTtl;
+        this.valid = metrics.counter("jwt_verifications_total", "result", "valid");
+        this.expired = metrics.counter("jwt_verifications_total", "result", "expired");
+        this.invalid = metrics.counter("jwt_verifications_total", "result", "invalid");
+        this.rotated = metrics.counter("jwt_refresh_total", "result", "rotated");
+        this.reused = metrics.counter("jwt_refresh_total", "result", "reused");
+        metrics.gauge("jwt_active_refresh_tokens", activeRefreshTokens::size);
+    }
+
+    public record TokenPair(String accessToken, String refreshToken, long expiresInSeconds) {
+    }
+
+    /** Starts a new refresh-token family, as on login. */
+    public TokenPair issueTokens(User user) {
+        return issueTokens(user, UUID.randomUUID().toString());
+    }
+
+    public TokenPair issueTokens(User user, String family) {
+        Instant now = Instant.now();
+        String accessToken = Jwts.builder()
+                .setIssuer(issuer)
+                .setSubject(String.valueOf(user.getId()))
+                .setIssuedAt(Date.from(now))
+                .setExpiration(Date.from(now.plus(accessTokenTtl)))
+                .claim(TYPE, ACCESS)
+                .claim("email", user.getEmail())
+                .claim("name", user.getName())
+                .claim("role", user.getRole())
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
+
+        String jti = UUID.randomUUID().toString();
+        Instant refreshExpiry = now.plus(refreshTokenTtl);
+        String refreshToken = Jwts.builder()
+                .setIssuer(issuer)
+                .setSubject(String.valueOf(user.getId()))
+                .setId(jti)
+                .setIssuedAt(Date.from(now))
+                .setExpiration(Date.from(refreshExpiry))
+                .claim(TYPE, REFRESH)
+                .claim(FAMILY, family)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
+        activeRefreshTokens.put(jti, new RefreshState(user.getId(), family, refreshExpiry));
+        if (issuedSincePurge.incrementAndGet() >= PURGE_EVERY) {
+            issuedSincePurge.set(0);
+            purgeExpired(now);
+        }
+        return new TokenPair(accessToken, refreshToken, accessTokenTtl.toSeconds());
+    }
+
+    /**
+     * Verifies an access token and rebuilds the principal from its claims.
+     * Returns null for anything that is not a valid, unexpired access token.
+     */
+    public User verifyAccessToken(String token) {
+        Claims claims;
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (ExpiredJwtException e) {
+            expired.increment();
+            return null;
+        } catch (JwtException | IllegalArgumentException e) {
+            invalid.increment();
+            return null;
+        }
+        if (!ACCESS.equals(claims.get(TYPE, String.class))) {
+            invalid.increment();
+            return null;
+        }
+        valid.increment();
+        User user = new User();
+        user.setId(Long.valueOf(claims.getSubject()));
+        user.setEmail(claims.get("email", String.class));
+        user.setName(claims.get("name", String.class));
+        user.setRole(claims.get("role", String.class));
+        user.setPassword("");
+        return user;
+    }
+
+    /**
+     * Consumes a refresh token and returns the user id and family to issue the
+     * next pair for. A token that was already used revokes its family.
+     */
+    public RefreshGrant rotateRefreshToken(String token) {
+        Claims claims = parseRefreshToken(token);
+        String family = claims.get(FAMILY, String.class);
+        if (revokedFamilies.containsKey(family)) {
+            reused.increment();
+            throw new BadCredentialsException("Refresh token has been revoked");
+        }
+        RefreshState state = activeRefreshTokens.remove(claims.getId());
+        if (state == null) {
+            reused.increment();
+            revokeFamily(family);
+            throw new BadCredentialsException("Refresh token has already been used");
+        }
+        rotated.increment();
+        return new RefreshGrant(state.userId(), family);
+    }
+
+    /** Revokes the family of the given refresh token, as on logout. Invalid tokens are ignored. */
+    public void revokeRefreshToken(String token) {
+        try {
+            Claims claims = parseRefreshToken(token);
+            revokeFamily(claims.get(FAMILY, String.class));
+        } catch (BadCredentialsException e) {
+            // nothing to revoke
+        }
+    }
+
+    public record RefreshGrant(Long userId, String family) {
+    }
+
+    private Claims parseRefreshToken(String token) {
+        Claims claims;
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new BadCredentialsException("Invalid refresh token");
+        }
+        if (!REFRESH.equals(claims.get(TYPE, String.class)) || claims.get(FAMILY, String.class) == null) {
+            throw new BadCredentialsException("Invalid refresh token");
+        }
+        return claims;
+    }
+
+    private void revokeFamily(String family) {
+        // Remembered until any token of the family would have expired anyway
+        revokedFamilies.put(family, Instant.now().plus(refreshTokenTtl));
+        activeRefreshTokens.values().removeIf(state -> state.family().equals(family));
+    }
+
+    private void purgeExpired(Instant now) {
+        activeRefreshTokens.values().removeIf(state -> state.expiresAt().isBefore(now));
+        revokedFamilies.values().removeIf(until -> until.isBefore(now));
+    }
+
+    private record RefreshState(Long userId, String family, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,114 @@
+package com.cogniclass.backend.service;
+
+import java.util.Collection;
+
+/**
+ * Immutable set of positive user ids, open-addressed over a {@code long[]} with
+ * linear probing. About 16-32 bytes per member instead of a boxed {@code Long}
+ * plus a {@code HashMap} node, and {@link #contains} never allocates.
+ * Updates return a copy, so readers need no lock.
+ */
+public final class MemberIdSet {
+
+    public static final MemberIdSet EMPTY = new MemberIdSet(new long[2], 0);
+
+    private static final long EMPTY_SLOT = 0; // ids are identity values, so never 0
+
+    private final long[] slots;
+    private final int size;
+
+    private MemberIdSet(long[] slots, int size) {
+        this.slots = slots;
+        this.size = size;
+    }
+
+    public static MemberIdSet of(Collection<Long> ids) {
+        long[] slots = new long[capacityFor(ids.size())];
+        int size = 0;
+        for (Long id : ids) {
+            if (id != null && insert(slots, id)) {
+                size++;
+            }
+        }
+        return new MemberIdSet(slots, size);
+    }
+
+    public boolean contains(long id) {
+        if (id <= 0) {
+            return false;
+        }
+        int mask = slots.length - 1;
+        for (int i = index(id, mask); ; i = (i + 1) & mask) {
+            long slot = slots[i];
+            if (slot == id) {
+                return true;
+            }
+            if (slot == EMPTY_SLOT) {
+                return false;
+            }
+        }
+    }
+
+    public MemberIdSet with(long id) {
+        if (contains(id) || id <= 0) {
+            return this;
+        }
+        long[] copy = slots.length >= capacityFor(size + 1) ? slots.clone() : rehash(capacityFor(size + 1));
+        insert(copy, id);
+        return new MemberIdSet(copy, size + 1);
+    }
+
+    public MemberIdSet without(long id) {
+        if (!contains(id)) {
+            return this;
+        }
+        // Rebuild rather than patch the probe chain with tombstones; leaving is rare
+        long[] copy = new long[capacityFor(size - 1)];
+        for (long slot : slots) {
+            if (slot != EMPTY_SLOT && slot != id) {
+                insert(copy, slot);
+            }
+        }
+        return new MemberIdSet(copy, size - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private long[] rehash(int capacity) {
+        long[] copy = new long[capacity];
+        for (long slot : slots) {
+            if (slot != EMPTY_SLOT) {
+                insert(copy, slot);
+            }
+        }
+        return copy;
+    }
+
+    private static boolean insert(long[] slots, long id) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Member ids must be positive: " + id);
+        }
+        int mask = slots.length - 1;
+        for (int i = index(id, mask); ; i = (i + 1) & mask) {
+            if (slots[i] == id) {
+                return false;
+            }
+            if (slots[i] == EMPTY_SLOT) {
+                slots[i] = id;
+                return true;
+            }
+        }
+    }
+
+    // Load factor at most 1/2 keeps probe chains short
+    private static int capacityFor(int size) {
+        return Math.max(2, Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1);
+    }
+
+    private static int index(long id, int mask) {
+        long h = id * 0x9E3779B97F4A7C15L; // Fibonacci hashing spreads sequential ids
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,191 @@
+package com.cogniclass.backend.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.cogniclass.backend.metrics.Counter;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.repository.StudyGroupRepository;
+
+/**
+ * Group membership checks against an in-memory group → {@link MemberIdSet}
+ * index, so authorizing a chat or tutor call is a hash probe instead of
+ * loading {@code StudyGroup.members}. Groups are loaded on first use (one
+ * query for their member ids) and kept in a bounded LRU with a TTL.
+ * <p>
+ * Joins and leaves write {@code group_members} directly and patch the cached
+ * set once the transaction commits. Another instance's changes become visible
+ * here when the entry expires.
+ */
+@Service
+public class MembershipService {
+
+    private final StudyGroupRepository studyGroupRepository;
+    private final GroupActivityService groupActivityService;
+    private final int maxGroups;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Long, Entry> byGroup = new LinkedHashMap<>(16, 0.75f, true);
+    private long modifications; // guarded by lock
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    @Autowired
+    public MembershipService(StudyGroupRepository studyGroupRepository,
+                             GroupActivityService groupActivityService,
+                             MetricsRegistry metrics,
+                             @Value("${cogniclass.membership.cache.max-groups:10000}") int maxGroups,
+                             @Value("${cogniclass.membership.cache.ttl:10m}") Duration ttl) {
+        this(studyGroupRepository, groupActivityService, metrics, maxGroups, ttl, System::nanoTime);
+    }
+
+    MembershipService(StudyGroupRepository studyGroupRepository, GroupActivityService groupActivityService,
+                      MetricsRegistry metrics, int maxGroups, Duration ttl, LongSupplier clock) {
+        this.studyGroupRepository = studyGroupRepository;
+        this.groupActivityService = groupActivityService;
+        this.maxGroups = maxGroups;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.hits = metrics.counter("membership_cache_requests_total", "result", "hit");
+        this.misses = metrics.counter("membership_cache_requests_total", "result", "miss");
+        this.evictions = metrics.counter("membership_cache_evictions_total");
+        metrics.gauge("membership_cache_groups", this::size);
+    }
+
+    public boolean isMember(Long groupId, Long userId) {
+        if (groupId == null || userId == null) {
+            return false;
+        }
+        return members(groupId).contains(userId);
+    }
+
+    /** Adds the member if absent; either way they are a member afterwards with nothing unread. */
+    @Transactional
+    public boolean join(Long groupId, Long userId) {
+        boolean inserted = studyGroupRepository.insertMember(groupId, userId) > 0;
+        groupActivityService.onJoin(userId, groupId);
+        update(groupId, members -> members.with(userId));
+        return inserted;
+    }
+
+    @Transactional
+    public boolean leave(Long groupId, Long userId) {
+        boolean removed = studyGroupRepository.deleteMember(groupId, userId) > 0;
+        if (removed) {
+            groupActivityService.onLeave(userId, groupId);
+        }
+        update(groupId, members -> members.without(userId));
+        return removed;
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            modifications++;
+            byGroup.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return byGroup.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    MemberIdSet members(Long groupId) {
+        long generation;
+        lock.lock();
+        try {
+            Entry entry = byGroup.get(groupId);
+            if (entry != null && clock.getAsLong() - entry.loadedAt() <= ttlNanos) {
+                hits.increment();
+                return entry.members();
+            }
+            generation = modifications;
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        MemberIdSet loaded = MemberIdSet.of(studyGroupRepository.findMemberIds(groupId));
+        lock.lock();
+        try {
+            if (generation == modifications) { // discard a load that may predate a join or leave
+                byGroup.put(groupId, new Entry(loaded, clock.getAsLong()));
+                Iterator<Map.Entry<Long, Entry>> eldest = byGroup.entrySet().iterator();
+                while (byGroup.size() > maxGroups && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                    evictions.increment();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return loaded;
+    }
+
+    // Stops in-flight loads from caching the old row set now, and patches the entry after commit
+    private void update(Long groupId, UnaryOperator<MemberIdSet> change) {
+        bump();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        apply(groupId, change);
+                    } else {
+                        bump();
+                    }
+                }
+            });
+        } else {
+            apply(groupId, change);
+        }
+    }
+
+    private void apply(Long groupId, UnaryOperator<MemberIdSet> change) {
+        lock.lock();
+        try {
+            modifications++;
+            Entry entry = byGroup.get(groupId);
+            if (entry != null) {
+                byGroup.put(groupId, new Entry(change.apply(entry.members()), entry.loadedAt()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void bump() {
+        lock.lock();
+        try {
+            modifications++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Entry(MemberIdSet members, long loadedAt) {
+    }
+}
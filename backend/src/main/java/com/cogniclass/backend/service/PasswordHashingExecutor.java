@@ -0,0 +1,116 @@
+package com.cogniclass.backend.service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.cogniclass.backend.metrics.Counter;
+import com.cogniclass.backend.metrics.Histogram;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+/**
+ * Runs password hashing (login and registration) on a small dedicated pool so
+ * that a login storm can occupy at most {@code threads} cores. Work beyond the
+ * pool waits in a bounded queue; once that is full, callers are rejected
+ * immediately with {@link HashingCapacityExceededException} and the API answers
+ * 429 instead of piling up threads behind BCrypt.
+ */
+@Component
+public class PasswordHashingExecutor implements DisposableBean {
+
+    private final ThreadPoolExecutor executor;
+    private final Duration waitTimeout;
+
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter timedOut;
+    private final Histogram duration;
+
+    public PasswordHashingExecutor(MetricsRegistry metrics,
+                                   @Value("${cogniclass.security.hashing.threads:0}") int threads,
+                                   @Value("${cogniclass.security.hashing.queue-capacity:64}") int queueCapacity,
+                                   @Value("${cogniclass.security.hashing.wait-timeout:10s}") Duration waitTimeout) {
+        // Default: half the cores, so hashing can never starve chat and API traffic
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.waitTimeout = waitTimeout;
+        this.accepted = metrics.counter("password_hashing_tasks_total", "result", "accepted");
+        this.rejected = metrics.counter("password_hashing_tasks_total", "result", "rejected");
+        this.timedOut = metrics.counter("password_hashing_tasks_total", "result", "timed_out");
+        this.duration = metrics.histogram("password_hashing_seconds");
+        metrics.gauge("password_hashing_queue_depth", () -> executor.getQueue().size());
+        metrics.gauge("password_hashing_active", executor::getActiveCount);
+    }
+
+    /**
+     * Runs the task on the hashing pool and waits for its result. Exceptions
+     * thrown by the task reach the caller unchanged.
+     */
+    public <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    duration.recordNanos(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new HashingCapacityExceededException();
+        }
+        accepted.increment();
+        try {
+            return future.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.increment();
+            throw new HashingCapacityExceededException();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HashingCapacityExceededException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    public static class HashingCapacityExceededException extends RuntimeException {
+        public HashingCapacityExceededException() {
+            super("Too many login attempts in progress, please retry shortly");
+        }
+    }
+}
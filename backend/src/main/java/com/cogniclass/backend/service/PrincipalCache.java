@@ -0,0 +1,208 @@
+package com.cogniclass.backend.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.metrics.Counter;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+/**
+ * Bounded, TTL-based cache of authenticated principals in front of
+ * {@code UserRepository.findByEmail} and {@code findById}.
+ * <p>
+ * Entries are detached copies, so a caller mutating the returned {@link User}
+ * never changes what the next request sees. Misses are not cached. Updates and
+ * deletes go through {@link UserService}, which invalidates the user; a load
+ * that races with an invalidation is discarded rather than cached.
+ */
+@Component
+public class PrincipalCache {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Long, Entry> byId = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Long> idByEmail = new HashMap<>();
+    private long invalidations; // guarded by lock
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter invalidationCount;
+
+    @Autowired
+    public PrincipalCache(MetricsRegistry metrics,
+                          @Value("${cogniclass.auth.principal-cache.enabled:true}") boolean enabled,
+                          @Value("${cogniclass.auth.principal-cache.max-entries:10000}") int maxEntries,
+                          @Value("${cogniclass.auth.principal-cache.ttl:5m}") Duration ttl) {
+        this(metrics, enabled, maxEntries, ttl, System::nanoTime);
+    }
+
+    PrincipalCache(MetricsRegistry metrics, boolean enabled, int maxEntries, Duration ttl, LongSupplier clock) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.hits = metrics.counter("principal_cache_requests_total", "result", "hit");
+        this.misses = metrics.counter("principal_cache_requests_total", "result", "miss");
+        this.evictions = metrics.counter("principal_cache_evictions_total");
+        this.invalidationCount = metrics.counter("principal_cache_invalidations_total");
+        metrics.gauge("principal_cache_entries", this::size);
+    }
+
+    public Optional<User> getByEmail(String email, Function<String, Optional<User>> loader) {
+        if (!enabled || email == null) {
+            return loader.apply(email);
+        }
+        long generation;
+        lock.lock();
+        try {
+            Long id = idByEmail.get(email);
+            User cached = id == null ? null : fresh(id);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(copyOf(cached));
+            }
+            generation = invalidations;
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        Optional<User> loaded = loader.apply(email);
+        loaded.ifPresent(user -> put(user, generation));
+        return loaded.map(PrincipalCache::copyOf);
+    }
+
+    public Optional<User> getById(Long id, Function<Long, Optional<User>> loader) {
+        if (!enabled || id == null) {
+            return loader.apply(id);
+        }
+        long generation;
+        lock.lock();
+        try {
+            User cached = fresh(id);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(copyOf(cached));
+            }
+            generation = invalidations;
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        Optional<User> loaded = loader.apply(id);
+        loaded.ifPresent(user -> put(user, generation));
+        return loaded.map(PrincipalCache::copyOf);
+    }
+
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            invalidations++;
+            remove(userId);
+        } finally {
+            lock.unlock();
+        }
+        invalidationCount.increment();
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            invalidations++;
+            byId.clear();
+            idByEmail.clear();
+        } finally {
+            lock.unlock();
+        }
+        invalidationCount.increment();
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(User user, long generation) {
+        if (user.getId() == null) {
+            return;
+        }
+        User copy = copyOf(user);
+        lock.lock();
+        try {
+            if (generation != invalidations) {
+                return; // the user may have changed while we were loading it
+            }
+            remove(copy.getId());
+            byId.put(copy.getId(), new Entry(copy, clock.getAsLong()));
+            idByEmail.put(copy.getEmail(), copy.getId());
+            Iterator<Map.Entry<Long, Entry>> eldest = byId.entrySet().iterator();
+            while (byId.size() > maxEntries && eldest.hasNext()) {
+                Map.Entry<Long, Entry> victim = eldest.next();
+                eldest.remove();
+                idByEmail.remove(victim.getValue().user().getEmail(), victim.getKey());
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the lock
+    private User fresh(Long id) {
+        Entry entry = byId.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (clock.getAsLong() - entry.loadedAt() > ttlNanos) {
+            remove(id);
+            return null;
+        }
+        return entry.user();
+    }
+
+    // Caller holds the lock
+    private void remove(Long id) {
+        Entry removed = byId.remove(id);
+        if (removed != null) {
+            idByEmail.remove(removed.user().getEmail(), id);
+        }
+    }
+
+    static User copyOf(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setEmail(user.getEmail());
+        copy.setPassword(user.getPassword());
+        copy.setName(user.getName());
+        copy.setRole(user.getRole());
+        copy.setCreatedAt(user.getCreatedAt());
+        copy.setEnabled(user.isEnabled());
+        return copy;
+    }
+
+    private record Entry(User user, long loadedAt) {
+    }
+}
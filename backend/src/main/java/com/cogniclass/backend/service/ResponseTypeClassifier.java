@@ -0,0 +1,243 @@
+package com.cogniclass.backend.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Labels a tutor answer as an example, hint, question or plain explanation
+ * in one pass over its characters, without allocating. Keywords of all types
+ * are compiled into a single Aho-Corasick automaton over lower-cased chars;
+ * every occurrence adds its weight to its type. The answer also counts as a
+ * question when it asks at least {@code question-min-marks} questions
+ * (question marks followed by more text, as {@code split("\\?")} counted).
+ * <p>
+ * The highest score wins. Ties go to the earlier of EXAMPLE, HINT, QUESTION,
+ * EXPLANATION, and an answer that scores nothing is an EXPLANATION.
+ */
+@Component
+public class ResponseTypeClassifier {
+
+    /** Declaration order is the tie-break order. */
+    public enum Type { EXAMPLE, HINT, QUESTION, EXPLANATION }
+
+    static final String DEFAULT_EXAMPLE_KEYWORDS = "example=1,for instance=1";
+    static final String DEFAULT_HINT_KEYWORDS = "hint=1,try thinking=1";
+
+    private static final int TYPES = Type.values().length;
+    private static final int ASCII = 128;
+
+    private final int alphabetSize;
+    private final int[] asciiSymbol;   // char -> symbol for ASCII, case folded; 0 when no keyword uses the char
+    private final char[] otherChars;   // sorted non-ASCII keyword chars; symbol = ASCII-range count + index + 1
+    private final int otherBase;
+    private final int[] transitions;   // row + symbol -> next row (state * alphabetSize), failure links folded in
+    private final boolean[] matches;   // by row: some keyword ends here
+    private final int[] rowState;      // by row: state, to find its weights
+    private final double[] weights;    // state * TYPES + type -> weight of every keyword ending here
+    private final int questionMinMarks;
+    private final double questionWeight;
+
+    @Autowired
+    public ResponseTypeClassifier(
+            @Value("${cogniclass.ai.response-type.example-keywords:" + DEFAULT_EXAMPLE_KEYWORDS + "}") String exampleKeywords,
+            @Value("${cogniclass.ai.response-type.hint-keywords:" + DEFAULT_HINT_KEYWORDS + "}") String hintKeywords,
+            @Value("${cogniclass.ai.response-type.question-keywords:}") String questionKeywords,
+            @Value("${cogniclass.ai.response-type.explanation-keywords:}") String explanationKeywords,
+            @Value("${cogniclass.ai.response-type.question-min-marks:2}") int questionMinMarks,
+            @Value("${cogniclass.ai.response-type.question-weight:1}") double questionWeight) {
+        this(keywords(Map.of(
+                Type.EXAMPLE, exampleKeywords,
+                Type.HINT, hintKeywords,
+                Type.QUESTION, questionKeywords,
+                Type.EXPLANATION, explanationKeywords)), questionMinMarks, questionWeight);
+    }
+
+    public ResponseTypeClassifier(Map<Type, Map<String, Double>> keywords, int questionMinMarks, double questionWeight) {
+        this.questionMinMarks = questionMinMarks;
+        this.questionWeight = questionWeight;
+
+        TreeSet<Character> chars = new TreeSet<>();
+        keywords.values().forEach(set -> set.keySet().forEach(k -> k.chars().forEach(c -> chars.add(fold((char) c)))));
+        asciiSymbol = new int[ASCII];
+        List<Character> other = new ArrayList<>();
+        int symbols = 0;
+        for (char c : chars) {
+            if (c < ASCII) {
+                asciiSymbol[c] = ++symbols;
+            } else {
+                other.add(c);
+            }
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            asciiSymbol[c] = asciiSymbol[fold(c)];
+        }
+        otherBase = symbols;
+        otherChars = new char[other.size()];
+        for (int i = 0; i < otherChars.length; i++) {
+            otherChars[i] = other.get(i);
+        }
+        alphabetSize = symbols + otherChars.length + 1;
+
+        // Trie
+        List<int[]> children = new ArrayList<>();
+        List<double[]> output = new ArrayList<>();
+        children.add(newRow());
+        output.add(new double[TYPES]);
+        keywords.forEach((type, set) -> set.forEach((keyword, weight) -> {
+            if (keyword.isEmpty()) {
+                return;
+            }
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int symbol = symbol(keyword.charAt(i));
+                if (children.get(state)[symbol] < 0) {
+                    children.get(state)[symbol] = children.size();
+                    children.add(newRow());
+                    output.add(new double[TYPES]);
+                }
+                state = children.get(state)[symbol];
+            }
+            output.get(state)[type.ordinal()] += weight;
+        }));
+
+        // Failure links, breadth first, folded into a complete transition table
+        int states = children.size();
+        transitions = new int[states * alphabetSize];
+        weights = new double[states * TYPES];
+        matches = new boolean[transitions.length];
+        rowState = new int[transitions.length];
+        int[] failure = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < alphabetSize; symbol++) {
+            int child = children.get(0)[symbol];
+            transitions[symbol] = Math.max(child, 0) * alphabetSize;
+            if (child > 0) {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            double[] own = output.get(state);
+            int row = state * alphabetSize;
+            rowState[row] = state;
+            for (int type = 0; type < TYPES; type++) {
+                weights[state * TYPES + type] = own[type] + weights[failure[state] * TYPES + type];
+                matches[row] |= weights[state * TYPES + type] != 0;
+            }
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                int child = children.get(state)[symbol];
+                int fallback = transitions[failure[state] * alphabetSize + symbol];
+                if (child > 0) {
+                    failure[child] = fallback / alphabetSize;
+                    transitions[row + symbol] = child * alphabetSize;
+                    queue.add(child);
+                } else {
+                    transitions[row + symbol] = fallback;
+                }
+            }
+        }
+    }
+
+    /** The keyword sets the previous contains()-based rules used. */
+    public static ResponseTypeClassifier defaults() {
+        return new ResponseTypeClassifier(DEFAULT_EXAMPLE_KEYWORDS, DEFAULT_HINT_KEYWORDS, "", "", 2, 1);
+    }
+
+    public Type classify(CharSequence content) {
+        if (content == null) {
+            return Type.EXPLANATION;
+        }
+        double example = 0;
+        double hint = 0;
+        double question = 0;
+        double explanation = 0;
+        int asked = 0;
+        int pendingMarks = 0;
+        int row = 0;
+        for (int i = 0, n = content.length(); i < n; i++) {
+            char c = content.charAt(i);
+            if (c == '?') {
+                pendingMarks++;
+            } else if (pendingMarks > 0) {
+                asked += pendingMarks;
+                pendingMarks = 0;
+            }
+            row = transitions[row + symbol(c)];
+            if (matches[row]) {
+                int base = rowState[row] * TYPES;
+                example += weights[base];
+                hint += weights[base + 1];
+                question += weights[base + 2];
+                explanation += weights[base + 3];
+            }
+        }
+        if (asked >= questionMinMarks) {
+            question += questionWeight;
+        }
+
+        Type best = Type.EXPLANATION;
+        double bestScore = Math.max(explanation, 0);
+        if (question > bestScore || (question == bestScore && question > 0)) {
+            best = Type.QUESTION;
+            bestScore = question;
+        }
+        if (hint > bestScore || (hint == bestScore && hint > 0)) {
+            best = Type.HINT;
+            bestScore = hint;
+        }
+        if (example > bestScore || (example == bestScore && example > 0)) {
+            best = Type.EXAMPLE;
+        }
+        return best;
+    }
+
+    /** Parses {@code "phrase=weight,phrase=weight"}; a phrase without a weight weighs 1. */
+    static Map<Type, Map<String, Double>> keywords(Map<Type, String> specs) {
+        Map<Type, Map<String, Double>> keywords = new EnumMap<>(Type.class);
+        specs.forEach((type, spec) -> {
+            Map<String, Double> set = new LinkedHashMap<>();
+            for (String entry : spec.split(",")) {
+                if (entry.isBlank()) {
+                    continue;
+                }
+                int eq = entry.lastIndexOf('=');
+                String phrase = (eq < 0 ? entry : entry.substring(0, eq)).strip();
+                double weight = eq < 0 ? 1 : Double.parseDouble(entry.substring(eq + 1).strip());
+                if (weight <= 0 || phrase.isEmpty()) {
+                    throw new IllegalArgumentException("Bad " + type + " keyword '" + entry + "'");
+                }
+                set.merge(phrase, weight, Double::sum);
+            }
+            keywords.put(type, set);
+        });
+        return keywords;
+    }
+
+    private int[] newRow() {
+        int[] row = new int[alphabetSize];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private int symbol(char c) {
+        if (c < ASCII) {
+            return asciiSymbol[c];
+        }
+        int index = Arrays.binarySearch(otherChars, Character.toLowerCase(c));
+        return index < 0 ? 0 : otherBase + index + 1;
+    }
+
+    private static char fold(char c) {
+        return c < ASCII ? (c >= 'A' && c <= 'Z' ? (char) (c + 32) : c) : Character.toLowerCase(c);
+    }
+}
@@ -0,0 +1,38 @@
+package com.cogniclass.backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.cogniclass.backend.dto.SearchHit;
+
+/**
+ * Opaque keyset cursor over (rank, id), both descending. Ranks are compared as
+ * the exact float the database returned, so ties resume at the right id.
+ */
+public record SearchCursor(float rank, long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public static SearchCursor of(SearchHit hit) {
+        return new SearchCursor(hit.getRank(), hit.getId());
+    }
+
+    public String encode() {
+        String raw = Float.toString(rank) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new SearchCursor(Float.parseFloat(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.cogniclass.backend.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Adds the full-text search columns and indexes that Hibernate's schema update
+ * cannot express, on PostgreSQL only. {@code search_vector} is a stored
+ * generated column, so PostgreSQL keeps it current on every insert and update
+ * and no application code maintains it. Every statement is idempotent.
+ * <p>
+ * Adding a generated column rewrites the table once. On a large existing
+ * table, run these statements in a maintenance window and start the
+ * application with {@code cogniclass.search.manage-schema=false}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SearchIndexInitializer implements ApplicationRunner {
+
+    static final String[] POSTGRES_DDL = {
+        "ALTER TABLE chat_messages ADD COLUMN IF NOT EXISTS search_vector tsvector " +
+            "GENERATED ALWAYS AS (to_tsvector('english', coalesce(content, ''))) STORED",
+        "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_chat_messages_search ON chat_messages USING GIN (search_vector)",
+        // Questions weigh more than answers when ranking
+        "ALTER TABLE ai_conversations ADD COLUMN IF NOT EXISTS search_vector tsvector " +
+            "GENERATED ALWAYS AS (setweight(to_tsvector('english', coalesce(user_message, '')), 'A') || " +
+            "setweight(to_tsvector('english', coalesce(ai_response, '')), 'B')) STORED",
+        "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_ai_conversations_search ON ai_conversations USING GIN (search_vector)"
+    };
+
+    private final DataSource dataSource;
+
+    @Value("${cogniclass.search.manage-schema:true}")
+    private boolean manageSchema;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (manageSchema) {
+            ensureSearchIndexes();
+        }
+    }
+
+    public void ensureSearchIndexes() {
+        // Autocommit: CREATE INDEX CONCURRENTLY refuses to run inside a transaction
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            if (!"PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())) {
+                log.info("Full-text search indexes need PostgreSQL; search falls back to substring matching");
+                return;
+            }
+            connection.setAutoCommit(true);
+            boolean partitioned = ChatPartitionManager.isPartitioned(connection);
+            for (String ddl : POSTGRES_DDL) {
+                // A partitioned table cannot be indexed CONCURRENTLY; this builds the index on every partition
+                boolean concurrently = !(partitioned && ddl.contains(" ON chat_messages "));
+                statement.execute(concurrently ? ddl : ddl.replace(" CONCURRENTLY", ""));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to create full-text search indexes", e);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.cogniclass.backend.service;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Locale;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cogniclass.backend.dto.SearchHit;
+import com.cogniclass.backend.dto.SearchResultPage;
+import com.cogniclass.backend.metrics.Histogram;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+/**
+ * Ranked full-text search over group chat messages and the caller's own AI
+ * tutor exchanges.
+ * <p>
+ * On PostgreSQL the query is parsed with {@code websearch_to_tsquery} (quoted
+ * phrases, {@code or}, {@code -term}), matched against the GIN-indexed
+ * {@code search_vector} columns from {@link SearchIndexInitializer}, ranked with
+ * {@code ts_rank_cd} and paged by a (rank, id) keyset cursor. Snippets are
+ * built only for the rows of the page. Chat results are limited to groups the
+ * caller belongs to.
+ * <p>
+ * Chat search covers only the hot tier: messages sent since
+ * {@link ChatArchive#hotSince()}. Months moved to the archive are compressed
+ * files without a text index and are not searched. The same bound keeps
+ * results consistent while a month is being archived, when its rows briefly
+ * exist in both tiers, and lets PostgreSQL skip the partitions of older months.
+ * Other databases (H2 in tests) get a case-insensitive
+ * substring match with every rank 0, which keeps the API usable but scans.
+ */
+@Service
+public class SearchService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_QUERY_LENGTH = 200;
+    private static final int FALLBACK_SNIPPET_CHARS = 200;
+
+    private static final String HEADLINE_OPTIONS = "'MaxWords=30, MinWords=10, MaxFragments=2, FragmentDelimiter=\" … \"'";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final ChatArchive chatArchive;
+    private final boolean postgres;
+    private final Histogram messageLatency;
+    private final Histogram conversationLatency;
+
+    @Autowired
+    public SearchService(DataSource dataSource, ChatArchive chatArchive, MetricsRegistry metrics) {
+        this.jdbc = new NamedParameterJdbcTemplate(dataSource);
+        this.chatArchive = chatArchive;
+        this.postgres = isPostgres(dataSource);
+        this.messageLatency = metrics.histogram("search_query_seconds", "index", "chat_messages");
+        this.conversationLatency = metrics.histogram("search_query_seconds", "index", "ai_conversations");
+    }
+
+    @Transactional(readOnly = true)
+    public SearchResultPage searchMessages(Long userId, String query, Long groupId, String cursor, Integer limit) {
+        MapSqlParameterSource params = params(userId, query, groupId, cursor, limit)
+                .addValue("hotSince", Timestamp.valueOf(chatArchive.hotSince()));
+        String scope = "m.sent_at >= :hotSince" +
+                " AND m.group_id IN (SELECT gm.group_id FROM group_members gm WHERE gm.user_id = :userId)" +
+                (groupId != null ? " AND m.group_id = :groupId" : "");
+        String sql;
+        if (postgres) {
+            sql = "SELECT h.id, h.group_id, h.user_id AS sender_id, u.name AS sender_name, h.sent_at AS created_at, h.rank, " +
+                  "ts_headline('english', h.content, h.query, " + HEADLINE_OPTIONS + ") AS snippet " +
+                  "FROM (SELECT m.id, m.group_id, m.user_id, m.sent_at, m.content, q.query, " +
+                  "             ts_rank_cd(m.search_vector, q.query) AS rank " +
+                  "      FROM chat_messages m CROSS JOIN websearch_to_tsquery('english', :query) AS q(query) " +
+                  "      WHERE m.search_vector @@ q.query AND " + scope +
+                  (params.hasValue("cursorRank") ? " AND (ts_rank_cd(m.search_vector, q.query), m.id) < (:cursorRank, :cursorId)" : "") +
+                  "      ORDER BY rank DESC, m.id DESC LIMIT :fetch) h " +
+                  "LEFT JOIN users u ON u.id = h.user_id " +
+                  "ORDER BY h.rank DESC, h.id DESC";
+        } else {
+            sql = "SELECT m.id, m.group_id, m.user_id AS sender_id, u.name AS sender_name, m.sent_at AS created_at, " +
+                  "CAST(0 AS REAL) AS rank, m.content AS snippet " +
+                  "FROM chat_messages m LEFT JOIN users u ON u.id = m.user_id " +
+                  "WHERE LOWER(m.content) LIKE :pattern AND " + scope +
+                  (params.hasValue("cursorRank") ? " AND m.id < :cursorId" : "") +
+                  " ORDER BY m.id DESC LIMIT :fetch";
+        }
+        return page(sql, params, true, messageLatency);
+    }
+
+    @Transactional(readOnly = true)
+    public SearchResultPage searchConversations(Long userId, String query, Long groupId, String cursor, Integer limit) {
+        MapSqlParameterSource params = params(userId, query, groupId, cursor, limit);
+        String scope = "c.user_id = :userId" + (groupId != null ? " AND c.group_id = :groupId" : "");
+        String sql;
+        if (postgres) {
+            sql = "SELECT h.id, h.group_id, NULL AS sender_id, NULL AS sender_name, h.created_at, h.rank, " +
+                  "ts_headline('english', h.document, h.query, " + HEADLINE_OPTIONS + ") AS snippet " +
+                  "FROM (SELECT c.id, c.group_id, c.created_at, q.query, " +
+                  "             coalesce(c.user_message, '') || ' — ' || coalesce(c.ai_response, '') AS document, " +
+                  "             ts_rank_cd(c.search_vector, q.query) AS rank " +
+                  "      FROM ai_conversations c CROSS JOIN websearch_to_tsquery('english', :query) AS q(query) " +
+                  "      WHERE c.search_vector @@ q.query AND " + scope +
+                  (params.hasValue("cursorRank") ? " AND (ts_rank_cd(c.search_vector, q.query), c.id) < (:cursorRank, :cursorId)" : "") +
+                  "      ORDER BY rank DESC, c.id DESC LIMIT :fetch) h " +
+                  "ORDER BY h.rank DESC, h.id DESC";
+        } else {
+            sql = "SELECT c.id, c.group_id, NULL AS sender_id, NULL AS sender_name, c.created_at, " +
+                  "CAST(0 AS REAL) AS rank, COALESCE(c.user_message, '') || ' — ' || COALESCE(c.ai_response, '') AS snippet " +
+                  "FROM ai_conversations c " +
+                  "WHERE (LOWER(c.user_message) LIKE :pattern OR LOWER(c.ai_response) LIKE :pattern) AND " + scope +
+                  (params.hasValue("cursorRank") ? " AND c.id < :cursorId" : "") +
+                  " ORDER BY c.id DESC LIMIT :fetch";
+        }
+        return page(sql, params, false, conversationLatency);
+    }
+
+    private MapSqlParameterSource params(Long userId, String query, Long groupId, String cursor, Integer limit) {
+        String trimmed = query == null ? "" : query.strip();
+        if (trimmed.length() < 2) {
+            throw new IllegalArgumentException("Search query must be at least 2 characters");
+        }
+        if (trimmed.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Search query must be at most " + MAX_QUERY_LENGTH + " characters");
+        }
+        int size = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("groupId", groupId)
+                .addValue("query", trimmed)
+                .addValue("pattern", "%" + escapeLike(trimmed.toLowerCase(Locale.ROOT)) + "%")
+                .addValue("limit", size)
+                .addValue("fetch", size + 1); // one extra row tells whether another page follows
+        if (cursor != null && !cursor.isBlank()) {
+            SearchCursor decoded = SearchCursor.decode(cursor);
+            params.addValue("cursorRank", decoded.rank()).addValue("cursorId", decoded.id());
+        }
+        return params;
+    }
+
+    private SearchResultPage page(String sql, MapSqlParameterSource params, boolean withSender, Histogram latency) {
+        long start = System.nanoTime();
+        List<SearchHit> hits = jdbc.query(sql, params, hitMapper(withSender));
+        latency.recordNanos(System.nanoTime() - start);
+        int size = (int) params.getValue("limit");
+        boolean hasMore = hits.size() > size;
+        if (hasMore) {
+            hits = hits.subList(0, size);
+        }
+        String nextCursor = hasMore ? SearchCursor.of(hits.get(hits.size() - 1)).encode() : null;
+        return new SearchResultPage(hits, nextCursor, hasMore);
+    }
+
+    private RowMapper<SearchHit> hitMapper(boolean withSender) {
+        return (ResultSet rs, int row) -> {
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            String snippet = rs.getString("snippet");
+            if (!postgres && snippet != null && snippet.length() > FALLBACK_SNIPPET_CHARS) {
+                snippet = snippet.substring(0, FALLBACK_SNIPPET_CHARS) + " …";
+            }
+            return new SearchHit(
+                    rs.getLong("id"),
+                    rs.getObject("group_id", Long.class),
+                    withSender ? rs.getObject("sender_id", Long.class) : null,
+                    withSender ? rs.getString("sender_name") : null,
+                    snippet,
+                    createdAt == null ? null : createdAt.toLocalDateTime(),
+                    rs.getFloat("rank"));
+        };
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static boolean isPostgres(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not determine the database product", e);
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.cogniclass.backend.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Builds large synthetic datasets for benchmarking. Rows are streamed straight
+ * to the database, bypassing JPA: through {@code COPY ... FROM STDIN} on
+ * PostgreSQL, or JDBC batch inserts elsewhere (e.g. H2 in benchmarks).
+ * <p>
+ * Group sizes follow a power law (group {@code r} gets about
+ * {@code users * 0.25 / r^skew} members), so a few groups are huge and most
+ * are small, as in production.
+ * <p>
+ * Replaces all data in the database, so it only exists when
+ * {@code cogniclass.synthetic-data.enabled=true}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "cogniclass.synthetic-data.enabled", havingValue = "true")
+public class SyntheticDataGenerator {
+
+    private static final int BATCH_SIZE = 1_000;
+    private static final int COPY_BUFFER_BYTES = 1 << 20;
+
+    private static final String[] SUBJECTS = {
+        "Mathematics", "Computer Science", "Physics", "Chemistry", "Biology", "History", "Economics", "Literature"
+    };
+    private static final String[] TOPICS = {
+        "derivatives", "integrals", "recursion", "linked lists", "thermodynamics", "organic reactions",
+        "cell division", "supply and demand", "the French revolution", "sonnets", "limits", "big-O notation"
+    };
+    private static final String[] MESSAGE_TEMPLATES = {
+        "Can someone explain %s again?",
+        "I finally get %s, the trick is to work through small examples first",
+        "Does anyone have good notes on %s?",
+        "The practice problems on %s are due Friday",
+        "Let's meet tomorrow to review %s before the quiz",
+        "I think the textbook's explanation of %s is confusing",
+        "Here is a summary of what we covered about %s today"
+    };
+
+    private final DataSource dataSource;
+    private final PasswordEncoder passwordEncoder;
+    private final DataResetService dataResetService;
+
+    // Enough for the search harness (10M messages), small enough that one request cannot fill a disk
+    static final int MAX_USERS = 1_000_000;
+    static final int MAX_GROUPS = 100_000;
+    static final int MAX_HISTORY_DAYS = 3_650;
+    static final long MAX_MESSAGES = 20_000_000;
+    static final long MAX_CONVERSATIONS = 10_000_000;
+
+    public record Spec(int users, int groups, int messagesPerGroup, int conversationsPerUser,
+                       double membershipSkew, int historyDays, long seed) {
+
+        public Spec {
+            if (users < 2 || groups < 1 || messagesPerGroup < 0 || conversationsPerUser < 0) {
+                throw new IllegalArgumentException("Need at least 2 users and 1 group");
+            }
+            if (membershipSkew <= 0 || historyDays < 1) {
+                throw new IllegalArgumentException("membershipSkew and historyDays must be positive");
+            }
+            if (users > MAX_USERS || groups > MAX_GROUPS || historyDays > MAX_HISTORY_DAYS) {
+                throw new IllegalArgumentException("At most " + MAX_USERS + " users, " + MAX_GROUPS + " groups and "
+                        + MAX_HISTORY_DAYS + " days of history");
+            }
+            if ((long) groups * messagesPerGroup > MAX_MESSAGES
+                    || (long) users * conversationsPerUser > MAX_CONVERSATIONS) {
+                throw new IllegalArgumentException("At most " + MAX_MESSAGES + " chat messages and "
+                        + MAX_CONVERSATIONS + " conversations");
+            }
+        }
+    }
+
+    public Map<String, Object> generate(Spec spec) {
+        dataResetService.truncateAll();
+        SplittableRandom random = new SplittableRandom(spec.seed());
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long started = System.nanoTime();
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            boolean postgres = isPostgres(connection);
+            LocalDateTime now = LocalDateTime.now();
+            String passwordHash = passwordEncoder.encode("password"); // one hash shared by every synthetic user
+
+            long t = System.nanoTime();
+            try (RowSink users = sink(connection, postgres, "users", "email", "password", "name", "role", "created_at", "enabled")) {
+                for (int i = 0; i < spec.users(); i++) {
+                    users.row("user" + i + "@synthetic.cogniclass.dev", passwordHash, "Synthetic User " + i,
+                            i % 50 == 0 ? "TEACHER" : "STUDENT", now.minusDays(spec.historyDays()), true);
+                }
+            }
+            connection.commit();
+            long[] userIds = ids(connection, "users", spec.users());
+            stats.put("users", userIds.length);
+            stats.put("usersMillis", millisSince(t));
+
+            // Power-law group sizes; membership of group g is drawn without replacement
+            t = System.nanoTime();
+            int[][] members = new int[spec.groups()][];
+            int[] someGroupOfUser = new int[spec.users()];
+            Arrays.fill(someGroupOfUser, -1);
+            long memberships = 0;
+            for (int g = 0; g < spec.groups(); g++) {
+                int size = (int) Math.round(spec.users() * 0.25 / Math.pow(g + 1, spec.membershipSkew()));
+                size = Math.max(2, Math.min(spec.users(), size));
+                members[g] = sampleWithoutReplacement(random, spec.users(), size);
+                for (int user : members[g]) {
+                    someGroupOfUser[user] = g;
+                }
+                memberships += size;
+            }
+
+            try (RowSink groups = sink(connection, postgres, "study_groups",
+                    "name", "description", "subject", "created_by", "created_at", "is_public")) {
+                for (int g = 0; g < spec.groups(); g++) {
+                    String subject = SUBJECTS[g % SUBJECTS.length];
+                    groups.row("Synthetic " + subject + " Group " + g, "Generated for benchmarking", subject,
+                            userIds[members[g][0]], now.minusDays(spec.historyDays()), true);
+                }
+            }
+            connection.commit();
+            long[] groupIds = ids(connection, "study_groups", spec.groups());
+
+            try (RowSink groupMembers = sink(connection, postgres, "group_members", "group_id", "user_id")) {
+                for (int g = 0; g < spec.groups(); g++) {
+                    for (int user : members[g]) {
+                        groupMembers.row(groupIds[g], userIds[user]);
+                    }
+                }
+            }
+            connection.commit();
+            stats.put("groups", groupIds.length);
+            stats.put("memberships", memberships);
+            stats.put("groupsMillis", millisSince(t));
+
+            t = System.nanoTime();
+            long historyMicros = spec.historyDays() * 86_400_000_000L;
+            LocalDateTime historyStart = now.minusDays(spec.historyDays());
+            long messages = 0;
+            try (RowSink chat = sink(connection, postgres, "chat_messages",
+                    "group_id", "user_id", "content", "sent_at", "message_type", "seq")) {
+                for (int g = 0; g < spec.groups(); g++) {
+                    long step = Math.max(1, historyMicros / Math.max(1, spec.messagesPerGroup()));
+                    for (int m = 0; m < spec.messagesPerGroup(); m++) {
+                        int sender = members[g][random.nextInt(members[g].length)];
+                        LocalDateTime sentAt = historyStart.plusNanos((m * step + random.nextLong(step)) * 1_000L);
+                        chat.row(groupIds[g], userIds[sender], message(random), sentAt, "TEXT", m + 1L);
+                        messages++;
+                    }
+                }
+            }
+            connection.commit();
+            stats.put("messages", messages);
+            stats.put("messagesMillis", millisSince(t));
+
+            t = System.nanoTime();
+            GroupActivityService.rebuild(connection); // counters and read markers for the COPY'd rows
+            connection.commit();
+            stats.put("activityMillis", millisSince(t));
+
+            t = System.nanoTime();
+            long conversations = (long) spec.users() * spec.conversationsPerUser();
+            long firstConversationId = reserveConversationIds(connection, conversations);
+            try (RowSink ai = sink(connection, postgres, "ai_conversations",
+                    "id", "user_id", "group_id", "user_message", "ai_response", "created_at", "response_type")) {
+                long id = firstConversationId;
+                for (int u = 0; u < spec.users(); u++) {
+                    Long groupId = someGroupOfUser[u] < 0 ? null : groupIds[someGroupOfUser[u]];
+                    for (int c = 0; c < spec.conversationsPerUser(); c++) {
+                        String topic = TOPICS[random.nextInt(TOPICS.length)];
+                        ai.row(id++, userIds[u], groupId, "Explain " + topic,
+                                "Here is an explanation of " + topic + " with a worked example.",
+                                historyStart.plusNanos(random.nextLong(historyMicros) * 1_000L), "EXPLANATION");
+                    }
+                }
+            }
+            connection.commit();
+            stats.put("aiConversations", conversations);
+            stats.put("aiConversationsMillis", millisSince(t));
+
+            if (postgres) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("ANALYZE");
+                }
+                connection.commit();
+            }
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Synthetic data generation failed", e);
+        }
+
+        stats.put("totalMillis", millisSince(started));
+        log.info("Generated synthetic dataset {}: {}", spec, stats);
+        return stats;
+    }
+
+    /**
+     * Claims a block of ids for COPY'd conversations and moves the sequence past
+     * it, so Hibernate's pooled allocator never hands out the same ids.
+     */
+    private long reserveConversationIds(Connection connection, long count) throws SQLException {
+        long first;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT nextval('ai_conversations_seq')")) {
+            rs.next();
+            first = rs.getLong(1) + 1;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER SEQUENCE ai_conversations_seq RESTART WITH " + (first + count + 50));
+        }
+        return first;
+    }
+
+    private static long[] ids(Connection connection, String table, int expected) throws SQLException {
+        long[] ids = new long[expected];
+        int i = 0;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT id FROM " + table + " ORDER BY id")) {
+            while (rs.next() && i < expected) {
+                ids[i++] = rs.getLong(1);
+            }
+        }
+        if (i != expected) {
+            throw new IllegalStateException("Expected " + expected + " rows in " + table + " but found " + i);
+        }
+        return ids;
+    }
+
+    // Floyd's algorithm: k distinct values from [0, n) in O(k)
+    private static int[] sampleWithoutReplacement(SplittableRandom random, int n, int k) {
+        Set<Integer> chosen = new LinkedHashSet<>(k * 2);
+        for (int j = n - k; j < n; j++) {
+            int candidate = random.nextInt(j + 1);
+            chosen.add(chosen.contains(candidate) ? j : candidate);
+        }
+        return chosen.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static String message(SplittableRandom random) {
+        return String.format(MESSAGE_TEMPLATES[random.nextInt(MESSAGE_TEMPLATES.length)], TOPICS[random.nextInt(TOPICS.length)]);
+    }
+
+    private static boolean isPostgres(Connection connection) throws SQLException {
+        return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static RowSink sink(Connection connection, boolean postgres, String table, String... columns) throws SQLException {
+        return postgres ? new CopySink(connection, table, columns) : new BatchInsertSink(connection, table, columns);
+    }
+
+    private interface RowSink extends AutoCloseable {
+        void row(Object... values) throws SQLException, IOException;
+
+        @Override
+        void close() throws SQLException, IOException;
+    }
+
+    /** Streams CSV rows into {@code COPY table FROM STDIN}, flushing every megabyte. */
+    private static final class CopySink implements RowSink {
+        private final CopyIn copyIn;
+        private final StringBuilder buffer = new StringBuilder(COPY_BUFFER_BYTES + 4096);
+
+        CopySink(Connection connection, String table, String... columns) throws SQLException {
+            String sql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)";
+            this.copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+        }
+
+        @Override
+        public void row(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                Object value = values[i];
+                if (value instanceof String text) {
+                    buffer.append('"').append(text.replace("\"", "\"\"")).append('"');
+                } else if (value != null) {
+                    buffer.append(value); // numbers, booleans and ISO-8601 timestamps
+                }
+            }
+            buffer.append('\n');
+            if (buffer.length() >= COPY_BUFFER_BYTES) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (buffer.length() > 0) {
+                flush();
+            }
+            copyIn.endCopy();
+        }
+    }
+
+    /** Portable fallback: multi-row JDBC batches of {@link #BATCH_SIZE}. */
+    private static final class BatchInsertSink implements RowSink {
+        private final PreparedStatement statement;
+        private final List<Object[]> pending = new ArrayList<>(BATCH_SIZE);
+
+        BatchInsertSink(Connection connection, String table, String... columns) throws SQLException {
+            String placeholders = String.join(", ", Collections.nCopies(columns.length, "?"));
+            this.statement = connection.prepareStatement(
+                    "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" + placeholders + ")");
+        }
+
+        @Override
+        public void row(Object... values) throws SQLException {
+            pending.add(values);
+            if (pending.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            for (Object[] values : pending) {
+                for (int i = 0; i < values.length; i++) {
+                    Object value = values[i];
+                    statement.setObject(i + 1, value instanceof LocalDateTime time ? Timestamp.valueOf(time) : value);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            pending.clear();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (!pending.isEmpty()) {
+                flush();
+            }
+            statement.close();
+        }
+    }
+}
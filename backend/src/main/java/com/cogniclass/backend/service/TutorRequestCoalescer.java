@@ -0,0 +1,120 @@
+package com.cogniclass.backend.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.cogniclass.backend.metrics.Counter;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+/**
+ * Single-flight for tutor prompts: concurrent requests with the same (context,
+ * message), up to case and whitespace, share one upstream call. The first caller runs it; the
+ * others wait for and return the same answer, or the same exception.
+ * <p>
+ * A successful answer also serves identical requests arriving up to
+ * {@code window} after it completed, which absorbs a class asking the same
+ * question within a second or two. Unlike {@link TutorResponseCache} nothing is
+ * kept beyond that, so this works with caching disabled. Failures and null
+ * results are never reused once the call is over.
+ */
+@Component
+public class TutorRequestCoalescer {
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    private final Counter leaders;
+    private final Counter followers;
+
+    public TutorRequestCoalescer(MetricsRegistry metrics,
+                                 @Value("${cogniclass.ai.coalescing.enabled:true}") boolean enabled,
+                                 @Value("${cogniclass.ai.coalescing.window:500ms}") Duration window) {
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        this.leaders = metrics.counter("ai_tutor_coalescing_requests_total", "role", "leader");
+        // every follower is an upstream call saved
+        this.followers = metrics.counter("ai_tutor_coalescing_requests_total", "role", "follower");
+        metrics.gauge("ai_tutor_coalescing_in_flight", flights::size);
+    }
+
+    /**
+     * Returns the answer for the prompt, calling {@code upstream} only if no
+     * identical call is in flight or just finished. {@code fresh} callers only
+     * join calls that are still in flight.
+     */
+    public String execute(String context, String message, boolean fresh, Supplier<String> upstream) {
+        if (!enabled) {
+            return upstream.get();
+        }
+        String key = TutorResponseCache.promptKey(context, message);
+        while (true) {
+            Flight existing = flights.get(key);
+            if (existing != null) {
+                if (existing.future.isDone() && (fresh || existing.isStale())) {
+                    flights.remove(key, existing);
+                    continue;
+                }
+                followers.increment();
+                return join(existing.future);
+            }
+            Flight mine = new Flight();
+            if (flights.putIfAbsent(key, mine) != null) {
+                continue;
+            }
+            leaders.increment();
+            return lead(key, mine, upstream);
+        }
+    }
+
+    private String lead(String key, Flight flight, Supplier<String> upstream) {
+        String result;
+        try {
+            result = upstream.get();
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.future.completeExceptionally(e);
+            throw e;
+        }
+        if (result == null || windowNanos <= 0) {
+            flights.remove(key, flight);
+        } else {
+            flight.completedAt = System.nanoTime();
+            CompletableFuture.delayedExecutor(windowNanos, TimeUnit.NANOSECONDS).execute(() -> flights.remove(key, flight));
+        }
+        flight.future.complete(result);
+        return result;
+    }
+
+    private static String join(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    int inFlight() {
+        return flights.size();
+    }
+
+    private final class Flight {
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        volatile long completedAt;
+
+        boolean isStale() {
+            return System.nanoTime() - completedAt > windowNanos;
+        }
+    }
+}
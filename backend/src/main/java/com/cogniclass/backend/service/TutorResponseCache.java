@@ -0,0 +1,340 @@
+package com.cogniclass.backend.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.cogniclass.backend.metrics.Counter;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+/**
+ * Response cache in front of the LLM call, keyed on (context, normalized message).
+ * <p>
+ * The exact tier matches after case folding and whitespace collapsing, so
+ * "Explain the chain rule" and "explain the  chain rule" share an entry. The optional near-duplicate tier estimates the Jaccard similarity of
+ * character 3-gram shingles with a 64-value MinHash signature and accepts the
+ * closest entry in the same context at or above {@code minSimilarity}.
+ * Candidates are found through 16 LSH bands of 4 rows, which surface a pair with
+ * similarity 0.75 with better than 99% probability.
+ * <p>
+ * Entries are evicted least-recently-used beyond {@code maxEntries} and ignored
+ * once older than the TTL.
+ */
+@Component
+public class TutorResponseCache {
+
+    private static final int SIGNATURE_SIZE = 64;
+    private static final int BANDS = 16;
+    private static final int ROWS = SIGNATURE_SIZE / BANDS;
+    private static final int SHINGLE = 3;
+    private static final long[] SEEDS = new long[SIGNATURE_SIZE];
+
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            SEEDS[i] = mix(seed);
+        }
+    }
+
+    // Very short prompts differ by one meaningful word ("what is 2+2" / "what is 3+3")
+    private static final int MIN_TOKENS_FOR_NEAR_MATCH = 3;
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final boolean nearDuplicateEnabled;
+    private final double minSimilarity;
+    private final LongSupplier clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, Set<String>> bandIndex = new HashMap<>();
+
+    private final Counter exactHits;
+    private final Counter nearHits;
+    private final Counter misses;
+    private final Counter bypasses;
+    private final Counter evictions;
+
+    @Autowired
+    public TutorResponseCache(MetricsRegistry metrics,
+                              @Value("${cogniclass.ai.cache.enabled:true}") boolean enabled,
+                              @Value("${cogniclass.ai.cache.max-entries:10000}") int maxEntries,
+                              @Value("${cogniclass.ai.cache.ttl:24h}") Duration ttl,
+                              @Value("${cogniclass.ai.cache.near-duplicate.enabled:false}") boolean nearDuplicateEnabled,
+                              @Value("${cogniclass.ai.cache.near-duplicate.min-similarity:0.75}") double minSimilarity) {
+        this(metrics, enabled, maxEntries, ttl, nearDuplicateEnabled, minSimilarity, System::nanoTime);
+    }
+
+    TutorResponseCache(MetricsRegistry metrics, boolean enabled, int maxEntries, Duration ttl,
+                       boolean nearDuplicateEnabled, double minSimilarity, LongSupplier clock) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.nearDuplicateEnabled = nearDuplicateEnabled;
+        this.minSimilarity = minSimilarity;
+        this.clock = clock;
+        this.exactHits = metrics.counter("ai_tutor_cache_requests_total", "result", "hit_exact");
+        this.nearHits = metrics.counter("ai_tutor_cache_requests_total", "result", "hit_near");
+        this.misses = metrics.counter("ai_tutor_cache_requests_total", "result", "miss");
+        this.bypasses = metrics.counter("ai_tutor_cache_requests_total", "result", "bypass");
+        this.evictions = metrics.counter("ai_tutor_cache_evictions_total");
+        metrics.gauge("ai_tutor_cache_entries", this::size);
+    }
+
+    /**
+     * Returns the cached answer, or null on a miss. {@code bypass} skips the
+     * lookup (it is still counted) so callers can force a fresh answer.
+     */
+    public String get(String context, String message, boolean bypass) {
+        if (!enabled) {
+            return null;
+        }
+        if (bypass) {
+            bypasses.increment();
+            return null;
+        }
+        String normalizedContext = normalize(context);
+        String normalizedMessage = normalize(message);
+        String key = key(normalizedContext, normalizedMessage);
+        long now = clock.getAsLong();
+
+        lock.lock();
+        try {
+            Entry exact = entries.get(key);
+            if (exact != null) {
+                if (!isExpired(exact, now)) {
+                    exactHits.increment();
+                    return exact.response;
+                }
+                remove(key);
+            }
+            if (nearDuplicateEnabled) {
+                String near = findNearDuplicate(normalizedContext, normalizedMessage, now);
+                if (near != null) {
+                    nearHits.increment();
+                    return near;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(String context, String message, String response) {
+        if (!enabled || response == null) {
+            return;
+        }
+        String normalizedContext = normalize(context);
+        String normalizedMessage = normalize(message);
+        String key = key(normalizedContext, normalizedMessage);
+        boolean indexed = nearDuplicateEnabled && tokenCount(normalizedMessage) >= MIN_TOKENS_FOR_NEAR_MATCH;
+        int[] signature = indexed ? minHash(normalizedMessage) : null;
+
+        lock.lock();
+        try {
+            remove(key);
+            entries.put(key, new Entry(normalizedContext, response, signature, clock.getAsLong()));
+            if (indexed) {
+                for (int band = 0; band < BANDS; band++) {
+                    bandIndex.computeIfAbsent(bandKey(normalizedContext, signature, band), k -> new HashSet<>()).add(key);
+                }
+            }
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                Map.Entry<String, Entry> victim = eldest.next();
+                eldest.remove();
+                unindex(victim.getKey(), victim.getValue());
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String findNearDuplicate(String context, String message, long now) {
+        if (tokenCount(message) < MIN_TOKENS_FOR_NEAR_MATCH) {
+            return null;
+        }
+        int[] signature = minHash(message);
+        Entry best = null;
+        double bestSimilarity = 0;
+        for (int band = 0; band < BANDS; band++) {
+            Set<String> candidates = bandIndex.get(bandKey(context, signature, band));
+            if (candidates == null) {
+                continue;
+            }
+            for (String candidateKey : candidates) {
+                Entry candidate = entries.get(candidateKey);
+                if (candidate == null || isExpired(candidate, now) || !candidate.context.equals(context)) {
+                    continue;
+                }
+                double similarity = similarity(candidate.signature, signature);
+                if (similarity >= minSimilarity && similarity > bestSimilarity) {
+                    best = candidate;
+                    bestSimilarity = similarity;
+                }
+            }
+        }
+        return best == null ? null : best.response;
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            unindex(key, removed);
+        }
+    }
+
+    private void unindex(String key, Entry entry) {
+        if (entry.signature == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            long bandKey = bandKey(entry.context, entry.signature, band);
+            Set<String> keys = bandIndex.get(bandKey);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    bandIndex.remove(bandKey);
+                }
+            }
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.createdAt > ttlNanos;
+    }
+
+    private static String key(String context, String message) {
+        return context + '\u0000' + message;
+    }
+
+    /** The exact-tier key of a raw prompt; {@link TutorRequestCoalescer} groups requests by it too. */
+    static String promptKey(String context, String message) {
+        return key(normalize(context), normalize(message));
+    }
+
+    private static long bandKey(String context, int[] signature, int band) {
+        long hash = hash64(context) + band;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            hash = mix(hash * 31 + signature[row]);
+        }
+        return hash;
+    }
+
+    /**
+     * Lower-cases and collapses whitespace, nothing else: punctuation and
+     * operators change the question ("2+2" and "2-2", "c++" and "c#").
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+            } else {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                pendingSpace = false;
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static int tokenCount(String normalized) {
+        if (normalized.isEmpty()) {
+            return 0;
+        }
+        int count = 1;
+        for (int i = 0; i < normalized.length(); i++) {
+            if (normalized.charAt(i) == ' ') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * MinHash signature over the character 3-grams of an already-normalized string,
+     * one min per seeded hash function.
+     */
+    static int[] minHash(String normalized) {
+        int[] signature = new int[SIGNATURE_SIZE];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        String padded = ' ' + normalized + ' ';
+        for (int start = 0; start + SHINGLE <= padded.length(); start++) {
+            long shingle = hash64(padded, start, start + SHINGLE);
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                int value = (int) mix(shingle ^ SEEDS[i]);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIGNATURE_SIZE;
+    }
+
+    // FNV-1a followed by a SplitMix64 finalizer for good bit dispersion
+    private static long hash64(String value) {
+        return hash64(value, 0, value.length());
+    }
+
+    private static long hash64(String value, int from, int to) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    // signature is null for entries that are not in the near-duplicate index
+    private record Entry(String context, String response, int[] signature, long createdAt) {
+    }
+}
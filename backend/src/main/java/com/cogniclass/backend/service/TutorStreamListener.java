@@ -0,0 +1,15 @@
+package com.cogniclass.backend.service;
+
+/**
+ * Receives a streamed tutor completion. Callbacks arrive on the HTTP client's
+ * threads, in order, and exactly one of {@link #onComplete} or {@link #onError}
+ * ends the stream.
+ */
+public interface TutorStreamListener {
+
+    void onToken(String token);
+
+    void onComplete(String fullResponse);
+
+    void onError(Throwable error);
+}
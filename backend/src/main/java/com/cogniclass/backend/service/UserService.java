@@ -3,29 +3,50 @@ package com.cogniclass.backend.service;
 import java.util.Optional;
 
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.cogniclass.backend.entity.User;
 import com.cogniclass.backend.repository.UserRepository;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
     
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        return userRepository.findByEmail(email)
+        return principalCache.getByEmail(email, userRepository::findByEmail)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + email));
     }
 
+    // Called by the authentication provider after a successful login whose stored hash needs upgrading
+    @Override
+    public UserDetails updatePassword(UserDetails principal, String newEncodedPassword) {
+        User cached = (User) principal;
+        return userRepository.findById(cached.getId())
+                .map(user -> {
+                    user.setPassword(newEncodedPassword);
+                    log.debug("Upgraded password hash for user {}", user.getId());
+                    User saved = userRepository.save(user);
+                    evict(saved.getId());
+                    return (UserDetails) saved;
+                })
+                .orElse(principal);
+    }
+
     public User registerUser(String email, String password, String name) {
         if (userRepository.existsByEmail(email)) {
             throw new RuntimeException("Email already exists");
@@ -40,10 +61,28 @@ public class UserService implements UserDetailsService {
     }
 
     public Optional<User> getUserById(Long id) {
-        return userRepository.findById(id);
+        return principalCache.getById(id, userRepository::findById);
     }
 
     public Optional<User> getUserByEmail(String email) {
-        return userRepository.findByEmail(email);
+        return principalCache.getByEmail(email, userRepository::findByEmail);
+    }
+
+    /**
+     * Drops a changed user from the {@link PrincipalCache}. Every method that
+     * updates or deletes a user calls this after writing; inside a transaction it
+     * evicts again once it completes, so a concurrent request cannot re-cache
+     * the row as it was before the commit.
+     */
+    private void evict(Long userId) {
+        principalCache.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    principalCache.invalidate(userId);
+                }
+            });
+        }
     }
 }
\ No newline at end of file
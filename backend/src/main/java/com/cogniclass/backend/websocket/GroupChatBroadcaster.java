@@ -0,0 +1,101 @@
+package com.cogniclass.backend.websocket;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.cogniclass.backend.metrics.Counter;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process fan-out of group events to the WebSocket connections subscribed to
+ * that group. Each event is serialized once and the same frame is queued on every
+ * subscriber. A subscriber whose send buffer is full is disconnected with 1013
+ * (try again later); on reconnect the client catches up with
+ * {@code GET /api/chat/{groupId}/messages?after=<cursor>}.
+ */
+@Slf4j
+@Component
+public class GroupChatBroadcaster {
+
+    private final ObjectMapper objectMapper;
+    private final int sendBufferSize;
+    private final ConcurrentMap<Long, Set<SocketSubscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final Counter framesPublished;
+    private final Counter framesQueued;
+    private final Counter slowConsumerDisconnects;
+
+    public GroupChatBroadcaster(ObjectMapper objectMapper,
+                                MetricsRegistry metrics,
+                                @Value("${cogniclass.chat.ws.send-buffer-size:256}") int sendBufferSize) {
+        this.objectMapper = objectMapper;
+        this.sendBufferSize = sendBufferSize;
+        this.framesPublished = metrics.counter("chat_ws_events_published_total");
+        this.framesQueued = metrics.counter("chat_ws_frames_queued_total");
+        this.slowConsumerDisconnects = metrics.counter("chat_ws_slow_consumer_disconnects_total");
+        metrics.gauge("chat_ws_connections", this::connectionCount);
+        metrics.gauge("chat_ws_groups", subscribers::size);
+    }
+
+    public SocketSubscriber subscribe(Long groupId, Session session) {
+        SocketSubscriber subscriber = new SocketSubscriber(session, sendBufferSize);
+        subscribers.computeIfAbsent(groupId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        return subscriber;
+    }
+
+    public void unsubscribe(Long groupId, SocketSubscriber subscriber) {
+        subscribers.computeIfPresent(groupId, (id, group) -> {
+            group.remove(subscriber);
+            return group.isEmpty() ? null : group;
+        });
+    }
+
+    /**
+     * Pushes {@code {"event": ..., "data": ...}} to every subscriber of the group.
+     * Never blocks on the network.
+     */
+    public void publish(Long groupId, String event, Object data) {
+        Set<SocketSubscriber> group = subscribers.get(groupId);
+        if (group == null || group.isEmpty()) {
+            return;
+        }
+
+        String frame;
+        try {
+            frame = objectMapper.writeValueAsString(Map.of("event", event, "data", data));
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize {} event for group {}: {}", event, groupId, e.getMessage());
+            return;
+        }
+
+        framesPublished.increment();
+        for (SocketSubscriber subscriber : group) {
+            if (subscriber.offer(frame)) {
+                framesQueued.increment();
+            } else {
+                slowConsumerDisconnects.increment();
+                unsubscribe(groupId, subscriber);
+                subscriber.close(CloseReason.CloseCodes.TRY_AGAIN_LATER, "slow consumer");
+            }
+        }
+    }
+
+    public int connectionCount() {
+        int count = 0;
+        for (Set<SocketSubscriber> group : subscribers.values()) {
+            count += group.size();
+        }
+        return count;
+    }
+}
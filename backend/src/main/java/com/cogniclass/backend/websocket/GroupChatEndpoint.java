@@ -0,0 +1,148 @@
+package com.cogniclass.backend.websocket;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.service.JwtService;
+import com.cogniclass.backend.service.MembershipService;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.HandshakeRequest;
+import jakarta.websocket.server.ServerEndpointConfig;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Push-only WebSocket endpoint for a group's chat. Clients still send messages
+ * through {@code POST /api/chat/{groupId}/messages}; anything they write to the
+ * socket is ignored.
+ * <p>
+ * Browsers cannot set an Authorization header on a WebSocket, so the access
+ * token comes either as the subprotocol pair {@code bearer, <token>} (preferred:
+ * it stays out of access logs) or as {@code ?access_token=<token>}. It is
+ * verified during the handshake; a socket without a valid token, or whose user
+ * is not a member of the group, is closed with 1008 (policy violation).
+ */
+@Slf4j
+public class GroupChatEndpoint extends Endpoint {
+
+    public static final String PATH = "/ws/groups/{groupId}";
+    public static final String BEARER_PROTOCOL = "bearer";
+    static final String TOKEN_PARAMETER = "access_token";
+    private static final String USER_ID = GroupChatEndpoint.class.getName() + ".userId";
+
+    private final GroupChatBroadcaster broadcaster;
+    private final MembershipService membershipService;
+    private Long groupId;
+    private SocketSubscriber subscriber;
+
+    public GroupChatEndpoint(GroupChatBroadcaster broadcaster, MembershipService membershipService) {
+        this.broadcaster = broadcaster;
+        this.membershipService = membershipService;
+    }
+
+    public static ServerEndpointConfig config(GroupChatBroadcaster broadcaster, JwtService jwtService,
+                                              MembershipService membershipService) {
+        return ServerEndpointConfig.Builder.create(GroupChatEndpoint.class, PATH)
+                .subprotocols(List.of(BEARER_PROTOCOL))
+                .configurator(new Authenticator(jwtService, broadcaster, membershipService))
+                .build();
+    }
+
+    /** Verifies the access token during the handshake and hands the user id to the session. */
+    static final class Authenticator extends ServerEndpointConfig.Configurator {
+        private final JwtService jwtService;
+        private final GroupChatBroadcaster broadcaster;
+        private final MembershipService membershipService;
+
+        Authenticator(JwtService jwtService, GroupChatBroadcaster broadcaster, MembershipService membershipService) {
+            this.jwtService = jwtService;
+            this.broadcaster = broadcaster;
+            this.membershipService = membershipService;
+        }
+
+        @Override
+        public void modifyHandshake(ServerEndpointConfig config, HandshakeRequest request, HandshakeResponse response) {
+            // config is a per-handshake copy in Tomcat, so its properties belong to this session only
+            String token = token(request);
+            User user = token == null ? null : jwtService.verifyAccessToken(token);
+            if (user != null) {
+                config.getUserProperties().put(USER_ID, user.getId());
+            }
+        }
+
+        @Override
+        public String getNegotiatedSubprotocol(List<String> supported, List<String> requested) {
+            // Echo "bearer" so browsers accept the upgrade; the token itself is never echoed
+            return requested.contains(BEARER_PROTOCOL) ? BEARER_PROTOCOL : "";
+        }
+
+        @Override
+        public <T> T getEndpointInstance(Class<T> endpointClass) {
+            return endpointClass.cast(new GroupChatEndpoint(broadcaster, membershipService));
+        }
+
+        private static String token(HandshakeRequest request) {
+            List<String> protocols = request.getHeaders().get(HandshakeRequest.SEC_WEBSOCKET_PROTOCOL);
+            if (protocols != null) {
+                List<String> offered = protocols.stream()
+                        .flatMap(header -> Arrays.stream(header.split(",")))
+                        .map(String::trim)
+                        .toList();
+                int bearer = offered.indexOf(BEARER_PROTOCOL);
+                if (bearer >= 0 && bearer + 1 < offered.size()) {
+                    return offered.get(bearer + 1);
+                }
+            }
+            Map<String, List<String>> parameters = request.getParameterMap();
+            List<String> values = parameters == null ? null : parameters.get(TOKEN_PARAMETER);
+            return values == null || values.isEmpty() ? null : values.get(0);
+        }
+    }
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        try {
+            groupId = Long.valueOf(session.getPathParameters().get("groupId"));
+        } catch (NumberFormatException e) {
+            closeQuietly(session, new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "invalid group id"));
+            return;
+        }
+        Long userId = (Long) config.getUserProperties().get(USER_ID);
+        if (userId == null) {
+            closeQuietly(session, new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "authentication required"));
+            return;
+        }
+        if (!membershipService.isMember(groupId, userId)) {
+            closeQuietly(session, new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "not a member of this group"));
+            return;
+        }
+        session.addMessageHandler(String.class, ignored -> { });
+        subscriber = broadcaster.subscribe(groupId, session);
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        if (subscriber != null) {
+            broadcaster.unsubscribe(groupId, subscriber);
+        }
+    }
+
+    @Override
+    public void onError(Session session, Throwable error) {
+        log.debug("WebSocket error on session {}: {}", session.getId(), error.getMessage());
+    }
+
+    private static void closeQuietly(Session session, CloseReason reason) {
+        try {
+            session.close(reason);
+        } catch (Exception e) {
+            log.debug("Error closing WebSocket session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.cogniclass.backend.websocket;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One WebSocket connection subscribed to a group. Outgoing frames go through a
+ * bounded buffer and are written with the container's async API one at a time,
+ * so a slow client never blocks the thread that publishes a message.
+ */
+@Slf4j
+public class SocketSubscriber {
+
+    private final Session session;
+    private final BlockingQueue<String> buffer;
+    private final AtomicBoolean sending = new AtomicBoolean();
+
+    public SocketSubscriber(Session session, int bufferSize) {
+        this.session = session;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * Queues a frame for delivery.
+     *
+     * @return false if the send buffer is full, i.e. the client is not keeping up
+     */
+    public boolean offer(String frame) {
+        if (!buffer.offer(frame)) {
+            return false;
+        }
+        drain();
+        return true;
+    }
+
+    public int buffered() {
+        return buffer.size();
+    }
+
+    private void drain() {
+        // Only one async write may be outstanding per session
+        while (sending.compareAndSet(false, true)) {
+            String next = buffer.poll();
+            if (next != null) {
+                try {
+                    session.getAsyncRemote().sendText(next, result -> {
+                        sending.set(false);
+                        if (result.isOK()) {
+                            drain();
+                        } else {
+                            log.debug("WebSocket send failed for session {}: {}", session.getId(), result.getException().getMessage());
+                            close(CloseReason.CloseCodes.CLOSED_ABNORMALLY, "send failed");
+                        }
+                    });
+                } catch (IllegalStateException e) {
+                    // Session closed underneath us; onClose will unsubscribe it
+                    sending.set(false);
+                    buffer.clear();
+                }
+                return;
+            }
+            sending.set(false);
+            // A frame may have been queued between poll() and the reset above
+            if (buffer.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    public void close(CloseReason.CloseCode code, String reason) {
+        buffer.clear();
+        if (!session.isOpen()) {
+            return;
+        }
+        try {
+            session.close(new CloseReason(code, reason));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Error closing WebSocket session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.cogniclass.backend.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+class SecurityConfigTest {
+
+    private final PasswordEncoder encoder = new SecurityConfig().passwordEncoder(6);
+
+    @Test
+    void matchesLegacyUnprefixedHashesAndFlagsThemForUpgrade() {
+        String legacy = new BCryptPasswordEncoder(4).encode("password");
+
+        assertThat(encoder.matches("password", legacy)).isTrue();
+        assertThat(encoder.upgradeEncoding(legacy)).isTrue();
+    }
+
+    @Test
+    void upgradesHashesBelowConfiguredCost() {
+        String cheap = new SecurityConfig().passwordEncoder(4).encode("password");
+        String current = encoder.encode("password");
+
+        assertThat(current).startsWith("{bcrypt}$2a$06$");
+        assertThat(encoder.matches("password", cheap)).isTrue();
+        assertThat(encoder.upgradeEncoding(cheap)).isTrue();
+        assertThat(encoder.upgradeEncoding(current)).isFalse();
+    }
+}
@@ -0,0 +1,124 @@
+package com.cogniclass.backend.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.support.StubLlmServer;
+
+class LlmClientTest {
+
+    private StubLlmServer upstream;
+    private MetricsRegistry metrics;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = StubLlmServer.start();
+        metrics = new MetricsRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstream.close();
+    }
+
+    private LlmClient client(int maxPerRoute, Duration responseTimeout) {
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        return new LlmClient(httpClient, metrics, maxPerRoute, responseTimeout, Duration.ofSeconds(5));
+    }
+
+    private HttpRequest request(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).POST(HttpRequest.BodyPublishers.ofString("{}")).build();
+    }
+
+    private String route() {
+        return "localhost:" + URI.create(upstream.url()).getPort();
+    }
+
+    @Test
+    void recordsTimeToFirstByteAndTotalPerRoute() {
+        upstream.respondWith(StubLlmServer.completion("hello", Duration.ofMillis(50)));
+
+        HttpResponse<String> response = client(4, Duration.ofSeconds(5))
+                .send(request(upstream.url()), HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(metrics.histogram("llm_client_time_to_first_byte_seconds", "route", route()).sumSeconds()).isGreaterThanOrEqualTo(0.05);
+        assertThat(metrics.histogram("llm_client_request_seconds", "route", route()).count()).isEqualTo(1);
+        assertThat(metrics.counter("llm_client_requests_total", "route", route(), "outcome", "ok").count()).isEqualTo(1);
+    }
+
+    @Test
+    void failsWhenHeadersMissTheResponseDeadline() {
+        upstream.respondWith(StubLlmServer.completion("slow", Duration.ofMillis(500)));
+
+        assertThatThrownBy(() -> client(4, Duration.ofMillis(100)).send(request(upstream.url()), HttpResponse.BodyHandlers.ofString()))
+                .isInstanceOfSatisfying(LlmClientException.class,
+                        e -> assertThat(e.getKind()).isEqualTo(LlmClientException.Kind.TIMEOUT));
+    }
+
+    @Test
+    void abortsStreamsPastTheTotalDeadlineAndFreesTheSlot() throws Exception {
+        upstream.respondWith(StubLlmServer.stream(List.of("a", "b", "c", "d", "e"), Duration.ofMillis(200)));
+        LlmClient client = client(1, Duration.ofSeconds(5));
+
+        CompletableFuture<HttpResponse<String>> stream = client.sendAsync(request(upstream.url()),
+                HttpResponse.BodyHandlers.ofString(), Duration.ofMillis(300));
+
+        assertThatThrownBy(() -> stream.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause().isInstanceOfSatisfying(LlmClientException.class,
+                        e -> assertThat(e.getKind()).isEqualTo(LlmClientException.Kind.TIMEOUT));
+        assertThat(client.availableSlots(URI.create(upstream.url()))).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsWhenTheRouteIsSaturated() throws Exception {
+        upstream.respondWith(StubLlmServer.completion("slow", Duration.ofMillis(300)));
+        LlmClient client = client(1, Duration.ofSeconds(5));
+
+        CompletableFuture<HttpResponse<String>> first = client.sendAsync(request(upstream.url()),
+                HttpResponse.BodyHandlers.ofString(), Duration.ofSeconds(5));
+
+        assertThatThrownBy(() -> client.send(request(upstream.url()), HttpResponse.BodyHandlers.ofString()))
+                .isInstanceOfSatisfying(LlmClientException.class,
+                        e -> assertThat(e.getKind()).isEqualTo(LlmClientException.Kind.SATURATED));
+        // Without waiting for the slot: the future is already failed when sendAsync returns
+        assertThat(client.sendAsync(request(upstream.url()), HttpResponse.BodyHandlers.ofString(),
+                Duration.ofSeconds(5))).isCompletedExceptionally();
+        assertThat(first.get(5, TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+    }
+
+    @Test
+    void classifiesConnectionFailures() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        upstream.respondWith(StubLlmServer.disconnect());
+        LlmClient client = client(4, Duration.ofSeconds(5));
+
+        assertThatThrownBy(() -> client.send(request("http://localhost:" + closedPort + "/v1/chat/completions"),
+                HttpResponse.BodyHandlers.ofString()))
+                .isInstanceOfSatisfying(LlmClientException.class,
+                        e -> assertThat(e.getKind()).isEqualTo(LlmClientException.Kind.CONNECT));
+        assertThatThrownBy(() -> client.send(request(upstream.url()), HttpResponse.BodyHandlers.ofString()))
+                .isInstanceOfSatisfying(LlmClientException.class,
+                        e -> assertThat(e.getKind()).isEqualTo(LlmClientException.Kind.IO));
+    }
+}
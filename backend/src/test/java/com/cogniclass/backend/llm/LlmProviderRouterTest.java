@@ -0,0 +1,169 @@
+package com.cogniclass.backend.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.cogniclass.backend.metrics.Histogram;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.resilience.CircuitBreaker;
+import com.cogniclass.backend.resilience.ResilientUpstream;
+import com.cogniclass.backend.resilience.UpstreamUnavailableException;
+import com.cogniclass.backend.support.StubLlmServer;
+
+class LlmProviderRouterTest {
+
+    private final Map<String, StubLlmServer> servers = new HashMap<>();
+    private MetricsRegistry metrics;
+    private LlmClient llmClient;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new MetricsRegistry();
+        llmClient = new LlmClient(HttpClient.newHttpClient(), metrics, 16,
+                Duration.ofSeconds(5), Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        servers.values().forEach(StubLlmServer::close);
+    }
+
+    @Test
+    void prefersTheFasterProviderOnceLatencyIsKnown() throws Exception {
+        LlmProvider fast = provider("fast", StubLlmServer.completion("fast", Duration.ofMillis(5)), null);
+        LlmProvider slow = provider("slow", StubLlmServer.completion("slow", Duration.ofMillis(150)), null);
+        LlmProviderRouter router = new LlmProviderRouter(List.of(fast, slow), llmClient, metrics, false, Duration.ZERO);
+
+        for (int i = 0; i < 20; i++) {
+            router.complete(100, this::request);
+        }
+
+        // With two providers both are always compared, so after one slow sample the fast one wins every time
+        assertThat(servers.get("slow").requestCount()).isLessThanOrEqualTo(2);
+        assertThat(servers.get("fast").requestCount()).isGreaterThanOrEqualTo(18);
+    }
+
+    @Test
+    void hedgesToAnotherProviderAfterTheHedgeDelay() throws Exception {
+        LlmProvider stalled = provider("stalled", StubLlmServer.completion("late", Duration.ofSeconds(3)),
+                new TokenBudget(1_000, () -> 0L));
+        LlmProvider backup = provider("backup", StubLlmServer.completion("hedged", Duration.ofMillis(20)), null);
+        seedLatency(backup, Duration.ofSeconds(1)); // make the stalled provider the first choice
+        LlmProviderRouter router = new LlmProviderRouter(List.of(stalled, backup), llmClient, metrics, true,
+                Duration.ofMillis(100));
+
+        long start = System.nanoTime();
+        LlmProviderRouter.Completion completion = router.complete(100, this::request);
+
+        assertThat(completion.provider()).isSameAs(backup);
+        assertThat(completion.response().body()).contains("hedged");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+        assertThat(metrics.counter("llm_router_hedges_total").count()).isEqualTo(1);
+        // The losing exchange is cancelled and does not count against the stalled provider
+        Thread.sleep(100);
+        assertThat(stalled.inFlight()).isZero();
+        assertThat(stalled.upstream().circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(stalled.isAvailable(1_000)).isTrue();
+    }
+
+    @Test
+    void failsOverWhenAProviderIsDown() {
+        LlmProvider down = provider("down", StubLlmServer.status(503, Duration.ZERO, null), null);
+        LlmProvider local = provider("local", StubLlmServer.completion("local answer", Duration.ZERO), null);
+        seedLatency(local, Duration.ofSeconds(1));
+        LlmProviderRouter router = new LlmProviderRouter(List.of(down, local), llmClient, metrics, false, Duration.ZERO);
+
+        LlmProviderRouter.Completion completion = router.complete(100, this::request);
+
+        assertThat(completion.provider()).isSameAs(local);
+        assertThat(completion.response().statusCode()).isEqualTo(200);
+        assertThat(metrics.counter("llm_router_failovers_total").count()).isEqualTo(1);
+        assertThat(metrics.histogram("llm_request_seconds", "provider", "down", "model", "stub-down",
+                "mode", "complete", "outcome", "server_error").count()).isEqualTo(1);
+        assertThat(metrics.histogram("llm_request_seconds", "provider", "local", "model", "stub-local",
+                "mode", "complete", "outcome", "ok").count()).isEqualTo(1);
+    }
+
+    @Test
+    void skipsProvidersWhoseTokenBudgetIsSpent() {
+        LlmProvider capped = provider("capped", StubLlmServer.completion("capped", Duration.ZERO),
+                new TokenBudget(1_000, () -> 0L));
+        LlmProvider open = provider("open", StubLlmServer.completion("open", Duration.ZERO), null);
+        seedLatency(open, Duration.ofSeconds(1));
+        LlmProviderRouter router = new LlmProviderRouter(List.of(capped, open), llmClient, metrics, false, Duration.ZERO);
+
+        assertThat(router.complete(800, this::request).provider()).isSameAs(capped);
+        assertThat(router.complete(800, this::request).provider()).isSameAs(open);
+    }
+
+    @Test
+    void refundsTheTokensOfCallsThatDidNotComplete() {
+        LlmProvider down = provider("down", StubLlmServer.status(503, Duration.ZERO, null),
+                new TokenBudget(1_000, () -> 0L));
+        LlmProvider local = provider("local", StubLlmServer.completion("local answer", Duration.ZERO), null);
+        seedLatency(local, Duration.ofSeconds(1));
+        LlmProviderRouter router = new LlmProviderRouter(List.of(down, local), llmClient, metrics, false, Duration.ZERO);
+
+        // Without refunds the first failure would leave too little budget for the second call to try it
+        assertThat(router.complete(800, this::request).provider()).isSameAs(local);
+        assertThat(router.complete(800, this::request).provider()).isSameAs(local);
+        assertThat(servers.get("down").requestCount()).isEqualTo(2);
+        assertThat(down.isAvailable(1_000)).isTrue();
+
+        LlmProviderRouter downOnly = new LlmProviderRouter(List.of(down), llmClient, metrics, false, Duration.ZERO);
+        assertThatThrownBy(() -> downOnly.complete(800, provider -> {
+            throw new IllegalStateException("no request body");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(down.isAvailable(1_000)).isTrue();
+    }
+
+    @Test
+    void throwsWhenNoProviderCanTakeTheCall() {
+        LlmProvider capped = provider("capped", StubLlmServer.completion("capped", Duration.ZERO),
+                new TokenBudget(100, () -> 0L));
+        LlmProviderRouter router = new LlmProviderRouter(List.of(capped), llmClient, metrics, true, Duration.ZERO);
+
+        assertThatThrownBy(() -> router.complete(500, this::request))
+                .isInstanceOf(UpstreamUnavailableException.class);
+        assertThat(servers.get("capped").requestCount()).isZero();
+    }
+
+    private LlmProvider provider(String name, StubLlmServer.Behavior behavior, TokenBudget budget) {
+        try {
+            StubLlmServer server = StubLlmServer.start().respondWith(behavior);
+            servers.put(name, server);
+            ResilientUpstream.Settings defaults = ResilientUpstream.Settings.defaults();
+            ResilientUpstream.Settings noRetries = new ResilientUpstream.Settings(defaults.maxConcurrent(),
+                    defaults.breakerWindow(), defaults.breakerMinCalls(), defaults.breakerFailureRate(),
+                    defaults.breakerOpenDuration(), defaults.breakerHalfOpenCalls(), 1, defaults.baseBackoff(),
+                    defaults.maxBackoff(), defaults.maxRetryAfter(), defaults.retryBudgetRatio(),
+                    defaults.retryBudgetMinPerSecond());
+            return new LlmProvider(name, URI.create(server.url()), "", "stub-" + name,
+                    new ResilientUpstream(name, noRetries, metrics), budget, new Histogram());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void seedLatency(LlmProvider provider, Duration latency) {
+        provider.onStart();
+        provider.onComplete(latency.toNanos(), true);
+    }
+
+    private HttpRequest request(LlmProvider provider) {
+        return provider.newRequest().POST(HttpRequest.BodyPublishers.ofString("{\"model\":\"" + provider.model() + "\"}")).build();
+    }
+}
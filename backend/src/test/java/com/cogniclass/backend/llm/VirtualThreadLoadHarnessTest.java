@@ -0,0 +1,165 @@
+package com.cogniclass.backend.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.cogniclass.backend.metrics.Histogram;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.support.StubLlmServer;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Compares chat latency while {@code tutor.load.calls} blocking tutor requests
+ * are waiting on a slow upstream, once with Tomcat's default 200 platform
+ * threads and once with virtual threads ({@code spring.threads.virtual.enabled}).
+ * The tutor servlet makes the same blocking {@link LlmClient#send} call as
+ * {@code AITutorService.getAIResponse}; the chat servlet answers immediately.
+ * <p>
+ * Run with {@code mvn test -Dtest=VirtualThreadLoadHarnessTest -Dtutor.load=true}.
+ */
+@EnabledIfSystemProperty(named = "tutor.load", matches = "true")
+class VirtualThreadLoadHarnessTest {
+
+    private static final int TUTOR_CALLS = Integer.getInteger("tutor.load.calls", 1_000);
+    private static final int CHAT_CLIENTS = Integer.getInteger("tutor.load.chat-clients", 20);
+    private static final int CHAT_SECONDS = Integer.getInteger("tutor.load.seconds", 5);
+    private static final Duration UPSTREAM_LATENCY = Duration.ofSeconds(2);
+
+    @Test
+    void chatLatencyStaysFlatWhileTutorCallsBlockOnVirtualThreads() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        System.out.printf("platform threads: chat p50=%.1fms p99=%.1fms (%d requests), tutor ok=%d%n",
+                platform.p50Millis, platform.p99Millis, platform.chatRequests, platform.tutorOk);
+        System.out.printf("virtual threads:  chat p50=%.1fms p99=%.1fms (%d requests), tutor ok=%d%n",
+                virtual.p50Millis, virtual.p99Millis, virtual.chatRequests, virtual.tutorOk);
+
+        assertThat(virtual.tutorOk).isEqualTo(TUTOR_CALLS);
+        assertThat(virtual.p99Millis).isLessThan(platform.p99Millis);
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        try (StubLlmServer upstream = StubLlmServer.start()) {
+            upstream.respondWith(StubLlmServer.completion("answer", UPSTREAM_LATENCY));
+            MetricsRegistry metrics = new MetricsRegistry();
+            LlmClient llmClient = new LlmClient(HttpClient.newHttpClient(), metrics, TUTOR_CALLS * 2,
+                    Duration.ofSeconds(30), Duration.ofSeconds(60));
+
+            Tomcat tomcat = startTomcat(virtualThreads, llmClient, upstream.url());
+            ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+            try {
+                String base = "http://localhost:" + tomcat.getConnector().getLocalPort();
+                HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clients).build();
+                // Separate client so probes never queue behind the tutor calls' connections on the client side
+                HttpClient probe = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clients).build();
+
+                List<CompletableFuture<HttpResponse<Void>>> tutorCalls = new ArrayList<>(TUTOR_CALLS);
+                for (int i = 0; i < TUTOR_CALLS; i++) {
+                    tutorCalls.add(http.sendAsync(HttpRequest.newBuilder(URI.create(base + "/api/ai/tutor")).build(),
+                            HttpResponse.BodyHandlers.discarding()));
+                }
+                Thread.sleep(500); // let the tutor calls occupy the server
+
+                Histogram chatLatency = new Histogram();
+                AtomicInteger chatRequests = new AtomicInteger();
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(CHAT_SECONDS);
+                List<CompletableFuture<Void>> probes = new ArrayList<>();
+                for (int c = 0; c < CHAT_CLIENTS; c++) {
+                    probes.add(CompletableFuture.runAsync(() -> {
+                        HttpRequest chat = HttpRequest.newBuilder(URI.create(base + "/api/chat")).build();
+                        while (System.nanoTime() < deadline) {
+                            long start = System.nanoTime();
+                            try {
+                                probe.send(chat, HttpResponse.BodyHandlers.discarding());
+                            } catch (IOException | InterruptedException e) {
+                                return;
+                            }
+                            chatLatency.recordNanos(System.nanoTime() - start);
+                            chatRequests.incrementAndGet();
+                        }
+                    }, clients));
+                }
+                CompletableFuture.allOf(probes.toArray(CompletableFuture[]::new)).get(CHAT_SECONDS + 60L, TimeUnit.SECONDS);
+
+                int tutorOk = 0;
+                for (CompletableFuture<HttpResponse<Void>> call : tutorCalls) {
+                    if (call.get(120, TimeUnit.SECONDS).statusCode() == 200) {
+                        tutorOk++;
+                    }
+                }
+                return new Result(chatLatency.quantile(0.50) * 1_000, chatLatency.quantile(0.99) * 1_000,
+                        chatRequests.get(), tutorOk);
+            } finally {
+                clients.shutdownNow();
+                tomcat.stop();
+                tomcat.destroy();
+            }
+        }
+    }
+
+    private static Tomcat startTomcat(boolean virtualThreads, LlmClient llmClient, String upstreamUrl) throws Exception {
+        Tomcat tomcat = new Tomcat();
+        File baseDir = Files.createTempDirectory("vt-load").toFile();
+        baseDir.deleteOnExit();
+        tomcat.setBaseDir(baseDir.getAbsolutePath());
+        tomcat.setPort(0);
+        tomcat.getConnector().setProperty("maxConnections", String.valueOf(TUTOR_CALLS * 4));
+        if (virtualThreads) {
+            tomcat.getConnector().getProtocolHandler().setExecutor(new VirtualThreadExecutor("tomcat-handler-"));
+        } else {
+            tomcat.getConnector().setProperty("maxThreads", "200"); // Spring Boot's default
+        }
+
+        Context context = tomcat.addContext("", baseDir.getAbsolutePath());
+        Tomcat.addServlet(context, "tutor", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                HttpRequest upstream = HttpRequest.newBuilder(URI.create(upstreamUrl))
+                        .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                        .build();
+                HttpResponse<String> answer = llmClient.send(upstream, HttpResponse.BodyHandlers.ofString());
+                response.setContentType("application/json");
+                response.getWriter().write(answer.body());
+            }
+        });
+        context.addServletMappingDecoded("/api/ai/tutor", "tutor");
+        Tomcat.addServlet(context, "chat", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.setContentType("application/json");
+                response.getWriter().write("{\"messages\":[]}");
+            }
+        });
+        context.addServletMappingDecoded("/api/chat", "chat");
+        tomcat.start();
+        return tomcat;
+    }
+
+    private record Result(double p50Millis, double p99Millis, int chatRequests, int tutorOk) {
+    }
+}
@@ -0,0 +1,64 @@
+package com.cogniclass.backend.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+
+class HttpServerMetricsFilterTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final HttpServerMetricsFilter filter = new HttpServerMetricsFilter(metrics);
+
+    @Test
+    void tagsByRoutePatternRatherThanPath() throws Exception {
+        for (String path : new String[] {"/api/chat/1/messages", "/api/chat/2/messages"}) {
+            filter.doFilter(new MockHttpServletRequest("GET", path), new MockHttpServletResponse(), (request, response) ->
+                    request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/chat/{groupId}/messages"));
+        }
+        filter.doFilter(new MockHttpServletRequest("GET", "/nope"), new MockHttpServletResponse(),
+                (request, response) -> ((MockHttpServletResponse) response).setStatus(401));
+
+        assertThat(timer("GET", "/api/chat/{groupId}/messages", "200").count()).isEqualTo(2);
+        assertThat(timer("GET", HttpServerMetricsFilter.UNMATCHED, "401").count()).isEqualTo(1);
+    }
+
+    @Test
+    void countsEscapingExceptionsAsServerErrors() {
+        FilterChain failing = (request, response) -> {
+            throw new ServletException("boom");
+        };
+
+        assertThatThrownBy(() -> filter.doFilter(new MockHttpServletRequest("BREW", "/pot"),
+                new MockHttpServletResponse(), failing)).isInstanceOf(ServletException.class);
+
+        assertThat(timer("OTHER", HttpServerMetricsFilter.UNMATCHED, "500").count()).isEqualTo(1);
+    }
+
+    @Test
+    void timesAsyncRequestsUntilTheyComplete() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/ai/tutor/stream");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/ai/tutor/stream");
+            req.startAsync();
+        });
+        assertThat(timer("POST", "/api/ai/tutor/stream", "200").count()).isZero();
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertThat(timer("POST", "/api/ai/tutor/stream", "200").count()).isEqualTo(1);
+    }
+
+    private Histogram timer(String method, String route, String status) {
+        return metrics.histogram("http_server_requests_seconds", "method", method, "route", route, "status", status);
+    }
+}
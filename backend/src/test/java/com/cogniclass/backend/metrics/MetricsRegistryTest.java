@@ -0,0 +1,63 @@
+package com.cogniclass.backend.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class MetricsRegistryTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    @Test
+    void scrapesCountersAndGaugesWithOneTypeLinePerName() {
+        metrics.counter("cache_requests_total", "result", "miss").increment(3);
+        metrics.counter("cache_requests_total", "result", "hit").increment(7);
+        AtomicLong collected = new AtomicLong(42);
+        metrics.functionCounter("gc_collections_total", collected::get, "gc", "G1 Young Generation");
+        metrics.gauge("queue_depth", () -> 2.5);
+        metrics.gauge("pool_connections", () -> null);
+
+        List<String> lines = metrics.scrape().lines().toList();
+
+        assertThat(lines).containsExactly(
+                "# TYPE cache_requests_total counter",
+                "cache_requests_total{result=\"hit\"} 7",
+                "cache_requests_total{result=\"miss\"} 3",
+                "# TYPE gc_collections_total counter",
+                "gc_collections_total{gc=\"G1 Young Generation\"} 42",
+                "# TYPE queue_depth gauge",
+                "queue_depth 2.5");
+    }
+
+    @Test
+    void scrapesHistogramsAsCumulativeBucketsInBoundOrder() {
+        Histogram latency = metrics.histogram("request_seconds", "route", "/api/groups");
+        latency.record(Duration.ofMillis(3));
+        latency.record(Duration.ofMillis(200));
+        latency.record(Duration.ofSeconds(90));
+
+        List<String> lines = metrics.scrape().lines().toList();
+
+        assertThat(lines.get(0)).isEqualTo("# TYPE request_seconds histogram");
+        assertThat(lines).containsSubsequence(
+                "request_seconds_bucket{route=\"/api/groups\",le=\"0.001\"} 0",
+                "request_seconds_bucket{route=\"/api/groups\",le=\"0.005\"} 1",
+                "request_seconds_bucket{route=\"/api/groups\",le=\"0.25\"} 2",
+                "request_seconds_bucket{route=\"/api/groups\",le=\"60\"} 2",
+                "request_seconds_bucket{route=\"/api/groups\",le=\"+Inf\"} 3",
+                "request_seconds_sum{route=\"/api/groups\"} 90.203",
+                "request_seconds_count{route=\"/api/groups\"} 3");
+        assertThat(lines).hasSize(1 + Histogram.BUCKETS.length + 1 + 2);
+    }
+
+    @Test
+    void escapesTagValues() {
+        metrics.counter("odd_total", "path", "a\"b\\c\nd").increment();
+
+        assertThat(metrics.scrape()).contains("odd_total{path=\"a\\\"b\\\\c\\nd\"} 1\n");
+    }
+}
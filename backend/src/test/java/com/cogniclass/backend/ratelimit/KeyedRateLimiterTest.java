@@ -0,0 +1,80 @@
+package com.cogniclass.backend.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class KeyedRateLimiterTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    void allowsABurstUpToCapacityThenRefillsSteadily() {
+        KeyedRateLimiter<String> limiter = new KeyedRateLimiter<>(6, MINUTE, 100);
+        for (int i = 0; i < 6; i++) {
+            assertThat(limiter.tryAcquire("a", 1, 0)).isZero();
+        }
+        long wait = limiter.tryAcquire("a", 1, 0);
+        assertThat(wait).isEqualTo(TimeUnit.SECONDS.toNanos(10));
+        assertThat(limiter.remaining("a", 0)).isZero();
+        assertThat(limiter.resetSeconds("a", 0)).isEqualTo(60);
+
+        assertThat(limiter.tryAcquire("a", 1, TimeUnit.SECONDS.toNanos(10))).isZero();
+        assertThat(limiter.tryAcquire("b", 1, 0)).as("keys are independent").isZero();
+    }
+
+    @Test
+    void chargesWeightedCostsAndRefunds() {
+        KeyedRateLimiter<String> limiter = new KeyedRateLimiter<>(1000, MINUTE, 100);
+        assertThat(limiter.tryAcquire("a", 700, 0)).isZero();
+        assertThat(limiter.tryAcquire("a", 700, 0)).isPositive();
+        limiter.refund("a", 700);
+        assertThat(limiter.remaining("a", 0)).isEqualTo(1000);
+        assertThat(limiter.tryAcquire("a", 5000, 0)).as("oversized cost is capped at capacity").isZero();
+    }
+
+    @Test
+    void dropsFullBucketsWhenTheMapGrows() {
+        KeyedRateLimiter<Integer> limiter = new KeyedRateLimiter<>(10, MINUTE, 4);
+        for (int key = 0; key < 4; key++) {
+            limiter.tryAcquire(key, 1, 0);
+        }
+        limiter.tryAcquire(99, 10, MINUTE);
+
+        assertThat(limiter.size()).isEqualTo(1);
+        assertThat(limiter.remaining(0, MINUTE)).isEqualTo(10);
+        assertThat(limiter.remaining(99, MINUTE)).isZero();
+    }
+
+    @Test
+    void neverGrantsMoreThanCapacityUnderContention() throws Exception {
+        KeyedRateLimiter<String> limiter = new KeyedRateLimiter<>(1000, MINUTE, 100);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 500; i++) {
+                    if (limiter.tryAcquire("shared", 1, 0) == 0) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(granted.get()).isEqualTo(1000);
+    }
+}
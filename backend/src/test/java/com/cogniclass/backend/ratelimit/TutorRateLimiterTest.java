@@ -0,0 +1,71 @@
+package com.cogniclass.backend.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+class TutorRateLimiterTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    @Test
+    void limitsRequestsPerUserAndReportsHeaderValues() {
+        TutorRateLimiter limiter = new TutorRateLimiter(metrics, 2, 100_000, 60, 100_000, 1, 100_000, 1000);
+
+        TutorRateLimiter.Decision first = limiter.check(1L, null, "10.0.0.1", 1100, 0);
+        assertThat(first.allowed()).isTrue();
+        assertThat(first.scope()).isEqualTo("user");
+        assertThat(first.limit()).isEqualTo(2);
+        assertThat(first.remaining()).isEqualTo(1);
+        assertThat(first.windowSeconds()).isEqualTo(60);
+
+        assertThat(limiter.check(1L, null, "10.0.0.1", 1100, 0).allowed()).isTrue();
+        TutorRateLimiter.Decision denied = limiter.check(1L, null, "10.0.0.1", 1100, 0);
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.retryAfterSeconds()).isEqualTo(30);
+
+        // Another user behind the same address is unaffected: the IP quota is for anonymous callers
+        assertThat(limiter.check(2L, null, "10.0.0.1", 1100, 0).allowed()).isTrue();
+    }
+
+    @Test
+    void limitsEstimatedTokensSeparatelyFromRequests() {
+        TutorRateLimiter limiter = new TutorRateLimiter(metrics, 100, 3000, 100, 100_000, 100, 100_000, 1000);
+
+        assertThat(limiter.check(1L, null, null, 1100, 0).allowed()).isTrue();
+        assertThat(limiter.check(1L, null, null, 1100, 0).allowed()).isTrue();
+        assertThat(limiter.check(1L, null, null, 1100, 0).allowed()).isFalse();
+        assertThat(metrics.counter("ai_rate_limit_decisions_total", "scope", "user", "result", "denied_tokens").count())
+                .isEqualTo(1);
+        // The refused call did not use up a request either
+        assertThat(limiter.check(1L, null, null, 100, 0).remaining()).isEqualTo(97);
+    }
+
+    @Test
+    void groupQuotaIsSharedAndRefundsTheUserOnRefusal() {
+        TutorRateLimiter limiter = new TutorRateLimiter(metrics, 5, 100_000, 2, 100_000, 5, 100_000, 1000);
+
+        assertThat(limiter.check(1L, 7L, null, 100, 0).allowed()).isTrue();
+        TutorRateLimiter.Decision tightest = limiter.check(2L, 7L, null, 100, 0);
+        assertThat(tightest.scope()).isEqualTo("group");
+        assertThat(tightest.remaining()).isZero();
+
+        TutorRateLimiter.Decision denied = limiter.check(1L, 7L, null, 100, 0);
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.scope()).isEqualTo("group");
+        assertThat(limiter.check(1L, null, null, 100, 0).remaining()).as("user 1 was charged once, not twice").isEqualTo(3);
+    }
+
+    @Test
+    void anonymousCallersAreLimitedByAddress() {
+        TutorRateLimiter limiter = new TutorRateLimiter(metrics, 5, 100_000, 5, 100_000, 1, 100_000, 1000);
+
+        assertThat(limiter.check(null, null, "10.0.0.1", 100, 0).allowed()).isTrue();
+        TutorRateLimiter.Decision denied = limiter.check(null, null, "10.0.0.1", 100, 0);
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.scope()).isEqualTo("ip");
+        assertThat(limiter.check(null, null, "10.0.0.2", 100, 0).allowed()).isTrue();
+    }
+}
@@ -0,0 +1,130 @@
+package com.cogniclass.backend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import com.cogniclass.backend.dto.GroupSummary;
+import com.cogniclass.backend.entity.StudyGroup;
+import com.cogniclass.backend.entity.User;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class StudyGroupRepositoryTest {
+
+    @Autowired
+    private StudyGroupRepository studyGroupRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void summaryPagesUseConstantStatementCount() {
+        List<User> users = createUsers(30);
+        createGroups(25, users); // more than one page, so the count query runs in both cases
+        long small = statementsFor(() -> studyGroupRepository.findPublicSummaries(page()));
+
+        createGroups(200, users);
+        long large = statementsFor(() -> studyGroupRepository.findPublicSummaries(page()));
+        long member = statementsFor(() -> studyGroupRepository.findMemberSummaries(users.get(0).getId(), page()));
+
+        assertThat(small).isLessThanOrEqualTo(2); // select + count
+        assertThat(large).isEqualTo(small);
+        assertThat(member).isEqualTo(small);
+    }
+
+    @Test
+    void summariesCarryMemberCountAndCreatorName() {
+        List<User> users = createUsers(4);
+        StudyGroup group = group("Calculus", users.get(1), users);
+        StudyGroup hidden = group("Private", users.get(1), users.subList(0, 2));
+        hidden.setPublic(false);
+        entityManager.persist(group);
+        entityManager.persist(hidden);
+        entityManager.flush();
+        entityManager.clear();
+
+        Page<GroupSummary> page = studyGroupRepository.findPublicSummaries(page());
+        Page<GroupSummary> mine = studyGroupRepository.findMemberSummaries(users.get(0).getId(), page());
+
+        assertThat(page.getContent()).singleElement().satisfies(summary -> {
+            assertThat(summary.getName()).isEqualTo("Calculus");
+            assertThat(summary.getMemberCount()).isEqualTo(4);
+            assertThat(summary.getCreatedBy().getName()).isEqualTo("User 1");
+        });
+        assertThat(mine.getContent()).extracting(GroupSummary::getMemberCount).containsExactlyInAnyOrder(4, 2);
+    }
+
+    @Test
+    void membersAreInsertedAndDeletedWithoutTouchingTheCollection() {
+        List<User> users = createUsers(3);
+        StudyGroup group = group("Calculus", users.get(0), users.subList(0, 1));
+        entityManager.persist(group);
+        entityManager.flush();
+
+        assertThat(studyGroupRepository.insertMember(group.getId(), users.get(1).getId())).isEqualTo(1);
+        assertThat(studyGroupRepository.insertMember(group.getId(), users.get(1).getId())).isZero();
+        assertThat(studyGroupRepository.findMemberIds(group.getId()))
+                .containsExactlyInAnyOrder(users.get(0).getId(), users.get(1).getId());
+
+        assertThat(studyGroupRepository.deleteMember(group.getId(), users.get(0).getId())).isEqualTo(1);
+        assertThat(studyGroupRepository.deleteMember(group.getId(), users.get(2).getId())).isZero();
+        assertThat(studyGroupRepository.findMemberIds(group.getId())).containsExactly(users.get(1).getId());
+    }
+
+    private long statementsFor(Supplier<Page<GroupSummary>> query) {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        Page<GroupSummary> page = query.get();
+        page.getContent().forEach(GroupSummary::getCreatedBy);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static PageRequest page() {
+        return PageRequest.of(0, 20, Sort.by("name"));
+    }
+
+    private List<User> createUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "-" + System.nanoTime() + "@test.dev");
+            user.setPassword("x");
+            user.setName("User " + i);
+            users.add(entityManager.persist(user));
+        }
+        return users;
+    }
+
+    private void createGroups(int count, List<User> users) {
+        for (int i = 0; i < count; i++) {
+            entityManager.persist(group("Group " + i, users.get(i % users.size()), users.subList(0, 1 + i % users.size())));
+        }
+    }
+
+    private static StudyGroup group(String name, User creator, List<User> members) {
+        StudyGroup group = new StudyGroup();
+        group.setName(name);
+        group.setCreatedBy(creator);
+        group.setMembers(new ArrayList<>(members));
+        return group;
+    }
+}
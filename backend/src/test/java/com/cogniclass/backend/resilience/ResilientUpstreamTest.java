@@ -0,0 +1,197 @@
+package com.cogniclass.backend.resilience;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.cogniclass.backend.llm.LlmClient;
+import com.cogniclass.backend.llm.LlmClientException;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.support.StubLlmServer;
+
+class ResilientUpstreamTest {
+
+    private StubLlmServer server;
+    private MetricsRegistry metrics;
+    private LlmClient llmClient;
+    private final AtomicLong clock = new AtomicLong();
+    private final List<Long> sleeps = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = StubLlmServer.start();
+        metrics = new MetricsRegistry();
+        llmClient = new LlmClient(HttpClient.newHttpClient(), metrics, 8,
+                Duration.ofSeconds(5), Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void retriesTransientStatusAndReturnsTheRecoveredResponse() {
+        ResilientUpstream upstream = upstream(settings(4, 10, 1.0));
+        server.enqueue(StubLlmServer.status(503, Duration.ZERO, null), StubLlmServer.status(502, Duration.ZERO, null));
+
+        HttpResponse<String> response = upstream.execute(this::call);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(server.requestCount()).isEqualTo(3);
+        assertThat(sleeps).hasSize(2).allSatisfy(delay -> assertThat(delay).isLessThanOrEqualTo(Duration.ofSeconds(2).toNanos()));
+        assertThat(metrics.counter("llm_retries_total", "upstream", "groq").count()).isEqualTo(2);
+    }
+
+    @Test
+    void waitsAtLeastRetryAfterButGivesUpWhenItIsTooLong() {
+        ResilientUpstream upstream = upstream(settings(4, 10, 1.0));
+        server.enqueue(StubLlmServer.status(429, Duration.ZERO, "3"));
+
+        assertThat(upstream.execute(this::call).statusCode()).isEqualTo(200);
+        assertThat(sleeps).containsExactly(TimeUnit.SECONDS.toNanos(3));
+
+        server.enqueue(StubLlmServer.status(429, Duration.ZERO, "60"));
+        assertThat(upstream.execute(this::call).statusCode()).isEqualTo(429);
+        assertThat(sleeps).hasSize(1);
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        ResilientUpstream upstream = upstream(settings(4, 10, 1.0));
+        server.enqueue(StubLlmServer.status(400, Duration.ZERO, null));
+
+        assertThat(upstream.execute(this::call).statusCode()).isEqualTo(400);
+        assertThat(server.requestCount()).isEqualTo(1);
+        assertThat(upstream.circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void opensAfterFailuresThenProbesAndCloses() {
+        ResilientUpstream upstream = upstream(settings(1, 4, 1.0));
+        server.respondWith(StubLlmServer.status(500, Duration.ZERO, null));
+        for (int i = 0; i < 4; i++) {
+            assertThat(upstream.execute(this::call).statusCode()).isEqualTo(500);
+        }
+        assertThat(upstream.circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        assertThatThrownBy(() -> upstream.execute(this::call))
+                .isInstanceOfSatisfying(UpstreamUnavailableException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(UpstreamUnavailableException.Reason.CIRCUIT_OPEN));
+        assertThat(server.requestCount()).isEqualTo(4);
+
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        server.respondWith(StubLlmServer.completion("back", Duration.ZERO));
+        for (int i = 0; i < 3; i++) {
+            assertThat(upstream.execute(this::call).statusCode()).isEqualTo(200);
+        }
+        assertThat(upstream.circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void failedProbeReopensTheCircuit() {
+        ResilientUpstream upstream = upstream(settings(1, 4, 1.0));
+        server.respondWith(StubLlmServer.status(503, Duration.ZERO, null));
+        for (int i = 0; i < 4; i++) {
+            upstream.execute(this::call);
+        }
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        assertThat(upstream.execute(this::call).statusCode()).isEqualTo(503);
+        assertThat(upstream.circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void retryBudgetStopsRetryStormsWhenUpstreamIsDown() {
+        // No trickle refill: only the initial balance of 10 plus 0.1 per request is available
+        ResilientUpstream upstream = upstream(new ResilientUpstream.Settings(64, 100, 100, 1.0,
+                Duration.ofSeconds(30), 3, 3, Duration.ofMillis(200), Duration.ofSeconds(2), Duration.ofSeconds(5), 0.1, 0));
+        server.respondWith(StubLlmServer.status(503, Duration.ZERO, null));
+
+        for (int i = 0; i < 20; i++) {
+            upstream.execute(this::call);
+        }
+
+        long retries = metrics.counter("llm_retries_total", "upstream", "groq").count();
+        assertThat(retries).isBetween(10L, 12L);
+        assertThat(server.requestCount()).isEqualTo(20 + (int) retries);
+        assertThat(metrics.counter("llm_resilience_rejections_total", "upstream", "groq", "reason", "retry_budget").count())
+                .isPositive();
+    }
+
+    @Test
+    void connectFailuresAreRetriedAndCountAgainstTheBreaker() {
+        ResilientUpstream upstream = upstream(settings(2, 4, 1.0));
+        HttpRequest unreachable = HttpRequest.newBuilder(URI.create("http://localhost:1/v1/chat/completions"))
+                .POST(HttpRequest.BodyPublishers.ofString("{}")).build();
+
+        assertThatThrownBy(() -> upstream.execute(() -> llmClient.send(unreachable, HttpResponse.BodyHandlers.ofString())))
+                .isInstanceOf(LlmClientException.class);
+        assertThat(sleeps).hasSize(1);
+    }
+
+    @Test
+    void fullBulkheadRejectsWithoutWaiting() throws Exception {
+        ResilientUpstream upstream = upstream(new ResilientUpstream.Settings(1, 10, 10, 0.5,
+                Duration.ofSeconds(30), 3, 1, Duration.ofMillis(200), Duration.ofSeconds(2), Duration.ofSeconds(5), 0.2, 1));
+        server.respondWith(StubLlmServer.completion("slow", Duration.ofMillis(500)));
+        CountDownLatch started = new CountDownLatch(1);
+        Thread occupant = Thread.ofPlatform().start(() -> upstream.execute(() -> {
+            started.countDown();
+            return call();
+        }));
+        started.await();
+
+        assertThatThrownBy(() -> upstream.execute(this::call))
+                .isInstanceOfSatisfying(UpstreamUnavailableException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(UpstreamUnavailableException.Reason.BULKHEAD_FULL));
+        occupant.join();
+        assertThat(upstream.execute(this::call).statusCode()).isEqualTo(200);
+    }
+
+    @Test
+    void streamPermitTreatsClientErrorsAsHealthy() {
+        ResilientUpstream upstream = upstream(settings(1, 2, 1.0));
+        upstream.acquireStream().onFailure(400);
+        upstream.acquireStream().onFailure(401);
+        assertThat(upstream.circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        upstream.acquireStream().onFailure(0);
+        upstream.acquireStream().onFailure(200);
+        assertThat(upstream.circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(upstream::acquireStream).isInstanceOf(UpstreamUnavailableException.class);
+    }
+
+    private ResilientUpstream upstream(ResilientUpstream.Settings settings) {
+        return new ResilientUpstream("groq", settings, metrics, clock::get, nanos -> {
+            sleeps.add(nanos);
+            clock.addAndGet(nanos);
+        });
+    }
+
+    private static ResilientUpstream.Settings settings(int maxAttempts, int window, double failureRate) {
+        return new ResilientUpstream.Settings(64, window, window, failureRate,
+                Duration.ofSeconds(30), 3, maxAttempts, Duration.ofMillis(200), Duration.ofSeconds(2), Duration.ofSeconds(5),
+                0.2, 1);
+    }
+
+    private HttpResponse<String> call() {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.url()))
+                .POST(HttpRequest.BodyPublishers.ofString("{}")).build();
+        return llmClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
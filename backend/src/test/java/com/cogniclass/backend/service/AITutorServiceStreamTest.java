@@ -0,0 +1,141 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.cogniclass.backend.llm.LlmClient;
+import com.cogniclass.backend.llm.LlmProvider;
+import com.cogniclass.backend.llm.LlmProviderRouter;
+import com.cogniclass.backend.llm.TokenBudget;
+import com.cogniclass.backend.metrics.Histogram;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.resilience.ResilientUpstream;
+import com.cogniclass.backend.support.StubLlmServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class AITutorServiceStreamTest {
+
+    // The clock never moves, so only refunds can bring the budget back
+    private static final long BUDGET = 100_000;
+
+    private StubLlmServer upstream;
+    private MetricsRegistry metrics;
+    private LlmProvider provider;
+    private AITutorService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = StubLlmServer.start();
+        metrics = new MetricsRegistry();
+        LlmClient llmClient = new LlmClient(HttpClient.newHttpClient(), metrics, 4,
+                Duration.ofSeconds(5), Duration.ofSeconds(10));
+        ResilientUpstream groq = new ResilientUpstream("groq", ResilientUpstream.Settings.defaults(), metrics);
+        provider = new LlmProvider("groq", URI.create(upstream.url()), "test-key", "stub-model", groq,
+                new TokenBudget(BUDGET, () -> 0L), new Histogram());
+        LlmProviderRouter router = new LlmProviderRouter(List.of(provider), llmClient, metrics, false, Duration.ZERO);
+        service = new AITutorService(llmClient, new ObjectMapper(), metrics,
+                new TutorResponseCache(metrics, false, 0, Duration.ZERO, false, 1.0, System::nanoTime),
+                new TutorRequestCoalescer(metrics, false, Duration.ZERO), router, ResponseTypeClassifier.defaults());
+        ReflectionTestUtils.setField(service, "streamTimeout", Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstream.close();
+    }
+
+    @Test
+    void relaysDeltasInOrderAndRecordsTimeToFirstToken() throws Exception {
+        upstream.respondWith(StubLlmServer.stream(List.of("The ", "chain ", "rule"), Duration.ofMillis(50)));
+        RecordingListener listener = new RecordingListener();
+
+        service.streamAIResponse("explain the chain rule", "calculus", listener);
+
+        assertThat(listener.done.get(5, TimeUnit.SECONDS)).isEqualTo("The chain rule");
+        assertThat(listener.tokens).containsExactly("The ", "chain ", "rule");
+        assertThat(upstream.requestBodies().get(0)).contains("\"stream\":true");
+        assertThat(metrics.histogram("ai_tutor_time_to_first_token_seconds").count()).isEqualTo(1);
+        double ttft = metrics.histogram("ai_tutor_time_to_first_token_seconds").sumSeconds();
+        double total = metrics.histogram("ai_tutor_stream_duration_seconds").sumSeconds();
+        assertThat(ttft).isLessThan(total);
+        assertThat(metrics.histogram("llm_request_seconds", "provider", "groq", "model", "stub-model",
+                "mode", "stream", "outcome", "ok").count()).isEqualTo(1);
+        assertThat(metrics.counter("llm_tokens_total", "provider", "groq", "model", "stub-model", "type", "prompt")
+                .count()).isEqualTo(12);
+        assertThat(metrics.counter("llm_tokens_total", "provider", "groq", "model", "stub-model", "type", "completion")
+                .count()).isEqualTo(3);
+    }
+
+    @Test
+    void reportsUpstreamErrorsOnce() throws Exception {
+        upstream.respondWith(StubLlmServer.status(503, Duration.ZERO, null));
+        RecordingListener listener = new RecordingListener();
+
+        service.streamAIResponse("hello", "general learning", listener);
+
+        assertThat(listener.error.get(5, TimeUnit.SECONDS)).hasMessageContaining("503");
+        Thread.sleep(100);
+        assertThat(listener.errors).hasSize(1);
+        assertThat(listener.done).isNotDone();
+        assertThat(metrics.counter("ai_tutor_streams_total", "outcome", "error").count()).isEqualTo(1);
+        assertThat(metrics.histogram("llm_request_seconds", "provider", "groq", "model", "stub-model",
+                "mode", "stream", "outcome", "server_error").count()).isEqualTo(1);
+        assertThat(provider.tryReserveTokens(BUDGET)).isTrue();
+    }
+
+    @Test
+    void reportsFailedCompletionsAsFailuresWithoutUpstreamDetails() {
+        upstream.respondWith(StubLlmServer.status(400, Duration.ZERO, null));
+
+        AITutorService.TutorReply reply = service.getAIResponse("hello", "general learning");
+
+        assertThat(reply.answered()).isFalse();
+        assertThat(reply.content()).doesNotContain("400").doesNotContain("groq");
+        assertThat(provider.tryReserveTokens(BUDGET)).isTrue();
+    }
+
+    @Test
+    void reportsCompletionsAsAnswers() {
+        upstream.respondWith(StubLlmServer.completion("Use the chain rule.", Duration.ZERO));
+
+        AITutorService.TutorReply reply = service.getAIResponse("hello", "general learning");
+
+        assertThat(reply.answered()).isTrue();
+        assertThat(reply.content()).isEqualTo("Use the chain rule.");
+    }
+
+    private static class RecordingListener implements TutorStreamListener {
+        final List<String> tokens = new CopyOnWriteArrayList<>();
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        final CompletableFuture<String> done = new CompletableFuture<>();
+        final CompletableFuture<Throwable> error = new CompletableFuture<>();
+
+        @Override
+        public void onToken(String token) {
+            tokens.add(token);
+        }
+
+        @Override
+        public void onComplete(String fullResponse) {
+            done.complete(fullResponse);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            errors.add(throwable);
+            error.complete(throwable);
+        }
+    }
+}
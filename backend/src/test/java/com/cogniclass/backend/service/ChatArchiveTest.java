@@ -0,0 +1,87 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.cogniclass.backend.dto.ChatMessageView;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+class ChatArchiveTest {
+
+    private static final LocalDateTime MARCH = LocalDateTime.of(2026, 3, 1, 9, 0);
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void roundTripsAMonthAndSurvivesARestart() throws Exception {
+        ChatArchive archive = archive();
+        try (ChatArchive.MonthWriter writer = archive.write(YearMonth.of(2026, 3))) {
+            writer.add(row(10, 1, 1L, 42L, MARCH, "plain"));
+            writer.add(row(11, 1, 2L, null, MARCH.plusNanos(123_000), null));
+            writer.add(row(12, 1, 3L, 43L, MARCH.plusDays(1), "ünïcödé 🚀"));
+            writer.add(row(13, 2, 1L, 42L, MARCH, "other group"));
+            writer.commit();
+        }
+
+        ChatArchive reopened = archive();
+
+        assertThat(reopened.watermark()).isEqualTo(LocalDateTime.of(2026, 4, 1, 0, 0));
+        assertThat(reopened.maxSeq(1)).isEqualTo(3);
+        assertThat(reopened.lastSentAt(1)).isEqualTo(MARCH.plusDays(1));
+        List<ChatMessageView> newestFirst = reopened.before(1, null, 10);
+        assertThat(newestFirst).extracting(ChatMessageView::getId).containsExactly(12L, 11L, 10L);
+        assertThat(newestFirst.get(0).getContent()).isEqualTo("ünïcödé 🚀");
+        assertThat(newestFirst.get(0).getSender().getName()).isEqualTo("user43");
+        assertThat(newestFirst.get(1).getSender()).isNull();
+        assertThat(newestFirst.get(1).getContent()).isNull();
+        assertThat(newestFirst.get(1).getSentAt()).isEqualTo(MARCH.plusNanos(123_000));
+        assertThat(reopened.read(YearMonth.of(2026, 3))).hasSize(4);
+        try (var files = Files.list(dir)) {
+            assertThat(files.map(path -> path.getFileName().toString())).containsExactly("2026-03.chat");
+        }
+    }
+
+    @Test
+    void pagesAcrossMonthsInBothDirections() throws Exception {
+        ChatArchive archive = archive();
+        long id = 1;
+        for (YearMonth month = YearMonth.of(2026, 1); month.getMonthValue() <= 3; month = month.plusMonths(1)) {
+            try (ChatArchive.MonthWriter writer = archive.write(month)) {
+                for (int i = 0; i < 3; i++, id++) {
+                    writer.add(row(id, 1, id, 42L, month.atDay(1).atTime(9, 0).plusMinutes(i), "m" + id));
+                }
+                writer.commit();
+            }
+        }
+        ChatMessageView fifth = archive.before(1, null, 9).get(4);
+
+        assertThat(archive.before(1, ChatCursor.of(fifth), 4)).extracting(ChatMessageView::getId)
+                .containsExactly(4L, 3L, 2L, 1L);
+        assertThat(archive.after(1, ChatCursor.of(fifth), 3)).extracting(ChatMessageView::getId)
+                .containsExactly(6L, 7L, 8L);
+        assertThat(archive.before(2, null, 10)).isEmpty();
+
+        archive.clear();
+        assertThat(archive.watermark()).isNull();
+        assertThat(archive.hotSince()).isEqualTo(ChatArchive.EPOCH);
+    }
+
+    private ChatArchive archive() {
+        return new ChatArchive(new MetricsRegistry(), dir, 4);
+    }
+
+    private static ChatArchiveFile.Row row(long id, long groupId, Long seq, Long senderId, LocalDateTime sentAt,
+                                           String content) {
+        return new ChatArchiveFile.Row(id, groupId, seq, senderId, senderId == null ? null : "user" + senderId,
+                senderId == null ? null : "STUDENT", sentAt, "TEXT", content);
+    }
+}
@@ -0,0 +1,34 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+class ChatCursorTest {
+
+    @Test
+    void roundTripsSentAtAndId() {
+        ChatCursor cursor = new ChatCursor(LocalDateTime.of(2026, 3, 14, 15, 9, 26, 535_897_000), 42L);
+
+        ChatCursor decoded = ChatCursor.decode(cursor.encode());
+
+        assertThat(decoded).isEqualTo(cursor);
+    }
+
+    @Test
+    void rejectsGarbage() {
+        assertThatThrownBy(() -> ChatCursor.decode("not-a-cursor"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void clampsPageSize() {
+        assertThat(ChatService.clampLimit(null)).isEqualTo(ChatService.DEFAULT_PAGE_SIZE);
+        assertThat(ChatService.clampLimit(0)).isEqualTo(ChatService.DEFAULT_PAGE_SIZE);
+        assertThat(ChatService.clampLimit(10_000)).isEqualTo(ChatService.MAX_PAGE_SIZE);
+        assertThat(ChatService.clampLimit(20)).isEqualTo(20);
+    }
+}
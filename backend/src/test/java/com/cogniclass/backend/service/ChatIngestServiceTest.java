@@ -0,0 +1,262 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cogniclass.backend.dto.ChatMessageView;
+import com.cogniclass.backend.entity.StudyGroup;
+import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.repository.ChatMessageRepository;
+import com.cogniclass.backend.repository.GroupReadMarkerRepository;
+import com.cogniclass.backend.repository.StudyGroupRepository;
+import com.cogniclass.backend.repository.UserRepository;
+import com.cogniclass.backend.websocket.GroupChatBroadcaster;
+
+// Not transactional: the writer thread commits on its own connection and must see the fixtures
+@DataJpaTest(properties = "spring.datasource.generate-unique-name=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChatIngestServiceTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StudyGroupRepository studyGroupRepository;
+
+    @Autowired
+    private GroupReadMarkerRepository readMarkerRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @TempDir
+    private Path journalDir;
+
+    @TempDir
+    private Path archiveDir;
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final GroupChatBroadcaster broadcaster = mock(GroupChatBroadcaster.class);
+    private final Map<Long, List<ChatMessageView>> broadcasts = new ConcurrentHashMap<>();
+    private JdbcTemplate jdbc;
+    private ChatSequencer sequencer;
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        sequencer = new ChatSequencer(chatMessageRepository, dataSource, new ChatArchive(metrics, archiveDir, 16));
+        doAnswer(invocation -> {
+            broadcasts.computeIfAbsent(invocation.getArgument(0), group -> new CopyOnWriteArrayList<>())
+                    .add(invocation.getArgument(2));
+            return null;
+        }).when(broadcaster).publish(anyLong(), eq("new_message"), any());
+        alice = user("alice");
+        bob = user("bob");
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : new String[] {"chat_messages", "group_read_markers", "group_members", "study_groups", "users"}) {
+            jdbc.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void keepsEachGroupInSequenceOrderAcrossConcurrentSenders() throws Exception {
+        List<StudyGroup> groups = List.of(group("Calculus"), group("Chemistry"), group("Biology"));
+        ChatIngestService ingest = ingest(1_000, 50);
+        ingest.start();
+
+        ExecutorService senders = Executors.newFixedThreadPool(6);
+        for (int t = 0; t < 6; t++) {
+            User sender = t % 2 == 0 ? alice : bob;
+            senders.submit(() -> {
+                for (int i = 0; i < 60; i++) {
+                    ingest.submit(groups.get(i % 3).getId(), sender, "message " + i);
+                }
+            });
+        }
+        senders.shutdown();
+        await().atMost(Duration.ofSeconds(10)).until(() -> written() == 360);
+        ingest.stop();
+
+        assertThat(metrics.counter("chat_ingest_batches_total").count()).isLessThan(360);
+        for (StudyGroup group : groups) {
+            List<Long> seqInHistoryOrder = jdbc.queryForList(
+                    "SELECT seq FROM chat_messages WHERE group_id = ? ORDER BY sent_at, id", Long.class, group.getId());
+            assertThat(seqInHistoryOrder).hasSize(120).isSorted().startsWith(1L).endsWith(120L);
+            assertThat(broadcasts.get(group.getId())).extracting(ChatMessageView::getSeq).isSorted().hasSize(120)
+                    .doesNotHaveDuplicates();
+            assertThat(broadcasts.get(group.getId())).allMatch(view -> view.getId() != null);
+            assertThat(studyGroupRepository.findMessageCount(group.getId())).contains(120L);
+        }
+        assertThat(journalFiles()).isEmpty();
+    }
+
+    @Test
+    void acknowledgesWithSeqBeforeTheRowIsWritten() {
+        StudyGroup group = group("Calculus");
+        ChatIngestService ingest = ingest(100, 10);
+        ingest.start();
+
+        ChatMessageView first = ingest.submit(group.getId(), alice, "hello");
+        ChatMessageView second = ingest.submit(group.getId(), bob, "hi");
+
+        assertThat(first.getId()).isNull();
+        assertThat(first.getSeq()).isEqualTo(1L);
+        assertThat(second.getSeq()).isEqualTo(2L);
+        assertThat(second.getSentAt()).isAfter(first.getSentAt());
+        assertThat(second.getSender().getName()).isEqualTo("bob");
+        ingest.stop();
+        assertThat(chatMessageRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsWhenTheQueueIsFull() throws Exception {
+        StudyGroup group = group("Calculus");
+        CountDownLatch publishing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            publishing.countDown();
+            release.await();
+            return null;
+        }).when(broadcaster).publish(anyLong(), eq("new_message"), any());
+        ChatIngestService ingest = ingest(2, 1);
+        ingest.start();
+
+        ingest.submit(group.getId(), alice, "stuck in the writer");
+        assertThat(publishing.await(5, TimeUnit.SECONDS)).isTrue();
+        ingest.submit(group.getId(), alice, "queued");
+        ingest.submit(group.getId(), alice, "queued");
+
+        assertThatThrownBy(() -> ingest.submit(group.getId(), alice, "one too many"))
+                .isInstanceOf(ChatIngestService.IngestUnavailableException.class);
+        assertThat(metrics.counter("chat_ingest_messages_total", "outcome", "rejected").count()).isEqualTo(1);
+        release.countDown();
+        ingest.stop();
+        assertThat(jdbc.queryForList("SELECT seq FROM chat_messages ORDER BY seq", Long.class))
+                .containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void replaysJournaledMessagesThatNeverReachedTheDatabase() throws Exception {
+        StudyGroup group = group("Calculus");
+        LocalDateTime at = LocalDateTime.of(2026, 3, 1, 9, 0);
+        // A previous run accepted five messages and crashed after committing the first two
+        try (ChatJournal previousRun = new ChatJournal(journalDir, 1 << 20, false)) {
+            previousRun.open();
+            for (long seq = 1; seq <= 5; seq++) {
+                ChatJournal.Entry entry = new ChatJournal.Entry(group.getId(), seq, alice.getId(), "alice", "STUDENT",
+                        at.plusSeconds(seq), "TEXT", "journaled " + seq);
+                previousRun.append(entry);
+                if (seq <= 2) {
+                    insert(group, seq, at.plusSeconds(seq), "journaled " + seq);
+                }
+            }
+        }
+
+        ChatIngestService ingest = ingest(100, 10);
+        ingest.start();
+
+        assertThat(jdbc.queryForList("SELECT content FROM chat_messages WHERE group_id = ? ORDER BY seq", String.class,
+                group.getId())).containsExactly("journaled 1", "journaled 2", "journaled 3", "journaled 4", "journaled 5");
+        assertThat(studyGroupRepository.findMessageCount(group.getId())).contains(3L); // only the replayed rows count
+        assertThat(metrics.counter("chat_ingest_messages_total", "outcome", "replayed").count()).isEqualTo(3);
+        assertThat(journalFiles()).hasSize(0);
+
+        assertThat(ingest.submit(group.getId(), bob, "after restart").getSeq()).isEqualTo(6L);
+        ingest.stop();
+    }
+
+    @Test
+    void numbersHistoryWrittenBeforeSequencesExisted() {
+        StudyGroup group = group("Calculus");
+        LocalDateTime at = LocalDateTime.of(2026, 3, 1, 9, 0);
+        insert(group, null, at.plusMinutes(2), "second");
+        insert(group, null, at.plusMinutes(1), "first");
+
+        assertThat(sequencer.current(group.getId())).isEqualTo(2);
+        assertThat(jdbc.queryForList("SELECT content FROM chat_messages ORDER BY seq", String.class))
+                .containsExactly("first", "second");
+        assertThat(sequencer.next(group.getId(), at).sentAt()).isEqualTo(at.plusMinutes(2).plusNanos(1_000));
+    }
+
+    private ChatIngestService ingest(int capacity, int batchSize) {
+        GroupActivityService activity = new GroupActivityService(studyGroupRepository, readMarkerRepository, dataSource);
+        return new ChatIngestService(sequencer, activity, broadcaster, dataSource, transactionManager, metrics,
+                journalDir, 1 << 20, false, capacity, batchSize, Duration.ofMillis(5), Duration.ofSeconds(10));
+    }
+
+    private long written() {
+        return metrics.counter("chat_ingest_messages_total", "outcome", "written").count();
+    }
+
+    private List<Path> journalFiles() throws Exception {
+        try (var files = Files.list(journalDir)) {
+            return files.toList();
+        }
+    }
+
+    private void insert(StudyGroup group, Long seq, LocalDateTime sentAt, String content) {
+        jdbc.update("INSERT INTO chat_messages (group_id, seq, user_id, content, sent_at, message_type) "
+                + "VALUES (?, ?, ?, ?, ?, 'TEXT')", group.getId(), seq, alice.getId(), content, sentAt);
+    }
+
+    private User user(String name) {
+        User user = new User();
+        user.setEmail(name + "@test.dev");
+        user.setPassword("x");
+        user.setName(name);
+        return userRepository.save(user);
+    }
+
+    private StudyGroup group(String name) {
+        StudyGroup group = new StudyGroup();
+        group.setName(name);
+        group.setCreatedBy(alice);
+        group.setMembers(new ArrayList<>(List.of(alice, bob)));
+        return studyGroupRepository.save(group);
+    }
+}
@@ -0,0 +1,82 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChatJournalTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void roundTripsEntriesAndStopsAtATornTail() throws Exception {
+        ChatJournal journal = new ChatJournal(dir, 1 << 20, false);
+        journal.open();
+        journal.append(entry(1, "plain"));
+        journal.append(entry(2, null));
+        journal.append(entry(3, "ünïcödé 🚀"));
+        journal.close();
+        Path segment = files().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3); // the last record was half written
+        }
+
+        List<ChatJournal.Entry> replayed = new ChatJournal(dir, 1 << 20, false).open();
+
+        assertThat(replayed).containsExactly(entry(1, "plain"), entry(2, null));
+    }
+
+    @Test
+    void deletesSealedSegmentsOnceEverythingInThemIsCommitted() throws Exception {
+        ChatJournal journal = new ChatJournal(dir, 1, false); // every record fills a segment
+        journal.open();
+        ChatJournal.Segment first = journal.append(entry(1, "a"));
+        ChatJournal.Segment second = journal.append(entry(2, "b"));
+        assertThat(files()).hasSize(2);
+
+        journal.committed(first, 1);
+        assertThat(files()).hasSize(1);
+        journal.committed(second, 1); // still active
+        assertThat(files()).hasSize(1);
+
+        journal.close();
+        assertThat(files()).isEmpty();
+    }
+
+    @Test
+    void keepsUncommittedRecordsForTheNextRun() throws Exception {
+        ChatJournal journal = new ChatJournal(dir, 1 << 20, false);
+        journal.open();
+        journal.append(entry(1, "a"));
+        journal.close();
+
+        ChatJournal next = new ChatJournal(dir, 1 << 20, false);
+        assertThat(next.open()).containsExactly(entry(1, "a"));
+        next.append(entry(2, "b")); // goes to a new segment
+        next.deleteReplayed();
+
+        assertThat(files()).hasSize(1);
+        assertThat(new ChatJournal(dir, 1 << 20, false).open()).containsExactly(entry(2, "b"));
+    }
+
+    private static ChatJournal.Entry entry(long seq, String content) {
+        return new ChatJournal.Entry(7L, seq, 42L, "alice", "STUDENT", LocalDateTime.of(2026, 3, 1, 9, 0, 0, 123_456_000),
+                "TEXT", content);
+    }
+
+    private List<Path> files() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Runs the chat_messages partitioning migration against a real PostgreSQL, in a
+ * throwaway schema that mirrors what Hibernate creates, both for databases from
+ * before the id sequence (identity column, unique (group_id, seq)) and after.
+ * <p>
+ * Run with {@code mvn test -Dtest=ChatPartitionManagerPostgresTest
+ * -Dchat.partition.jdbc-url=jdbc:postgresql://localhost:5432/postgres
+ * -Dchat.partition.user=... -Dchat.partition.password=...}.
+ */
+@EnabledIfSystemProperty(named = "chat.partition.jdbc-url", matches = ".+")
+class ChatPartitionManagerPostgresTest {
+
+    private static final String SCHEMA = "chat_partition_test";
+
+    private PGSimpleDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        PGSimpleDataSource admin = dataSource(null);
+        new JdbcTemplate(admin).execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        new JdbcTemplate(admin).execute("CREATE SCHEMA " + SCHEMA);
+        dataSource = dataSource(SCHEMA);
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE users (id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, name varchar(255))");
+        jdbc.execute("CREATE TABLE study_groups (id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY)");
+        jdbc.update("INSERT INTO users (id, name) VALUES (1, 'alice')");
+        jdbc.update("INSERT INTO study_groups (id) VALUES (1)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource(null)).execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+    }
+
+    @Test
+    void convertsALegacyIdentityTableAndKeepsEveryRow() {
+        jdbc.execute("CREATE TABLE chat_messages (id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "content text, message_type varchar(255), sent_at timestamp(6), seq bigint, " +
+                "group_id bigint REFERENCES study_groups, user_id bigint REFERENCES users, " +
+                "CONSTRAINT uk_chat_messages_group_seq UNIQUE (group_id, seq))");
+        jdbc.execute("CREATE INDEX idx_chat_messages_group_sent_at_id ON chat_messages (group_id, sent_at, id)");
+        convertAndVerify();
+    }
+
+    @Test
+    void convertsATableWithTheSequenceDefault() {
+        jdbc.execute("CREATE SEQUENCE chat_messages_id_seq START WITH 1 INCREMENT BY 1");
+        jdbc.execute("CREATE TABLE chat_messages (id bigint DEFAULT nextval('chat_messages_id_seq') NOT NULL, " +
+                "content text, message_type varchar(255), sent_at timestamp(6), seq bigint, " +
+                "group_id bigint REFERENCES study_groups, user_id bigint REFERENCES users, PRIMARY KEY (id))");
+        jdbc.execute("CREATE INDEX idx_chat_messages_group_sent_at_id ON chat_messages (group_id, sent_at, id)");
+        jdbc.execute("CREATE INDEX idx_chat_messages_group_seq ON chat_messages (group_id, seq)");
+        convertAndVerify();
+    }
+
+    private void convertAndVerify() {
+        new SearchIndexInitializer(dataSource).ensureSearchIndexes();
+        YearMonth thisMonth = YearMonth.now();
+        long seq = 0;
+        for (YearMonth month = thisMonth.minusMonths(3); !month.isAfter(thisMonth); month = month.plusMonths(1)) {
+            for (int i = 0; i < 5; i++) {
+                insert(++seq, month.atDay(2).atTime(9, i), "derivatives " + seq);
+            }
+        }
+        // Far future: lands in the default partition
+        insert(++seq, thisMonth.plusYears(5).atDay(1).atStartOfDay(), "from the future");
+        long maxId = jdbc.queryForObject("SELECT max(id) FROM chat_messages", Long.class);
+
+        ChatPartitionManager partitions = new ChatPartitionManager(dataSource);
+        partitions.ensurePartitioned();
+        partitions.ensurePartitioned();
+
+        assertThat(jdbc.queryForObject("SELECT relkind::text FROM pg_class WHERE oid = 'chat_messages'::regclass",
+                String.class)).isEqualTo("p");
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM chat_messages", Long.class)).isEqualTo(seq);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM " + ChatPartitionManager.DEFAULT_PARTITION, Long.class))
+                .isEqualTo(1);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM " +
+                ChatPartitionManager.partitionName(thisMonth.minusMonths(3)), Long.class)).isEqualTo(5);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM chat_messages WHERE search_vector @@ " +
+                "plainto_tsquery('english', 'derivatives')", Long.class)).isEqualTo(seq - 1);
+
+        // New rows, from JDBC and from Hibernate's nextval, get ids after the copied ones
+        insert(++seq, LocalDateTime.now(), "after");
+        assertThat(jdbc.queryForObject("SELECT id FROM chat_messages WHERE content = 'after'", Long.class))
+                .isGreaterThan(maxId);
+        assertThat(jdbc.queryForObject("SELECT nextval('chat_messages_id_seq')", Long.class)).isGreaterThan(maxId);
+
+        partitions.ensurePartitions(thisMonth, thisMonth.plusMonths(2));
+        assertThat(jdbc.queryForObject("SELECT to_regclass(?)::text", String.class,
+                ChatPartitionManager.partitionName(thisMonth.plusMonths(2)))).isNotNull();
+        assertThat(partitions.removeMonth(thisMonth.minusMonths(3))).isEqualTo(5);
+        assertThat(jdbc.queryForObject("SELECT to_regclass(?)::text", String.class,
+                ChatPartitionManager.partitionName(thisMonth.minusMonths(3)))).isNull();
+    }
+
+    private void insert(long seq, LocalDateTime sentAt, String content) {
+        jdbc.update("INSERT INTO chat_messages (group_id, seq, user_id, content, sent_at, message_type) " +
+                "VALUES (1, ?, 1, ?, ?, 'TEXT')", seq, content, sentAt);
+    }
+
+    private static PGSimpleDataSource dataSource(String schema) {
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setURL(System.getProperty("chat.partition.jdbc-url"));
+        dataSource.setUser(System.getProperty("chat.partition.user", "postgres"));
+        dataSource.setPassword(System.getProperty("chat.partition.password", ""));
+        if (schema != null) {
+            dataSource.setCurrentSchema(schema);
+        }
+        return dataSource;
+    }
+}
@@ -0,0 +1,163 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import com.cogniclass.backend.dto.ChatHistoryPage;
+import com.cogniclass.backend.dto.ChatMessageView;
+import com.cogniclass.backend.entity.ChatMessage;
+import com.cogniclass.backend.entity.StudyGroup;
+import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.repository.ChatMessageRepository;
+
+@DataJpaTest
+class ChatServiceTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2026, 10, 18, 12, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @TempDir
+    private Path archiveDir;
+
+    private ChatService chatService;
+    private StudyGroup calculus;
+    // In (sent_at, id) order, the order history pages must follow
+    private final List<ChatMessage> history = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        chatService = new ChatService(chatMessageRepository, new ChatArchive(new MetricsRegistry(), archiveDir, 0));
+        User alice = user("alice");
+        calculus = group("Calculus", alice);
+        StudyGroup chemistry = group("Chemistry", alice);
+        // Seven messages share one sent_at, so only the id tie-break keeps page boundaries apart
+        for (int i = 0; i < 3; i++) {
+            history.add(message(calculus, alice, "earlier " + i, NOON.minusMinutes(3 - i)));
+        }
+        for (int i = 0; i < 7; i++) {
+            history.add(message(calculus, alice, "noon " + i, NOON));
+            message(chemistry, alice, "other group " + i, NOON);
+        }
+        for (int i = 0; i < 3; i++) {
+            history.add(message(calculus, alice, "later " + i, NOON.plusMinutes(i + 1)));
+        }
+        history.sort(Comparator.comparing(ChatMessage::getSentAt).thenComparing(ChatMessage::getId));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void pagesBackwardsOverTiedTimestampsWithoutSkippingOrRepeating() {
+        List<Long> seen = new ArrayList<>();
+        ChatHistoryPage page = chatService.getHistory(calculus.getId(), null, null, 4);
+        List<Integer> pageSizes = new ArrayList<>();
+        while (true) {
+            seen.addAll(0, ids(page));
+            pageSizes.add(page.getMessages().size());
+            if (!page.isHasMore()) {
+                break;
+            }
+            page = chatService.getHistory(calculus.getId(), page.getBeforeCursor(), null, 4);
+        }
+
+        assertThat(seen).containsExactlyElementsOf(expectedIds());
+        assertThat(pageSizes).containsExactly(4, 4, 4, 1);
+    }
+
+    @Test
+    void pagesForwardsOverTiedTimestampsWithoutSkippingOrRepeating() {
+        String start = new ChatCursor(NOON.minusHours(1), 0L).encode();
+        List<Long> seen = new ArrayList<>();
+        ChatHistoryPage page = chatService.getHistory(calculus.getId(), null, start, 3);
+        while (true) {
+            seen.addAll(ids(page));
+            if (!page.isHasMore()) {
+                break;
+            }
+            page = chatService.getHistory(calculus.getId(), null, page.getAfterCursor(), 3);
+        }
+
+        assertThat(seen).containsExactlyElementsOf(expectedIds());
+    }
+
+    @Test
+    void reportsMorePagesOnlyWhenAnotherRowExists() {
+        assertThat(chatService.getHistory(calculus.getId(), null, null, 13).isHasMore()).isFalse();
+        assertThat(chatService.getHistory(calculus.getId(), null, null, 12).isHasMore()).isTrue();
+        assertThat(chatService.getHistory(calculus.getId(), null, null, null).getMessages()).hasSize(13);
+    }
+
+    @Test
+    void echoesTheCursorWhenThereIsNothingNew() {
+        ChatHistoryPage latest = chatService.getHistory(calculus.getId(), null, null, 50);
+
+        ChatHistoryPage caughtUp = chatService.getHistory(calculus.getId(), null, latest.getAfterCursor(), 50);
+        ChatHistoryPage oldest = chatService.getHistory(calculus.getId(), latest.getBeforeCursor(), null, 50);
+
+        assertThat(caughtUp.getMessages()).isEmpty();
+        assertThat(caughtUp.getAfterCursor()).isEqualTo(latest.getAfterCursor());
+        assertThat(caughtUp.isHasMore()).isFalse();
+        assertThat(oldest.getMessages()).isEmpty();
+        assertThat(oldest.getBeforeCursor()).isEqualTo(latest.getBeforeCursor());
+    }
+
+    @Test
+    void rejectsBeforeAndAfterTogether() {
+        String cursor = new ChatCursor(NOON, 1L).encode();
+
+        assertThatThrownBy(() -> chatService.getHistory(calculus.getId(), cursor, cursor, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<Long> expectedIds() {
+        return history.stream().map(ChatMessage::getId).toList();
+    }
+
+    private static List<Long> ids(ChatHistoryPage page) {
+        return page.getMessages().stream().map(ChatMessageView::getId).toList();
+    }
+
+    private User user(String name) {
+        User user = new User();
+        user.setEmail(name + "-" + System.nanoTime() + "@test.dev");
+        user.setPassword("x");
+        user.setName(name);
+        return entityManager.persist(user);
+    }
+
+    private StudyGroup group(String name, User creator) {
+        StudyGroup group = new StudyGroup();
+        group.setName(name);
+        group.setCreatedBy(creator);
+        group.setMembers(new ArrayList<>(List.of(creator)));
+        return entityManager.persist(group);
+    }
+
+    private ChatMessage message(StudyGroup group, User sender, String content, LocalDateTime sentAt) {
+        ChatMessage message = new ChatMessage();
+        message.setStudyGroup(group);
+        message.setSender(sender);
+        message.setContent(content);
+        message.setSentAt(sentAt);
+        return entityManager.persist(message);
+    }
+}
@@ -0,0 +1,190 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cogniclass.backend.dto.ChatHistoryPage;
+import com.cogniclass.backend.dto.ChatMessageView;
+import com.cogniclass.backend.entity.StudyGroup;
+import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.repository.ChatMessageRepository;
+import com.cogniclass.backend.repository.StudyGroupRepository;
+import com.cogniclass.backend.repository.UserRepository;
+
+@DataJpaTest(properties = "spring.datasource.generate-unique-name=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChatTieringJobTest {
+
+    private static final Clock OCTOBER = Clock.fixed(LocalDateTime.of(2026, 10, 18, 12, 0).toInstant(ZoneOffset.UTC),
+            ZoneOffset.UTC);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StudyGroupRepository studyGroupRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @TempDir
+    private Path archiveDir;
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private JdbcTemplate jdbc;
+    private ChatArchive archive;
+    private User alice;
+    private StudyGroup group;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        archive = new ChatArchive(metrics, archiveDir, 16);
+        alice = new User();
+        alice.setEmail("alice@test.dev");
+        alice.setPassword("x");
+        alice.setName("alice");
+        alice = userRepository.save(alice);
+        group = new StudyGroup();
+        group.setName("Calculus");
+        group.setCreatedBy(alice);
+        group.setMembers(new ArrayList<>(List.of(alice)));
+        group = studyGroupRepository.save(group);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : new String[] {"chat_messages", "group_members", "study_groups", "users"}) {
+            jdbc.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void movesOldMonthsToTheArchiveAndServesHistoryAcrossBothTiers() {
+        List<String> written = new ArrayList<>();
+        long seq = 0;
+        for (int month : new int[] {1, 2, 3, 5, 10}) {
+            for (int i = 0; i < 3; i++) {
+                String content = "2026-" + month + " #" + i;
+                insert(++seq, LocalDateTime.of(2026, month, 10, 9, 0).plusMinutes(i), content);
+                written.add(content);
+            }
+        }
+
+        job().run();
+
+        assertThat(archive.watermark()).isEqualTo(LocalDateTime.of(2026, 4, 1, 0, 0));
+        assertThat(chatMessageRepository.count()).isEqualTo(6);
+        assertThat(metrics.counter("chat_tiering_messages_total", "action", "archived").count()).isEqualTo(9);
+
+        // Scrolling back two at a time walks from the hot tier into the archive
+        ChatService chat = new ChatService(chatMessageRepository, archive);
+        List<String> scrolledBack = new ArrayList<>();
+        ChatHistoryPage page = chat.getHistory(group.getId(), null, null, 2);
+        while (true) {
+            scrolledBack.addAll(0, page.getMessages().stream().map(ChatMessageView::getContent).toList());
+            if (!page.isHasMore()) {
+                break;
+            }
+            page = chat.getHistory(group.getId(), page.getBeforeCursor(), null, 2);
+        }
+        assertThat(scrolledBack).isEqualTo(written);
+
+        // Catching up from an archived message continues into the hot tier
+        String firstCursor = ChatCursor.of(archive.before(group.getId(), null, 9).get(8)).encode();
+        ChatHistoryPage caughtUp = chat.getHistory(group.getId(), null, firstCursor, 10);
+        assertThat(caughtUp.getMessages()).extracting(ChatMessageView::getContent)
+                .containsExactlyElementsOf(written.subList(1, 11));
+        assertThat(caughtUp.isHasMore()).isTrue();
+    }
+
+    @Test
+    void mergesLateRowsIntoAnArchivedMonthAndKeepsSequencesGoing() throws Exception {
+        insert(1, LocalDateTime.of(2026, 2, 10, 9, 0), "archived");
+        job().run();
+        insert(2, LocalDateTime.of(2026, 2, 11, 9, 0), "late");
+
+        job().run();
+
+        assertThat(chatMessageRepository.count()).isZero();
+        assertThat(archive.read(YearMonth.of(2026, 2))).extracting(ChatArchiveFile.Row::content)
+                .containsExactly("archived", "late");
+        ChatSequencer sequencer = new ChatSequencer(chatMessageRepository, dataSource, archive);
+        assertThat(sequencer.current(group.getId())).isEqualTo(2);
+        assertThat(sequencer.next(group.getId(), LocalDateTime.of(2026, 1, 1, 0, 0)).sentAt())
+                .isAfter(LocalDateTime.of(2026, 2, 11, 9, 0));
+    }
+
+    @Test
+    void streamsLateRowsIntoArchiveOrderAndWritesCrashLeftoversOnce() throws Exception {
+        StudyGroup physics = new StudyGroup();
+        physics.setName("Physics");
+        physics.setCreatedBy(alice);
+        physics = studyGroupRepository.save(physics);
+        insert(group.getId(), 1, LocalDateTime.of(2026, 2, 10, 9, 0), "a1");
+        insert(group.getId(), 2, LocalDateTime.of(2026, 2, 12, 9, 0), "a3");
+        insert(physics.getId(), 1, LocalDateTime.of(2026, 2, 11, 9, 0), "b2");
+        job().run();
+        ChatArchiveFile.Row leftover = archive.read(YearMonth.of(2026, 2)).get(1);
+
+        insert(group.getId(), 3, LocalDateTime.of(2026, 2, 11, 9, 0), "a2");
+        insert(physics.getId(), 2, LocalDateTime.of(2026, 2, 1, 9, 0), "b1");
+        insert(physics.getId(), 3, LocalDateTime.of(2026, 2, 28, 9, 0), "b3");
+        // As if the last run had crashed after writing the archive but before deleting the rows
+        jdbc.update("INSERT INTO chat_messages (id, group_id, seq, user_id, content, sent_at, message_type) "
+                + "VALUES (?, ?, ?, ?, ?, ?, 'TEXT')", leftover.id(), group.getId(), leftover.seq(), alice.getId(),
+                leftover.content(), leftover.sentAt());
+
+        job().run();
+
+        List<String> expected = group.getId() < physics.getId()
+                ? List.of("a1", "a2", "a3", "b1", "b2", "b3") : List.of("b1", "b2", "b3", "a1", "a2", "a3");
+        assertThat(archive.read(YearMonth.of(2026, 2))).extracting(ChatArchiveFile.Row::content)
+                .containsExactlyElementsOf(expected);
+        assertThat(metrics.counter("chat_tiering_messages_total", "action", "archived").count()).isEqualTo(6);
+        assertThat(chatMessageRepository.count()).isZero();
+    }
+
+    private ChatTieringJob job() {
+        return new ChatTieringJob(new ChatPartitionManager(dataSource), archive,
+                new ChatSequencer(chatMessageRepository, dataSource, archive), dataSource, transactionManager, metrics,
+                OCTOBER, true, 3, true, 6, Duration.ofHours(6));
+    }
+
+    private void insert(long seq, LocalDateTime sentAt, String content) {
+        insert(group.getId(), seq, sentAt, content);
+    }
+
+    private void insert(long groupId, long seq, LocalDateTime sentAt, String content) {
+        jdbc.update("INSERT INTO chat_messages (group_id, seq, user_id, content, sent_at, message_type) "
+                + "VALUES (?, ?, ?, ?, ?, 'TEXT')", groupId, seq, alice.getId(), content, sentAt);
+    }
+}
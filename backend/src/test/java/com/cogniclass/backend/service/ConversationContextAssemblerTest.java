@@ -0,0 +1,103 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import com.cogniclass.backend.dto.ConversationTurn;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.repository.AIConversationRepository;
+
+class ConversationContextAssemblerTest {
+
+    private final AIConversationRepository repository = mock(AIConversationRepository.class);
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void loadsOnlyTheNewestTurnsOnceAndAppendsNewAnswers() {
+        when(repository.findRecentTurnsInGroup(eq(1L), eq(7L), any())).thenReturn(newestFirst(3));
+        ConversationContextAssembler assembler = assembler(3, 10_000, 3);
+
+        List<Map<String, String>> first = assembler.history(1L, 7L);
+        assembler.append(1L, 7L, "question 3", "answer 3");
+        List<Map<String, String>> second = assembler.history(1L, 7L);
+
+        verify(repository, times(1)).findRecentTurnsInGroup(1L, 7L, Pageable.ofSize(3));
+        assertThat(first).extracting(message -> message.get("content"))
+                .containsExactly("question 0", "answer 0", "question 1", "answer 1", "question 2", "answer 2");
+        assertThat(second).extracting(message -> message.get("content"))
+                .containsExactly("question 1", "answer 1", "question 2", "answer 2", "question 3", "answer 3");
+        assertThat(second).extracting(message -> message.get("role"))
+                .containsExactly("user", "assistant", "user", "assistant", "user", "assistant");
+    }
+
+    @Test
+    void reloadsAfterTheTtlAndKeepsGroupsApart() {
+        when(repository.findRecentTurns(eq(1L), any())).thenReturn(newestFirst(1));
+        when(repository.findRecentTurnsInGroup(eq(1L), eq(7L), any())).thenReturn(List.of());
+        ConversationContextAssembler assembler = assembler(5, 10_000, 5);
+
+        assertThat(assembler.history(1L, null)).hasSize(2);
+        assertThat(assembler.history(1L, 7L)).isEmpty();
+        clock.addAndGet(Duration.ofMinutes(31).toNanos());
+        assembler.history(1L, null);
+
+        verify(repository, times(2)).findRecentTurns(eq(1L), any());
+        assertThat(assembler.history(null, null)).isEmpty();
+    }
+
+    @Test
+    void staysWithinTheTokenBudgetTrimmingAndSummarizingOlderTurns() {
+        List<ConversationTurn> turns = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            turns.add(new ConversationTurn("what about topic " + i + "?", "word ".repeat(200), LocalDateTime.now()));
+        }
+        ConversationContextAssembler assembler = assembler(10, 1000, 2);
+
+        List<Map<String, String>> history = assembler.assemble(turns);
+
+        int tokens = history.stream().mapToInt(message -> ConversationContextAssembler.estimateTokens(message.get("content"))).sum();
+        assertThat(tokens).isLessThanOrEqualTo(1000);
+        // The two newest answers are whole, the ones before them cut short
+        assertThat(history.get(history.size() - 1).get("content")).hasSize(1000);
+        assertThat(history.get(history.size() - 5).get("content")).endsWith(" …").hasSizeLessThan(500);
+        assertThat(history.get(0).get("role")).isEqualTo("system");
+        assertThat(history.get(0).get("content")).startsWith("Earlier in this conversation the student asked about: ")
+                .contains("topic 0");
+    }
+
+    @Test
+    void emptyHistoryWhenNothingFits() {
+        ConversationContextAssembler assembler = assembler(10, 10, 2);
+        List<ConversationTurn> turns = List.of(new ConversationTurn("q", "a".repeat(400), LocalDateTime.now()));
+
+        assertThat(assembler.assemble(turns)).isEmpty();
+    }
+
+    private ConversationContextAssembler assembler(int maxTurns, int tokenBudget, int verbatimTurns) {
+        return new ConversationContextAssembler(repository, new MetricsRegistry(), maxTurns, tokenBudget, verbatimTurns,
+                60, 100, Duration.ofMinutes(30), clock::get);
+    }
+
+    private static List<ConversationTurn> newestFirst(int count) {
+        List<ConversationTurn> turns = new ArrayList<>();
+        for (int i = count - 1; i >= 0; i--) {
+            turns.add(new ConversationTurn("question " + i, "answer " + i, LocalDateTime.now()));
+        }
+        return turns;
+    }
+}
@@ -0,0 +1,98 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.cogniclass.backend.entity.AIConversation;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.repository.AIConversationRepository;
+
+class ConversationWriterTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final AIConversationRepository repository = mock(AIConversationRepository.class);
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private final List<AIConversation> syncSaves = new CopyOnWriteArrayList<>();
+
+    private ConversationWriter writer(int capacity, int batchSize) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(repository.saveAll(any())).thenAnswer(invocation -> {
+            List<AIConversation> batch = new ArrayList<>(invocation.getArgument(0));
+            batchSizes.add(batch.size());
+            return batch;
+        });
+        when(repository.save(any())).thenAnswer(invocation -> {
+            syncSaves.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        return new ConversationWriter(repository, transactionManager, metrics, capacity, batchSize,
+                Duration.ofMillis(20), Duration.ofMillis(10), Duration.ofSeconds(5));
+    }
+
+    @Test
+    void drainsQueueInBoundedBatches() {
+        ConversationWriter writer = writer(1_000, 50);
+        writer.start();
+
+        for (int i = 0; i < 230; i++) {
+            writer.submit(new AIConversation());
+        }
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> metrics.counter("ai_conversation_writes_total", "path", "batched").count() == 230);
+        assertThat(batchSizes).allMatch(size -> size <= 50);
+        assertThat(syncSaves).isEmpty();
+        writer.stop();
+    }
+
+    @Test
+    void fallsBackToCallerSaveWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ConversationWriter writer = writer(2, 1);
+        doAnswer(invocation -> {
+            release.await();
+            return invocation.getArgument(0);
+        }).when(repository).saveAll(any());
+        writer.start();
+
+        // One row is stuck in the writer, two fill the queue, the rest are saved by the caller
+        for (int i = 0; i < 6; i++) {
+            writer.submit(new AIConversation());
+        }
+
+        assertThat(syncSaves).hasSizeGreaterThanOrEqualTo(3);
+        assertThat(metrics.counter("ai_conversation_writes_total", "path", "caller_runs").count())
+                .isEqualTo(syncSaves.size());
+        release.countDown();
+        writer.stop();
+    }
+
+    @Test
+    void flushesEverythingQueuedOnStop() {
+        ConversationWriter writer = writer(1_000, 500);
+        writer.start();
+        for (int i = 0; i < 100; i++) {
+            writer.submit(new AIConversation());
+        }
+
+        writer.stop();
+
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(100);
+        assertThat(writer.isRunning()).isFalse();
+    }
+}
@@ -0,0 +1,216 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import com.cogniclass.backend.dto.ChatMessageView;
+import com.cogniclass.backend.dto.GroupActivity;
+import com.cogniclass.backend.entity.ChatMessage;
+import com.cogniclass.backend.entity.StudyGroup;
+import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.repository.GroupReadMarkerRepository;
+import com.cogniclass.backend.repository.StudyGroupRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class GroupActivityServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private StudyGroupRepository studyGroupRepository;
+
+    @Autowired
+    private GroupReadMarkerRepository readMarkerRepository;
+
+    private GroupActivityService activityService;
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        activityService = new GroupActivityService(studyGroupRepository, readMarkerRepository, dataSource);
+        alice = user("alice");
+        bob = user("bob");
+    }
+
+    @Test
+    void sendingCountsAsUnreadForOthersButNotTheSender() {
+        StudyGroup group = group("Calculus", alice, bob);
+
+        post(group, alice, "first");
+        post(group, alice, "second");
+        post(group, bob, "third");
+
+        assertThat(activity(alice)).singleElement().satisfies(a -> {
+            assertThat(a.unreadCount()).isEqualTo(1);
+            assertThat(a.lastMessage().preview()).isEqualTo("third");
+            assertThat(a.lastMessage().senderName()).isEqualTo("bob");
+        });
+        assertThat(activity(bob)).singleElement().extracting(GroupActivity::unreadCount).isEqualTo(0L);
+    }
+
+    @Test
+    void aBatchCountsEveryMessageAndMarksEachSenderRead() {
+        StudyGroup group = group("Calculus", alice, bob, user("carol"));
+
+        activityService.recordMessages(group.getId(), List.of(
+                persist(group, alice, "one"), persist(group, bob, "two"), persist(group, alice, "three")));
+
+        assertThat(studyGroupRepository.findMessageCount(group.getId())).contains(3L);
+        assertThat(activity(alice)).singleElement().satisfies(a -> {
+            assertThat(a.unreadCount()).isZero();
+            assertThat(a.lastMessage().preview()).isEqualTo("three");
+        });
+        assertThat(activity(bob)).singleElement().extracting(GroupActivity::unreadCount).isEqualTo(0L);
+    }
+
+    @Test
+    void markReadClearsUnreadAndJoinersStartAtZero() {
+        StudyGroup group = group("Calculus", alice);
+        post(group, alice, "hello");
+        post(group, alice, "anyone?");
+
+        group = entityManager.find(StudyGroup.class, group.getId());
+        group.getMembers().add(bob);
+        activityService.onJoin(bob.getId(), group.getId());
+        post(group, alice, "welcome bob");
+        assertThat(activity(bob)).singleElement().extracting(GroupActivity::unreadCount).isEqualTo(1L);
+
+        assertThat(activityService.markRead(bob.getId(), group.getId())).isTrue();
+        assertThat(activity(bob)).singleElement().extracting(GroupActivity::unreadCount).isEqualTo(0L);
+        assertThat(activityService.markRead(bob.getId(), -1L)).isFalse();
+    }
+
+    @Test
+    void savingAStaleGroupDoesNotResetTheCounter() {
+        StudyGroup group = group("Calculus", alice, bob);
+        post(group, bob, "one");
+        group.setDescription("renamed"); // group instance still holds messageCount = 0
+        studyGroupRepository.save(group);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(studyGroupRepository.findMessageCount(group.getId())).contains(1L);
+    }
+
+    @Test
+    void activityForAllGroupsIsOneStatement() {
+        for (int i = 0; i < 30; i++) {
+            StudyGroup group = group("Group " + i, alice, bob);
+            post(group, bob, "message in group " + i);
+        }
+        StudyGroup quiet = group("Quiet", alice);
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<GroupActivity> activity = activityService.getActivity(alice.getId());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(activity).hasSize(31);
+        assertThat(activity).filteredOn(a -> a.groupId().equals(quiet.getId())).singleElement()
+                .satisfies(a -> assertThat(a.lastMessage()).isNull());
+        assertThat(activity).filteredOn(a -> a.lastMessage() != null).allMatch(a -> a.unreadCount() == 1);
+    }
+
+    @Test
+    void rebuildRecomputesCountersForRowsWrittenOutsideJpa() throws Exception {
+        StudyGroup group = persistGroup("Imported", alice, bob); // no read markers yet
+        for (int i = 0; i < 4; i++) {
+            ChatMessage message = new ChatMessage();
+            message.setContent("imported " + i);
+            message.setSender(alice);
+            message.setStudyGroup(group);
+            message.setSentAt(LocalDateTime.now().minusMinutes(10 - i));
+            entityManager.persist(message);
+        }
+        entityManager.flush();
+
+        Connection connection = DataSourceUtils.getConnection(dataSource); // the test transaction's connection
+        GroupActivityService.rebuild(connection);
+        entityManager.clear();
+
+        assertThat(studyGroupRepository.findMessageCount(group.getId())).contains(4L);
+        assertThat(activity(bob)).singleElement().satisfies(a -> {
+            assertThat(a.unreadCount()).isZero(); // imported history counts as read
+            assertThat(a.lastMessage().preview()).isEqualTo("imported 3");
+            assertThat(a.lastMessage().senderName()).isEqualTo("alice");
+        });
+    }
+
+    @Test
+    void previewFlattensWhitespaceAndTruncates() {
+        assertThat(GroupActivityService.preview("  two\n\nlines ")).isEqualTo("two lines");
+        String preview = GroupActivityService.preview("x".repeat(500));
+        assertThat(preview).hasSize(GroupActivityService.PREVIEW_LENGTH).endsWith("…");
+    }
+
+    private void post(StudyGroup group, User sender, String content) {
+        activityService.recordMessages(group.getId(), List.of(persist(group, sender, content)));
+    }
+
+    private ChatMessageView persist(StudyGroup group, User sender, String content) {
+        ChatMessage message = new ChatMessage();
+        message.setContent(content);
+        message.setSender(sender);
+        message.setStudyGroup(group);
+        return ChatMessageView.from(entityManager.persist(message));
+    }
+
+    private List<GroupActivity> activity(User user) {
+        entityManager.flush();
+        entityManager.clear();
+        return activityService.getActivity(user.getId());
+    }
+
+    private User user(String name) {
+        User user = new User();
+        user.setEmail(name + "@test.dev");
+        user.setPassword("x");
+        user.setName(name);
+        return entityManager.persist(user);
+    }
+
+    private StudyGroup group(String name, User... members) {
+        StudyGroup group = persistGroup(name, members);
+        for (User member : members) {
+            activityService.onJoin(member.getId(), group.getId());
+        }
+        return group;
+    }
+
+    private StudyGroup persistGroup(String name, User... members) {
+        StudyGroup group = new StudyGroup();
+        group.setName(name);
+        group.setCreatedBy(members[0]);
+        group.setMembers(new ArrayList<>(List.of(members)));
+        entityManager.persist(group);
+        entityManager.flush();
+        return group;
+    }
+}
@@ -0,0 +1,74 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "c2VjcmV0LWtleS1mb3ItdGVzdHMtb25seS0zMi1ieXRlcyE=";
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final JwtService jwtService = new JwtService(metrics, SECRET, "cogniclass", Duration.ofMinutes(15), Duration.ofDays(14));
+
+    @Test
+    void rebuildsPrincipalFromAccessTokenClaims() {
+        JwtService.TokenPair tokens = jwtService.issueTokens(user());
+
+        User principal = jwtService.verifyAccessToken(tokens.accessToken());
+
+        assertThat(principal.getId()).isEqualTo(7L);
+        assertThat(principal.getEmail()).isEqualTo("alex@student.edu");
+        assertThat(principal.getRole()).isEqualTo("TEACHER");
+        assertThat(principal.getAuthorities()).extracting(Object::toString).isNotEmpty();
+    }
+
+    @Test
+    void rejectsTamperedExpiredAndRefreshTokensAsAccessTokens() {
+        JwtService.TokenPair tokens = jwtService.issueTokens(user());
+        JwtService expiredIssuer = new JwtService(metrics, SECRET, "cogniclass", Duration.ofMinutes(-5), Duration.ofDays(14));
+
+        assertThat(jwtService.verifyAccessToken(tokens.accessToken() + "x")).isNull();
+        assertThat(jwtService.verifyAccessToken(tokens.refreshToken())).isNull();
+        assertThat(jwtService.verifyAccessToken(expiredIssuer.issueTokens(user()).accessToken())).isNull();
+        assertThat(metrics.counter("jwt_verifications_total", "result", "expired").count()).isEqualTo(1);
+    }
+
+    @Test
+    void refreshTokensRotateAndReuseRevokesTheFamily() {
+        String first = jwtService.issueTokens(user()).refreshToken();
+
+        JwtService.RefreshGrant grant = jwtService.rotateRefreshToken(first);
+        String second = jwtService.issueTokens(user(), grant.family()).refreshToken();
+
+        assertThat(grant.userId()).isEqualTo(7L);
+        assertThatThrownBy(() -> jwtService.rotateRefreshToken(first)).isInstanceOf(BadCredentialsException.class);
+        // the replay cut off the legitimate descendant too
+        assertThatThrownBy(() -> jwtService.rotateRefreshToken(second)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void logoutRevokesRefreshToken() {
+        String refreshToken = jwtService.issueTokens(user()).refreshToken();
+
+        jwtService.revokeRefreshToken(refreshToken);
+
+        assertThatThrownBy(() -> jwtService.rotateRefreshToken(refreshToken)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(7L);
+        user.setEmail("alex@student.edu");
+        user.setName("Alex");
+        user.setRole("TEACHER");
+        return user;
+    }
+}
@@ -0,0 +1,62 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class MemberIdSetTest {
+
+    @Test
+    void agreesWithHashSetUnderRandomJoinsAndLeaves() {
+        SplittableRandom random = new SplittableRandom(7);
+        Set<Long> expected = new HashSet<>();
+        MemberIdSet set = MemberIdSet.EMPTY;
+        for (int i = 0; i < 5_000; i++) {
+            long id = 1 + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(id);
+                set = set.without(id);
+            } else {
+                expected.add(id);
+                set = set.with(id);
+            }
+        }
+        assertThat(set.size()).isEqualTo(expected.size());
+        for (long id = 0; id <= 2_001; id++) {
+            assertThat(set.contains(id)).as("id %d", id).isEqualTo(expected.contains(id));
+        }
+    }
+
+    @Test
+    void updatesLeaveTheOriginalUntouched() {
+        List<Long> ids = new ArrayList<>(List.of(3L, 5L, 8L, 5L));
+        ids.add(null);
+        MemberIdSet original = MemberIdSet.of(ids);
+
+        MemberIdSet joined = original.with(13L);
+        MemberIdSet left = original.without(5L);
+
+        assertThat(original.size()).isEqualTo(3);
+        assertThat(original.contains(13L)).isFalse();
+        assertThat(original.contains(5L)).isTrue();
+        assertThat(joined.contains(13L)).isTrue();
+        assertThat(left.contains(5L)).isFalse();
+        assertThat(left.contains(8L)).isTrue();
+        assertThat(original.with(3L)).isSameAs(original);
+        assertThat(original.without(42L)).isSameAs(original);
+    }
+
+    @Test
+    void nonPositiveIdsAreNeverMembers() {
+        MemberIdSet set = MemberIdSet.of(List.of(1L, 2L));
+        assertThat(set.contains(0L)).isFalse();
+        assertThat(set.contains(-1L)).isFalse();
+        assertThat(set.with(0L)).isSameAs(set);
+    }
+}
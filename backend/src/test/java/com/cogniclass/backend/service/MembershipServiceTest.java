@@ -0,0 +1,91 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.repository.StudyGroupRepository;
+
+class MembershipServiceTest {
+
+    private final StudyGroupRepository repository = mock(StudyGroupRepository.class);
+    private final GroupActivityService activity = mock(GroupActivityService.class);
+    private final AtomicLong clock = new AtomicLong();
+    private final MembershipService service = new MembershipService(repository, activity, new MetricsRegistry(),
+            2, Duration.ofMinutes(1), clock::get);
+
+    @Test
+    void loadsEachGroupOnceThenAnswersFromTheIndex() {
+        when(repository.findMemberIds(7L)).thenReturn(List.of(1L, 2L));
+
+        assertThat(service.isMember(7L, 1L)).isTrue();
+        assertThat(service.isMember(7L, 2L)).isTrue();
+        assertThat(service.isMember(7L, 3L)).isFalse();
+        assertThat(service.isMember(7L, null)).isFalse();
+
+        verify(repository, times(1)).findMemberIds(7L);
+    }
+
+    @Test
+    void joinAndLeavePatchTheCachedSetWithoutReloading() {
+        when(repository.findMemberIds(7L)).thenReturn(List.of(1L));
+        when(repository.insertMember(7L, 2L)).thenReturn(1);
+        when(repository.deleteMember(7L, 1L)).thenReturn(1);
+        service.isMember(7L, 1L);
+
+        assertThat(service.join(7L, 2L)).isTrue();
+        assertThat(service.leave(7L, 1L)).isTrue();
+
+        assertThat(service.isMember(7L, 2L)).isTrue();
+        assertThat(service.isMember(7L, 1L)).isFalse();
+        verify(repository, times(1)).findMemberIds(7L);
+        verify(activity).onJoin(2L, 7L);
+        verify(activity).onLeave(1L, 7L);
+    }
+
+    @Test
+    void leavingAGroupYouAreNotInChangesNothing() {
+        assertThat(service.leave(7L, 1L)).isFalse();
+        verify(activity, never()).onLeave(1L, 7L);
+    }
+
+    @Test
+    void aLoadThatRacesWithAJoinIsNotCached() {
+        when(repository.findMemberIds(7L)).thenAnswer(invocation -> {
+            service.join(7L, 2L); // lands while the member ids are being read
+            return List.of(1L);
+        }).thenReturn(List.of(1L, 2L));
+
+        service.isMember(7L, 1L);
+
+        assertThat(service.isMember(7L, 2L)).isTrue();
+        verify(repository, times(2)).findMemberIds(7L);
+    }
+
+    @Test
+    void entriesExpireAndTheLeastRecentlyUsedGroupIsEvicted() {
+        when(repository.findMemberIds(7L)).thenReturn(List.of(1L));
+        when(repository.findMemberIds(8L)).thenReturn(List.of(1L));
+        when(repository.findMemberIds(9L)).thenReturn(List.of(1L));
+
+        service.isMember(7L, 1L);
+        service.isMember(8L, 1L);
+        service.isMember(9L, 1L); // capacity 2: evicts group 7
+        service.isMember(7L, 1L);
+        clock.addAndGet(Duration.ofMinutes(2).toNanos());
+        service.isMember(7L, 1L);
+
+        assertThat(service.size()).isEqualTo(2);
+        verify(repository, times(3)).findMemberIds(7L);
+    }
+}
@@ -0,0 +1,58 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.service.PasswordHashingExecutor.HashingCapacityExceededException;
+
+class PasswordHashingExecutorTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final PasswordHashingExecutor executor = new PasswordHashingExecutor(metrics, 1, 1, Duration.ofSeconds(5));
+
+    @AfterEach
+    void shutdown() {
+        executor.destroy();
+    }
+
+    @Test
+    void rejectsImmediatelyOncePoolAndQueueAreFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        CompletableFuture<String> busy = CompletableFuture.supplyAsync(() -> executor.run(() -> {
+            running.countDown();
+            release.await();
+            return "first";
+        }));
+        running.await(5, TimeUnit.SECONDS);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> executor.run(() -> "second"));
+        while (metrics.snapshot().get("password_hashing_queue_depth").intValue() == 0) {
+            Thread.onSpinWait();
+        }
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> executor.run(() -> "third")).isInstanceOf(HashingCapacityExceededException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(100));
+
+        release.countDown();
+        assertThat(busy.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+        assertThat(metrics.counter("password_hashing_tasks_total", "result", "rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    void propagatesTaskExceptionsUnchanged() {
+        assertThatThrownBy(() -> executor.run(() -> {
+            throw new IllegalArgumentException("Email already exists");
+        })).isInstanceOf(IllegalArgumentException.class).hasMessage("Email already exists");
+    }
+}
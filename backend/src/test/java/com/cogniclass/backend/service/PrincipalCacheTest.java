@@ -0,0 +1,88 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+class PrincipalCacheTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final PrincipalCache cache = new PrincipalCache(metrics, true, 2, Duration.ofMinutes(5), clock::get);
+
+    @Test
+    void servesRepeatLookupsByEmailAndIdFromOneLoad() {
+        cache.getByEmail("alex@student.edu", this::load);
+
+        Optional<User> byEmail = cache.getByEmail("alex@student.edu", this::load);
+        Optional<User> byId = cache.getById(1L, id -> load("unused"));
+
+        assertThat(byEmail).map(User::getName).contains("Alex");
+        assertThat(byId).map(User::getEmail).contains("alex@student.edu");
+        assertThat(loads).hasValue(1);
+        assertThat(metrics.counter("principal_cache_requests_total", "result", "hit").count()).isEqualTo(2);
+    }
+
+    @Test
+    void returnsCopiesSoCallersCannotMutateTheCache() {
+        cache.getByEmail("alex@student.edu", this::load).orElseThrow().setRole("ADMIN");
+
+        assertThat(cache.getByEmail("alex@student.edu", this::load)).map(User::getRole).contains("STUDENT");
+    }
+
+    @Test
+    void reloadsAfterTtlAndInvalidation() {
+        cache.getByEmail("alex@student.edu", this::load);
+        clock.addAndGet(Duration.ofMinutes(6).toNanos());
+        cache.getByEmail("alex@student.edu", this::load);
+        cache.invalidate(1L);
+        cache.getByEmail("alex@student.edu", this::load);
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void discardsLoadThatRacedWithInvalidation() {
+        cache.getByEmail("alex@student.edu", email -> {
+            cache.invalidate(1L); // the row changes while it is being read
+            return load(email);
+        });
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void doesNotCacheMissesAndStaysBounded() {
+        assertThat(cache.getByEmail("nobody@student.edu", email -> Optional.empty())).isEmpty();
+        for (long id = 1; id <= 3; id++) {
+            long userId = id;
+            cache.getById(userId, ignored -> Optional.of(user(userId, "user" + userId + "@student.edu")));
+        }
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(metrics.counter("principal_cache_evictions_total").count()).isEqualTo(1);
+    }
+
+    private Optional<User> load(String email) {
+        loads.incrementAndGet();
+        return Optional.of(user(1L, "alex@student.edu"));
+    }
+
+    private static User user(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        user.setName("Alex");
+        user.setPassword("hash");
+        return user;
+    }
+}
@@ -0,0 +1,118 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import com.cogniclass.backend.service.ResponseTypeClassifier.Type;
+
+class ResponseTypeClassifierTest {
+
+    private static final String[] WORDS = {
+        "the", "derivative", "of", "x", "squared", "is", "two", "x.", "Consider", "limits", "carefully", "\n", "?", "??"
+    };
+    private static final String[] KEYWORDS = {"Example", "for INSTANCE", "hint", "Try thinking"};
+
+    private final ResponseTypeClassifier classifier = ResponseTypeClassifier.defaults();
+
+    @Test
+    void agreesWithThePreviousRulesWhenEachTypeIsMentionedAtMostOnce() {
+        SplittableRandom random = new SplittableRandom(11);
+        for (int n = 0; n < 5_000; n++) {
+            StringBuilder text = new StringBuilder();
+            int words = random.nextInt(40);
+            for (int i = 0; i < words; i++) {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(4) == 0 ? "" : " ");
+            }
+            if (random.nextBoolean()) {
+                text.insert(random.nextInt(text.length() + 1), " " + KEYWORDS[random.nextInt(2)] + " ");
+            }
+            if (random.nextBoolean()) {
+                text.insert(random.nextInt(text.length() + 1), " " + KEYWORDS[2 + random.nextInt(2)] + " ");
+            }
+            String answer = text.toString();
+            assertThat(classifier.classify(answer).name()).as(answer).isEqualTo(legacy(answer));
+        }
+        assertThat(classifier.classify(null)).isEqualTo(Type.EXPLANATION);
+        assertThat(classifier.classify("???")).isEqualTo(Type.EXPLANATION);
+        assertThat(classifier.classify("Why? How? ")).isEqualTo(Type.QUESTION);
+        assertThat(classifier.classify("Why? How?")).isEqualTo(Type.EXPLANATION); // split() drops the trailing empty part
+    }
+
+    @Test
+    void findsOverlappingKeywordsThroughFailureLinks() {
+        ResponseTypeClassifier overlapping = new ResponseTypeClassifier(Map.of(
+                Type.EXAMPLE, Map.of("she", 1.0),
+                Type.HINT, Map.of("he", 1.0, "hers", 1.0)), 2, 1);
+
+        assertThat(overlapping.classify("USHERS")).isEqualTo(Type.HINT); // she + he + hers
+        assertThat(overlapping.classify("ushe")).isEqualTo(Type.EXAMPLE); // she + he: tie goes to EXAMPLE
+        assertThat(overlapping.classify("shh")).isEqualTo(Type.EXPLANATION);
+    }
+
+    @Test
+    void weightsDecideBetweenTypes() {
+        ResponseTypeClassifier weighted = new ResponseTypeClassifier(ResponseTypeClassifier.keywords(Map.of(
+                Type.EXAMPLE, "example=1",
+                Type.HINT, "hint=3",
+                Type.EXPLANATION, "because=0.5, therefore")), 2, 1);
+
+        assertThat(weighted.classify("example, example, then a hint")).isEqualTo(Type.HINT);
+        assertThat(weighted.classify("example, example, example, example and a hint")).isEqualTo(Type.EXAMPLE);
+        assertThat(weighted.classify("therefore x, because y? and z? ok")).isEqualTo(Type.EXPLANATION); // 1.5 > 1
+        assertThatThrownBy(() -> ResponseTypeClassifier.keywords(Map.of(Type.HINT, "hint=-1")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void foldsCaseBeyondAscii() {
+        ResponseTypeClassifier german = new ResponseTypeClassifier(Map.of(Type.EXAMPLE, Map.of("übung", 1.0)), 2, 1);
+
+        assertThat(german.classify("ÜBUNG 3: Ableitungen")).isEqualTo(Type.EXAMPLE);
+        assertThat(german.classify("Ubung")).isEqualTo(Type.EXPLANATION);
+    }
+
+    @Test
+    void classifyingDoesNotAllocate() {
+        List<String> answers = new ArrayList<>();
+        String sentence = "The derivative measures the rate of change. Try thinking about slopes? Or tangents? ";
+        for (int i = 0; i < 10; i++) {
+            answers.add(sentence.repeat(1 + i * 5) + (i % 2 == 0 ? "For example, f(x) = x^2." : ""));
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int sink = 0;
+        for (int i = 0; i < 20_000; i++) {
+            sink += classifier.classify(answers.get(i % answers.size())).ordinal();
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 20_000; i++) {
+            sink += classifier.classify(answers.get(i % answers.size())).ordinal();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat(sink).isPositive();
+        assertThat(allocated).isLessThan(1_024); // the measurement itself, not 20,000 calls
+    }
+
+    // AITutorService.determineResponseType before the classifier
+    private static String legacy(String content) {
+        String lowerContent = content.toLowerCase();
+        if (lowerContent.contains("example") || lowerContent.contains("for instance")) {
+            return "EXAMPLE";
+        } else if (lowerContent.contains("hint") || lowerContent.contains("try thinking")) {
+            return "HINT";
+        } else if (lowerContent.contains("?") && content.split("\\?").length > 2) {
+            return "QUESTION";
+        }
+        return "EXPLANATION";
+    }
+}
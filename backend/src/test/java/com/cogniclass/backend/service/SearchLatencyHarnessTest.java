@@ -0,0 +1,118 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.cogniclass.backend.dto.SearchResultPage;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+/**
+ * Measures search latency over a synthetic dataset on a real PostgreSQL.
+ * The schema must already exist (start the application against the database
+ * once). The harness regenerates {@code search.bench.messages} chat messages
+ * (10 million by default) unless {@code search.bench.reuse=true}, builds the
+ * search indexes and prints latency percentiles for member-scoped and
+ * single-group queries.
+ * <p>
+ * Run with {@code mvn test -Dtest=SearchLatencyHarnessTest
+ * -Dsearch.bench.jdbc-url=jdbc:postgresql://localhost:5432/cogniclass_bench
+ * -Dsearch.bench.user=... -Dsearch.bench.password=...}.
+ */
+@EnabledIfSystemProperty(named = "search.bench.jdbc-url", matches = ".+")
+class SearchLatencyHarnessTest {
+
+    private static final int MESSAGES = Integer.getInteger("search.bench.messages", 10_000_000);
+    private static final int GROUPS = Integer.getInteger("search.bench.groups", 10_000);
+    private static final int USERS = Integer.getInteger("search.bench.users", 100_000);
+    private static final int QUERIES = Integer.getInteger("search.bench.queries", 500);
+    private static final String[] QUERY_TEXTS = {
+        "derivatives", "recursion", "thermodynamics", "\"linked lists\"", "supply and demand",
+        "integrals -limits", "sonnets or notes", "organic reactions quiz", "big-O notation", "cell division summary"
+    };
+
+    @Test
+    void searchLatencyAtScale() {
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setURL(System.getProperty("search.bench.jdbc-url"));
+        dataSource.setUser(System.getProperty("search.bench.user", "postgres"));
+        dataSource.setPassword(System.getProperty("search.bench.password", ""));
+
+        ChatArchive archive = new ChatArchive(new MetricsRegistry(),
+                Path.of(System.getProperty("java.io.tmpdir"), "search-bench-archive"), 0);
+        if (!Boolean.getBoolean("search.bench.reuse")) {
+            DataResetService reset = new DataResetService(dataSource,
+                    new PrincipalCache(new MetricsRegistry(), false, 0, Duration.ZERO),
+                    new ConversationContextAssembler(null, new MetricsRegistry(), 0, 0, 0, 0, 0, Duration.ZERO),
+                    new MembershipService(null, null, new MetricsRegistry(), 0, Duration.ZERO),
+                    new ChatSequencer(null, dataSource, archive), archive);
+            SyntheticDataGenerator generator = new SyntheticDataGenerator(dataSource, new BCryptPasswordEncoder(4), reset);
+            Map<String, Object> stats = generator.generate(new SyntheticDataGenerator.Spec(
+                    USERS, GROUPS, MESSAGES / GROUPS, 5, 1.0, 365, 42));
+            System.out.println("generated: " + stats);
+        }
+        long start = System.nanoTime();
+        new SearchIndexInitializer(dataSource).ensureSearchIndexes();
+        new JdbcTemplate(dataSource).execute("ANALYZE chat_messages");
+        System.out.printf("search indexes ready in %.1fs%n", (System.nanoTime() - start) / 1e9);
+
+        SearchService search = new SearchService(dataSource, archive, new MetricsRegistry());
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        List<Long[]> memberships = jdbc.query(
+                "SELECT user_id, group_id FROM group_members TABLESAMPLE SYSTEM (1) LIMIT 1000",
+                (rs, row) -> new Long[] {rs.getLong(1), rs.getLong(2)});
+        assertThat(memberships).isNotEmpty();
+
+        report("member groups, first page", dataSource, search, memberships, false, false);
+        report("member groups, second page", dataSource, search, memberships, false, true);
+        report("single group, first page", dataSource, search, memberships, true, false);
+    }
+
+    private static void report(String label, DataSource dataSource, SearchService search, List<Long[]> memberships,
+                               boolean singleGroup, boolean secondPage) {
+        SplittableRandom random = new SplittableRandom(7);
+        long[] nanos = new long[QUERIES];
+        long hits = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            Long[] membership = memberships.get(random.nextInt(memberships.size()));
+            String query = QUERY_TEXTS[random.nextInt(QUERY_TEXTS.length)];
+            Long groupId = singleGroup ? membership[1] : null;
+            String cursor = null;
+            if (secondPage) {
+                cursor = search.searchMessages(membership[0], query, groupId, null, 20).getNextCursor();
+                if (cursor == null) {
+                    nanos[i] = -1;
+                    continue;
+                }
+            }
+            long start = System.nanoTime();
+            SearchResultPage page = search.searchMessages(membership[0], query, groupId, cursor, 20);
+            nanos[i] = System.nanoTime() - start;
+            hits += page.getHits().size();
+        }
+        long[] timed = Arrays.stream(nanos).filter(n -> n >= 0).sorted().toArray();
+        System.out.printf("%-28s n=%d p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms avg hits=%.1f%n", label, timed.length,
+                percentile(timed, 0.50), percentile(timed, 0.95), percentile(timed, 0.99),
+                timed.length == 0 ? 0 : timed[timed.length - 1] / 1e6, timed.length == 0 ? 0 : (double) hits / timed.length);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+    }
+}
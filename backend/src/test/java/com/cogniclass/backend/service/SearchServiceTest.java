@@ -0,0 +1,181 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import com.cogniclass.backend.dto.SearchHit;
+import com.cogniclass.backend.dto.SearchResultPage;
+import com.cogniclass.backend.entity.AIConversation;
+import com.cogniclass.backend.entity.ChatMessage;
+import com.cogniclass.backend.entity.StudyGroup;
+import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+// Runs against H2, so this covers scoping and paging; ranking needs PostgreSQL
+@DataJpaTest
+class SearchServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @TempDir
+    private Path archiveDir;
+
+    private ChatArchive chatArchive;
+    private SearchService searchService;
+    private User alice;
+    private User bob;
+    private StudyGroup calculus;
+    private StudyGroup chemistry;
+
+    @BeforeEach
+    void setUp() {
+        chatArchive = new ChatArchive(new MetricsRegistry(), archiveDir, 0);
+        searchService = new SearchService(dataSource, chatArchive, new MetricsRegistry());
+        alice = user("alice");
+        bob = user("bob");
+        calculus = group("Calculus", List.of(alice, bob));
+        chemistry = group("Chemistry", List.of(bob));
+        for (int i = 0; i < 7; i++) {
+            message(calculus, alice, "Question " + i + " about Derivatives and limits");
+        }
+        message(calculus, bob, "Anyone up for pizza?");
+        message(chemistry, bob, "Derivatives of organic compounds are not what you think");
+        conversation(alice, calculus, "What is a derivative?", "The derivative measures the rate of change.");
+        conversation(bob, null, "Explain derivatives", "A derivative is a slope.");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void onlySearchesGroupsTheCallerBelongsTo() {
+        SearchResultPage forAlice = searchService.searchMessages(alice.getId(), "derivatives", null, null, 50);
+        SearchResultPage forBob = searchService.searchMessages(bob.getId(), "derivatives", null, null, 50);
+        SearchResultPage bobInChemistry = searchService.searchMessages(bob.getId(), "derivatives", chemistry.getId(), null, 50);
+        SearchResultPage aliceInChemistry = searchService.searchMessages(alice.getId(), "derivatives", chemistry.getId(), null, 50);
+
+        assertThat(forAlice.getHits()).hasSize(7).allSatisfy(hit -> assertThat(hit.getGroupId()).isEqualTo(calculus.getId()));
+        assertThat(forAlice.getHits().get(0).getSenderName()).isEqualTo("alice");
+        assertThat(forBob.getHits()).hasSize(8);
+        assertThat(bobInChemistry.getHits()).singleElement()
+                .satisfies(hit -> assertThat(hit.getSnippet()).startsWith("Derivatives of organic"));
+        assertThat(aliceInChemistry.getHits()).isEmpty();
+    }
+
+    @Test
+    void cursorWalksEveryHitExactlyOnce() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            SearchResultPage page = searchService.searchMessages(alice.getId(), "DERIVATIVES", null, cursor, 3);
+            page.getHits().stream().map(SearchHit::getId).forEach(seen::add);
+            cursor = page.getNextCursor();
+            assertThat(page.isHasMore()).isEqualTo(cursor != null);
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).hasSize(7).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void searchesOnlyMessagesNewerThanTheArchive() throws Exception {
+        YearMonth archived = YearMonth.now().minusMonths(2);
+        message(calculus, alice, "Derivatives from an archived month", archived.atDay(3).atTime(9, 0));
+        entityManager.flush();
+        assertThat(searchService.searchMessages(alice.getId(), "derivatives", null, null, 50).getHits()).hasSize(8);
+
+        try (ChatArchive.MonthWriter writer = chatArchive.write(archived)) {
+            writer.commit();
+        }
+
+        // The archived month's row is still in the table, as while a tiering run is removing it
+        assertThat(searchService.searchMessages(alice.getId(), "derivatives", null, null, 50).getHits()).hasSize(7)
+                .noneSatisfy(hit -> assertThat(hit.getSnippet()).contains("archived month"));
+    }
+
+    @Test
+    void conversationsAreLimitedToTheCallersOwn() {
+        SearchResultPage mine = searchService.searchConversations(alice.getId(), "derivative", null, null, null);
+        SearchResultPage inGroup = searchService.searchConversations(bob.getId(), "derivative", calculus.getId(), null, null);
+
+        assertThat(mine.getHits()).singleElement()
+                .satisfies(hit -> assertThat(hit.getSnippet()).contains("What is a derivative?").contains("rate of change"));
+        assertThat(inGroup.getHits()).isEmpty();
+    }
+
+    @Test
+    void rejectsBadInput() {
+        assertThatThrownBy(() -> searchService.searchMessages(alice.getId(), " x ", null, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> searchService.searchMessages(alice.getId(), "limits", null, null, 500))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> searchService.searchMessages(alice.getId(), "limits", null, "not-a-cursor", null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(searchService.searchMessages(alice.getId(), "100%_sure", null, null, null).getHits()).isEmpty();
+    }
+
+    @Test
+    void cursorRoundTripsExactRanks() {
+        SearchCursor cursor = new SearchCursor(0.1f / 3, 42L);
+        assertThat(SearchCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    private User user(String name) {
+        User user = new User();
+        user.setEmail(name + "-" + System.nanoTime() + "@test.dev");
+        user.setPassword("x");
+        user.setName(name);
+        return entityManager.persist(user);
+    }
+
+    private StudyGroup group(String name, List<User> members) {
+        StudyGroup group = new StudyGroup();
+        group.setName(name);
+        group.setCreatedBy(members.get(0));
+        group.setMembers(new ArrayList<>(members));
+        return entityManager.persist(group);
+    }
+
+    private void message(StudyGroup group, User sender, String content) {
+        message(group, sender, content, LocalDateTime.now());
+    }
+
+    private void message(StudyGroup group, User sender, String content, LocalDateTime sentAt) {
+        ChatMessage message = new ChatMessage();
+        message.setStudyGroup(group);
+        message.setSender(sender);
+        message.setContent(content);
+        message.setSentAt(sentAt);
+        message.setMessageType("TEXT");
+        entityManager.persist(message);
+    }
+
+    private void conversation(User user, StudyGroup group, String question, String answer) {
+        AIConversation conversation = new AIConversation();
+        conversation.setUser(user);
+        conversation.setStudyGroup(group);
+        conversation.setUserMessage(question);
+        conversation.setAiResponse(answer);
+        entityManager.persist(conversation);
+    }
+}
@@ -0,0 +1,140 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cogniclass.backend.entity.AIConversation;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.repository.AIConversationRepository;
+import com.cogniclass.backend.repository.UserRepository;
+
+@DataJpaTest(properties = "spring.datasource.generate-unique-name=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SyntheticDataGeneratorTest {
+
+    // 60 users, 5 groups of round(15 / rank) members: 15, 8, 5, 4 and 3
+    private static final SyntheticDataGenerator.Spec SMALL = new SyntheticDataGenerator.Spec(60, 5, 20, 2, 1.0, 30, 42);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private AIConversationRepository conversationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @TempDir
+    private Path archiveDir;
+
+    // The generator commits, and other tests share this database
+    @AfterEach
+    void tearDown() {
+        dataReset().truncateAll();
+    }
+
+    @Test
+    void generatesAConsistentDatasetThroughBatchInserts() {
+        Map<String, Object> stats = generator().generate(SMALL);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        assertThat(stats).containsEntry("users", 60).containsEntry("groups", 5).containsEntry("memberships", 35L)
+                .containsEntry("messages", 100L).containsEntry("aiConversations", 120L);
+        assertThat(count(jdbc, "SELECT COUNT(*) FROM users")).isEqualTo(60);
+        assertThat(count(jdbc, "SELECT COUNT(*) FROM group_members")).isEqualTo(35);
+        assertThat(count(jdbc, "SELECT COUNT(*) FROM chat_messages")).isEqualTo(100);
+        assertThat(count(jdbc, "SELECT COUNT(DISTINCT id) FROM ai_conversations")).isEqualTo(120);
+
+        // Power-law group sizes, largest first
+        assertThat(jdbc.queryForList("SELECT COUNT(*) FROM group_members GROUP BY group_id ORDER BY group_id",
+                Long.class)).containsExactly(15L, 8L, 5L, 4L, 3L);
+        // Each group's messages are numbered 1..20, and every sender and conversation group is a membership
+        assertThat(count(jdbc, "SELECT COUNT(DISTINCT group_id * 1000 + seq) FROM chat_messages " +
+                "WHERE seq BETWEEN 1 AND 20")).isEqualTo(100);
+        assertThat(count(jdbc, "SELECT COUNT(*) FROM chat_messages m WHERE NOT EXISTS " +
+                "(SELECT 1 FROM group_members gm WHERE gm.group_id = m.group_id AND gm.user_id = m.user_id)")).isZero();
+        assertThat(count(jdbc, "SELECT COUNT(*) FROM ai_conversations c WHERE c.group_id IS NOT NULL AND NOT EXISTS " +
+                "(SELECT 1 FROM group_members gm WHERE gm.group_id = c.group_id AND gm.user_id = c.user_id)")).isZero();
+        assertThat(count(jdbc, "SELECT COUNT(*) FROM study_groups g WHERE NOT EXISTS " +
+                "(SELECT 1 FROM group_members gm WHERE gm.group_id = g.id AND gm.user_id = g.created_by)")).isZero();
+
+        // GroupActivityService.rebuild ran over the inserted rows
+        assertThat(jdbc.queryForList("SELECT message_count FROM study_groups", Long.class)).containsOnly(20L);
+        assertThat(count(jdbc, "SELECT COUNT(*) FROM study_groups g WHERE g.last_message_id <> (SELECT m.id " +
+                "FROM chat_messages m WHERE m.group_id = g.id ORDER BY m.sent_at DESC, m.id DESC LIMIT 1) " +
+                "OR g.last_message_preview IS NULL OR g.last_message_sender IS NULL")).isZero();
+        assertThat(count(jdbc, "SELECT COUNT(*) FROM group_read_markers WHERE read_count = 20")).isEqualTo(35);
+
+        // Hibernate's allocator continues after the reserved block of conversation ids
+        long maxGenerated = count(jdbc, "SELECT MAX(id) FROM ai_conversations");
+        AIConversation conversation = new AIConversation();
+        conversation.setUser(userRepository.findAll().get(0));
+        conversation.setUserMessage("after");
+        assertThat(conversationRepository.save(conversation).getId()).isGreaterThan(maxGenerated);
+    }
+
+    @Test
+    void regeneratingReplacesThePreviousDataset() {
+        SyntheticDataGenerator generator = generator();
+        generator.generate(SMALL);
+        generator.generate(SMALL);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        assertThat(count(jdbc, "SELECT COUNT(*) FROM users")).isEqualTo(60);
+        assertThat(count(jdbc, "SELECT COUNT(*) FROM chat_messages")).isEqualTo(100);
+        assertThat(count(jdbc, "SELECT COUNT(DISTINCT id) FROM ai_conversations")).isEqualTo(120);
+    }
+
+    @Test
+    void acceptsTheSearchHarnessScale() {
+        assertThatCode(() -> new SyntheticDataGenerator.Spec(100_000, 10_000, 1_000, 5, 1.0, 365, 42))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void rejectsSpecsThatWouldFillTheDisk() {
+        assertThatThrownBy(() -> new SyntheticDataGenerator.Spec(Integer.MAX_VALUE, 10, 10, 1, 1.0, 30, 42))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SyntheticDataGenerator.Spec(1_000, 100_000, 1_000, 1, 1.0, 30, 42))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SyntheticDataGenerator.Spec(1_000_000, 10, 10, 1_000, 1.0, 30, 42))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SyntheticDataGenerator.Spec(1_000, 10, 10, 1, 1.0, 100_000, 42))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private SyntheticDataGenerator generator() {
+        return new SyntheticDataGenerator(dataSource, new BCryptPasswordEncoder(4), dataReset());
+    }
+
+    private DataResetService dataReset() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        ChatArchive archive = new ChatArchive(metrics, archiveDir, 0);
+        return new DataResetService(dataSource,
+                new PrincipalCache(metrics, false, 0, Duration.ZERO),
+                new ConversationContextAssembler(null, metrics, 0, 0, 0, 0, 0, Duration.ZERO),
+                new MembershipService(null, null, metrics, 0, Duration.ZERO),
+                new ChatSequencer(null, dataSource, archive), archive);
+    }
+
+    private static long count(JdbcTemplate jdbc, String sql) {
+        return jdbc.queryForObject(sql, Long.class);
+    }
+}
@@ -0,0 +1,115 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+class TutorRequestCoalescerTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void concurrentIdenticalPromptsShareOneUpstreamCall() throws Exception {
+        TutorRequestCoalescer coalescer = new TutorRequestCoalescer(metrics, true, Duration.ZERO);
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<CompletableFuture<String>> answers = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            // same prompt modulo case and whitespace
+            String message = i % 2 == 0 ? "Explain question 3" : " explain  question 3";
+            answers.add(CompletableFuture.supplyAsync(() -> coalescer.execute("Calculus", message, false, () -> {
+                upstreamCalls.incrementAndGet();
+                await(release);
+                return "the answer";
+            }), pool));
+        }
+        while (metrics.counter("ai_tutor_coalescing_requests_total", "role", "follower").count() < 29) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        for (CompletableFuture<String> answer : answers) {
+            assertThat(answer.get(5, TimeUnit.SECONDS)).isEqualTo("the answer");
+        }
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(coalescer.inFlight()).isZero();
+    }
+
+    @Test
+    void reusesSuccessWithinWindowButNotForFreshRequests() {
+        TutorRequestCoalescer coalescer = new TutorRequestCoalescer(metrics, true, Duration.ofSeconds(30));
+
+        coalescer.execute("calculus", "chain rule", false, this::answer);
+        coalescer.execute("calculus", "chain rule", false, this::answer);
+        coalescer.execute("calculus", "chain rule", true, this::answer);
+
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void doesNotMergePromptsThatDifferOnlyInOperators() {
+        TutorRequestCoalescer coalescer = new TutorRequestCoalescer(metrics, true, Duration.ofSeconds(30));
+
+        for (String message : List.of("what is 2+2", "what is 2-2", "what is 2*2", "c++", "c#", "c")) {
+            coalescer.execute("calculus", message, false, this::answer);
+        }
+        coalescer.execute("calculus", "What is  2+2", false, this::answer);
+
+        assertThat(upstreamCalls).hasValue(6);
+    }
+
+    @Test
+    void sharesFailuresOnlyWithCallersAlreadyWaiting() {
+        TutorRequestCoalescer coalescer = new TutorRequestCoalescer(metrics, true, Duration.ofSeconds(30));
+
+        assertThatThrownBy(() -> coalescer.execute("calculus", "chain rule", false, () -> {
+            upstreamCalls.incrementAndGet();
+            throw new IllegalStateException("Groq API returned 503");
+        })).hasMessageContaining("503");
+
+        assertThat(coalescer.execute("calculus", "chain rule", false, this::answer)).isEqualTo("answer 2");
+    }
+
+    @Test
+    void callsUpstreamEveryTimeWhenDisabled() {
+        TutorRequestCoalescer coalescer = new TutorRequestCoalescer(metrics, false, Duration.ofSeconds(30));
+
+        coalescer.execute("calculus", "chain rule", false, this::answer);
+        coalescer.execute("calculus", "chain rule", false, this::answer);
+
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    private String answer() {
+        return "answer " + upstreamCalls.incrementAndGet();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.cogniclass.backend.metrics.MetricsRegistry;
+
+class TutorResponseCacheTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final AtomicLong clock = new AtomicLong();
+
+    private TutorResponseCache cache(int maxEntries, boolean nearDuplicates) {
+        return new TutorResponseCache(metrics, true, maxEntries, Duration.ofMinutes(10), nearDuplicates, 0.75, clock::get);
+    }
+
+    @Test
+    void exactTierMatchesAfterNormalization() {
+        TutorResponseCache cache = cache(100, false);
+        cache.put("Calculus", "Explain the chain rule?", "d/dx f(g(x)) = f'(g(x)) g'(x)");
+
+        assertThat(cache.get("calculus", "  explain THE chain \t rule? ", false)).startsWith("d/dx");
+        assertThat(cache.get("physics", "explain the chain rule", false)).isNull();
+        assertThat(metrics.counter("ai_tutor_cache_requests_total", "result", "hit_exact").count()).isEqualTo(1);
+        assertThat(metrics.counter("ai_tutor_cache_requests_total", "result", "miss").count()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsPunctuationAndOperatorsApart() {
+        TutorResponseCache cache = cache(100, true);
+        cache.put("math", "what is 2+2", "4");
+        cache.put("programming", "what is c++", "a language with classes");
+
+        assertThat(cache.get("math", "what is 2-2", false)).isNull();
+        assertThat(cache.get("math", "what is 2*2", false)).isNull();
+        assertThat(cache.get("programming", "what is c#", false)).isNull();
+        assertThat(cache.get("programming", "what is c", false)).isNull();
+        assertThat(cache.get("math", "What is 2+2", false)).isEqualTo("4");
+        assertThat(TutorResponseCache.normalize("  C++\tvs  C# ")).isEqualTo("c++ vs c#");
+    }
+
+    @Test
+    void bypassSkipsLookup() {
+        TutorResponseCache cache = cache(100, false);
+        cache.put("calculus", "explain the chain rule", "answer");
+
+        assertThat(cache.get("calculus", "explain the chain rule", true)).isNull();
+        assertThat(metrics.counter("ai_tutor_cache_requests_total", "result", "bypass").count()).isEqualTo(1);
+    }
+
+    @Test
+    void expiresAfterTtl() {
+        TutorResponseCache cache = cache(100, false);
+        cache.put("calculus", "explain the chain rule", "answer");
+
+        clock.addAndGet(Duration.ofMinutes(11).toNanos());
+
+        assertThat(cache.get("calculus", "explain the chain rule", false)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondCapacity() {
+        TutorResponseCache cache = cache(2, false);
+        cache.put("c", "first question", "1");
+        cache.put("c", "second question", "2");
+        cache.get("c", "first question", false);
+        cache.put("c", "third question", "3");
+
+        assertThat(cache.get("c", "first question", false)).isEqualTo("1");
+        assertThat(cache.get("c", "second question", false)).isNull();
+        assertThat(metrics.counter("ai_tutor_cache_evictions_total").count()).isEqualTo(1);
+    }
+
+    @Test
+    void nearDuplicateTierMatchesRephrasingsButNotDifferentQuestions() {
+        TutorResponseCache cache = cache(100, true);
+        cache.put("calculus", "can you explain the chain rule", "chain rule answer");
+
+        assertThat(cache.get("calculus", "can you explain the chain rule please", false)).isEqualTo("chain rule answer");
+        assertThat(cache.get("calculus", "can you explain the product rule", false)).isNull();
+        assertThat(cache.get("physics", "can you explain the chain rule please", false)).isNull();
+        assertThat(metrics.counter("ai_tutor_cache_requests_total", "result", "hit_near").count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,55 @@
+package com.cogniclass.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.repository.UserRepository;
+
+class UserServiceTest {
+
+    private final UserRepository repository = mock(UserRepository.class);
+    private final PrincipalCache cache = new PrincipalCache(new MetricsRegistry(), true, 10, Duration.ofMinutes(5));
+    private final UserService service = new UserService(repository, new BCryptPasswordEncoder(4), cache);
+
+    @Test
+    void passwordUpgradesEvictTheCachedPrincipal() {
+        User stored = user("{bcrypt}old");
+        when(repository.findByEmail("alex@student.edu")).thenAnswer(invocation -> Optional.of(copyOf(stored)));
+        when(repository.findById(1L)).thenAnswer(invocation -> Optional.of(copyOf(stored)));
+        when(repository.save(any(User.class))).thenAnswer(invocation -> {
+            stored.setPassword(invocation.<User>getArgument(0).getPassword());
+            return invocation.getArgument(0);
+        });
+        User principal = (User) service.loadUserByUsername("alex@student.edu");
+
+        service.updatePassword(principal, "{bcrypt}new");
+
+        assertThat(((User) service.loadUserByUsername("alex@student.edu")).getPassword()).isEqualTo("{bcrypt}new");
+        verify(repository, times(2)).findByEmail("alex@student.edu");
+    }
+
+    private static User copyOf(User stored) {
+        return user(stored.getPassword());
+    }
+
+    private static User user(String password) {
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("alex@student.edu");
+        user.setName("Alex");
+        user.setPassword(password);
+        return user;
+    }
+}
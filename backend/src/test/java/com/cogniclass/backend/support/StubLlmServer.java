@@ -0,0 +1,159 @@
+package com.cogniclass.backend.support;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local OpenAI-compatible chat completions endpoint for tests. Each request is
+ * served by the next queued {@link Behavior}, falling back to the default one,
+ * so tests can script latency, failures and streamed chunks.
+ */
+public class StubLlmServer implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface Behavior {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Queue<Behavior> scripted = new ConcurrentLinkedQueue<>();
+    private final List<String> requestBodies = new CopyOnWriteArrayList<>();
+    private volatile Behavior defaultBehavior = completion("stub answer", Duration.ZERO);
+
+    private StubLlmServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/v1/chat/completions", exchange -> {
+            requestBodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            Behavior behavior = scripted.poll();
+            try {
+                (behavior != null ? behavior : defaultBehavior).handle(exchange);
+            } catch (IOException e) {
+                // client hung up mid-response
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    public static StubLlmServer start() throws IOException {
+        return new StubLlmServer();
+    }
+
+    public String url() {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + "/v1/chat/completions").toString();
+    }
+
+    public StubLlmServer respondWith(Behavior behavior) {
+        this.defaultBehavior = behavior;
+        return this;
+    }
+
+    public StubLlmServer enqueue(Behavior... behaviors) {
+        scripted.addAll(List.of(behaviors));
+        return this;
+    }
+
+    public int requestCount() {
+        return requestBodies.size();
+    }
+
+    public List<String> requestBodies() {
+        return requestBodies;
+    }
+
+    /** A regular, non-streamed completion after the given latency. */
+    public static Behavior completion(String content, Duration latency) {
+        return exchange -> {
+            sleep(latency);
+            String body = "{\"id\":\"stub\",\"model\":\"stub-model\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":"
+                    + quote(content) + "},\"finish_reason\":\"stop\"}],"
+                    + "\"usage\":{\"prompt_tokens\":12,\"completion_tokens\":" + Math.max(1, content.length() / 4)
+                    + ",\"total_tokens\":" + (12 + Math.max(1, content.length() / 4)) + "}}";
+            write(exchange, 200, "application/json", body);
+        };
+    }
+
+    /** A {@code stream: true} response emitting one chunk per token, then Groq's usage chunk. */
+    public static Behavior stream(List<String> tokens, Duration interTokenDelay) {
+        return exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (String token : tokens) {
+                    sleep(interTokenDelay);
+                    String chunk = "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":" + quote(token) + "}}]}\n\n";
+                    out.write(chunk.getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+                out.write(("data: {\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}],"
+                        + "\"x_groq\":{\"usage\":{\"prompt_tokens\":12,\"completion_tokens\":" + tokens.size()
+                        + ",\"total_tokens\":" + (12 + tokens.size()) + "}}}\n\n").getBytes(StandardCharsets.UTF_8));
+                out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+            }
+        };
+    }
+
+    /** An error status after the given latency, optionally with a Retry-After header. */
+    public static Behavior status(int status, Duration latency, String retryAfter) {
+        return exchange -> {
+            sleep(latency);
+            if (retryAfter != null) {
+                exchange.getResponseHeaders().set("Retry-After", retryAfter);
+            }
+            write(exchange, status, "application/json", "{\"error\":{\"message\":\"stub failure\"}}");
+        };
+    }
+
+    /** Accepts the request and hangs up without answering. */
+    public static Behavior disconnect() {
+        return exchange -> {
+            throw new IOException("stub disconnect");
+        };
+    }
+
+    private static void write(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,86 @@
+package com.cogniclass.backend.websocket;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.websocket.server.WsSci;
+
+import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.service.JwtService;
+import com.cogniclass.backend.service.MembershipService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.websocket.ClientEndpointConfig;
+import jakarta.websocket.server.ServerContainer;
+
+/**
+ * Bare embedded Tomcat serving only {@link GroupChatEndpoint}, so socket tests
+ * do not need the Spring context or a database. Tokens and memberships are
+ * mocks: by default {@link #TOKEN} is user 1, who belongs to every group.
+ */
+class EmbeddedChatServer implements AutoCloseable {
+
+    final MetricsRegistry metrics = new MetricsRegistry();
+    static final String TOKEN = "user-1";
+
+    final GroupChatBroadcaster broadcaster;
+    final JwtService jwtService = mock(JwtService.class);
+    final MembershipService membershipService = mock(MembershipService.class);
+    private final Tomcat tomcat = new Tomcat();
+
+    EmbeddedChatServer(int sendBufferSize, int maxConnections) throws Exception {
+        broadcaster = new GroupChatBroadcaster(new ObjectMapper().findAndRegisterModules(), metrics, sendBufferSize);
+        when(jwtService.verifyAccessToken(TOKEN)).thenReturn(user(1L));
+        when(membershipService.isMember(anyLong(), any())).thenReturn(true);
+
+        File baseDir = Files.createTempDirectory("chat-ws").toFile();
+        baseDir.deleteOnExit();
+        tomcat.setBaseDir(baseDir.getAbsolutePath());
+        tomcat.setPort(0);
+        tomcat.getConnector().setProperty("maxConnections", String.valueOf(maxConnections));
+
+        Context context = tomcat.addContext("", baseDir.getAbsolutePath());
+        context.addServletContainerInitializer(new WsSci(), null);
+        Tomcat.addServlet(context, "default", new HttpServlet() { });
+        context.addServletMappingDecoded("/", "default");
+
+        tomcat.start();
+        ServerContainer container = (ServerContainer) context.getServletContext()
+                .getAttribute(ServerContainer.class.getName());
+        container.addEndpoint(GroupChatEndpoint.config(broadcaster, jwtService, membershipService));
+    }
+
+    static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    /** Client config that offers {@code token} the way browsers do, as the subprotocol after "bearer". */
+    static ClientEndpointConfig bearer(String token) {
+        return ClientEndpointConfig.Builder.create()
+                .preferredSubprotocols(List.of(GroupChatEndpoint.BEARER_PROTOCOL, token))
+                .build();
+    }
+
+    URI groupUri(long groupId) {
+        return URI.create("ws://localhost:" + tomcat.getConnector().getLocalPort() + "/ws/groups/" + groupId);
+    }
+
+    @Override
+    public void close() throws Exception {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+}
@@ -0,0 +1,152 @@
+package com.cogniclass.backend.websocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.websocket.ClientEndpointConfig;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.MessageHandler;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.Session;
+import jakarta.websocket.WebSocketContainer;
+
+class GroupChatEndpointTest {
+
+    @Test
+    void pushesOnlyToSubscribersOfTheGroup() throws Exception {
+        try (EmbeddedChatServer server = new EmbeddedChatServer(16, 100)) {
+            WebSocketContainer client = ContainerProvider.getWebSocketContainer();
+            List<String> groupOne = new CopyOnWriteArrayList<>();
+            List<String> groupTwo = new CopyOnWriteArrayList<>();
+            ClientEndpointConfig member = EmbeddedChatServer.bearer(EmbeddedChatServer.TOKEN);
+            Session a = client.connectToServer(collector(groupOne), member, server.groupUri(1));
+            Session b = client.connectToServer(collector(groupOne), member, server.groupUri(1));
+            Session c = client.connectToServer(collector(groupTwo), member, server.groupUri(2));
+            await().atMost(Duration.ofSeconds(5)).until(() -> server.broadcaster.connectionCount() == 3);
+
+            server.broadcaster.publish(1L, "new_message", Map.of("content", "hello"));
+
+            await().atMost(Duration.ofSeconds(5)).until(() -> groupOne.size() == 2);
+            assertThat(groupOne).allMatch(frame -> frame.contains("\"event\":\"new_message\"") && frame.contains("hello"));
+            assertThat(groupTwo).isEmpty();
+
+            a.close();
+            b.close();
+            c.close();
+            await().atMost(Duration.ofSeconds(5)).until(() -> server.broadcaster.connectionCount() == 0);
+        }
+    }
+
+    @Test
+    void acceptsTheTokenAsAQueryParameter() throws Exception {
+        try (EmbeddedChatServer server = new EmbeddedChatServer(16, 100)) {
+            WebSocketContainer client = ContainerProvider.getWebSocketContainer();
+            URI uri = URI.create(server.groupUri(1) + "?access_token=" + EmbeddedChatServer.TOKEN);
+            Session session = client.connectToServer(collector(new CopyOnWriteArrayList<>()),
+                    ClientEndpointConfig.Builder.create().build(), uri);
+
+            await().atMost(Duration.ofSeconds(5)).until(() -> server.broadcaster.connectionCount() == 1);
+            session.close();
+        }
+    }
+
+    @Test
+    void refusesAnonymousSockets() throws Exception {
+        try (EmbeddedChatServer server = new EmbeddedChatServer(16, 100)) {
+            WebSocketContainer client = ContainerProvider.getWebSocketContainer();
+            List<CloseReason> closes = new CopyOnWriteArrayList<>();
+            client.connectToServer(closeRecorder(closes), ClientEndpointConfig.Builder.create().build(),
+                    server.groupUri(1));
+            client.connectToServer(closeRecorder(closes), EmbeddedChatServer.bearer("forged"), server.groupUri(1));
+
+            await().atMost(Duration.ofSeconds(5)).until(() -> closes.size() == 2);
+            assertThat(closes).extracting(CloseReason::getCloseCode)
+                    .containsOnly(CloseReason.CloseCodes.VIOLATED_POLICY);
+            assertThat(server.broadcaster.connectionCount()).isZero();
+        }
+    }
+
+    @Test
+    void refusesUsersOutsideTheGroup() throws Exception {
+        try (EmbeddedChatServer server = new EmbeddedChatServer(16, 100)) {
+            when(server.membershipService.isMember(2L, 1L)).thenReturn(false);
+            WebSocketContainer client = ContainerProvider.getWebSocketContainer();
+            List<CloseReason> closes = new CopyOnWriteArrayList<>();
+            client.connectToServer(closeRecorder(closes), EmbeddedChatServer.bearer(EmbeddedChatServer.TOKEN),
+                    server.groupUri(2));
+
+            await().atMost(Duration.ofSeconds(5)).until(() -> closes.size() == 1);
+            assertThat(closes.get(0).getCloseCode()).isEqualTo(CloseReason.CloseCodes.VIOLATED_POLICY);
+            server.broadcaster.publish(2L, "new_message", Map.of("content", "secret"));
+            assertThat(server.broadcaster.connectionCount()).isZero();
+        }
+    }
+
+    @Test
+    void disconnectsSlowConsumerWhenBufferIsFull() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        GroupChatBroadcaster broadcaster = new GroupChatBroadcaster(new ObjectMapper(), metrics, 2);
+
+        Session stalled = mock(Session.class);
+        RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+        when(stalled.getAsyncRemote()).thenReturn(remote);
+        when(stalled.isOpen()).thenReturn(true);
+        when(stalled.getId()).thenReturn("stalled");
+        broadcaster.subscribe(7L, stalled);
+
+        // First frame is in flight and never completes; two more fill the buffer; the fourth overflows
+        for (int i = 0; i < 4; i++) {
+            broadcaster.publish(7L, "new_message", Map.of("n", i));
+        }
+
+        assertThat(broadcaster.connectionCount()).isZero();
+        assertThat(metrics.counter("chat_ws_slow_consumer_disconnects_total").count()).isEqualTo(1);
+        verify(remote).sendText(anyString(), any());
+        try {
+            verify(stalled).close(any(CloseReason.class));
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static Endpoint closeRecorder(List<CloseReason> closes) {
+        return new Endpoint() {
+            @Override
+            public void onOpen(Session session, EndpointConfig config) {
+            }
+
+            @Override
+            public void onClose(Session session, CloseReason closeReason) {
+                closes.add(closeReason);
+            }
+        };
+    }
+
+    private static Endpoint collector(List<String> frames) {
+        return new Endpoint() {
+            @Override
+            public void onOpen(Session session, EndpointConfig config) {
+                session.addMessageHandler(String.class, (MessageHandler.Whole<String>) frames::add);
+            }
+        };
+    }
+}
@@ -0,0 +1,150 @@
+package com.cogniclass.backend.websocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.MessageHandler;
+import jakarta.websocket.Session;
+import jakarta.websocket.WebSocketContainer;
+
+/**
+ * Single-node load harness for group chat push: holds {@code chat.load.connections}
+ * idle sockets spread over {@code chat.load.groups} groups while
+ * {@code chat.load.senders} threads publish for {@code chat.load.seconds}.
+ * Reports fan-out delivery latency and slow-consumer disconnects.
+ * <p>
+ * Run with {@code mvn test -Dtest=GroupChatLoadHarnessTest -Dchat.load=true}.
+ */
+@EnabledIfSystemProperty(named = "chat.load", matches = "true")
+class GroupChatLoadHarnessTest {
+
+    private static final int CONNECTIONS = Integer.getInteger("chat.load.connections", 5_000);
+    private static final int GROUPS = Integer.getInteger("chat.load.groups", 500);
+    private static final int SENDERS = Integer.getInteger("chat.load.senders", 300);
+    private static final int SECONDS = Integer.getInteger("chat.load.seconds", 15);
+    private static final int MESSAGES_PER_SENDER_PER_SECOND = Integer.getInteger("chat.load.rate", 5);
+
+    // Latency histogram in 1ms buckets up to 10s
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(10_001);
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicInteger closedByServer = new AtomicInteger();
+
+    @Test
+    void holdsIdleConnectionsWhileActiveSendersFanOut() throws Exception {
+        try (EmbeddedChatServer server = new EmbeddedChatServer(256, CONNECTIONS + 1_000)) {
+            WebSocketContainer client = ContainerProvider.getWebSocketContainer();
+            List<Session> sessions = new ArrayList<>(CONNECTIONS);
+            long connectStart = System.nanoTime();
+            for (int i = 0; i < CONNECTIONS; i++) {
+                sessions.add(client.connectToServer(receiver(), EmbeddedChatServer.bearer(EmbeddedChatServer.TOKEN),
+                        server.groupUri(i % GROUPS)));
+            }
+            long connectMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectStart);
+            assertThat(server.broadcaster.connectionCount()).isEqualTo(CONNECTIONS);
+
+            ExecutorService senders = Executors.newFixedThreadPool(SENDERS);
+            AtomicLong published = new AtomicLong();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SECONDS);
+            long pauseMillis = 1_000L / MESSAGES_PER_SENDER_PER_SECOND;
+            for (int s = 0; s < SENDERS; s++) {
+                senders.execute(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        long groupId = random.nextInt(GROUPS);
+                        server.broadcaster.publish(groupId, "new_message",
+                                Map.of("content", "load test message", "publishedAt", System.nanoTime()));
+                        published.incrementAndGet();
+                        try {
+                            Thread.sleep(pauseMillis);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                });
+            }
+            senders.shutdown();
+            assertThat(senders.awaitTermination(SECONDS + 30L, TimeUnit.SECONDS)).isTrue();
+
+            long expected = published.get() * (CONNECTIONS / GROUPS);
+            long waitUntil = System.currentTimeMillis() + 10_000;
+            while (received.get() < expected && System.currentTimeMillis() < waitUntil) {
+                Thread.sleep(50);
+            }
+
+            System.out.printf("connections=%d groups=%d senders=%d connect=%dms%n", CONNECTIONS, GROUPS, SENDERS, connectMillis);
+            System.out.printf("published=%d frames expected=%d received=%d slow-consumer disconnects=%d%n",
+                    published.get(), expected, received.get(), closedByServer.get());
+            System.out.printf("delivery latency p50=%dms p99=%dms p999=%dms max=%dms%n",
+                    percentile(0.50), percentile(0.99), percentile(0.999), percentile(1.0));
+            System.out.println("server metrics: " + server.metrics.snapshot());
+
+            assertThat(closedByServer.get()).isZero();
+            assertThat(received.get()).isEqualTo(expected);
+
+            for (Session session : sessions) {
+                session.close();
+            }
+        }
+    }
+
+    private Endpoint receiver() {
+        return new Endpoint() {
+            @Override
+            public void onOpen(Session session, EndpointConfig config) {
+                session.addMessageHandler(String.class, (MessageHandler.Whole<String>) frame -> {
+                    int start = frame.indexOf("\"publishedAt\":") + 14;
+                    int end = start;
+                    while (end < frame.length() && Character.isDigit(frame.charAt(end))) {
+                        end++;
+                    }
+                    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - Long.parseLong(frame.substring(start, end)));
+                    latencyBuckets.incrementAndGet((int) Math.min(millis, latencyBuckets.length() - 1));
+                    received.incrementAndGet();
+                });
+            }
+
+            @Override
+            public void onClose(Session session, CloseReason closeReason) {
+                if (closeReason.getCloseCode() == CloseReason.CloseCodes.TRY_AGAIN_LATER) {
+                    closedByServer.incrementAndGet();
+                }
+            }
+        };
+    }
+
+    private long percentile(double quantile) {
+        long[] counts = new long[latencyBuckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = latencyBuckets.get(i);
+        }
+        long total = Arrays.stream(counts).sum();
+        long target = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target && counts[i] > 0) {
+                return i;
+            }
+        }
+        return counts.length - 1;
+    }
+}
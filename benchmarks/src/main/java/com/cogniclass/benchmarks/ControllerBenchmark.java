@@ -0,0 +1,55 @@
+package com.cogniclass.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Request round trips through Tomcat, the security filter chain, the
+ * controllers and H2, over a loopback HTTP connection. Absolute numbers are
+ * not PostgreSQL numbers; use them to compare commits, not to size servers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class ControllerBenchmark {
+
+    @Benchmark
+    public String currentUser(RunningBackend backend) throws IOException, InterruptedException {
+        return backend.get("/api/auth/me").body(); // the JWT authentication chain with a trivial handler
+    }
+
+    @Benchmark
+    public String publicGroups(RunningBackend backend) throws IOException, InterruptedException {
+        return backend.get("/api/groups?page=0&size=20").body();
+    }
+
+    @Benchmark
+    public String groupActivity(RunningBackend backend) throws IOException, InterruptedException {
+        return backend.get("/api/groups/activity").body();
+    }
+
+    @Benchmark
+    public String chatHistory(RunningBackend backend) throws IOException, InterruptedException {
+        return backend.get("/api/chat/" + backend.groupId + "/messages?limit=50").body();
+    }
+
+    @Benchmark
+    public String sendMessage(RunningBackend backend) throws IOException, InterruptedException {
+        return backend.post("/api/chat/" + backend.groupId + "/messages", "{\"content\":\"Benchmark message\"}").body();
+    }
+
+    @Benchmark
+    public String searchMessages(RunningBackend backend) throws IOException, InterruptedException {
+        return backend.get("/api/search/messages?q=derivatives&limit=20").body();
+    }
+}
@@ -0,0 +1,88 @@
+package com.cogniclass.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.cogniclass.backend.dto.ChatHistoryPage;
+import com.cogniclass.backend.dto.ChatMessageView;
+import com.cogniclass.backend.dto.GroupActivity;
+import com.cogniclass.backend.dto.GroupSummary;
+import com.cogniclass.backend.dto.GroupSummaryPage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Jackson serialization of the chat and group responses, with the mapper
+ * configured the way Spring Boot configures the one behind the controllers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private ObjectMapper mapper;
+    private ChatHistoryPage history;
+    private GroupSummaryPage groups;
+    private List<GroupActivity> activity;
+
+    @Setup
+    public void setUp() {
+        mapper = new Jackson2ObjectMapperBuilder()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        LocalDateTime now = LocalDateTime.now();
+
+        List<ChatMessageView> messages = new ArrayList<>();
+        for (int i = 0; i < 50; i++) { // a default history page
+            messages.add(new ChatMessageView((long) i, (long) i + 1, "Can someone explain limits again? Message " + i,
+                    now.minusMinutes(50 - i), "TEXT", (long) (i % 7), "Student " + (i % 7), "STUDENT"));
+        }
+        history = new ChatHistoryPage(messages, "before-cursor", "after-cursor", true);
+
+        List<GroupSummary> summaries = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            summaries.add(new GroupSummary((long) i, "Calculus Group " + i, "Weekly problem sets and exam prep",
+                    "Mathematics", true, now.minusDays(i), 1L, "Dr. Smith", 25 + i));
+        }
+        groups = new GroupSummaryPage(summaries, 0, 20, 400, true);
+
+        activity = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            activity.add(new GroupActivity((long) i, "Group " + i, 40 + i, 38L, 1000L + i,
+                    "See you at the review session tomorrow", "Student " + i, now.minusMinutes(i)));
+        }
+    }
+
+    @Benchmark
+    public byte[] chatHistoryPage() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(history);
+    }
+
+    @Benchmark
+    public byte[] groupSummaryPage() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(groups);
+    }
+
+    @Benchmark
+    public byte[] groupActivity() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(activity);
+    }
+}
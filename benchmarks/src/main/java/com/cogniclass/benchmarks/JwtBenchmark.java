@@ -0,0 +1,61 @@
+package com.cogniclass.benchmarks;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.service.JwtService;
+
+/** Access-token verification runs on every authenticated request; issuing runs on login and refresh. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtService jwtService;
+    private User user;
+    private String accessToken;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(new MetricsRegistry(), "", "cogniclass", Duration.ofMinutes(15), Duration.ofDays(14));
+        user = new User();
+        user.setId(42L);
+        user.setEmail("student@cogniclass.dev");
+        user.setName("Student");
+        user.setRole("STUDENT");
+        accessToken = jwtService.issueTokens(user).accessToken();
+    }
+
+    @Benchmark
+    public User verifyAccessToken() {
+        return jwtService.verifyAccessToken(accessToken);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public User verifyAccessTokenContended() {
+        return jwtService.verifyAccessToken(accessToken);
+    }
+
+    @Benchmark
+    public JwtService.TokenPair issueTokens() {
+        return jwtService.issueTokens(user);
+    }
+}
@@ -0,0 +1,53 @@
+package com.cogniclass.benchmarks;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cogniclass.backend.entity.User;
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.repository.UserRepository;
+import com.cogniclass.backend.service.PrincipalCache;
+
+/** Loading the principal on login, with and without the PrincipalCache in front of the repository. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class PrincipalLookupBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Lookup {
+
+        @Param({"true", "false"})
+        public boolean cached;
+
+        PrincipalCache cache;
+        UserRepository users;
+
+        @Setup(Level.Trial)
+        public void setUp(RunningBackend backend) {
+            cache = new PrincipalCache(new MetricsRegistry(), cached, 10_000, Duration.ofMinutes(5));
+            users = backend.context.getBean(UserRepository.class);
+        }
+    }
+
+    @Benchmark
+    public Optional<User> byEmail(Lookup lookup) {
+        return lookup.cache.getByEmail(RunningBackend.EMAIL, lookup.users::findByEmail);
+    }
+}
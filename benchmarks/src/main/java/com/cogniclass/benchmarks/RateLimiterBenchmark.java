@@ -0,0 +1,66 @@
+package com.cogniclass.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cogniclass.backend.metrics.MetricsRegistry;
+import com.cogniclass.backend.ratelimit.KeyedRateLimiter;
+import com.cogniclass.backend.ratelimit.TutorRateLimiter;
+
+/**
+ * Throughput of the tutor rate limiter. {@code keys=1} has every thread
+ * contending on one bucket's CAS; {@code keys=100000} spreads them out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class RateLimiterBenchmark {
+
+    @Param({"1", "100000"})
+    public int keys;
+
+    private KeyedRateLimiter<Long> limiter;
+    private TutorRateLimiter tutorRateLimiter;
+
+    @Setup
+    public void setUp() {
+        // Quotas large enough that calls keep being granted, so this measures the common path
+        long requests = 1_000_000_000L;
+        long tokens = 1_000_000_000_000L;
+        limiter = new KeyedRateLimiter<>(requests, TimeUnit.MINUTES.toNanos(1), 200_000);
+        tutorRateLimiter = new TutorRateLimiter(new MetricsRegistry(), requests, tokens, requests, tokens,
+                requests, tokens, 200_000);
+    }
+
+    @Benchmark
+    public long tryAcquire() {
+        return limiter.tryAcquire(key(), 1, System.nanoTime());
+    }
+
+    @Benchmark
+    public TutorRateLimiter.Decision tutorCheck() {
+        long key = key();
+        return tutorRateLimiter.check(key, key % 100, null, 250);
+    }
+
+    private long key() {
+        return keys == 1 ? 1 : ThreadLocalRandom.current().nextInt(keys);
+    }
+}
@@ -0,0 +1,72 @@
+package com.cogniclass.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cogniclass.backend.service.ResponseTypeClassifier;
+
+/** Classifying a tutor answer; runs once per tutor response, over answers up to MAX_TOKENS long. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseTypeBenchmark {
+
+    private static final String SENTENCE = "The derivative measures how fast a function changes at a point. ";
+
+    @Param({"explanation", "example", "question"})
+    public String kind;
+
+    @Param({"200", "4000"})
+    public int length;
+
+    private ResponseTypeClassifier classifier;
+    private String answer;
+
+    @Setup
+    public void setUp() {
+        classifier = ResponseTypeClassifier.defaults();
+        StringBuilder text = new StringBuilder();
+        while (text.length() < length) {
+            text.append(SENTENCE);
+        }
+        switch (kind) {
+            case "example" -> text.append("For instance, take f(x) = x^2.");
+            case "question" -> text.append("What is f'(x)? What about f''(x)? And at x = 0?");
+            default -> { }
+        }
+        answer = text.toString();
+    }
+
+    @Benchmark
+    public ResponseTypeClassifier.Type classifier() {
+        return classifier.classify(answer);
+    }
+
+    /** The contains()/split() rules the classifier replaced, kept as the baseline. */
+    @Benchmark
+    public String legacy() {
+        String lowerContent = answer.toLowerCase();
+        if (lowerContent.contains("example") || lowerContent.contains("for instance")) {
+            return "EXAMPLE";
+        } else if (lowerContent.contains("hint") || lowerContent.contains("try thinking")) {
+            return "HINT";
+        } else if (lowerContent.contains("?") && answer.split("\\?").length > 2) {
+            return "QUESTION";
+        }
+        return "EXPLANATION";
+    }
+}
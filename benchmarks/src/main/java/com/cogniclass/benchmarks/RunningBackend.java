@@ -0,0 +1,119 @@
+package com.cogniclass.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.cogniclass.backend.CogniclassBackendApplication;
+import com.cogniclass.backend.service.SyntheticDataGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The whole application on a random port, backed by an in-memory H2 database
+ * in PostgreSQL mode and filled by {@link SyntheticDataGenerator}. Started
+ * once per fork and shared by every thread of a benchmark. No LLM provider is
+ * reachable, so tutor endpoints are not benchmarked here.
+ */
+@State(Scope.Benchmark)
+public class RunningBackend {
+
+    static final String PASSWORD = "password"; // what SyntheticDataGenerator gives every user
+    static final String EMAIL = "user0@synthetic.cogniclass.dev";
+
+    public ConfigurableApplicationContext context;
+    public HttpClient client;
+    public URI baseUri;
+    public String accessToken;
+    public long groupId;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.datasource.url", "jdbc:h2:mem:cogniclass-bench;MODE=PostgreSQL;"
+                + "DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        properties.put("groq.api.key", "benchmark");
+        properties.put("cogniclass.ai.rate-limit.ip.requests-per-minute", 1_000_000_000);
+        properties.put("cogniclass.synthetic-data.enabled", true);
+        properties.put("cogniclass.chat.ingest.journal-dir",
+                Files.createTempDirectory("cogniclass-bench-journal").toString());
+        properties.put("cogniclass.chat.archive.dir",
+                Files.createTempDirectory("cogniclass-bench-archive").toString());
+        context = new SpringApplicationBuilder(CogniclassBackendApplication.class).properties(properties).run();
+
+        SyntheticDataGenerator generator = context.getBean(SyntheticDataGenerator.class);
+        generator.generate(new SyntheticDataGenerator.Spec(
+                Integer.getInteger("bench.users", 2_000),
+                Integer.getInteger("bench.groups", 200),
+                Integer.getInteger("bench.messages-per-group", 200),
+                2, 1.0, 30, 42));
+
+        client = HttpClient.newHttpClient();
+        baseUri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+        JsonNode login = json(client.send(HttpRequest.newBuilder(baseUri.resolve("/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"email\":\"" + EMAIL + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString()));
+        accessToken = login.path("accessToken").asText();
+        // Joined so the member-only chat endpoints answer
+        groupId = json(get("/api/groups?size=1")).path("groups").path(0).path("id").asLong();
+        post("/api/groups/" + groupId + "/join", "{}");
+        if (accessToken.isEmpty() || groupId == 0) {
+            throw new IllegalStateException("Could not log in and find a group: " + login);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    public HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return send(authorized(path).GET().build());
+    }
+
+    public HttpResponse<String> post(String path, String json) throws IOException, InterruptedException {
+        return send(authorized(path).header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json)).build());
+    }
+
+    private HttpRequest.Builder authorized(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).header("Authorization", "Bearer " + accessToken);
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException(request.uri() + " answered " + response.statusCode() + ": " + response.body());
+        }
+        return response;
+    }
+
+    private JsonNode json(HttpResponse<String> response) throws IOException {
+        return mapper.readTree(response.body());
+    }
+}
@@ -1,143 +1,110 @@
 import { useEffect, useRef, useState, useCallback } from 'react';
 import { useAuthStore } from '../stores/authStore';
 import { socketService } from '../services/socket';
+import { chatAPI } from '../services/api';
 import type { Message, User } from '../types';
 
+// ChatMessageView on the backend; id is null until the message has been written
+type ChatMessageView = {
+  id: number | null;
+  seq: number;
+  content: string;
+  sender: { id: number; name: string; role: string } | null;
+  sentAt: string;
+  messageType: string;
+};
+
+const toMessage = (view: ChatMessageView, groupId: string): Message => ({
+  id: view.id != null ? String(view.id) : `pending-${view.seq}`,
+  groupId,
+  userId: view.sender ? String(view.sender.id) : 'system',
+  user: view.sender
+    ? {
+        id: String(view.sender.id),
+        name: view.sender.name,
+        email: '',
+        role: view.sender.role?.toLowerCase() === 'teacher' ? 'teacher' : 'student'
+      }
+    : { id: 'system', name: 'System', email: 'system@cogniclass.com', role: 'teacher' },
+  content: view.content,
+  timestamp: view.sentAt,
+  type: (view.messageType?.toLowerCase() ?? 'text') as Message['type']
+});
+
 export const useWebSocket = (groupId: string) => {
   const [messages, setMessages] = useState<Message[]>([]);
   const [isConnected, setIsConnected] = useState(false);
   const [onlineUsers, setOnlineUsers] = useState<User[]>([]);
   const { user } = useAuthStore();
-  const messagesRef = useRef<Message[]>([]);
-
-  // Keep messages ref in sync with state
-  useEffect(() => {
-    messagesRef.current = messages;
-  }, [messages]);
-
-  const handleNewMessage = useCallback((message: Message) => {
-    setMessages(prev => [...prev, message]);
-  }, []);
-
-  const handleUserJoined = useCallback((data: { user: User; onlineUsers: User[] }) => {
-    setOnlineUsers(data.onlineUsers);
-    // Add system message
-    const systemMessage: Message = {
-      id: `system-${Date.now()}`,
-      groupId,
-      userId: 'system',
-      user: { id: 'system', name: 'System', email: 'system@cogniclass.com', role: 'teacher' },
-      content: `${data.user.name} joined the chat`,
-      timestamp: new Date().toISOString(),
-      type: 'system'
-    };
-    setMessages(prev => [...prev, systemMessage]);
+  // Sequence numbers already delivered as written messages, so a late POST reply adds no duplicate
+  const deliveredSeqs = useRef<Set<number>>(new Set());
+
+  const addWritten = useCallback((views: ChatMessageView[]) => {
+    setMessages(prev => {
+      let next = prev;
+      for (const view of views) {
+        deliveredSeqs.current.add(view.seq);
+        const message = toMessage(view, groupId);
+        next = next.filter(m => m.id !== message.id && m.id !== `pending-${view.seq}`);
+        next = [...next, message];
+      }
+      return [...next].sort((a, b) => a.timestamp.localeCompare(b.timestamp));
+    });
   }, [groupId]);
 
-  const handleUserLeft = useCallback((data: { user: User; onlineUsers: User[] }) => {
-    setOnlineUsers(data.onlineUsers);
-    // Add system message
-    const systemMessage: Message = {
-      id: `system-${Date.now()}`,
-      groupId,
-      userId: 'system',
-      user: { id: 'system', name: 'System', email: 'system@cogniclass.com', role: 'teacher' },
-      content: `${data.user.name} left the chat`,
-      timestamp: new Date().toISOString(),
-      type: 'system'
-    };
-    setMessages(prev => [...prev, systemMessage]);
-  }, [groupId]);
+  const handleNewMessage = useCallback((view: ChatMessageView) => {
+    addWritten([view]);
+  }, [addWritten]);
+
+  const handleConnect = useCallback(() => {
+    setIsConnected(true);
+    // Also fills any gap left while the socket was down
+    chatAPI.getMessages(groupId)
+      .then(response => addWritten(response.data.messages))
+      .catch(error => console.error('Could not load chat history:', error));
+  }, [groupId, addWritten]);
 
-  const handleOnlineUsers = useCallback((users: User[]) => {
-    setOnlineUsers(users);
+  const handleDisconnect = useCallback(() => {
+    setIsConnected(false);
   }, []);
 
   useEffect(() => {
     if (!user || !groupId) return;
 
-    // Mock token - in real app, use actual JWT from auth store
-    const token = 'mock-jwt-token-for-demo';
-    
-    // Connect to WebSocket
-    socketService.connect(groupId, token);
-
-    // Set up event listeners
-    socketService.on('connect', () => {
-      setIsConnected(true);
-      console.log('WebSocket connected');
-    });
+    const token = localStorage.getItem('authToken');
+    if (!token) {
+      console.warn('Not signed in; group chat is offline');
+      return;
+    }
 
-    socketService.on('disconnect', () => {
-      setIsConnected(false);
-      console.log('WebSocket disconnected');
-    });
+    setMessages([]);
+    deliveredSeqs.current = new Set();
+    // The server has no presence events yet
+    setOnlineUsers([user]);
 
+    socketService.on('connect', handleConnect);
+    socketService.on('disconnect', handleDisconnect);
     socketService.on('new_message', handleNewMessage);
-    socketService.on('user_joined', handleUserJoined);
-    socketService.on('user_left', handleUserLeft);
-    socketService.on('online_users', handleOnlineUsers);
-
-    // Load initial messages (in real app, this would come from API)
-    const initialMessages: Message[] = [
-      {
-        id: '1',
-        groupId,
-        userId: '1',
-        user: { id: '1', name: 'Teacher John', email: 'john@teacher.com', role: 'teacher' },
-        content: 'Welcome to the Math Study Group! Feel free to ask questions.',
-        timestamp: new Date(Date.now() - 3600000).toISOString(),
-        type: 'text'
-      },
-      {
-        id: '2',
-        groupId,
-        userId: '2',
-        user: { id: '2', name: 'Student Alice', email: 'alice@student.com', role: 'student' },
-        content: 'Can someone help with the calculus homework?',
-        timestamp: new Date(Date.now() - 1800000).toISOString(),
-        type: 'text'
-      }
-    ];
-    setMessages(initialMessages);
-
-    // Set initial online users (including current user)
-    setOnlineUsers([
-      { id: '1', name: 'Teacher John', email: 'john@teacher.com', role: 'teacher' },
-      { id: '2', name: 'Student Alice', email: 'alice@student.com', role: 'student' },
-      user
-    ]);
+    socketService.connect(groupId, token);
 
     return () => {
-      // Clean up event listeners
+      socketService.off('connect', handleConnect);
+      socketService.off('disconnect', handleDisconnect);
       socketService.off('new_message', handleNewMessage);
-      socketService.off('user_joined', handleUserJoined);
-      socketService.off('user_left', handleUserLeft);
-      socketService.off('online_users', handleOnlineUsers);
-      
+
       // Disconnect when component unmounts or groupId changes
       socketService.disconnect();
       setIsConnected(false);
     };
-  }, [groupId, user, handleNewMessage, handleUserJoined, handleUserLeft, handleOnlineUsers]);
+  }, [groupId, user, handleConnect, handleDisconnect, handleNewMessage]);
 
   const sendMessage = useCallback((content: string, type: 'text' | 'file' = 'text', file?: File) => {
     if (!user || !content.trim()) return;
 
-    const messageData = {
-      groupId,
-      content,
-      type,
-      fileName: file?.name,
-      fileSize: file?.size
-    };
-
-    // Send via WebSocket
-    socketService.emit('send_message', messageData);
-
-    // Optimistically add to UI (will be confirmed when server echoes back)
+    // Optimistically add to UI (replaced once the server accepts it, then again when new_message arrives)
+    const tempId = `temp-${Date.now()}`;
     const optimisticMessage: Message = {
-      id: `temp-${Date.now()}`,
+      id: tempId,
       groupId,
       userId: user.id,
       user: user,
@@ -146,8 +113,19 @@ export const useWebSocket = (groupId: string) => {
       type,
       fileName: file?.name
     };
-
     setMessages(prev => [...prev, optimisticMessage]);
+
+    chatAPI.sendMessage(groupId, content)
+      .then(response => {
+        const accepted = response.data as ChatMessageView;
+        setMessages(prev => deliveredSeqs.current.has(accepted.seq)
+          ? prev.filter(m => m.id !== tempId)
+          : prev.map(m => m.id === tempId ? { ...m, id: `pending-${accepted.seq}` } : m));
+      })
+      .catch(error => {
+        console.error('Could not send message:', error);
+        setMessages(prev => prev.filter(m => m.id !== tempId));
+      });
   }, [groupId, user]);
 
   const uploadFile = useCallback((file: File) => {
@@ -155,7 +133,7 @@ export const useWebSocket = (groupId: string) => {
     // 1. Upload file to storage service (AWS S3, etc.)
     // 2. Get back file URL
     // 3. Send message with file URL
-    
+
     // For demo, we'll simulate upload and send as regular message
     return new Promise<void>((resolve) => {
       setTimeout(() => {
@@ -165,11 +143,11 @@ export const useWebSocket = (groupId: string) => {
     });
   }, [sendMessage]);
 
-  return { 
-    messages, 
-    sendMessage, 
+  return {
+    messages,
+    sendMessage,
     uploadFile,
-    isConnected, 
-    onlineUsers 
+    isConnected,
+    onlineUsers
   };
 };
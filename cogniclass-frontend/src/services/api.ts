@@ -58,6 +58,15 @@ export const quizAPI = {
   getResults: (attemptId: string) => api.get(`/quizzes/attempts/${attemptId}`),
 };
 
+// Group chat API calls; new messages arrive over the socket (see socket.ts)
+export const chatAPI = {
+  getMessages: (groupId: string, params?: { before?: string; after?: string; limit?: number }) =>
+    api.get(`/chat/${groupId}/messages`, { params }),
+  sendMessage: (groupId: string, content: string) =>
+    api.post(`/chat/${groupId}/messages`, { content }),
+  markRead: (groupId: string) => api.post(`/chat/${groupId}/read`),
+};
+
 // File API calls
 export const fileAPI = {
   upload: (file: File, groupId: string, description?: string) => {
@@ -1,62 +1,87 @@
-import { io, Socket } from 'socket.io-client';
+// Matches CloseReason.CloseCodes.VIOLATED_POLICY: bad token or not a member, retrying will not help
+const POLICY_VIOLATION = 1008;
+const MAX_RECONNECT_DELAY_MS = 30000;
 
+type Listener = (data?: any) => void;
+
+/**
+ * Push-only connection to a group's chat at /ws/groups/{groupId}. The server
+ * sends {"event": ..., "data": ...} frames; messages are sent over REST
+ * (chatAPI.sendMessage). The access token travels as the "bearer, <token>"
+ * subprotocol pair because browsers cannot set headers on a WebSocket.
+ */
 class SocketService {
-  private socket: Socket | null = null;
-  private listeners: Map<string, Function[]> = new Map();
+  private socket: WebSocket | null = null;
+  private listeners: Map<string, Listener[]> = new Map();
+  private reconnectTimer: ReturnType<typeof setTimeout> | null = null;
+  private reconnectAttempts = 0;
 
   connect(groupId: string, token: string) {
+    this.disconnect();
+    this.open(groupId, token);
+  }
+
+  private open(groupId: string, token: string) {
     // In development, connect to local server. In production, use your backend URL
-    const serverUrl = import.meta.env.VITE_WS_URL || 'http://localhost:8080';
-    
-    this.socket = io(serverUrl, {
-      auth: {
-        token: token,
-        groupId: groupId
-      },
-      transports: ['websocket', 'polling']
-    });
+    const serverUrl = import.meta.env.VITE_WS_URL || 'ws://localhost:8080';
+    const socket = new WebSocket(`${serverUrl}/ws/groups/${encodeURIComponent(groupId)}`, ['bearer', token]);
+    this.socket = socket;
 
-    this.socket.on('connect', () => {
+    socket.onopen = () => {
       console.log('Connected to WebSocket server');
-      this.emit('join_group', { groupId });
-    });
+      this.reconnectAttempts = 0;
+      this.dispatch('connect');
+    };
 
-    this.socket.on('disconnect', () => {
-      console.log('Disconnected from WebSocket server');
-    });
+    socket.onmessage = (event: MessageEvent<string>) => {
+      try {
+        const frame = JSON.parse(event.data) as { event: string; data: unknown };
+        this.dispatch(frame.event, frame.data);
+      } catch (error) {
+        console.error('Unreadable WebSocket frame:', error);
+      }
+    };
 
-    this.socket.on('error', (error) => {
+    socket.onerror = (error) => {
       console.error('WebSocket error:', error);
-    });
+    };
 
-    // Set up all registered listeners
-    this.listeners.forEach((callbacks, event) => {
-      callbacks.forEach(callback => {
-        this.socket?.on(event, callback);
-      });
-    });
+    socket.onclose = (event: CloseEvent) => {
+      console.log('Disconnected from WebSocket server', event.code, event.reason);
+      if (this.socket !== socket) {
+        return; // closed through disconnect(), or replaced by a newer connection
+      }
+      this.socket = null;
+      this.dispatch('disconnect', { code: event.code, reason: event.reason });
+      if (event.code !== POLICY_VIOLATION) {
+        const delay = Math.min(MAX_RECONNECT_DELAY_MS, 1000 * 2 ** this.reconnectAttempts++);
+        this.reconnectTimer = setTimeout(() => this.open(groupId, token), delay);
+      }
+    };
   }
 
   disconnect() {
+    if (this.reconnectTimer) {
+      clearTimeout(this.reconnectTimer);
+      this.reconnectTimer = null;
+    }
+    this.reconnectAttempts = 0;
     if (this.socket) {
-      this.socket.disconnect();
+      const socket = this.socket;
       this.socket = null;
+      socket.close();
+      this.dispatch('disconnect', { code: 1000, reason: 'closed by client' });
     }
   }
 
-  on(event: string, callback: Function) {
+  on(event: string, callback: Listener) {
     if (!this.listeners.has(event)) {
       this.listeners.set(event, []);
     }
     this.listeners.get(event)!.push(callback);
-    
-    // If socket is already connected, set up the listener immediately
-    if (this.socket) {
-      this.socket.on(event, callback);
-    }
   }
 
-  off(event: string, callback: Function) {
+  off(event: string, callback: Listener) {
     const callbacks = this.listeners.get(event);
     if (callbacks) {
       const index = callbacks.indexOf(callback);
@@ -64,19 +89,14 @@ class SocketService {
         callbacks.splice(index, 1);
       }
     }
-    this.socket?.off(event, callback);
   }
 
-  emit(event: string, data: any) {
-    if (this.socket) {
-      this.socket.emit(event, data);
-    } else {
-      console.warn('Socket not connected. Cannot emit:', event, data);
-    }
+  isConnected(): boolean {
+    return this.socket?.readyState === WebSocket.OPEN;
   }
 
-  isConnected(): boolean {
-    return this.socket?.connected || false;
+  private dispatch(event: string, data?: unknown) {
+    this.listeners.get(event)?.forEach(callback => callback(data));
   }
 }
 